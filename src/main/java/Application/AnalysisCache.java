@@ -0,0 +1,165 @@
+package Application;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// The AnalysisCache class keeps the labeling of the black and white images that have been analysed,
+// so that drawing rectangles, refining, coloring and printing the same image only label it once.
+// Entries are keyed by the identity of the image. Every conversion makes a new image, so the identity also stands for
+// the conversion parameters it was made with, and the statistics in each entry are checked against the selection version.
+// The images are only held weakly, so an entry goes once its image is no longer used anywhere else.
+// The cache holds at most a given number of bytes, and drops the least recently used entries to stay under it.
+// Images are labeled outside the lock of the cache, so lookups of other images and reads of the counts never wait for a labeling.
+public class AnalysisCache {
+    // The default number of bytes the cache may hold.
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+    // The number of bytes the cache may hold.
+    private final long maxBytes;
+    // The entries, from the least to the most recently used.
+    private final LinkedHashMap<ImageKey, LabeledImage> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // The keys whose images have been collected.
+    private final ReferenceQueue<Object> collectedKeys = new ReferenceQueue<>();
+    // The number of bytes held.
+    private long bytes;
+    // The number of lookups that were and were not in the cache. They are counted without the lock, so they can be read at any time.
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder();
+
+    // Constructor that sets the number of bytes the cache may hold.
+    public AnalysisCache(long maxBytes) {
+        if (maxBytes < 0) throw new IllegalArgumentException("Max bytes < 0 is not allowed");
+        this.maxBytes = maxBytes;
+    }
+
+    //------------------------
+    // Lookups
+    //------------------------
+
+    // Method to get the labeling of an image, labeling it with the labeler if it is not in the cache.
+    // The labeler runs without the lock. If another thread labels the same image in the meantime, the labeling it kept is returned.
+    // A labeling larger than the whole cache is returned without being kept.
+    public LabeledImage get(Object image, Supplier<LabeledImage> labeler) {
+        LabeledImage labeledImage = lookup(image);
+        if (labeledImage != null) {
+            hits.increment();
+            return labeledImage;
+        }
+
+        misses.increment();
+        return put(image, labeler.get());
+    }
+
+    // Method to look up the labeling of an image, or null if it is not in the cache.
+    private synchronized LabeledImage lookup(Object image) {
+        removeCollected();
+        return entries.get(new ImageKey(image, null));
+    }
+
+    // Method to keep the labeling of an image, unless the image already has one. Returns the labeling that is kept.
+    private synchronized LabeledImage put(Object image, LabeledImage labeledImage) {
+        LabeledImage existing = entries.get(new ImageKey(image, null));
+        if (existing != null) return existing;
+        long entryBytes = labeledImage.getEstimatedBytes();
+        if (entryBytes <= maxBytes) {
+            entries.put(new ImageKey(image, collectedKeys), labeledImage);
+            bytes += entryBytes;
+            evict();
+        }
+        return labeledImage;
+    }
+
+    // Method to drop the labeling of an image.
+    public synchronized void invalidate(Object image) {
+        LabeledImage labeledImage = entries.remove(new ImageKey(image, null));
+        if (labeledImage != null) bytes -= labeledImage.getEstimatedBytes();
+    }
+
+    // Method to drop every labeling.
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    // Method to drop the least recently used entries until the cache is under its size.
+    private void evict() {
+        Iterator<Map.Entry<ImageKey, LabeledImage>> iterator = entries.entrySet().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            bytes -= iterator.next().getValue().getEstimatedBytes();
+            iterator.remove();
+        }
+    }
+
+    // Method to drop the entries whose images have been collected.
+    private void removeCollected() {
+        Object key;
+        while ((key = collectedKeys.poll()) != null) {
+            LabeledImage labeledImage = entries.remove(key);
+            if (labeledImage != null) bytes -= labeledImage.getEstimatedBytes();
+        }
+    }
+
+    //------------------------
+    // Getters
+    //------------------------
+
+    // Getter for the number of entries.
+    public synchronized int size() {
+        removeCollected();
+        return entries.size();
+    }
+
+    // Getter for the number of bytes held.
+    public synchronized long getBytes() {
+        removeCollected();
+        return bytes;
+    }
+
+    // Getter for the number of bytes the cache may hold.
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    // Getters for the number of lookups that were and were not in the cache.
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    // Method to start counting the lookups from zero again. The entries are kept.
+    public void resetCounts() {
+        hits.reset();
+        misses.reset();
+    }
+
+    // The ImageKey class is a weak reference to an image that is equal to another key for the same image.
+    // A key whose image has been collected is only equal to itself, so it can still be removed.
+    private static final class ImageKey extends WeakReference<Object> {
+        private final int hash;
+
+        private ImageKey(Object image, ReferenceQueue<Object> queue) {
+            super(image, queue);
+            this.hash = System.identityHashCode(image);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) return true;
+            if (!(other instanceof ImageKey key)) return false;
+            Object image = get();
+            return image != null && image == key.get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
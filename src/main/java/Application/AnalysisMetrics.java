@@ -0,0 +1,248 @@
+package Application;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// The AnalysisMetrics class counts the images analysed and times each stage of their analysis, for monitoring through JMX.
+// Every counter is a LongAdder, so threads analysing images at the same time never wait on each other to record them.
+// The latencies of each stage go into a histogram of LongAdders, one for each bucket, from which the percentiles are read.
+// Reads add up the counters while they may still be changing, so they are close to, but not exactly, a single moment.
+public class AnalysisMetrics implements AnalysisMetricsMBean {
+    // The domain of the names the metrics are registered under.
+    public static final String DOMAIN = "pharmacy.pillcapsuleanalyser";
+
+    // The cache whose lookups are reported, or null if there is none.
+    private final AnalysisCache analysisCache;
+    // The latencies of each stage.
+    private final Map<AnalysisStageEvent.Stage, LatencyHistogram> stageLatencies = new EnumMap<>(AnalysisStageEvent.Stage.class);
+    // The counts of images, pixels and sets analysed, and of images still being analysed.
+    private final LongAdder imagesAnalysed = new LongAdder();
+    private final LongAdder pixelsAnalysed = new LongAdder();
+    private final LongAdder componentsFound = new LongAdder();
+    private final LongAdder inFlightAnalyses = new LongAdder();
+    // The time the counting started, for the rates.
+    private volatile long startNanos = System.nanoTime();
+
+    // Constructor that sets the cache whose lookups are reported.
+    public AnalysisMetrics(AnalysisCache analysisCache) {
+        this.analysisCache = analysisCache;
+        for (AnalysisStageEvent.Stage stage : AnalysisStageEvent.Stage.values()) {
+            stageLatencies.put(stage, new LatencyHistogram());
+        }
+    }
+
+    //------------------------
+    // Recording
+    //------------------------
+
+    // Method to record a stage that took the given time.
+    public void recordStage(AnalysisStageEvent.Stage stage, long nanos) {
+        stageLatencies.get(stage).record(nanos);
+    }
+
+    // Method to record that an image has started to be analysed.
+    public void imageStarted() {
+        inFlightAnalyses.increment();
+    }
+
+    // Method to record that an image started with imageStarted has been analysed, with its pixels and the sets found in it.
+    public void imageFinished(long pixels, int components) {
+        inFlightAnalyses.decrement();
+        imagesAnalysed.increment();
+        pixelsAnalysed.add(pixels);
+        componentsFound.add(components);
+    }
+
+    // Method to record that an image started with imageStarted could not be analysed.
+    public void imageFailed() {
+        inFlightAnalyses.decrement();
+    }
+
+    //------------------------
+    // Registration
+    //------------------------
+
+    // Method to register the metrics with the platform MBean server under the given name. Returns the name they are registered under.
+    // The server keeps them until they are unregistered, so only metrics that live as long as the application should be registered.
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName(DOMAIN + ":type=AnalysisMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    // Method to unregister metrics registered under the given name, if they still are.
+    public static void unregister(ObjectName objectName) throws JMException {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        if (mBeanServer.isRegistered(objectName)) mBeanServer.unregisterMBean(objectName);
+    }
+
+    //------------------------
+    // Attributes
+    //------------------------
+
+    @Override
+    public long getImagesAnalysed() {
+        return imagesAnalysed.sum();
+    }
+
+    @Override
+    public double getImagesPerSecond() {
+        return imagesAnalysed.sum() / getElapsedSeconds();
+    }
+
+    @Override
+    public double getMegapixelsPerSecond() {
+        return pixelsAnalysed.sum() / 1e6 / getElapsedSeconds();
+    }
+
+    @Override
+    public long getComponentsFound() {
+        return componentsFound.sum();
+    }
+
+    @Override
+    public long getInFlightAnalyses() {
+        return inFlightAnalyses.sum();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return analysisCache != null ? analysisCache.getHits() : 0;
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return analysisCache != null ? analysisCache.getMisses() : 0;
+    }
+
+    // The cache counts its lookups itself in LongAdders, so reading them never waits for a lookup or a labeling.
+    @Override
+    public double getCacheHitRate() {
+        long hits = getCacheHits(), lookups = hits + getCacheMisses();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String[] getStageLatencies() {
+        AnalysisStageEvent.Stage[] stages = AnalysisStageEvent.Stage.values();
+        String[] lines = new String[stages.length];
+        for (int i = 0; i < stages.length; i++) {
+            LatencyHistogram histogram = stageLatencies.get(stages[i]);
+            lines[i] = String.format(Locale.ROOT, "%s count=%d p50=%.3fms p95=%.3fms p99=%.3fms", stages[i], histogram.count(),
+                    toMillis(histogram.percentile(50)), toMillis(histogram.percentile(95)), toMillis(histogram.percentile(99)));
+        }
+        return lines;
+    }
+
+    @Override
+    public long getStageCount(String stage) {
+        return getHistogram(stage).count();
+    }
+
+    @Override
+    public double getLatencyPercentileMillis(String stage, double percentile) {
+        if (percentile < 0 || percentile > 100) throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        return toMillis(getHistogram(stage).percentile(percentile));
+    }
+
+    @Override
+    public void reset() {
+        stageLatencies.values().forEach(LatencyHistogram::reset);
+        imagesAnalysed.reset();
+        pixelsAnalysed.reset();
+        componentsFound.reset();
+        if (analysisCache != null) analysisCache.resetCounts();
+        startNanos = System.nanoTime();
+    }
+
+    // Method to get the histogram of a stage by its name, in any case.
+    private LatencyHistogram getHistogram(String stage) {
+        return stageLatencies.get(AnalysisStageEvent.Stage.valueOf(stage.toUpperCase(Locale.ROOT)));
+    }
+
+    // Method to get the time since the counting started, never 0 so the rates are always defined.
+    private double getElapsedSeconds() {
+        return Math.max(System.nanoTime() - startNanos, 1) / 1e9;
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    // The LatencyHistogram class counts latencies in buckets that grow with the latency, eight to each power of two,
+    // so any latency from a nanosecond to centuries is placed within an eighth of its value without growing the histogram.
+    static final class LatencyHistogram {
+        // The buckets of each power of two, as a shift.
+        private static final int SUB_BUCKET_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+        // Latencies below SUB_BUCKETS nanoseconds each have a bucket of their own, the rest have SUB_BUCKETS for each power of two.
+        private final LongAdder[] buckets = new LongAdder[63 * SUB_BUCKETS];
+
+        LatencyHistogram() {
+            for (int i = 0; i < buckets.length; i++) buckets[i] = new LongAdder();
+        }
+
+        // Method to count a latency. Negative latencies count as 0.
+        void record(long nanos) {
+            buckets[bucketOf(Math.max(nanos, 0))].increment();
+        }
+
+        // Method to get the number of latencies counted.
+        long count() {
+            long count = 0;
+            for (LongAdder bucket : buckets) count += bucket.sum();
+            return count;
+        }
+
+        // Method to get the latency at a percentile, as the middle of the bucket it falls in, or 0 if nothing was counted.
+        long percentile(double percentile) {
+            long[] counts = new long[buckets.length];
+            long total = 0;
+            for (int i = 0; i < buckets.length; i++) total += counts[i] = buckets[i].sum();
+            if (total == 0) return 0;
+
+            // The rank of the latency, from 1 to total.
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return lowerBound(i) + (upperBound(i) - lowerBound(i)) / 2;
+            }
+            return upperBound(counts.length - 1);
+        }
+
+        void reset() {
+            for (LongAdder bucket : buckets) bucket.reset();
+        }
+
+        // Method to get the bucket of a latency.
+        static int bucketOf(long nanos) {
+            if (nanos < SUB_BUCKETS) return (int) nanos;
+            int power = 63 - Long.numberOfLeadingZeros(nanos);
+            int subBucket = (int) (nanos >>> (power - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return power * SUB_BUCKETS + subBucket;
+        }
+
+        // Methods to get the smallest and largest latency of a bucket.
+        static long lowerBound(int bucket) {
+            if (bucket < SUB_BUCKETS) return bucket;
+            int power = bucket / SUB_BUCKETS, subBucket = bucket % SUB_BUCKETS;
+            return (long) (SUB_BUCKETS + subBucket) << (power - SUB_BUCKET_BITS);
+        }
+
+        static long upperBound(int bucket) {
+            if (bucket < SUB_BUCKETS) return bucket;
+            int power = bucket / SUB_BUCKETS, subBucket = bucket % SUB_BUCKETS;
+            // The last bucket reaches the largest long.
+            if (power == 62 && subBucket == SUB_BUCKETS - 1) return Long.MAX_VALUE;
+            return ((long) (SUB_BUCKETS + subBucket + 1) << (power - SUB_BUCKET_BITS)) - 1;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package Application;
+
+// The management interface of AnalysisMetrics, as seen through JMX.
+public interface AnalysisMetricsMBean {
+    // The number of images analysed, and their rate since the metrics were created or reset.
+    long getImagesAnalysed();
+
+    double getImagesPerSecond();
+
+    double getMegapixelsPerSecond();
+
+    // The number of disjoint sets found in the images analysed.
+    long getComponentsFound();
+
+    // The number of images being analysed right now.
+    long getInFlightAnalyses();
+
+    // The lookups of the AnalysisCache, and the share of them that found a labeling.
+    long getCacheHits();
+
+    long getCacheMisses();
+
+    double getCacheHitRate();
+
+    // A line for each stage with its count and its 50th, 95th and 99th percentile latency in milliseconds.
+    String[] getStageLatencies();
+
+    // The number of times a stage has run, by the name of the stage.
+    long getStageCount(String stage);
+
+    // The latency of a stage at a percentile between 0 and 100, in milliseconds.
+    double getLatencyPercentileMillis(String stage, double percentile);
+
+    // Method to set every counter and histogram back to zero.
+    void reset();
+}
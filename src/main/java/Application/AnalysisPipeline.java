@@ -0,0 +1,357 @@
+package Application;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+// The AnalysisPipeline class runs the whole analysis of an image: convert to black and white, label, refine and count.
+// The selections and the adjustments are fixed when the pipeline is made, and the color classifier is compiled from them once.
+// Each run only works on its own image and the arrays it creates, and never changes the pipeline,
+// so one pipeline can analyse many images on many threads at the same time.
+// The steps are also static methods that take everything they need, which the managers of the ImageProcessor call for their state.
+public class AnalysisPipeline {
+    // The divisor of the largest set size that gives the smallest size counted as a pill.
+    public static final int THRESHOLD_FACTOR = 5;
+    // The name given to a pill when no PillSelection matches its pixels.
+    public static final String UNKNOWN_PILL_NAME = "Unknown";
+
+    // Constants for hue and value clamping.
+    private static final int MAX_HUE = 360;
+    private static final int MIN_VALUE = 0;
+    private static final int MAX_VALUE = 1;
+
+    // The executor used when a run should stay on the calling thread.
+    private static final RowBandExecutor CALLING_THREAD = new RowBandExecutor(1);
+
+    // The selections, the classifier compiled from them and the adjustments.
+    private final List<PillSelection> selections;
+    private final ColorClassifier colorClassifier = new ColorClassifier();
+    private final double hueAdjustment, saturationFactor, brightnessFactor;
+    // The executor the conversion of each run is split over.
+    private final RowBandExecutor rowBandExecutor;
+    // The metrics each run is recorded in, or null.
+    private final AnalysisMetrics analysisMetrics;
+
+    // Constructor that sets the selections and the adjustments. Each run stays on the thread that starts it.
+    public AnalysisPipeline(List<PillSelection> selections, double hueAdjustment, double saturationFactor, double brightnessFactor) {
+        this(selections, hueAdjustment, saturationFactor, brightnessFactor, CALLING_THREAD);
+    }
+
+    // Constructor that also sets the executor the conversion of each run is split over.
+    // The executor is not shut down by the pipeline.
+    public AnalysisPipeline(List<PillSelection> selections, double hueAdjustment, double saturationFactor, double brightnessFactor,
+                            RowBandExecutor rowBandExecutor) {
+        this(selections, hueAdjustment, saturationFactor, brightnessFactor, rowBandExecutor, null);
+    }
+
+    // Constructor that also sets the metrics each run and its stages are recorded in. The metrics may be null.
+    public AnalysisPipeline(List<PillSelection> selections, double hueAdjustment, double saturationFactor, double brightnessFactor,
+                            RowBandExecutor rowBandExecutor, AnalysisMetrics analysisMetrics) {
+        this.selections = List.copyOf(selections);
+        this.hueAdjustment = hueAdjustment;
+        this.saturationFactor = saturationFactor;
+        this.brightnessFactor = brightnessFactor;
+        this.rowBandExecutor = rowBandExecutor;
+        this.analysisMetrics = analysisMetrics;
+        // The classifier is never updated again, so runs only ever read it.
+        colorClassifier.update(this.selections);
+    }
+
+    //------------------------
+    // Runs
+    //------------------------
+
+    // Method to analyse an image held in a buffer. The buffer is only read, and must not be changed while the run is going on.
+    // Each stage emits an AnalysisStageEvent, and the run and its stages are added to the metrics if there are any.
+    public AnalysisResult analyse(ImageBuffer image) {
+        return analyse(image.getWidth(), image.getHeight(), pixelClasses ->
+                convert(image, colorClassifier, pixelClasses, hueAdjustment, saturationFactor, brightnessFactor, rowBandExecutor));
+    }
+
+    // Method to analyse an image mapped from a file. Its pixels are read straight from the mapping, one row at a time,
+    // so the only copies of the image on the heap are the black and white image and the PixelClasses, a byte or two for each pixel.
+    public AnalysisResult analyse(MappedImageSource image) {
+        return analyse(image.getWidth(), image.getHeight(), pixelClasses ->
+                convert(image, colorClassifier, pixelClasses, hueAdjustment, saturationFactor, brightnessFactor, rowBandExecutor));
+    }
+
+    // Method to analyse an image of the given size with the converter that turns it into black and white,
+    // recording the run in the metrics if there are any.
+    private AnalysisResult analyse(int width, int height, Function<PixelClasses, BinaryImage> converter) {
+        if (analysisMetrics != null) analysisMetrics.imageStarted();
+        try {
+            AnalysisResult result = run(width, height, converter);
+            if (analysisMetrics != null) analysisMetrics.imageFinished((long) width * height, result.getComponentTable().size());
+            return result;
+        } catch (RuntimeException | Error e) {
+            if (analysisMetrics != null) analysisMetrics.imageFailed();
+            throw e;
+        }
+    }
+
+    // Method to run the stages of the analysis of an image.
+    private AnalysisResult run(int width, int height, Function<PixelClasses, BinaryImage> converter) {
+        // Convert the image to black and white, keeping the class of each pixel for the votes.
+        // The classifier was compiled from the selections, so the index of each class is the column of its selection.
+        AnalysisStageEvent event = AnalysisStageEvent.begin(AnalysisStageEvent.Stage.CLASSIFY);
+        PixelClasses pixelClasses = new PixelClasses(width, height, selections.size());
+        BinaryImage mask = converter.apply(pixelClasses);
+        event.finish(analysisMetrics, width, height, selections.size(), 0);
+
+        // Remove the sets outside the size range of every selection.
+        LabeledImage labeledMask = labelStage(mask);
+        ComponentTable maskTable = componentStatsStage(labeledMask, pixelClasses);
+        event = AnalysisStageEvent.begin(AnalysisStageEvent.Stage.FILTER);
+        BinaryImage refinedMask = refine(mask, labeledMask.getUnionFind(), maskTable, selections);
+        event.finish(analysisMetrics, width, height, selections.size(), maskTable.size());
+
+        // Label the refined image and count its sets the same way the rectangles are drawn.
+        LabeledImage labels = labelStage(refinedMask);
+        ComponentTable componentTable = componentStatsStage(labels, pixelClasses);
+        return new AnalysisResult(mask, labels, componentTable, countPills(componentTable));
+    }
+
+    // Method to label a black and white image as a stage of a run. The boundary is worked out with the labels, so it is timed with them.
+    private LabeledImage labelStage(BinaryImage bwImage) {
+        AnalysisStageEvent event = AnalysisStageEvent.begin(AnalysisStageEvent.Stage.LABEL);
+        LabeledImage labeledImage = label(bwImage);
+        event.finish(analysisMetrics, bwImage.getWidth(), bwImage.getHeight(), selections.size(),
+                event.isEnabled() ? countSets(labeledImage.getUnionFind(), bwImage) : 0);
+        return labeledImage;
+    }
+
+    // Method to build the statistics of the sets of a labeled image as a stage of a run.
+    private ComponentTable componentStatsStage(LabeledImage labeledImage, PixelClasses pixelClasses) {
+        AnalysisStageEvent event = AnalysisStageEvent.begin(AnalysisStageEvent.Stage.COMPONENT_STATS);
+        BinaryImage bwImage = labeledImage.getBinaryImage();
+        ComponentTable componentTable = ComponentTable.build(bwImage, labeledImage.getUnionFind(), labeledImage.getBoundary(), pixelClasses, selections);
+        event.finish(analysisMetrics, bwImage.getWidth(), bwImage.getHeight(), selections.size(), componentTable.size());
+        return componentTable;
+    }
+
+    // Getter for the selections.
+    public List<PillSelection> getSelections() {
+        return selections;
+    }
+
+    //------------------------
+    // Convert
+    //------------------------
+
+    // Method to adjust and classify each pixel of an image into a black and white image, in a single pass.
+    // The closest PillSelection of each white pixel is written into the PillSelection array, unless it is null.
+    // Each band of rows only writes its own rows, and every row has its own words, so the bands can be processed in parallel.
+    public static BinaryImage convert(ImageBuffer image, ColorClassifier colorClassifier, PillSelection[][] pillSelectionArray,
+                                      double hueAdjustment, double saturationFactor, double brightnessFactor, RowBandExecutor rowBandExecutor) {
+        ColorClassifier.Snapshot snapshot = colorClassifier.getSnapshot();
+        return convert(image, snapshot, toClassSink(pillSelectionArray, snapshot), hueAdjustment, saturationFactor, brightnessFactor, rowBandExecutor);
+    }
+
+    // Method to adjust and classify each pixel of an image into a black and white image, writing the index of the closest
+    // PillSelection of each white pixel into the PixelClasses instead of the selection itself.
+    public static BinaryImage convert(ImageBuffer image, ColorClassifier colorClassifier, PixelClasses pixelClasses,
+                                      double hueAdjustment, double saturationFactor, double brightnessFactor, RowBandExecutor rowBandExecutor) {
+        return convert(image, colorClassifier.getSnapshot(), pixelClasses::set, hueAdjustment, saturationFactor, brightnessFactor, rowBandExecutor);
+    }
+
+    // Method to adjust and classify each pixel of an image mapped from a file, writing the index of the selection of each
+    // white pixel into the PixelClasses, so that nothing on the heap is as large as the image itself.
+    // Each band reads its rows from the mapping into a single row of its own, so the bands can still be processed in parallel.
+    public static BinaryImage convert(MappedImageSource image, ColorClassifier colorClassifier, PixelClasses pixelClasses,
+                                      double hueAdjustment, double saturationFactor, double brightnessFactor, RowBandExecutor rowBandExecutor) {
+        return convert(image, colorClassifier.getSnapshot(), pixelClasses::set, hueAdjustment, saturationFactor, brightnessFactor, rowBandExecutor);
+    }
+
+    // Method to convert an image held in a buffer, passing the class of each white pixel to the sink, unless it is null.
+    private static BinaryImage convert(ImageBuffer image, ColorClassifier.Snapshot colorClassifier, ClassSink classSink,
+                                       double hueAdjustment, double saturationFactor, double brightnessFactor, RowBandExecutor rowBandExecutor) {
+        BinaryImage bwImage = new BinaryImage(image.getWidth(), image.getHeight());
+        int[] pixels = image.getPixels();
+        int width = image.getWidth();
+        rowBandExecutor.forEachBand(image.getHeight(), (startY, endY) -> {
+            for (int y = startY; y < endY; y++) {
+                convertRow(pixels, y * width, y, width, bwImage, colorClassifier, classSink, hueAdjustment, saturationFactor, brightnessFactor);
+            }
+        });
+        return bwImage;
+    }
+
+    // Method to convert an image mapped from a file, passing the class of each white pixel to the sink, unless it is null.
+    private static BinaryImage convert(MappedImageSource image, ColorClassifier.Snapshot colorClassifier, ClassSink classSink,
+                                       double hueAdjustment, double saturationFactor, double brightnessFactor, RowBandExecutor rowBandExecutor) {
+        BinaryImage bwImage = new BinaryImage(image.getWidth(), image.getHeight());
+        int width = image.getWidth();
+        rowBandExecutor.forEachBand(image.getHeight(), (startY, endY) -> {
+            int[] row = new int[width];
+            for (int y = startY; y < endY; y++) {
+                image.readRow(y, row, 0);
+                convertRow(row, 0, y, width, bwImage, colorClassifier, classSink, hueAdjustment, saturationFactor, brightnessFactor);
+            }
+        });
+        return bwImage;
+    }
+
+    // Method to get the sink that writes the selection of each class into a PillSelection array, or null if there is no array.
+    private static ClassSink toClassSink(PillSelection[][] pillSelectionArray, ColorClassifier.Snapshot colorClassifier) {
+        return pillSelectionArray == null ? null : (x, y, index) -> pillSelectionArray[y][x] = colorClassifier.getSelection(index);
+    }
+
+    // Method to adjust and classify the pixels of row y, which start at the offset of the array.
+    private static void convertRow(int[] pixels, int offset, int y, int width, BinaryImage bwImage, ColorClassifier.Snapshot colorClassifier,
+                                   ClassSink classSink, double hueAdjustment, double saturationFactor, double brightnessFactor) {
+        for (int x = 0; x < width; x++) {
+            // The adjusted color is only held in a local, so no adjusted image is ever written or read back.
+            int index = colorClassifier.classify(adjustArgb(pixels[offset + x], hueAdjustment, saturationFactor, brightnessFactor));
+            // The black and white image starts out black.
+            if (index != ColorClassifier.NO_SELECTION) {
+                bwImage.setWhite(x, y);
+                if (classSink != null) classSink.set(x, y, index);
+            }
+        }
+    }
+
+    // Interface for where the class of each white pixel is kept.
+    private interface ClassSink {
+        void set(int x, int y, int index);
+    }
+
+    // Method to adjust the hue, saturation and brightness of a packed ARGB color without creating any Colors.
+    // It does the same steps in the same order as Color.getHue, getSaturation, getBrightness, Color.hsb and ImageBuffer.toArgb,
+    // including rounding each component to float the way Color stores it, so the result is the same to the bit.
+    // The adjusted color is always opaque, the same as a color made with Color.hsb.
+    public static int adjustArgb(int argb, double hueAdjustment, double saturationFactor, double brightnessFactor) {
+        return adjustHsb(ImageBuffer.getHue(argb), ImageBuffer.getSaturation(argb), ImageBuffer.getBrightness(argb),
+                hueAdjustment, saturationFactor, brightnessFactor);
+    }
+
+    // Method to adjust a color given as hue, saturation and brightness and pack it as an opaque ARGB color.
+    // This is the second half of adjustArgb, for colors whose hue, saturation and brightness are already known.
+    public static int adjustHsb(double hue, double saturation, double brightness, double hueAdjustment, double saturationFactor, double brightnessFactor) {
+        // Adjust the color.
+        double newHue = (hue + hueAdjustment) % MAX_HUE;  // Ensure the hue stays within the range [0, 360)
+        double newSaturation = clamp(saturation * saturationFactor);
+        double newBrightness = clamp(brightness * brightnessFactor);
+
+        // Convert the adjusted color back to red, green and blue.
+        double normalizedHue = (((newHue % MAX_HUE) + MAX_HUE) % MAX_HUE) / MAX_HUE;
+        double r = 0, g = 0, b = 0;
+        if (newSaturation == 0) {
+            r = g = b = newBrightness;
+        } else {
+            double h = (normalizedHue - Math.floor(normalizedHue)) * 6.0;
+            double f = h - Math.floor(h);
+            double p = newBrightness * (1.0 - newSaturation);
+            double q = newBrightness * (1.0 - newSaturation * f);
+            double t = newBrightness * (1.0 - (newSaturation * (1.0 - f)));
+            switch ((int) h) {
+                case 0 -> { r = newBrightness; g = t; b = p; }
+                case 1 -> { r = q; g = newBrightness; b = p; }
+                case 2 -> { r = p; g = newBrightness; b = t; }
+                case 3 -> { r = p; g = q; b = newBrightness; }
+                case 4 -> { r = t; g = p; b = newBrightness; }
+                case 5 -> { r = newBrightness; g = p; b = q; }
+                default -> { }  // Only reached by rounding at the very top of the hue range, where Color.hsb gives black too
+            }
+        }
+
+        // Pack the color the way ImageBuffer.toArgb does, from the float components of an opaque Color.
+        return 0xFF000000
+                | (int) Math.round((float) r * 255.0) << 16
+                | (int) Math.round((float) g * 255.0) << 8
+                | (int) Math.round((float) b * 255.0);
+    }
+
+    // Method to clamp a value between MIN_VALUE and MAX_VALUE.
+    private static double clamp(double value) {
+        return Math.max(MIN_VALUE, Math.min(MAX_VALUE, value));
+    }
+
+    //------------------------
+    // Label
+    //------------------------
+
+    // Method to label a black and white image: join each white pixel with its white neighbours and work out the boundary.
+    public static LabeledImage label(BinaryImage bwImage) {
+        UnionFind unionFind = new UnionFind(bwImage.getWidth() * bwImage.getHeight());
+        join(unionFind, bwImage);
+        return new LabeledImage(bwImage, unionFind, bwImage.boundary());
+    }
+
+    // Method to join each white pixel of a black and white image with the white pixels to its right and below.
+    // The pixels to the left and above were already joined with it when they were visited.
+    public static void join(UnionFind unionFind, BinaryImage bwImage) {
+        int width = bwImage.getWidth();
+        int height = bwImage.getHeight();
+        bwImage.forEachWhite((x, y) -> {
+            int p = y * width + x;
+            if (x < width - 1 && bwImage.isWhite(x + 1, y)) unionFind.unionBySize(p, p + 1);  // right
+            if (y < height - 1 && bwImage.isWhite(x, y + 1)) unionFind.unionBySize(p, p + width);  // below
+        });
+    }
+
+    // Method to count the disjoint sets of white pixels. Every black pixel is a set of its own, so they are left out.
+    public static int countSets(UnionFind unionFind, BinaryImage bwImage) {
+        return unionFind.components() - (unionFind.size() - bwImage.countWhite());
+    }
+
+    //------------------------
+    // Refine
+    //------------------------
+
+    // Method to refine a black and white image: only keep the sets whose size is within the size range of any selection.
+    // Only sets with boundary pixels have a size. Black pixels are never part of a kept set, so only the white pixels are looked at.
+    public static BinaryImage refine(BinaryImage bwImage, UnionFind unionFind, ComponentTable componentTable, List<PillSelection> selections) {
+        // Mark the dense labels of the kept sets.
+        boolean[] keptLabels = new boolean[unionFind.compact()];
+        for (int row = 0; row < componentTable.size(); row++) {
+            int size = componentTable.getBoundarySize(row);
+            if (size > 0 && testSize(size, selections)) {
+                keptLabels[componentTable.getLabel(row)] = true;
+            }
+        }
+
+        // Keep each white pixel whose disjoint set was kept, in a new all black image.
+        BinaryImage refinedImage = new BinaryImage(bwImage.getWidth(), bwImage.getHeight());
+        int[] labels = unionFind.getLabels();
+        bwImage.forEachWhite((x, y) -> {
+            if (keptLabels[labels[y * bwImage.getWidth() + x]]) {
+                refinedImage.setWhite(x, y);
+            }
+        });
+        return refinedImage;
+    }
+
+    // Method to test if a disjoint set of the given size is within the size range of any PillSelection.
+    public static boolean testSize(int size, List<PillSelection> selections) {
+        return selections.stream().anyMatch(selection -> size >= selection.getMinSize() && size <= selection.getMaxSize());
+    }
+
+    //------------------------
+    // Count
+    //------------------------
+
+    // Method to get the smallest size a set must be above to be counted as a pill, from the largest set.
+    // Only sets with boundary pixels have a size, so a set without them is never above the threshold.
+    public static int getPillThreshold(ComponentTable componentTable) {
+        return componentTable.getMaxBoundarySize() / THRESHOLD_FACTOR;
+    }
+
+    // Method to get the name of the most common PillSelection in a set, or UNKNOWN_PILL_NAME if there is none.
+    public static String getPillName(ComponentTable componentTable, int row) {
+        PillSelection mostCommonPillSelection = componentTable.getMostCommonSelection(row);
+        return mostCommonPillSelection != null ? mostCommonPillSelection.getName() : UNKNOWN_PILL_NAME;
+    }
+
+    // Method to count the pills by name, using the same threshold and names as the rectangles drawn for them.
+    public static Map<String, Integer> countPills(ComponentTable componentTable) {
+        Map<String, Integer> pillCounts = new TreeMap<>();
+        int threshold = getPillThreshold(componentTable);
+        for (int row = 0; row < componentTable.size(); row++) {
+            if (componentTable.getBoundarySize(row) > threshold) {
+                pillCounts.merge(getPillName(componentTable, row), 1, Integer::sum);
+            }
+        }
+        return pillCounts;
+    }
+}
@@ -0,0 +1,62 @@
+package Application;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+// The AnalysisResult class holds everything a run of the AnalysisPipeline worked out for one image:
+// the black and white mask straight from the conversion, the labeling of the refined mask, the statistics of its sets
+// and the number of pills counted by name. Nothing in it is changed once the run is over,
+// so a result can be handed to any thread. The images and tables it holds must not be changed by their readers either.
+public class AnalysisResult {
+    // The mask from the conversion, before the sets outside every size range were removed.
+    private final BinaryImage mask;
+    // The labeling of the refined mask.
+    private final LabeledImage labels;
+    // The statistics of the sets of the refined mask.
+    private final ComponentTable componentTable;
+    // The number of pills counted with each name.
+    private final Map<String, Integer> pillCounts;
+
+    // Constructor that sets every part of the result.
+    public AnalysisResult(BinaryImage mask, LabeledImage labels, ComponentTable componentTable, Map<String, Integer> pillCounts) {
+        this.mask = mask;
+        this.labels = labels;
+        this.componentTable = componentTable;
+        this.pillCounts = Collections.unmodifiableMap(new TreeMap<>(pillCounts));
+    }
+
+    //------------------------
+    // Getters
+    //------------------------
+
+    // Getter for the mask from the conversion.
+    public BinaryImage getMask() {
+        return mask;
+    }
+
+    // Getter for the refined mask.
+    public BinaryImage getRefinedMask() {
+        return labels.getBinaryImage();
+    }
+
+    // Getter for the labeling of the refined mask.
+    public LabeledImage getLabels() {
+        return labels;
+    }
+
+    // Getter for the statistics of the sets of the refined mask.
+    public ComponentTable getComponentTable() {
+        return componentTable;
+    }
+
+    // Getter for the number of pills counted with each name, sorted by name.
+    public Map<String, Integer> getPillCounts() {
+        return pillCounts;
+    }
+
+    // Method to get the total number of pills counted.
+    public int getPillCount() {
+        return pillCounts.values().stream().mapToInt(Integer::intValue).sum();
+    }
+}
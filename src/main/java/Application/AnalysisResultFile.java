@@ -0,0 +1,524 @@
+package Application;
+
+import javafx.scene.paint.Color;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+// The AnalysisResultFile class saves an AnalysisResult to a compact binary file and reads it back, so a tray can be reopened
+// and its rectangles and counts rebuilt without converting and labeling its pixels again.
+// A file holds, after a magic number and a version:
+//   the width and height of the image,
+//   the PillSelections the votes were counted for,
+//   the mask from the conversion, as the lengths of the runs of black and white pixels, starting with black,
+//   the label map of the refined mask, as runs of the same value: 0 for black, or the row of the set in the table plus one,
+// with the runs of both going on until every pixel is covered, so they can be written as they are found,
+//   the rows of the component table: label, root, bounds, area, boundary size and the votes for each selection,
+//   the pill counts by name,
+// and ends with a CRC32 of everything before it. Every number is an unsigned LEB128 varint, so small numbers take a single byte,
+// except for the colors and thresholds of the selections, which are written as doubles so they come back exactly.
+// The UnionFind and the boundary of the refined mask are rebuilt from the label map, with the same roots and labels as before.
+public class AnalysisResultFile {
+    // The first bytes of every file: "PCAR" for Pill Capsule Analysis Result.
+    static final int MAGIC = 0x50434152;
+    // The version written. Files of a newer version are not read.
+    public static final int VERSION = 1;
+    // The extension of the files results are saved to.
+    public static final String EXTENSION = ".pcar";
+    // The size of the buffer between the channel and the varints.
+    private static final int BUFFER_SIZE = 1 << 16;
+    // The number of columns of a row of the component table before its votes.
+    private static final int TABLE_COLUMNS = 8;
+
+    // This class only has static methods.
+    private AnalysisResultFile() {
+    }
+
+    //------------------------
+    // Writing
+    //------------------------
+
+    // Method to write a result to a file, replacing it if it exists.
+    public static void write(Path path, AnalysisResult result) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(channel, result);
+        }
+    }
+
+    // Method to write a result to a channel. The channel is not closed.
+    public static void write(WritableByteChannel channel, AnalysisResult result) throws IOException {
+        Encoder encoder = new Encoder(channel);
+        BinaryImage mask = result.getMask();
+        LabeledImage labels = result.getLabels();
+        ComponentTable componentTable = result.getComponentTable();
+        List<PillSelection> selections = componentTable.getSelections();
+
+        encoder.writeInt(MAGIC);
+        encoder.writeVarint(VERSION);
+        encoder.writeVarint(mask.getWidth());
+        encoder.writeVarint(mask.getHeight());
+
+        // The selections.
+        encoder.writeVarint(selections.size());
+        for (PillSelection selection : selections) {
+            encoder.writeString(selection.getName());
+            Color color = selection.getColor();
+            encoder.writeDouble(color.getRed());
+            encoder.writeDouble(color.getGreen());
+            encoder.writeDouble(color.getBlue());
+            encoder.writeDouble(color.getOpacity());
+            encoder.writeDouble(selection.getColorThreshold());
+            encoder.writeSignedVarint(selection.getMinSize());
+            encoder.writeSignedVarint(selection.getMaxSize());
+        }
+
+        // The mask, then the label map of the refined mask.
+        writeMask(encoder, mask);
+        writeLabelMap(encoder, labels, componentTable);
+
+        // The component table.
+        encoder.writeVarint(componentTable.size());
+        for (int row = 0; row < componentTable.size(); row++) {
+            encoder.writeVarint(componentTable.getLabel(row));
+            encoder.writeVarint(componentTable.getRoot(row));
+            encoder.writeVarint(componentTable.getMinX(row));
+            encoder.writeVarint(componentTable.getMaxX(row));
+            encoder.writeVarint(componentTable.getMinY(row));
+            encoder.writeVarint(componentTable.getMaxY(row));
+            encoder.writeVarint(componentTable.getArea(row));
+            encoder.writeVarint(componentTable.getBoundarySize(row));
+            for (int s = 0; s < selections.size(); s++) {
+                encoder.writeVarint(componentTable.getVotes(row, s));
+            }
+        }
+
+        // The pill counts.
+        encoder.writeVarint(result.getPillCounts().size());
+        for (Map.Entry<String, Integer> entry : result.getPillCounts().entrySet()) {
+            encoder.writeString(entry.getKey());
+            encoder.writeVarint(entry.getValue());
+        }
+
+        encoder.finish();
+    }
+
+    // Method to write a black and white image as the lengths of its runs of black and white pixels, row after row.
+    // Only the first run can be empty, when the image starts with a white pixel.
+    private static void writeMask(Encoder encoder, BinaryImage bwImage) throws IOException {
+        int width = bwImage.getWidth(), height = bwImage.getHeight();
+        boolean white = false;
+        int run = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (bwImage.isWhite(x, y) != white) {
+                    encoder.writeVarint(run);
+                    white = !white;
+                    run = 0;
+                }
+                run++;
+            }
+        }
+        encoder.writeVarint(run);
+    }
+
+    // Method to write the label map of a labeling as runs of the same value: 0 for black, or the row of the set plus one.
+    private static void writeLabelMap(Encoder encoder, LabeledImage labels, ComponentTable componentTable) throws IOException {
+        BinaryImage bwImage = labels.getBinaryImage();
+        UnionFind unionFind = labels.getUnionFind();
+        unionFind.compact();
+        int[] pixelLabels = unionFind.getLabels();
+        int width = bwImage.getWidth(), height = bwImage.getHeight();
+
+        // Each run is written as its value and its length once the next one starts.
+        int value = -1, run = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int pixelValue = bwImage.isWhite(x, y) ? componentTable.getRowOfLabel(pixelLabels[y * width + x]) + 1 : 0;
+                if (pixelValue != value) {
+                    if (run > 0) {
+                        encoder.writeVarint(value);
+                        encoder.writeVarint(run);
+                    }
+                    value = pixelValue;
+                    run = 0;
+                }
+                run++;
+            }
+        }
+        encoder.writeVarint(value);
+        encoder.writeVarint(run);
+    }
+
+    //------------------------
+    // Reading
+    //------------------------
+
+    // Method to read a result from a file.
+    public static AnalysisResult read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return read(channel);
+        }
+    }
+
+    // Method to read a result from a channel. The channel is not closed.
+    // A file that is not a result, is of a newer version, or was damaged is reported with an IOException.
+    // Nothing the size of the image is allocated until the CRC32 has been checked, and everything allocated before that
+    // grows with the bytes actually read, so a damaged length can not run the heap out of memory.
+    public static AnalysisResult read(ReadableByteChannel channel) throws IOException {
+        try {
+            return decode(new Decoder(channel));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | ArithmeticException e) {
+            // A value that passed the CRC32 but does not fit the rest of the file.
+            throw new IOException("The analysis result file is not valid: " + e.getMessage(), e);
+        }
+    }
+
+    // Method to decode the sections of a result in the order they were written.
+    private static AnalysisResult decode(Decoder decoder) throws IOException {
+        if (decoder.readInt() != MAGIC) throw new IOException("Not an analysis result file");
+        int version = decoder.readVarint();
+        if (version < 1 || version > VERSION) throw new IOException("Unsupported analysis result version " + version);
+        int width = decoder.readVarint(), height = decoder.readVarint();
+        long pixelCount = (long) width * height;
+        if (pixelCount <= 0 || pixelCount > Integer.MAX_VALUE) throw new IOException("Invalid image size " + width + "x" + height);
+
+        // The selections. Each one takes bytes of its own, so the list only grows as far as the file goes.
+        int selectionCount = decoder.readVarint();
+        if (selectionCount > PixelClasses.MAX_SELECTIONS) throw new IOException("Too many selections: " + selectionCount);
+        List<PillSelection> selections = new ArrayList<>();
+        for (int i = 0; i < selectionCount; i++) {
+            String name = decoder.readString();
+            Color color = new Color(readUnit(decoder), readUnit(decoder), readUnit(decoder), readUnit(decoder));
+            double colorThreshold = decoder.readDouble();
+            if (!Double.isFinite(colorThreshold)) throw new IOException("Invalid color threshold " + colorThreshold);
+            int minSize = decoder.readSignedVarint();
+            int maxSize = decoder.readSignedVarint();
+            selections.add(new PillSelection(name, color, colorThreshold, minSize, maxSize));
+        }
+
+        // The runs of the mask, then the values and lengths of the runs of the label map.
+        IntList maskRuns = readMaskRuns(decoder, pixelCount);
+        IntList labelRuns = readLabelRuns(decoder, pixelCount);
+
+        // The component table, one row after the other.
+        int rows = decoder.readVarint();
+        if (rows > pixelCount) throw new IOException("More rows than pixels: " + rows);
+        int stride = TABLE_COLUMNS + selectionCount;
+        IntList table = new IntList();
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < stride; column++) table.add(decoder.readVarint());
+        }
+
+        // The pill counts.
+        int countCount = decoder.readVarint();
+        Map<String, Integer> pillCounts = new TreeMap<>();
+        for (int i = 0; i < countCount; i++) {
+            pillCounts.put(decoder.readString(), decoder.readVarint());
+        }
+        decoder.finish();
+
+        // Rebuild the mask from its runs.
+        BinaryImage mask = new BinaryImage(width, height);
+        long p = 0;
+        for (int i = 0; i < maskRuns.size(); i++) {
+            long end = p + maskRuns.get(i);
+            if (i % 2 == 1) {
+                for (; p < end; p++) mask.setWhite((int) (p % width), (int) (p / width));
+            }
+            p = end;
+        }
+
+        // Split the table into its columns.
+        int[] labelColumn = new int[rows], roots = new int[rows];
+        int[] minX = new int[rows], maxX = new int[rows], minY = new int[rows], maxY = new int[rows];
+        int[] area = new int[rows], boundarySize = new int[rows];
+        int[] votes = new int[rows * selectionCount];
+        for (int row = 0, i = 0; row < rows; row++) {
+            labelColumn[row] = table.get(i++);
+            roots[row] = table.get(i++);
+            if (roots[row] >= pixelCount) throw new IOException("The root of row " + row + " is outside the image");
+            minX[row] = table.get(i++);
+            maxX[row] = table.get(i++);
+            minY[row] = table.get(i++);
+            maxY[row] = table.get(i++);
+            area[row] = table.get(i++);
+            boundarySize[row] = table.get(i++);
+            for (int s = 0; s < selectionCount; s++) {
+                votes[row * selectionCount + s] = table.get(i++);
+            }
+        }
+
+        // Rebuild the refined mask and its sets from the label map. Every black pixel is a set of its own.
+        BinaryImage refinedMask = new BinaryImage(width, height);
+        int[] pixelRoots = new int[(int) pixelCount];
+        p = 0;
+        for (int i = 0; i < labelRuns.size(); i += 2) {
+            int value = labelRuns.get(i);
+            if (value > rows) throw new IOException("The label map refers to a missing row");
+            for (long end = p + labelRuns.get(i + 1); p < end; p++) {
+                if (value == 0) {
+                    pixelRoots[(int) p] = (int) p;
+                } else {
+                    pixelRoots[(int) p] = roots[value - 1];
+                    refinedMask.setWhite((int) (p % width), (int) (p / width));
+                }
+            }
+        }
+        UnionFind unionFind = UnionFind.fromRoots(pixelRoots);
+        LabeledImage labels = new LabeledImage(refinedMask, unionFind, refinedMask.boundary());
+
+        ComponentTable componentTable = ComponentTable.restore(selections, unionFind.compact(), labelColumn, roots,
+                minX, maxX, minY, maxY, area, boundarySize, votes);
+        return new AnalysisResult(mask, labels, componentTable, pillCounts);
+    }
+
+    // Method to read a color component, which must be between 0 and 1.
+    private static double readUnit(Decoder decoder) throws IOException {
+        double value = decoder.readDouble();
+        if (!(value >= 0 && value <= 1)) throw new IOException("Invalid color component " + value);
+        return value;
+    }
+
+    // Method to read the lengths of the runs of black and white pixels of a mask, until every pixel is covered.
+    private static IntList readMaskRuns(Decoder decoder, long pixelCount) throws IOException {
+        IntList runs = new IntList();
+        long p = 0;
+        while (p < pixelCount) {
+            int length = decoder.readVarint();
+            if (length == 0 && runs.size() > 0) throw new IOException("The mask has an empty run");
+            if (p + length > pixelCount) throw new IOException("The mask is longer than the image");
+            runs.add(length);
+            p += length;
+        }
+        return runs;
+    }
+
+    // Method to read the values and lengths of the runs of a label map, until every pixel is covered.
+    private static IntList readLabelRuns(Decoder decoder, long pixelCount) throws IOException {
+        IntList runs = new IntList();
+        long p = 0;
+        while (p < pixelCount) {
+            int value = decoder.readVarint(), length = decoder.readVarint();
+            if (length == 0) throw new IOException("The label map has an empty run");
+            if (p + length > pixelCount) throw new IOException("The label map is longer than the image");
+            runs.add(value);
+            runs.add(length);
+            p += length;
+        }
+        return runs;
+    }
+
+    // The IntList class is a list of ints that grows as they are read, so its size always follows the bytes read.
+    private static final class IntList {
+        // The most ints a list can hold.
+        private static final int MAX_SIZE = Integer.MAX_VALUE - 8;
+
+        private int[] values = new int[64];
+        private int size;
+
+        void add(int value) throws IOException {
+            if (size == values.length) {
+                if (size == MAX_SIZE) throw new IOException("The analysis result file is too large");
+                values = Arrays.copyOf(values, (int) Math.min(2L * size, MAX_SIZE));
+            }
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+    }
+
+    //------------------------
+    // Encoding
+    //------------------------
+
+    // The Encoder class writes varints, doubles and strings into a buffer that is written to the channel whenever it is full,
+    // adding every byte to a CRC32 on the way out.
+    private static final class Encoder {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final CRC32 crc = new CRC32();
+
+        Encoder(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        void writeVarint(int value) throws IOException {
+            if (value < 0) throw new IllegalArgumentException("A varint must not be negative: " + value);
+            writeUnsigned(value);
+        }
+
+        // Method to write a number that may be negative, zigzag encoded so that small negative numbers stay small.
+        void writeSignedVarint(int value) throws IOException {
+            writeUnsigned((value << 1) ^ (value >> 31));
+        }
+
+        // Method to write the 32 bits of a number as an unsigned varint, 7 bits to a byte.
+        private void writeUnsigned(int value) throws IOException {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        void writeInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void writeDouble(double value) throws IOException {
+            ensure(Double.BYTES);
+            buffer.putDouble(value);
+        }
+
+        void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length);
+            for (int offset = 0; offset < bytes.length; ) {
+                ensure(1);
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        // Method to write the CRC32 of everything written so far, and the rest of the buffer.
+        void finish() throws IOException {
+            flush();
+            buffer.putInt((int) crc.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            buffer.clear();
+        }
+
+        // Method to make room for the given number of bytes.
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) flush();
+        }
+
+        // Method to write the buffer to the channel.
+        private void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) channel.write(buffer);
+            buffer.clear();
+        }
+    }
+
+    // The Decoder class reads varints, doubles and strings from a buffer that is filled from the channel as it runs out,
+    // adding every byte read to a CRC32 to check against the one at the end.
+    private static final class Decoder {
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final CRC32 crc = new CRC32();
+        // The number of bytes at the start of the buffer that have been added to the CRC32.
+        private int checked;
+
+        Decoder(ReadableByteChannel channel) {
+            this.channel = channel;
+            buffer.limit(0);
+        }
+
+        int readVarint() throws IOException {
+            int value = readUnsigned();
+            if (value < 0) throw new IOException("A varint is too large");
+            return value;
+        }
+
+        int readSignedVarint() throws IOException {
+            int value = readUnsigned();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        // Method to read the 32 bits of a number written as an unsigned varint.
+        private int readUnsigned() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                byte b = readByte();
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) return value;
+            }
+            throw new IOException("A varint is too long");
+        }
+
+        int readInt() throws IOException {
+            ensure(Integer.BYTES);
+            return buffer.getInt();
+        }
+
+        double readDouble() throws IOException {
+            ensure(Double.BYTES);
+            return buffer.getDouble();
+        }
+
+        // Method to read a string. The bytes are only allocated as they are read, so a damaged length ends the file first.
+        String readString() throws IOException {
+            int stringLength = readVarint();
+            byte[] bytes = new byte[Math.min(stringLength, BUFFER_SIZE)];
+            for (int offset = 0; offset < stringLength; ) {
+                if (offset == bytes.length) bytes = Arrays.copyOf(bytes, (int) Math.min(2L * bytes.length, stringLength));
+                ensure(1);
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.get(bytes, offset, length);
+                offset += length;
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private byte readByte() throws IOException {
+            ensure(1);
+            return buffer.get();
+        }
+
+        // Method to check the CRC32 at the end against the bytes read.
+        void finish() throws IOException {
+            consume();
+            int expected = (int) crc.getValue();
+            if (readInt() != expected) throw new IOException("The analysis result file is damaged");
+        }
+
+        // Method to make sure the given number of bytes are in the buffer, reading more from the channel if needed.
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) return;
+            consume();
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("The analysis result file ends too soon");
+                }
+            }
+            buffer.flip();
+            // The bytes that were kept have not been read yet, so they are added to the CRC32 from the start of the buffer.
+            checked = 0;
+        }
+
+        // Method to add the bytes read since the last time to the CRC32.
+        private void consume() {
+            ByteBuffer read = buffer.duplicate();
+            read.limit(buffer.position());
+            read.position(checked);
+            crc.update(read);
+            checked = buffer.position();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package Application;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// The AnalysisStageEvent class is a Java Flight Recorder event for one stage of the analysis of an image,
+// such as labeling it or drawing its rectangles. The duration of the event is the time the stage took.
+// While no recording has the event enabled, begin and finish only read a flag and the clock, so the stages can always emit it.
+// The same timing is also added to the AnalysisMetrics of the stage, if it has any, whether or not a recording is running.
+// Counts that take work to find should only be worked out when isEnabled() is true.
+@Name(AnalysisStageEvent.NAME)
+@Label("Analysis Stage")
+@Category({"Pill Capsule Analyser", "Analysis"})
+@Description("A stage of the analysis of an image")
+@StackTrace(false)
+public class AnalysisStageEvent extends Event {
+    // The name of the event in a recording.
+    public static final String NAME = "pharmacy.pillcapsuleanalyser.AnalysisStage";
+
+    // The stages of the analysis, in the order an image goes through them.
+    // ADJUST is only recorded where the colors are adjusted in a pass of their own, as when converting from HsbPlanes.
+    // Where each pixel is adjusted and classified in one fused pass, as in the AnalysisPipeline, the adjust is part of CLASSIFY.
+    public enum Stage {
+        ADJUST, CLASSIFY, LABEL, BOUNDARY, COMPONENT_STATS, FILTER, OVERLAY, RENDER
+    }
+
+    // The stage, kept as an enum for the metrics. Transient fields are not recorded.
+    private final transient Stage stageValue;
+    // The time the stage started, for the metrics.
+    private final transient long startNanos;
+
+    @Label("Stage")
+    private String stage;
+
+    @Label("Width")
+    @Description("The width of the image in pixels")
+    private int width;
+
+    @Label("Height")
+    @Description("The height of the image in pixels")
+    private int height;
+
+    @Label("Selection Count")
+    @Description("The number of pill selections the image was analysed with")
+    private int selectionCount;
+
+    @Label("Component Count")
+    @Description("The number of disjoint sets of white pixels, or rectangles for the overlay, or 0 if the stage has none")
+    private int componentCount;
+
+    // Constructor that sets the stage.
+    private AnalysisStageEvent(Stage stage) {
+        this.stageValue = stage;
+        this.stage = stage.name();
+        this.startNanos = System.nanoTime();
+    }
+
+    // Method to start timing a stage.
+    public static AnalysisStageEvent begin(Stage stage) {
+        AnalysisStageEvent event = new AnalysisStageEvent(stage);
+        event.begin();
+        return event;
+    }
+
+    // Method to stop timing the stage, add its time to the metrics unless they are null, and record it with the image it worked on.
+    // Nothing is recorded if the event is disabled or the stage took less than the threshold of the recording.
+    public void finish(AnalysisMetrics analysisMetrics, int width, int height, int selectionCount, int componentCount) {
+        end();
+        if (analysisMetrics != null) analysisMetrics.recordStage(stageValue, System.nanoTime() - startNanos);
+        if (shouldCommit()) {
+            this.width = width;
+            this.height = height;
+            this.selectionCount = selectionCount;
+            this.componentCount = componentCount;
+            commit();
+        }
+    }
+}
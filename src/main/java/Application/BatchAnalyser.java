@@ -0,0 +1,344 @@
+package Application;
+
+import Manager.PillCapsuleManager;
+import Manager.RectangleManager;
+
+import javax.imageio.ImageIO;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.stream.Stream;
+
+// The BatchAnalyser class counts the pills in every image of a directory from the command line.
+// It runs the same convert, refine and count steps as the GUI through an AnalysisPipeline, but on ImageBuffers decoded with ImageIO,
+// so the JavaFX toolkit is never started and no display is needed.
+// Each image is read on its own virtual thread and analysed once one of the CPU permits is free, with one permit per thread asked for.
+// The counts are written as CSV in file name order, each row as soon as it and the rows before it are ready.
+// With a band height the images are streamed through a StreamingAnalyser instead, for images too large to hold in memory.
+// Binary PGM and PPM files, as written by scanners, are never decoded: they are memory-mapped and read straight from the mapping.
+// With a result directory the whole result of each image is saved there as an AnalysisResultFile, named after the image,
+// so the GUI can reopen a tray with its rectangles and counts without analysing it again. Streamed images have no result to save.
+//
+// Usage: BatchAnalyser [--threads N] [--hue H] [--saturation S] [--brightness B] [--band-height ROWS] [--results DIR]
+//                      <image directory> <selection file> [output file]
+public class BatchAnalyser {
+    // The default adjustments, the same as the starting values of the sliders in the GUI.
+    public static final double DEFAULT_HUE_ADJUSTMENT = 0.0;
+    public static final double DEFAULT_SATURATION_FACTOR = 0.9;
+    public static final double DEFAULT_BRIGHTNESS_FACTOR = 1.2;
+
+    // The file extensions of the images that are analysed.
+    private static final Set<String> IMAGE_EXTENSIONS = Set.of("png", "jpg", "jpeg", "bmp", "gif", "pgm", "ppm", "pnm");
+
+    // The usage message printed when the arguments are wrong.
+    private static final String USAGE = "Usage: BatchAnalyser [--threads N] [--hue H] [--saturation S] [--brightness B] [--band-height ROWS] "
+            + "[--results DIR] <image directory> <selection file> [output file]";
+
+    // The selections shared by every worker that streams, so the color classifier is only compiled once.
+    private final PillCapsuleManager pillCapsuleManager = new PillCapsuleManager();
+    // The adjustments applied before the image is converted to black and white.
+    private final double hueAdjustment, saturationFactor, brightnessFactor;
+    // The number of images analysed at the same time. Any number of images may be read while they wait.
+    private final int threads;
+    // The number of rows streamed at a time, or 0 to read each image into memory at once.
+    private int bandHeight;
+    // The directory the result of each image is saved to, or null to only count the pills.
+    private Path resultDirectory;
+    // The pipeline shared by every worker. Runs do not share any state, so the images can be analysed at the same time.
+    private final AnalysisPipeline analysisPipeline;
+    // The ImageProcessor streamed images are classified with. Streaming only reads its selections and classifier,
+    // so one ImageProcessor serves every image.
+    private final ImageProcessor streamingProcessor;
+
+    // Constructor that sets the selections, the adjustments and the number of images analysed at the same time.
+    public BatchAnalyser(List<PillSelection> selections, double hueAdjustment, double saturationFactor, double brightnessFactor, int threads) {
+        if (threads <= 0) throw new IllegalArgumentException("Threads <= 0 is not allowed");
+        selections.forEach(pillCapsuleManager::addPillSelection);
+        this.hueAdjustment = hueAdjustment;
+        this.saturationFactor = saturationFactor;
+        this.brightnessFactor = brightnessFactor;
+        this.threads = threads;
+
+        // Compile the classifier before any worker needs it.
+        pillCapsuleManager.getColorClassifier();
+        this.streamingProcessor = createImageProcessor();
+        // Every image is recorded in the metrics of the streaming ImageProcessor, whether it is streamed or not.
+        this.analysisPipeline = new AnalysisPipeline(selections, hueAdjustment, saturationFactor, brightnessFactor,
+                new RowBandExecutor(1), streamingProcessor.getAnalysisMetrics());
+    }
+
+    //------------------------
+    // Analysis
+    //------------------------
+
+    // Method to count the pills in an image held in a buffer, by pill name.
+    public Map<String, Integer> analyse(ImageBuffer image) {
+        return analysisPipeline.analyse(image).getPillCounts();
+    }
+
+    // Method to count the pills in an image file, by pill name. The result is saved if there is a result directory.
+    public Map<String, Integer> analyse(Path imageFile) throws IOException {
+        return load(imageFile).analyse();
+    }
+
+    // Method to load an image file, ready to be analysed. This is the part that waits on the disk.
+    // A streamed image is only opened once it is analysed, since its rows are read as they are needed.
+    private ImageAnalysis load(Path imageFile) throws IOException {
+        boolean mappable = MappedImageSource.isMappable(imageFile);
+
+        // Stream the image a band at a time if a band height is set.
+        if (bandHeight > 0) {
+            return () -> {
+                StreamingAnalyser streamingAnalyser = new StreamingAnalyser(streamingProcessor, hueAdjustment, saturationFactor, brightnessFactor, bandHeight);
+                try (ImageRowSource source = mappable ? MappedImageSource.open(imageFile) : new ImageReaderRowSource(imageFile)) {
+                    return streamingAnalyser.analyse(source);
+                }
+            };
+        }
+
+        // A mapped image is read by the analysis itself, which is when the pages of the file are loaded.
+        if (mappable) {
+            return () -> {
+                try (MappedImageSource source = MappedImageSource.open(imageFile)) {
+                    return save(imageFile, analysisPipeline.analyse(source));
+                }
+            };
+        }
+
+        BufferedImage image = ImageIO.read(imageFile.toFile());
+        if (image == null) throw new IOException("Unsupported image format: " + imageFile);
+        ImageBuffer imageBuffer = ImageBuffer.fromBufferedImage(image);
+        return () -> save(imageFile, analysisPipeline.analyse(imageBuffer));
+    }
+
+    // Method to save the result of an image to the result directory, if there is one, and get its pill counts.
+    private Map<String, Integer> save(Path imageFile, AnalysisResult result) throws IOException {
+        if (resultDirectory != null) AnalysisResultFile.write(getResultFile(resultDirectory, imageFile), result);
+        return result.getPillCounts();
+    }
+
+    // Method to get the file the result of an image is saved to in a result directory: the file name of the image followed by
+    // AnalysisResultFile.EXTENSION, so that images of the same name in different formats do not share a file.
+    public static Path getResultFile(Path resultDirectory, Path imageFile) {
+        return resultDirectory.resolve(imageFile.getFileName() + AnalysisResultFile.EXTENSION);
+    }
+
+    // Method to analyse every image in a directory and write one CSV row of counts for each of them.
+    // Images that cannot be analysed are reported on the error stream and left out. Returns the number of those images.
+    public int analyseDirectory(Path directory, Writer output) throws IOException, InterruptedException {
+        List<Path> imageFiles = listImages(directory);
+        List<String> pillNames = getPillNames();
+        if (resultDirectory != null) Files.createDirectories(resultDirectory);
+        writeHeader(output, pillNames);
+
+        // The counts of each image that has been analysed but not written yet, and whether its analysis failed.
+        List<Map<String, Integer>> results = new ArrayList<>(Collections.nCopies(imageFiles.size(), null));
+        boolean[] done = new boolean[imageFiles.size()];
+        int[] failures = {0};
+        int[] nextRow = {0};
+
+        List<Callable<ImageAnalysis>> loads = imageFiles.stream().<Callable<ImageAnalysis>>map(imageFile -> () -> load(imageFile)).toList();
+        try (ImageAnalysisExecutor analysisExecutor = new ImageAnalysisExecutor(threads)) {
+            analysisExecutor.analyseAll(loads, ImageAnalysis::analyse, new ImageAnalysisExecutor.ResultListener<>() {
+                @Override
+                public void onResult(int index, Map<String, Integer> pillCounts) throws IOException {
+                    results.set(index, pillCounts);
+                    done[index] = true;
+                    writeReadyRows();
+                }
+
+                @Override
+                public void onFailure(int index, Exception failure) throws IOException {
+                    System.err.println("Could not analyse " + imageFiles.get(index) + ": " + failure);
+                    failures[0]++;
+                    done[index] = true;
+                    writeReadyRows();
+                }
+
+                // Write the rows in the same order as the images, as soon as each one and the ones before it are ready.
+                private void writeReadyRows() throws IOException {
+                    while (nextRow[0] < imageFiles.size() && done[nextRow[0]]) {
+                        Map<String, Integer> pillCounts = results.set(nextRow[0], null);
+                        if (pillCounts != null) writeRow(output, imageFiles.get(nextRow[0]).getFileName().toString(), pillNames, pillCounts);
+                        nextRow[0]++;
+                    }
+                }
+            });
+        }
+        output.flush();
+        return failures[0];
+    }
+
+    // Getter for the number of rows streamed at a time.
+    public int getBandHeight() {
+        return bandHeight;
+    }
+
+    // Setter for the number of rows streamed at a time. A band height of 0 reads each image into memory at once.
+    public void setBandHeight(int bandHeight) {
+        if (bandHeight < 0) throw new IllegalArgumentException("Band height < 0 is not allowed");
+        if (bandHeight > 0 && resultDirectory != null) throw new IllegalStateException("Results cannot be saved for streamed images");
+        this.bandHeight = bandHeight;
+    }
+
+    // Getter for the directory the results are saved to.
+    public Path getResultDirectory() {
+        return resultDirectory;
+    }
+
+    // Setter for the directory the result of each image is saved to, or null to only count the pills.
+    // It is created when a directory is analysed if it does not exist yet. Streamed images are never held whole, so they have no result.
+    public void setResultDirectory(Path resultDirectory) {
+        if (resultDirectory != null && bandHeight > 0) throw new IllegalStateException("Results cannot be saved for streamed images");
+        this.resultDirectory = resultDirectory;
+    }
+
+    // Getter for the AnalysisMetrics every image analysed is recorded in.
+    public AnalysisMetrics getAnalysisMetrics() {
+        return streamingProcessor.getAnalysisMetrics();
+    }
+
+    // Method to register the AnalysisMetrics with the platform MBean server, so the batch can be monitored through JMX.
+    public ObjectName registerAnalysisMetrics() throws JMException {
+        return streamingProcessor.registerAnalysisMetrics("batch");
+    }
+
+    // Method to create the ImageProcessor streamed images are classified with.
+    // The images are already spread over the workers, so each image is processed on a single thread.
+    private ImageProcessor createImageProcessor() {
+        ImageProcessor imageProcessor = new ImageProcessor(pillCapsuleManager);
+        imageProcessor.getConversionManager().setParallelism(1);
+        imageProcessor.getUnionFindManager().setParallelism(1);
+        return imageProcessor;
+    }
+
+    // Interface for an image that has been loaded and only has to be analysed.
+    private interface ImageAnalysis {
+        Map<String, Integer> analyse() throws IOException;
+    }
+
+    //------------------------
+    // Output
+    //------------------------
+
+    // Method to get the pill names that get a column, in the order of the selections, followed by the unknown pills.
+    private List<String> getPillNames() {
+        Set<String> pillNames = new LinkedHashSet<>();
+        pillCapsuleManager.getPillSelections().forEach(selection -> pillNames.add(selection.getName()));
+        pillNames.add(RectangleManager.UNKNOWN_PILL_NAME);
+        return new ArrayList<>(pillNames);
+    }
+
+    // Method to write the header row.
+    private void writeHeader(Writer output, List<String> pillNames) throws IOException {
+        StringBuilder header = new StringBuilder("image,total");
+        pillNames.forEach(pillName -> header.append(',').append(escape(pillName)));
+        output.write(header.append(System.lineSeparator()).toString());
+    }
+
+    // Method to write the row of counts for one image.
+    private void writeRow(Writer output, String imageName, List<String> pillNames, Map<String, Integer> pillCounts) throws IOException {
+        int total = pillCounts.values().stream().mapToInt(Integer::intValue).sum();
+        StringBuilder row = new StringBuilder(escape(imageName)).append(',').append(total);
+        pillNames.forEach(pillName -> row.append(',').append(pillCounts.getOrDefault(pillName, 0)));
+        output.write(row.append(System.lineSeparator()).toString());
+    }
+
+    // Method to quote a CSV value if it contains a comma, a quote or a line break.
+    private static String escape(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    // Method to list the images in a directory, sorted by file name.
+    private static List<Path> listImages(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(BatchAnalyser::isImage)
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    // Method to check if a file has one of the image extensions.
+    private static boolean isImage(Path file) {
+        String fileName = file.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        return dot >= 0 && IMAGE_EXTENSIONS.contains(fileName.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    //------------------------
+    // Command Line
+    //------------------------
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        // ImageIO must not look for a display either.
+        System.setProperty("java.awt.headless", "true");
+
+        // Read the options and the paths.
+        int threads = Runtime.getRuntime().availableProcessors();
+        double hueAdjustment = DEFAULT_HUE_ADJUSTMENT;
+        double saturationFactor = DEFAULT_SATURATION_FACTOR;
+        double brightnessFactor = DEFAULT_BRIGHTNESS_FACTOR;
+        int bandHeight = 0;
+        Path resultDirectory = null;
+        List<String> paths = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--threads" -> threads = Integer.parseInt(args[++i]);
+                    case "--hue" -> hueAdjustment = Double.parseDouble(args[++i]);
+                    case "--saturation" -> saturationFactor = Double.parseDouble(args[++i]);
+                    case "--brightness" -> brightnessFactor = Double.parseDouble(args[++i]);
+                    case "--band-height" -> bandHeight = Integer.parseInt(args[++i]);
+                    case "--results" -> resultDirectory = Path.of(args[++i]);
+                    default -> paths.add(args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            paths.clear();
+        }
+        if (paths.size() < 2 || paths.size() > 3) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        if (resultDirectory != null && bandHeight > 0) {
+            System.err.println("Results cannot be saved for streamed images, so --results cannot be used with --band-height");
+            System.exit(2);
+        }
+
+        // Analyse the directory and write the counts to the output file, or to the console if there is none.
+        List<PillSelection> selections = PillSelectionFile.read(Path.of(paths.get(1)));
+        BatchAnalyser batchAnalyser = new BatchAnalyser(selections, hueAdjustment, saturationFactor, brightnessFactor, threads);
+        batchAnalyser.setBandHeight(bandHeight);
+        batchAnalyser.setResultDirectory(resultDirectory);
+        try {
+            batchAnalyser.registerAnalysisMetrics();
+        } catch (JMException e) {
+            System.err.println("Could not register the analysis metrics: " + e);
+        }
+        Writer output = paths.size() == 3
+                ? Files.newBufferedWriter(Path.of(paths.get(2)), StandardCharsets.UTF_8)
+                : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        int failures;
+        try (output) {
+            failures = batchAnalyser.analyseDirectory(Path.of(paths.get(0)), output);
+        }
+        System.exit(failures == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,194 @@
+package Application;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+
+import java.util.Arrays;
+
+// The BinaryImage class holds a black and white image with one bit per pixel.
+// Each row is stored in its own run of 64-bit words, with pixel x of the row in bit x % 64 of word x / 64,
+// and a set bit is a white pixel. The bits past the end of a row are always clear.
+// Whole rows can be worked on a word at a time, and the image is only turned into an ImageBuffer or a JavaFX image
+// when it has to be displayed.
+public class BinaryImage {
+    // The number of pixels in a word.
+    private static final int WORD_SIZE = 64;
+
+    // The dimensions of the image.
+    private final int width, height;
+
+    // The number of words in each row.
+    private final int wordsPerRow;
+
+    // The pixels of the image, row by row. Row y starts at word y * wordsPerRow.
+    private final long[] words;
+
+    // Constructor that creates an all black image with the given dimensions.
+    public BinaryImage(int width, int height) {
+        if (width < 0 || height < 0) throw new IllegalArgumentException("Negative dimensions are not allowed");
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = (width + WORD_SIZE - 1) / WORD_SIZE;
+        this.words = new long[wordsPerRow * height];
+    }
+
+    //------------------------
+    // Conversion
+    //------------------------
+
+    // Method to create a binary image from a buffer. White pixels are set and every other pixel is black.
+    public static BinaryImage fromImageBuffer(ImageBuffer imageBuffer) {
+        BinaryImage binaryImage = new BinaryImage(imageBuffer.getWidth(), imageBuffer.getHeight());
+        int[] pixels = imageBuffer.getPixels();
+        for (int y = 0; y < binaryImage.height; y++) {
+            int row = y * binaryImage.width;
+            for (int x = 0; x < binaryImage.width; x++) {
+                if (pixels[row + x] == ImageBuffer.WHITE) binaryImage.setWhite(x, y);
+            }
+        }
+        return binaryImage;
+    }
+
+    // Method to create a binary image from a JavaFX image. White pixels are set and every other pixel is black.
+    public static BinaryImage fromImage(Image image) {
+        return fromImageBuffer(ImageBuffer.fromImage(image));
+    }
+
+    // Method to expand the image into a buffer of WHITE and BLACK pixels.
+    public ImageBuffer toImageBuffer() {
+        ImageBuffer imageBuffer = new ImageBuffer(width, height);
+        int[] pixels = imageBuffer.getPixels();
+        for (int y = 0; y < height; y++) {
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                pixels[row + x] = isWhite(x, y) ? ImageBuffer.WHITE : ImageBuffer.BLACK;
+            }
+        }
+        return imageBuffer;
+    }
+
+    // Method to write the image into a new WritableImage, so that it can be displayed.
+    public WritableImage toImage() {
+        return toImageBuffer().toImage();
+    }
+
+    //------------------------
+    // Pixels
+    //------------------------
+
+    // Method to check if the pixel at (x, y) is white.
+    public boolean isWhite(int x, int y) {
+        return (words[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    // Method to make the pixel at (x, y) white.
+    public void setWhite(int x, int y) {
+        words[y * wordsPerRow + (x >>> 6)] |= 1L << x;
+    }
+
+    // Method to make the pixel at (x, y) black.
+    public void setBlack(int x, int y) {
+        words[y * wordsPerRow + (x >>> 6)] &= ~(1L << x);
+    }
+
+    // Method to count the white pixels.
+    public int countWhite() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    // Method to visit every white pixel, row by row from the top left.
+    // Only the set bits are visited, so black areas are skipped a word at a time.
+    public void forEachWhite(PixelVisitor visitor) {
+        for (int y = 0; y < height; y++) {
+            int row = y * wordsPerRow;
+            for (int i = 0; i < wordsPerRow; i++) {
+                long word = words[row + i];
+                while (word != 0) {
+                    visitor.visit(i * WORD_SIZE + Long.numberOfTrailingZeros(word), y);
+                    word &= word - 1;  // Clear the lowest set bit
+                }
+            }
+        }
+    }
+
+    //------------------------
+    // Row Operations
+    //------------------------
+
+    // Method to find the boundary of the image, a word at a time.
+    // A boundary pixel is a white pixel with a black pixel to its left or right, the same as in the BoundaryManager.
+    // Pixels outside the image do not count as black.
+    public BinaryImage boundary() {
+        BinaryImage boundary = new BinaryImage(width, height);
+        if (wordsPerRow == 0) return boundary;
+        long lastPixel = 1L << (width - 1);
+        for (int y = 0; y < height; y++) {
+            int row = y * wordsPerRow;
+            for (int i = 0; i < wordsPerRow; i++) {
+                long word = words[row + i];
+                long previous = i > 0 ? words[row + i - 1] : 0;
+                long next = i < wordsPerRow - 1 ? words[row + i + 1] : 0;
+
+                // Bit x of leftWhite is set if the pixel to the left of x is white or outside the image, and the same for rightWhite.
+                long leftWhite = (word << 1) | (previous >>> (WORD_SIZE - 1));
+                long rightWhite = (word >>> 1) | (next << (WORD_SIZE - 1));
+                if (i == 0) leftWhite |= 1L;
+                if (i == wordsPerRow - 1) rightWhite |= lastPixel;
+
+                boundary.words[row + i] = word & ~(leftWhite & rightWhite);
+            }
+        }
+        return boundary;
+    }
+
+    // Method to get a word of a row. Word i holds the pixels from x = 64 * i up to x = 64 * i + 63.
+    public long getWord(int y, int i) {
+        return words[y * wordsPerRow + i];
+    }
+
+    // Method to set a word of a row. Bits past the end of the row are cleared.
+    public void setWord(int y, int i, long word) {
+        if (i == wordsPerRow - 1 && width % WORD_SIZE != 0) word &= (1L << width) - 1;
+        words[y * wordsPerRow + i] = word;
+    }
+
+    // Getter for the words of the image.
+    public long[] getWords() {
+        return words;
+    }
+
+    // Getter for the number of words in each row.
+    public int getWordsPerRow() {
+        return wordsPerRow;
+    }
+
+    // Getter for the width.
+    public int getWidth() {
+        return width;
+    }
+
+    // Getter for the height.
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof BinaryImage binaryImage && width == binaryImage.width && height == binaryImage.height
+                && Arrays.equals(words, binaryImage.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * width + height) + Arrays.hashCode(words);
+    }
+
+    // Interface for a visit to a pixel at (x, y).
+    public interface PixelVisitor {
+        void visit(int x, int y);
+    }
+}
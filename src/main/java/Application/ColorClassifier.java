@@ -0,0 +1,256 @@
+package Application;
+
+import javafx.scene.paint.Color;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// The ColorClassifier class maps a color straight to the PillSelection it belongs to.
+// It is compiled into a lookup table with one byte for every 24-bit RGB color, so classifying a pixel is a single array load.
+// The table gives the same answer as picking the nearest selection by Manhattan distance and then checking its threshold.
+// Each update publishes a new immutable Snapshot of the table, so pixels can be classified on other threads while it is compiled.
+public class ColorClassifier {
+    // Value returned by classify when the color does not belong to any selection.
+    public static final int NO_SELECTION = -1;
+
+    // The number of selections the table can hold. The low 7 bits of an entry hold the index of the nearest selection.
+    public static final int MAX_SELECTIONS = 127;
+
+    // The number of entries in the table, one for each 24-bit RGB color.
+    private static final int TABLE_SIZE = 1 << 24;
+
+    // Masks for the two parts of an entry.
+    private static final int NEAREST_MASK = 0x7F;
+    private static final int MATCH_FLAG = 0x80;
+
+    // The table and the selections it was compiled for. Every update compiles a new Snapshot and publishes it here in one go,
+    // so a thread that reads it once never sees a table that is still being built.
+    private volatile Snapshot snapshot = new Snapshot(null, List.of());
+
+    //------------------------
+    // Compiling
+    //------------------------
+
+    // Method to bring the table up to date with the given list of selections. Returns the Snapshot compiled for the list.
+    // Selections that are unchanged at the start of the list are kept, so adding or removing the last selection
+    // only updates the entries that it wins or loses, in a copy of the table.
+    public synchronized Snapshot update(List<PillSelection> selections) {
+        Snapshot current = snapshot;
+        List<CompiledSelection> currentSelections = current.compiledSelections;
+
+        // Count how many selections at the start of the list are unchanged.
+        int unchanged = 0;
+        while (unchanged < currentSelections.size() && unchanged < selections.size()
+                && currentSelections.get(unchanged).matches(selections.get(unchanged))) {
+            unchanged++;
+        }
+
+        // Nothing to do if the list is the same as the one the table was compiled for.
+        if (unchanged == currentSelections.size() && unchanged == selections.size()) return current;
+
+        // Too many selections for the table, so keep them and classify by scanning instead.
+        if (selections.size() > MAX_SELECTIONS) {
+            List<CompiledSelection> compiledSelections = new ArrayList<>();
+            selections.forEach(selection -> compiledSelections.add(new CompiledSelection(selection)));
+            return publish(null, compiledSelections);
+        }
+
+        // The table was dropped for a longer list, so compile it again from scratch.
+        if (current.table == null) unchanged = 0;
+
+        // Remove the selections that changed from a copy of the table, then add the new ones one at a time.
+        List<CompiledSelection> compiledSelections = new ArrayList<>(currentSelections.subList(0, unchanged));
+        byte[] table = unchanged == 0 ? null : current.table.clone();
+        if (table != null && unchanged < currentSelections.size()) removeFrom(table, compiledSelections, unchanged);
+        for (int i = unchanged; i < selections.size(); i++) {
+            if (table == null) table = new byte[TABLE_SIZE];
+            add(table, compiledSelections, selections.get(i));
+        }
+        return publish(table, compiledSelections);
+    }
+
+    // Method to replace the Snapshot with a new one.
+    private Snapshot publish(byte[] table, List<CompiledSelection> compiledSelections) {
+        snapshot = new Snapshot(table, List.copyOf(compiledSelections));
+        return snapshot;
+    }
+
+    // Method to add a selection to the end of a table.
+    private static void add(byte[] table, List<CompiledSelection> compiledSelections, PillSelection selection) {
+        int index = compiledSelections.size();
+        CompiledSelection added = new CompiledSelection(selection);
+        compiledSelections.add(added);
+
+        for (int r = 0; r < 256; r++) {
+            for (int g = 0; g < 256; g++) {
+                int rgb = (r << 16) | (g << 8);
+                for (int b = 0; b < 256; b++, rgb++) {
+                    // The first selection is the nearest for every color. After that, the new selection
+                    // only takes over colors it is strictly nearer to, so earlier selections win ties.
+                    int nearest = index;
+                    if (index > 0) {
+                        int current = table[rgb] & NEAREST_MASK;
+                        if (!(added.distance(r, g, b) < compiledSelections.get(current).distance(r, g, b))) {
+                            nearest = current;
+                        }
+                    }
+                    table[rgb] = entry(compiledSelections, nearest, r, g, b);
+                }
+            }
+        }
+    }
+
+    // Method to update a table whose selections from the given index onwards have been removed from the list.
+    // Colors whose nearest selection was removed get the nearest of the remaining selections.
+    private static void removeFrom(byte[] table, List<CompiledSelection> compiledSelections, int index) {
+        for (int r = 0; r < 256; r++) {
+            for (int g = 0; g < 256; g++) {
+                int rgb = (r << 16) | (g << 8);
+                for (int b = 0; b < 256; b++, rgb++) {
+                    if ((table[rgb] & NEAREST_MASK) >= index) {
+                        table[rgb] = entry(compiledSelections, findNearest(compiledSelections, r, g, b), r, g, b);
+                    }
+                }
+            }
+        }
+    }
+
+    // Method to build a table entry from the index of the nearest selection.
+    private static byte entry(List<CompiledSelection> compiledSelections, int nearest, int r, int g, int b) {
+        CompiledSelection selection = compiledSelections.get(nearest);
+        return (byte) (selection.distance(r, g, b) <= selection.colorThreshold ? nearest | MATCH_FLAG : nearest);
+    }
+
+    // Method to find the index of the nearest selection by scanning all of them. Earlier selections win ties.
+    private static int findNearest(List<CompiledSelection> compiledSelections, int r, int g, int b) {
+        int nearest = 0;
+        double nearestDistance = compiledSelections.get(0).distance(r, g, b);
+        for (int i = 1; i < compiledSelections.size(); i++) {
+            double distance = compiledSelections.get(i).distance(r, g, b);
+            if (distance < nearestDistance) {
+                nearest = i;
+                nearestDistance = distance;
+            }
+        }
+        return nearest;
+    }
+
+    //------------------------
+    // Classifying
+    //------------------------
+
+    // Method to get the Snapshot of the last update. A pass that classifies pixels and then looks up their selections
+    // should get it once and use it throughout, so that an update in between cannot change what an index means.
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    // Method to get the index of the selection a packed ARGB color belongs to, or NO_SELECTION.
+    public int classify(int argb) {
+        return snapshot.classify(argb);
+    }
+
+    // Method to get the selection a packed ARGB color belongs to, or null.
+    public PillSelection getClosestSelection(int argb) {
+        return snapshot.getClosestSelection(argb);
+    }
+
+    // Method to get the selection at the given index.
+    public PillSelection getSelection(int index) {
+        return snapshot.getSelection(index);
+    }
+
+    // Method to get the number of selections the classifier was compiled for.
+    public int getSelectionCount() {
+        return snapshot.getSelectionCount();
+    }
+
+    //------------------------
+    // Snapshot
+    //------------------------
+
+    // The Snapshot class holds a table and the selections it was compiled for. It is never changed once it is made,
+    // so any number of threads can classify with it while the classifier compiles the next one.
+    public static final class Snapshot {
+        // The lookup table, or null if there are no selections or too many for the table.
+        private final byte[] table;
+        // The selections the table was compiled for, in the order they were added.
+        private final List<CompiledSelection> compiledSelections;
+
+        private Snapshot(byte[] table, List<CompiledSelection> compiledSelections) {
+            this.table = table;
+            this.compiledSelections = compiledSelections;
+        }
+
+        // Method to get the index of the selection a packed ARGB color belongs to, or NO_SELECTION.
+        // The alpha component is ignored, the same as in the color distance.
+        public int classify(int argb) {
+            if (table != null) {
+                int entry = table[argb & 0xFFFFFF];
+                return (entry & MATCH_FLAG) != 0 ? entry & NEAREST_MASK : NO_SELECTION;
+            }
+            if (compiledSelections.isEmpty()) return NO_SELECTION;
+
+            // Fall back to scanning when there are too many selections for the table.
+            int r = (argb >> 16) & 0xFF, g = (argb >> 8) & 0xFF, b = argb & 0xFF;
+            int nearest = findNearest(compiledSelections, r, g, b);
+            CompiledSelection selection = compiledSelections.get(nearest);
+            return selection.distance(r, g, b) <= selection.colorThreshold ? nearest : NO_SELECTION;
+        }
+
+        // Method to get the selection a packed ARGB color belongs to, or null.
+        public PillSelection getClosestSelection(int argb) {
+            int index = classify(argb);
+            return index == NO_SELECTION ? null : getSelection(index);
+        }
+
+        // Method to get the selection at the given index.
+        public PillSelection getSelection(int index) {
+            return compiledSelections.get(index).selection;
+        }
+
+        // Method to get the number of selections the table was compiled for.
+        public int getSelectionCount() {
+            return compiledSelections.size();
+        }
+    }
+
+    //------------------------
+    // Compiled Selection
+    //------------------------
+
+    // A selection together with a copy of the values the table was compiled from.
+    // The copy is used to notice when a selection has been edited after it was compiled.
+    private static final class CompiledSelection {
+        private final PillSelection selection;
+        private final Color color;
+        private final double colorThreshold;
+
+        // The absolute difference between each possible channel value and the channel of the selection color.
+        private final double[] redDistance = new double[256];
+        private final double[] greenDistance = new double[256];
+        private final double[] blueDistance = new double[256];
+
+        private CompiledSelection(PillSelection selection) {
+            this.selection = selection;
+            this.color = selection.getColor();
+            this.colorThreshold = selection.getColorThreshold();
+            for (int value = 0; value < 256; value++) {
+                int gray = (value << 16) | (value << 8) | value;
+                redDistance[value] = Math.abs(ImageBuffer.getRed(gray) - color.getRed());
+                greenDistance[value] = Math.abs(ImageBuffer.getGreen(gray) - color.getGreen());
+                blueDistance[value] = Math.abs(ImageBuffer.getBlue(gray) - color.getBlue());
+            }
+        }
+
+        // Method to calculate the Manhattan distance between a color and the selection color.
+        private double distance(int r, int g, int b) {
+            return redDistance[r] + greenDistance[g] + blueDistance[b];
+        }
+
+        // Method to check if the selection is still the one that was compiled.
+        private boolean matches(PillSelection other) {
+            return selection == other && color.equals(other.getColor()) && colorThreshold == other.getColorThreshold();
+        }
+    }
+}
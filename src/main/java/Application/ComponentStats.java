@@ -0,0 +1,75 @@
+package Application;
+
+// The ComponentStats class holds the statistics of one connected component, as reported by the StreamingComponentLabeler.
+// The boundary size counts the pixels of the component that have a background pixel to their left or right,
+// which is the same size the DisjointSetManager gives each disjoint set.
+public class ComponentStats {
+    // The number of pixels in the component.
+    private final int area;
+    // The number of boundary pixels in the component.
+    private final int boundarySize;
+    // The bounds of the component: minX, maxX, minY, maxY.
+    private final int minX, maxX, minY, maxY;
+    // The number of pixels of the component in each class, indexed by class.
+    private final int[] classCounts;
+
+    // Constructor that sets all the statistics.
+    public ComponentStats(int area, int boundarySize, int minX, int maxX, int minY, int maxY, int[] classCounts) {
+        this.area = area;
+        this.boundarySize = boundarySize;
+        this.minX = minX;
+        this.maxX = maxX;
+        this.minY = minY;
+        this.maxY = maxY;
+        this.classCounts = classCounts;
+    }
+
+    // Method to get the class with the most pixels in the component, or -1 if no class was counted.
+    // Ties go to the lower class.
+    public int getMostCommonClass() {
+        int mostCommon = -1;
+        for (int c = 0; c < classCounts.length; c++) {
+            if (classCounts[c] > 0 && (mostCommon < 0 || classCounts[c] > classCounts[mostCommon])) {
+                mostCommon = c;
+            }
+        }
+        return mostCommon;
+    }
+
+    // Method to get the bounds in the same order as the DisjointSetManager: minX, maxX, minY, maxY.
+    public int[] getBounds() {
+        return new int[]{minX, maxX, minY, maxY};
+    }
+
+    // Getter for the area.
+    public int getArea() {
+        return area;
+    }
+
+    // Getter for the boundary size.
+    public int getBoundarySize() {
+        return boundarySize;
+    }
+
+    // Getter for the number of pixels in a class.
+    public int getClassCount(int c) {
+        return classCounts[c];
+    }
+
+    // Getters for the bounds.
+    public int getMinX() {
+        return minX;
+    }
+
+    public int getMaxX() {
+        return maxX;
+    }
+
+    public int getMinY() {
+        return minY;
+    }
+
+    public int getMaxY() {
+        return maxY;
+    }
+}
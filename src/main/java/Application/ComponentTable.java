@@ -0,0 +1,256 @@
+package Application;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// The ComponentTable class holds the statistics of every disjoint set of white pixels in a black and white image.
+// It is built in a single pass over the white pixels and has one row per set, stored as parallel arrays:
+// the dense label and the root of the set in the UnionFind, its bounds, its area, its boundary size and the number of its pixels
+// that were given each PillSelection. The boundary size is the same size the DisjointSetManager gives each set.
+// Rows are numbered in the order the first pixel of each set appears when the image is scanned row by row.
+public class ComponentTable {
+    // The number of rows there is room for at the start.
+    private static final int INITIAL_CAPACITY = 64;
+
+    // The selections the votes are counted for, in the order of their vote columns.
+    private final List<PillSelection> selections;
+    // The number of rows in the table.
+    private int size;
+
+    // The row of each dense label of the UnionFind, or -1 if the set has no white pixels.
+    private int[] rowOfLabel;
+
+    // The columns of the table.
+    private int[] labels = new int[INITIAL_CAPACITY];
+    private int[] roots = new int[INITIAL_CAPACITY];
+    private int[] minX = new int[INITIAL_CAPACITY], maxX = new int[INITIAL_CAPACITY];
+    private int[] minY = new int[INITIAL_CAPACITY], maxY = new int[INITIAL_CAPACITY];
+    private int[] area = new int[INITIAL_CAPACITY];
+    private int[] boundarySize = new int[INITIAL_CAPACITY];
+    // The votes of row r for selection s are stored at r * selections.size() + s.
+    private int[] votes;
+
+    // Constructor that creates an empty table with a vote column for each selection.
+    private ComponentTable(List<PillSelection> selections) {
+        this.selections = List.copyOf(selections);
+        this.votes = new int[INITIAL_CAPACITY * selections.size()];
+    }
+
+    //------------------------
+    // Building
+    //------------------------
+
+    // Method to build the table for a black and white image whose white pixels have been joined in the UnionFind.
+    // The UnionFind is compacted first, so each pixel finds its row with two array reads instead of a find.
+    // Each pixel votes for the PillSelection it was given in the PillSelection array, which may be null if there are no votes to count.
+    public static ComponentTable build(BinaryImage bwImage, UnionFind unionFind, PillSelection[][] pillSelectionArray, List<PillSelection> selections) {
+        return build(bwImage, unionFind, bwImage.boundary(), pillSelectionArray, selections);
+    }
+
+    // Method to build the table for a black and white image whose boundary has already been worked out.
+    public static ComponentTable build(BinaryImage bwImage, UnionFind unionFind, BinaryImage boundary, PillSelection[][] pillSelectionArray, List<PillSelection> selections) {
+        if (pillSelectionArray == null) return build(bwImage, unionFind, boundary, (x, y) -> -1, selections);
+
+        // The column of each selection. The last selection looked up is remembered, since neighbouring pixels usually share one.
+        Map<PillSelection, Integer> columns = new IdentityHashMap<>();
+        for (int s = selections.size() - 1; s >= 0; s--) {
+            columns.put(selections.get(s), s);
+        }
+        PillSelection[] lastSelection = new PillSelection[1];
+        int[] lastColumn = {-1};
+
+        return build(bwImage, unionFind, boundary, (x, y) -> {
+            PillSelection selection = pillSelectionArray[y][x];
+            if (selection == null) return -1;
+            if (selection != lastSelection[0]) {
+                lastSelection[0] = selection;
+                lastColumn[0] = columns.getOrDefault(selection, -1);
+            }
+            return lastColumn[0];
+        }, selections);
+    }
+
+    // Method to build the table for a black and white image whose pixels were classified into PixelClasses.
+    // The index of each class must be the index of its selection in the list, as it is for a ColorClassifier compiled from the list.
+    public static ComponentTable build(BinaryImage bwImage, UnionFind unionFind, BinaryImage boundary, PixelClasses pixelClasses, List<PillSelection> selections) {
+        return build(bwImage, unionFind, boundary, pixelClasses::get, selections);
+    }
+
+    // Method to build the table, with each white pixel voting for the column the votes give it, or for none if they give -1.
+    private static ComponentTable build(BinaryImage bwImage, UnionFind unionFind, BinaryImage boundary, Votes pixelVotes, List<PillSelection> selections) {
+        ComponentTable table = new ComponentTable(selections);
+        int width = bwImage.getWidth();
+
+        int[] rowOfLabel = new int[unionFind.compact()];
+        int[] pixelLabels = unionFind.getLabels();
+        Arrays.fill(rowOfLabel, -1);
+        table.rowOfLabel = rowOfLabel;
+
+        bwImage.forEachWhite((x, y) -> {
+            int label = pixelLabels[y * width + x];
+            int row = rowOfLabel[label];
+            if (row < 0) {
+                row = table.addRow(label, unionFind.labelRoot(label), x, y);
+                rowOfLabel[label] = row;
+            }
+
+            // Add the pixel to the row of its set.
+            table.area[row]++;
+            if (boundary.isWhite(x, y)) table.boundarySize[row]++;
+            table.minX[row] = Math.min(table.minX[row], x);
+            table.maxX[row] = Math.max(table.maxX[row], x);
+            table.maxY[row] = y;
+
+            // Count the vote of the pixel.
+            int column = pixelVotes.columnAt(x, y);
+            if (column >= 0) table.votes[row * table.selections.size() + column]++;
+        });
+        return table;
+    }
+
+    // Interface for the vote column of each pixel.
+    private interface Votes {
+        int columnAt(int x, int y);
+    }
+
+    // Method to make a table from columns that were saved, with a row for each entry of the columns.
+    // The votes of row r for selection s are at r * selections.size() + s. The columns are kept, not copied.
+    static ComponentTable restore(List<PillSelection> selections, int labelCount, int[] labels, int[] roots,
+                                  int[] minX, int[] maxX, int[] minY, int[] maxY, int[] area, int[] boundarySize, int[] votes) {
+        ComponentTable table = new ComponentTable(selections);
+        table.size = labels.length;
+        table.labels = labels;
+        table.roots = roots;
+        table.minX = minX;
+        table.maxX = maxX;
+        table.minY = minY;
+        table.maxY = maxY;
+        table.area = area;
+        table.boundarySize = boundarySize;
+        table.votes = votes;
+        table.rowOfLabel = new int[labelCount];
+        Arrays.fill(table.rowOfLabel, -1);
+        for (int row = 0; row < labels.length; row++) {
+            table.rowOfLabel[labels[row]] = row;
+        }
+        return table;
+    }
+
+    // Method to add a row for a set whose first pixel is at (x, y). Returns the new row.
+    private int addRow(int label, int root, int x, int y) {
+        if (size == roots.length) grow();
+        labels[size] = label;
+        roots[size] = root;
+        minX[size] = x;
+        maxX[size] = x;
+        minY[size] = y;
+        maxY[size] = y;
+        return size++;
+    }
+
+    // Method to make room for more rows.
+    private void grow() {
+        int capacity = roots.length * 2;
+        labels = Arrays.copyOf(labels, capacity);
+        roots = Arrays.copyOf(roots, capacity);
+        minX = Arrays.copyOf(minX, capacity);
+        maxX = Arrays.copyOf(maxX, capacity);
+        minY = Arrays.copyOf(minY, capacity);
+        maxY = Arrays.copyOf(maxY, capacity);
+        area = Arrays.copyOf(area, capacity);
+        boundarySize = Arrays.copyOf(boundarySize, capacity);
+        votes = Arrays.copyOf(votes, capacity * selections.size());
+    }
+
+    //------------------------
+    // Getters
+    //------------------------
+
+    // Method to get the PillSelection with the most votes in a row, or null if the row has no votes.
+    // Ties go to the selection that comes first.
+    public PillSelection getMostCommonSelection(int row) {
+        int mostCommon = -1;
+        int mostVotes = 0;
+        for (int s = 0; s < selections.size(); s++) {
+            int count = votes[row * selections.size() + s];
+            if (count > mostVotes) {
+                mostCommon = s;
+                mostVotes = count;
+            }
+        }
+        return mostCommon >= 0 ? selections.get(mostCommon) : null;
+    }
+
+    // Method to get the largest boundary size in the table, or 0 if the table is empty.
+    public int getMaxBoundarySize() {
+        int max = 0;
+        for (int row = 0; row < size; row++) {
+            max = Math.max(max, boundarySize[row]);
+        }
+        return max;
+    }
+
+    // Method to get the bounds of a row in the same order as the DisjointSetManager: minX, maxX, minY, maxY.
+    public int[] getBounds(int row) {
+        return new int[]{minX[row], maxX[row], minY[row], maxY[row]};
+    }
+
+    // Method to get the number of pixels in a row that were given a selection.
+    public int getVotes(int row, int selection) {
+        return votes[row * selections.size() + selection];
+    }
+
+    // Getter for the number of rows.
+    public int size() {
+        return size;
+    }
+
+    // Method to get the row of the set with a dense label, or -1 if the set has no white pixels.
+    public int getRowOfLabel(int label) {
+        return rowOfLabel[label];
+    }
+
+    // Getter for the dense label of the set in a row.
+    public int getLabel(int row) {
+        return labels[row];
+    }
+
+    // Getter for the root of the set in a row.
+    public int getRoot(int row) {
+        return roots[row];
+    }
+
+    // Getter for the area of a row.
+    public int getArea(int row) {
+        return area[row];
+    }
+
+    // Getter for the boundary size of a row.
+    public int getBoundarySize(int row) {
+        return boundarySize[row];
+    }
+
+    // Getters for the bounds of a row.
+    public int getMinX(int row) {
+        return minX[row];
+    }
+
+    public int getMaxX(int row) {
+        return maxX[row];
+    }
+
+    public int getMinY(int row) {
+        return minY[row];
+    }
+
+    public int getMaxY(int row) {
+        return maxY[row];
+    }
+
+    // Getter for the selections the votes are counted for.
+    public List<PillSelection> getSelections() {
+        return selections;
+    }
+}
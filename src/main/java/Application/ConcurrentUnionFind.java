@@ -0,0 +1,113 @@
+package Application;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// The ConcurrentUnionFind class is a union find that many threads can use at the same time without locks.
+// Roots are linked with compare-and-set, always pointing the root with the larger index at the one with the smaller index,
+// and find compresses paths by halving with compare-and-set, in the style of the Anderson-Woll and Jayanti-Tarjan algorithms.
+// Component sizes are exact once all unions have finished.
+public class ConcurrentUnionFind {
+
+    // The number of elements in this union find
+    private final int size;
+
+    // Used to track the size of each of the component
+    private final AtomicIntegerArray sz;
+
+    // id[i] points to the parent of i, if id[i] = i then i is a root node. A parent always has a smaller index than its child.
+    private final AtomicIntegerArray id;
+
+    // Tracks the number of components/disjoint sets in the union find
+    private final AtomicInteger numComponents;
+
+    // Constructor initializes an empty union find data structure with N isolated sets.
+    public ConcurrentUnionFind(int size) {
+        if (size <= 0) throw new IllegalArgumentException("Size <= 0 is not allowed");
+        this.size = size;
+        numComponents = new AtomicInteger(size);
+        sz = new AtomicIntegerArray(size);
+        id = new AtomicIntegerArray(size);
+        for (int i = 0; i < size; i++) {
+            id.set(i, i); // Link to itself (self root)
+            sz.set(i, 1); // Each component is originally of size one
+        }
+    }
+
+    // While looking for the root, we try to make each node in the path point to its grandparent.
+    // A failed compare-and-set only means another thread already moved the node further up, so it is not retried.
+    public int find(int p) {
+        while (true) {
+            int parent = id.get(p);
+            if (parent == p) return p;
+            int grandparent = id.get(parent);
+            if (grandparent != parent) id.compareAndSet(p, parent, grandparent); // Path compression
+            p = grandparent;
+        }
+    }
+
+    // This method checks if the two elements are in the same set or not.
+    // If the roots differ but the first one is still a root, the sets were separate at that moment.
+    public boolean connected(int p, int q) {
+        while (true) {
+            int rootp = find(p);
+            int rootq = find(q);
+            if (rootp == rootq) return true;
+            if (id.get(rootp) == rootp) return false;
+        }
+    }
+
+    // This method returns the size of the set element belongs to
+    public int componentSize(int p) {
+        return sz.get(find(p));
+    }
+
+    // This method returns the total number of elements in the Union-Find
+    public int size() {
+        return size;
+    }
+
+    // This method returns the total number of sets in the Union-Find
+    public int components() {
+        return numComponents.get();
+    }
+
+    // This method merges the set containing element p and the set containing element q.
+    // Returns true if this call joined two separate sets.
+    public boolean unionByIndex(int p, int q) {
+        while (true) {
+            int rootp = find(p);
+            int rootq = find(q);
+
+            // These elements are already in the same group!
+            if (rootp == rootq) return false;
+
+            // Make the root with the larger index point to the root with the smaller index
+            int smallerRoot = Math.min(rootp, rootq);
+            int largerRoot = Math.max(rootp, rootq);
+
+            // Only link if the larger root is still a root, otherwise look for the roots again
+            if (id.compareAndSet(largerRoot, largerRoot, smallerRoot)) {
+                // Decrease the number of components
+                numComponents.decrementAndGet();
+
+                // Move the size of the linked set to its new root
+                moveSize(largerRoot, smallerRoot);
+                return true;
+            }
+        }
+    }
+
+    // This method moves the size held by a node that is no longer a root to the root of its set.
+    // If that root is linked before the size arrives, the size is moved again, so no size is ever left behind on a non-root node.
+    private void moveSize(int from, int to) {
+        int moved = sz.getAndSet(from, 0);
+        while (moved != 0) {
+            int root = find(to);
+            sz.addAndGet(root, moved);
+            if (id.get(root) == root) return;
+            moved = sz.getAndSet(root, 0);
+            to = root;
+        }
+    }
+}
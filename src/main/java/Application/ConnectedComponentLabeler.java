@@ -0,0 +1,205 @@
+package Application;
+
+import java.util.Arrays;
+
+// The ConnectedComponentLabeler class labels the connected white regions of a black and white image.
+// It is a two-pass raster scan: the first pass gives each white pixel a provisional label taken from the
+// neighbours that have already been scanned and records which provisional labels meet in an equivalence table,
+// and the second pass replaces each provisional label with the final label of its component.
+// It finds the same components as joining every white pixel with its white neighbours in a UnionFind,
+// but only looks at each neighbour once and only keeps one entry per provisional label instead of one per pixel.
+//
+// With a parallel RowBandExecutor the image is cut into horizontal strips that are labeled on their own threads.
+// The strips are then stitched together by joining the labels that touch across each strip border,
+// and a last parallel pass gives every pixel its final label. The labels are the same as with a single strip.
+public class ConnectedComponentLabeler {
+    // The neighbours that count as touching.
+    private final Connectivity connectivity;
+    // The executor that labels the strips.
+    private final RowBandExecutor rowBandExecutor;
+
+    // Constructor that sets the connectivity used for labeling. The image is labeled on the calling thread.
+    public ConnectedComponentLabeler(Connectivity connectivity) {
+        this(connectivity, new RowBandExecutor(1));
+    }
+
+    // Constructor that sets the connectivity and the executor that labels the strips.
+    public ConnectedComponentLabeler(Connectivity connectivity, RowBandExecutor rowBandExecutor) {
+        this.connectivity = connectivity;
+        this.rowBandExecutor = rowBandExecutor;
+    }
+
+    // Method to label the white pixels of an image.
+    public LabelImage label(ImageBuffer image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = image.getPixels();
+        int[] labels = new int[width * height];
+        if (height == 0) return new LabelImage(width, height, labels, 0);
+
+        // Label each strip on its own. Each strip numbers its components from 1.
+        int stripHeight = rowBandExecutor.getBandHeight(height);
+        int stripCount = (height + stripHeight - 1) / stripHeight;
+        int[] stripComponentCounts = new int[stripCount];
+        rowBandExecutor.forEachBand(height, (startY, endY) ->
+                stripComponentCounts[startY / stripHeight] = labelStrip(pixels, labels, width, startY, endY));
+
+        // A single strip is already labeled.
+        if (stripCount == 1) {
+            return new LabelImage(width, height, labels, stripComponentCounts[0]);
+        }
+
+        // Give each strip its own range of labels in one table for the whole image.
+        int[] stripOffsets = new int[stripCount];
+        int labelCount = 1;
+        for (int strip = 0; strip < stripCount; strip++) {
+            stripOffsets[strip] = labelCount - 1;
+            labelCount += stripComponentCounts[strip];
+        }
+        int[] parent = new int[labelCount];
+        for (int label = 0; label < labelCount; label++) {
+            parent[label] = label;
+        }
+
+        // Join the labels that touch across each border between two strips.
+        for (int strip = 1; strip < stripCount; strip++) {
+            mergeSeam(labels, parent, width, strip * stripHeight, stripOffsets[strip - 1], stripOffsets[strip]);
+        }
+
+        // Give every pixel the final label of its component.
+        int componentCount = flatten(parent, labelCount);
+        rowBandExecutor.forEachBand(height, (startY, endY) -> {
+            int offset = stripOffsets[startY / stripHeight];
+            for (int p = startY * width; p < endY * width; p++) {
+                if (labels[p] != 0) labels[p] = parent[offset + labels[p]];
+            }
+        });
+        return new LabelImage(width, height, labels, componentCount);
+    }
+
+    // Method to label the rows [startY, endY) of an image as if they were the whole image.
+    // The strip is labeled from 1 up and the number of components in the strip is returned.
+    private int labelStrip(int[] pixels, int[] labels, int width, int startY, int endY) {
+        // The equivalence table. Every provisional label points to itself or to a smaller equivalent label.
+        int[] parent = new int[Math.max(16, width + 1)];
+        int nextLabel = 1;
+
+        //------------------------
+        // First pass
+        //------------------------
+
+        for (int y = startY; y < endY; y++) {
+            int row = y * width;
+            int above = row - width;
+            for (int x = 0; x < width; x++) {
+                int p = row + x;
+                if (pixels[p] != ImageBuffer.WHITE) continue;
+
+                // Labels of the neighbours that have already been scanned. A label of 0 means the neighbour is not white.
+                int left = x > 0 ? labels[p - 1] : 0;
+                int up = y > startY ? labels[above + x] : 0;
+                int label;
+
+                if (connectivity == Connectivity.FOUR) {
+                    if (up != 0) {
+                        label = left != 0 ? merge(parent, up, left) : up;
+                    } else {
+                        label = left;
+                    }
+                } else {
+                    int upLeft = y > startY && x > 0 ? labels[above + x - 1] : 0;
+                    int upRight = y > startY && x < width - 1 ? labels[above + x + 1] : 0;
+                    if (up != 0) {
+                        // The pixel above touches all the other scanned neighbours, so they already share its label.
+                        label = up;
+                    } else if (upRight != 0) {
+                        // The pixel above and to the right does not touch the ones to the left, so they may need joining.
+                        if (upLeft != 0) label = merge(parent, upRight, upLeft);
+                        else if (left != 0) label = merge(parent, upRight, left);
+                        else label = upRight;
+                    } else {
+                        label = upLeft != 0 ? upLeft : left;
+                    }
+                }
+
+                // No scanned neighbour is white, so start a new provisional label.
+                if (label == 0) {
+                    if (nextLabel == parent.length) parent = Arrays.copyOf(parent, parent.length * 2);
+                    parent[nextLabel] = nextLabel;
+                    label = nextLabel++;
+                }
+                labels[p] = label;
+            }
+        }
+
+        //------------------------
+        // Second pass
+        //------------------------
+
+        int componentCount = flatten(parent, nextLabel);
+        for (int p = startY * width; p < endY * width; p++) {
+            labels[p] = parent[labels[p]];
+        }
+        return componentCount;
+    }
+
+    // Method to join the labels that touch across the border above row y.
+    // The labels in the strip above are offset by offsetAbove and the labels in the strip below by offsetBelow.
+    private void mergeSeam(int[] labels, int[] parent, int width, int y, int offsetAbove, int offsetBelow) {
+        int row = y * width;
+        int above = row - width;
+        for (int x = 0; x < width; x++) {
+            int label = labels[row + x];
+            if (label == 0) continue;
+            label += offsetBelow;
+
+            if (labels[above + x] != 0) merge(parent, label, offsetAbove + labels[above + x]);
+            if (connectivity == Connectivity.EIGHT) {
+                if (x > 0 && labels[above + x - 1] != 0) merge(parent, label, offsetAbove + labels[above + x - 1]);
+                if (x < width - 1 && labels[above + x + 1] != 0) merge(parent, label, offsetAbove + labels[above + x + 1]);
+            }
+        }
+    }
+
+    // Getter for the connectivity.
+    public Connectivity getConnectivity() {
+        return connectivity;
+    }
+
+    //------------------------
+    // Equivalence Table
+    //------------------------
+
+    // Method to find the smallest label equivalent to the given label. Each label on the way is pointed at its grandparent.
+    static int findRoot(int[] parent, int label) {
+        while (parent[label] != label) {
+            parent[label] = parent[parent[label]];
+            label = parent[label];
+        }
+        return label;
+    }
+
+    // Method to record that two labels are equivalent. The larger root is pointed at the smaller one, which is returned.
+    static int merge(int[] parent, int label1, int label2) {
+        int root1 = findRoot(parent, label1);
+        int root2 = findRoot(parent, label2);
+        if (root1 < root2) {
+            parent[root2] = root1;
+            return root1;
+        }
+        parent[root1] = root2;
+        return root2;
+    }
+
+    // Method to turn the equivalence table into a map from provisional label to final label.
+    // Roots get the final labels 1, 2, 3, ... in order and every other label copies the final label of its parent,
+    // which is smaller and so has already been replaced. Index 0 stays 0 for the background.
+    // Returns the number of components.
+    static int flatten(int[] parent, int labelCount) {
+        int componentCount = 0;
+        for (int label = 1; label < labelCount; label++) {
+            parent[label] = parent[label] < label ? parent[parent[label]] : ++componentCount;
+        }
+        return componentCount;
+    }
+}
@@ -0,0 +1,9 @@
+package Application;
+
+// The Connectivity enum lists which neighbours of a pixel count as touching it when labeling components.
+public enum Connectivity {
+    // Only the pixels to the left, right, above and below.
+    FOUR,
+    // The four pixels above plus the four diagonal pixels.
+    EIGHT
+}
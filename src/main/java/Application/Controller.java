@@ -13,7 +13,9 @@ import javafx.scene.text.Text;
 import javafx.stage.FileChooser;
 
 import java.io.File;
-import java.util.Map;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 // The Controller class is responsible for handling user interactions with the GUI.
 public class Controller {
@@ -61,6 +63,8 @@ public class Controller {
     private final ImageProcessor imageProcessor = new ImageProcessor();
     // The PrintToConsole to print results to the console
     private final PrintToConsole printToConsole = new PrintToConsole(this);
+    // The PreviewScheduler to convert the image in the background while a slider is moved
+    private final PreviewScheduler<ImageView> previewScheduler = new PreviewScheduler<>(PreviewScheduler.DEFAULT_DELAY_MILLIS, Platform::runLater);
 
     // The initialize method to set up the event listeners
     public void initialize() {
@@ -80,6 +84,7 @@ public class Controller {
     // The Exit method to exit the application
     @FXML
     public void Exit() {
+        previewScheduler.shutdown();
         Platform.exit();
     }
 
@@ -94,6 +99,10 @@ public class Controller {
         if (file != null) {
             Image image = new Image(file.toURI().toString());
             imageView.setImage(image);
+            // Build the pyramid for the previews in the background, in place of the one of the previous image.
+            imageProcessor.invalidateImagePyramid();
+            imageProcessor.invalidateAnalyses();
+            CompletableFuture.runAsync(() -> imageProcessor.getImagePyramid(image));
             imageView.setOnMouseClicked(this::addSelection);
 
             // Store the original dimensions
@@ -105,6 +114,32 @@ public class Controller {
         }
     }
 
+    // The openResult method to open a result saved by the BatchAnalyser for the image that is open,
+    // and show its rectangles and pill counts without converting the image again
+    @FXML
+    public void openResult() {
+        Image originalImage = getOriginalImage();
+        if (originalImage == null) {
+            System.out.println("Please open the image of the tray first.");
+            return;
+        }
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Analysis Results", "*" + AnalysisResultFile.EXTENSION));
+        File file = fileChooser.showOpenDialog(null);
+        if (file != null) {
+            ImageView newImageView = imageProcessor.createNewImageView(originalImage, originalImage.getWidth(), originalImage.getHeight());
+            StackPane stackPane = createStackPane(newImageView);
+            try {
+                AnalysisResult result = imageProcessor.openResult(file.toPath(), stackPane, newImageView, originalImage);
+                createNewTabWithStackPane("Opened Result", stackPane);
+                toggleNumberVisibility(checkBox.isSelected());
+                System.out.println("Pill counts: " + result.getPillCounts());
+            } catch (IOException e) {
+                System.out.println("Could not open the result: " + e.getMessage());
+            }
+        }
+    }
+
     // The getFileFromChooser method to get a file from the FileChooser
     private File getFileFromChooser() {
         FileChooser fileChooser = new FileChooser();
@@ -150,6 +185,7 @@ public class Controller {
         int minSize = Integer.parseInt(minSizeField.getText());
         int maxSize = Integer.parseInt(maxSizeField.getText());
         imageProcessor.addSelection(event, imageView, colorThreshold, pillName, minSize, maxSize);
+        updateImage();
 
         // Update the ListView
         listView.getItems().add("Pill Name: " + pillName + ", Color Threshold: " + colorThreshold + ", Size Range: " + minSize + "-" + maxSize);
@@ -161,6 +197,7 @@ public class Controller {
         if (!imageProcessor.getPillSelections().isEmpty()) {
             // Remove the last selection from the imageProcessor
             imageProcessor.undoLastSelection();
+            updateImage();
 
             // Remove the last item from the ListView
             listView.getItems().remove(listView.getItems().size() - 1);
@@ -172,11 +209,26 @@ public class Controller {
     public void resetSelections() {
         // Clear all selections from the imageProcessor
         imageProcessor.resetSelections();
+        updateImage();
 
         // Clear all items from the ListView
         listView.getItems().clear();
     }
 
+    // The saveSelections method to save the selections to a file that the BatchAnalyser can read
+    @FXML
+    public void saveSelections() {
+        FileChooser fileChooser = new FileChooser();
+        File file = fileChooser.showSaveDialog(null);
+        if (file != null) {
+            try {
+                PillSelectionFile.write(file.toPath(), imageProcessor.getPillSelections());
+            } catch (IOException e) {
+                System.out.println("Could not save the selections: " + e.getMessage());
+            }
+        }
+    }
+
     //----------------
     // Toggle
     //----------------
@@ -202,8 +254,11 @@ public class Controller {
     //----------------
 
     public void onConvertButtonClick() {
+        // The conversion is done straight away, so a preview still on its way is no longer wanted.
+        previewScheduler.cancel();
         adjustImage();
-        createNewTab("Converted Image", bwImageView);
+        // The tab shows its own ImageView, so that previews shown in it never replace the full resolution image.
+        createNewTab("Converted Image", imageProcessor.createNewImageView(bwImageView.getImage(), bwImageView.getFitWidth(), bwImageView.getFitHeight()));
         originalBWImageView = copyImageView(bwImageView);
     }
 
@@ -218,9 +273,30 @@ public class Controller {
         return new ImageView(imageView.getImage());
     }
 
+    // The updateImage method to show a preview of the conversion with the current slider values and selections.
+    // The preview is rendered in the background from the level of the image pyramid that matches the size it is shown at,
+    // and only the latest preview is shown once it is ready. The full resolution image is only converted by the Convert button.
     private void updateImage() {
-        adjustImage();
-        currentImageView.setImage(bwImageView.getImage());
+        if (imageView.getImage() == null || currentImageView == null) return;
+
+        // Read the values, the selections and the image here, on the JavaFX Application Thread.
+        // The preview only uses the copy of the selections, since the list is changed on this thread while the preview renders.
+        double hueAdjustment = hueAdjustmentFactorSlider.getValue();
+        double saturationFactor = saturationFactorSlider.getValue();
+        double brightnessFactor = brightnessFactorSlider.getValue();
+        List<PillSelection> selections = List.copyOf(imageProcessor.getPillSelections());
+        ImageView sourceImageView = copyImageView(imageView);
+        sourceImageView.setFitWidth(imageView.getFitWidth());
+        sourceImageView.setFitHeight(imageView.getFitHeight());
+
+        previewScheduler.request(
+                () -> imageProcessor.previewBlackAndWhite(sourceImageView, selections, hueAdjustment, saturationFactor, brightnessFactor),
+                this::showPreview);
+    }
+
+    // The showPreview method to show a finished preview.
+    private void showPreview(ImageView preview) {
+        currentImageView.setImage(preview.getImage());
     }
 
     public void refineImage() {
@@ -246,17 +322,11 @@ public class Controller {
         Image originalImage = getOriginalImage();
         Image bwImage = getBWImage();
 
-        UnionFind unionFind = imageProcessor.initializeDisjointSets(bwImage);
-        imageProcessor.unionFind(unionFind, bwImage);
-
-        boolean[][] boundary = imageProcessor.setBoundary(bwImage);
+        ComponentTable componentTable = imageProcessor.getComponentTable(imageProcessor.getLabeledImage(bwImage));
         ImageView newImageView = imageProcessor.createNewImageView(originalImage, bwImage.getWidth(), bwImage.getHeight());
         StackPane stackPane = createStackPane(newImageView);
 
-        Map<Integer, int[]> disjointSetBounds = imageProcessor.getDisjointSetBounds(bwImage, unionFind, boundary);
-        Map<Integer, Integer> disjointSetSizes = imageProcessor.getDisjointSetSizes(bwImage, unionFind, boundary);
-
-        imageProcessor.createRectangles(stackPane, newImageView, originalImage, disjointSetBounds, disjointSetSizes);
+        imageProcessor.createRectangles(stackPane, newImageView, originalImage, componentTable);
         createNewTabWithStackPane("Image with Rectangles", stackPane);
 
         //set the visibility of the numbers right after the rectangles are superimposed
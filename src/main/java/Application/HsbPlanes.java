@@ -0,0 +1,160 @@
+package Application;
+
+import javafx.scene.image.Image;
+
+import java.util.Arrays;
+
+// The HsbPlanes class holds the hue, saturation and brightness of every pixel of an image, worked out once per image
+// so that moving a slider only has to adjust and classify the pixels.
+// Pixels of the same color have the same hue, saturation and brightness, so the values are kept once for each distinct color
+// and each pixel only holds the index of its color. This keeps the values at full double precision, so the adjusted pixels
+// are the same to the bit as when they are worked out from scratch, and it means each distinct color only has to be adjusted
+// and classified once, however many pixels share it.
+public class HsbPlanes {
+    // The number of slots in the color table there is room for at the start. Always a power of two.
+    private static final int INITIAL_TABLE_SIZE = 1 << 12;
+
+    // The dimensions of the image.
+    private final int width, height;
+
+    // The index of the color of each pixel, row by row.
+    private final int[] colorIndices;
+
+    // The red, green and blue of each distinct color, in the order they first appear.
+    private final int[] colors;
+
+    // The hue, saturation and brightness of each distinct color.
+    private final double[] hue;
+    private final double[] saturation;
+    private final double[] brightness;
+
+    // Constructor that sets the dimensions, the color of each pixel and the distinct colors.
+    private HsbPlanes(int width, int height, int[] colorIndices, int[] colors) {
+        this.width = width;
+        this.height = height;
+        this.colorIndices = colorIndices;
+        this.colors = colors;
+        this.hue = new double[colors.length];
+        this.saturation = new double[colors.length];
+        this.brightness = new double[colors.length];
+        for (int i = 0; i < colors.length; i++) {
+            hue[i] = ImageBuffer.getHue(colors[i]);
+            saturation[i] = ImageBuffer.getSaturation(colors[i]);
+            brightness[i] = ImageBuffer.getBrightness(colors[i]);
+        }
+    }
+
+    // Method to work out the planes of an image held in a buffer.
+    // The alpha of the pixels is ignored, the same as when the pixels are adjusted.
+    public static HsbPlanes fromImageBuffer(ImageBuffer imageBuffer) {
+        int[] pixels = imageBuffer.getPixels();
+        int[] colorIndices = new int[pixels.length];
+
+        // An open addressing table from a color to its index. Slots hold the color plus one, so that 0 means empty.
+        int[] keys = new int[INITIAL_TABLE_SIZE];
+        int[] values = new int[INITIAL_TABLE_SIZE];
+        int[] colors = new int[INITIAL_TABLE_SIZE / 2];
+        int colorCount = 0;
+        // The last color looked up, since neighbouring pixels often share one.
+        int lastColor = -1, lastIndex = -1;
+
+        for (int i = 0; i < pixels.length; i++) {
+            int color = pixels[i] & 0xFFFFFF;
+            if (color != lastColor) {
+                int mask = keys.length - 1;
+                int slot = mix(color) & mask;
+                while (keys[slot] != 0 && keys[slot] != color + 1) {
+                    slot = (slot + 1) & mask;
+                }
+                if (keys[slot] == 0) {
+                    // Add the color, growing the table once it is half full.
+                    if (colorCount == colors.length) colors = Arrays.copyOf(colors, colorCount * 2);
+                    colors[colorCount] = color;
+                    keys[slot] = color + 1;
+                    values[slot] = colorCount++;
+                    if (colorCount * 2 > keys.length) {
+                        int[][] table = rehash(keys, values, keys.length * 2);
+                        keys = table[0];
+                        values = table[1];
+                    }
+                    lastIndex = colorCount - 1;
+                } else {
+                    lastIndex = values[slot];
+                }
+                lastColor = color;
+            }
+            colorIndices[i] = lastIndex;
+        }
+        return new HsbPlanes(imageBuffer.getWidth(), imageBuffer.getHeight(), colorIndices, Arrays.copyOf(colors, colorCount));
+    }
+
+    // Method to work out the planes of a JavaFX image.
+    public static HsbPlanes fromImage(Image image) {
+        return fromImageBuffer(ImageBuffer.fromImage(image));
+    }
+
+    // Method to move the colors of a table into a bigger table. Returns the new keys and values.
+    private static int[][] rehash(int[] keys, int[] values, int size) {
+        int[] newKeys = new int[size];
+        int[] newValues = new int[size];
+        int mask = size - 1;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == 0) continue;
+            int slot = mix(keys[i] - 1) & mask;
+            while (newKeys[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            newKeys[slot] = keys[i];
+            newValues[slot] = values[i];
+        }
+        return new int[][]{newKeys, newValues};
+    }
+
+    // Method to spread the bits of a color over the whole int, so that similar colors land in different slots.
+    private static int mix(int color) {
+        int h = color * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    //------------------------
+    // Getters
+    //------------------------
+
+    // Getter for the number of distinct colors.
+    public int getColorCount() {
+        return colors.length;
+    }
+
+    // Getter for the index of the color of each pixel, row by row. The array must not be changed.
+    public int[] getColorIndices() {
+        return colorIndices;
+    }
+
+    // Getter for the red, green and blue of a distinct color.
+    public int getColor(int index) {
+        return colors[index];
+    }
+
+    // Getters for the hue, saturation and brightness of a distinct color.
+    public double getHue(int index) {
+        return hue[index];
+    }
+
+    public double getSaturation(int index) {
+        return saturation[index];
+    }
+
+    public double getBrightness(int index) {
+        return brightness[index];
+    }
+
+    // Getter for the width.
+    public int getWidth() {
+        return width;
+    }
+
+    // Getter for the height.
+    public int getHeight() {
+        return height;
+    }
+}
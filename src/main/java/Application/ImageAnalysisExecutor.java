@@ -0,0 +1,171 @@
+package Application;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+// The ImageAnalysisExecutor class analyses many images at the same time.
+// Each image gets its own virtual thread, so reading and decoding a file never holds up a platform thread while it waits on the disk.
+// The CPU heavy part of each analysis only runs once it has one of a fixed number of permits, normally one for each core,
+// so the cores are kept busy without running more analyses than there are cores to run them.
+// An image is only loaded once it has one of a second, larger number of permits, normally two for each CPU permit,
+// which it keeps until its analysis is done. This bounds the number of loaded images waiting for a CPU permit,
+// so the heap does not grow with the number of images in a batch.
+public class ImageAnalysisExecutor implements AutoCloseable {
+    // The number of images that can be loaded for each CPU permit when no number is given.
+    public static final int DEFAULT_LOADS_PER_PERMIT = 2;
+
+    // The virtual threads the images run on, one for each image.
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    // The permits for the CPU heavy part of the analyses.
+    private final Semaphore cpuPermits;
+    // The permits for loading an image, held from the start of its load until the end of its analysis.
+    private final Semaphore loadPermits;
+    // The number of CPU permits.
+    private final int parallelism;
+    // The number of load permits.
+    private final int maxLoaded;
+
+    // Constructor that creates an executor with one CPU permit for each core.
+    public ImageAnalysisExecutor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    // Constructor that creates an executor with the given number of CPU permits, and two load permits for each of them.
+    public ImageAnalysisExecutor(int parallelism) {
+        this(parallelism, DEFAULT_LOADS_PER_PERMIT * parallelism);
+    }
+
+    // Constructor that creates an executor with the given number of CPU permits and load permits.
+    // There must be at least as many load permits as CPU permits, or some CPU permits could never be used.
+    public ImageAnalysisExecutor(int parallelism, int maxLoaded) {
+        if (parallelism <= 0) throw new IllegalArgumentException("Parallelism <= 0 is not allowed");
+        if (maxLoaded < parallelism) throw new IllegalArgumentException("Max loaded < parallelism is not allowed");
+        this.parallelism = parallelism;
+        this.maxLoaded = maxLoaded;
+        this.cpuPermits = new Semaphore(parallelism, true);
+        this.loadPermits = new Semaphore(maxLoaded, true);
+    }
+
+    //------------------------
+    // Submitting
+    //------------------------
+
+    // Method to analyse one image on its own virtual thread. The image is loaded once a load permit is free,
+    // then analysed once a CPU permit is free. Returns the Future of the result.
+    public <I, R> Future<R> submit(Callable<I> load, CpuTask<I, R> analyse) {
+        return executor.submit(() -> loadAndAnalyse(load, analyse));
+    }
+
+    // Method to analyse a list of images and pass each result to the listener as soon as it is ready.
+    // The listener is called on the calling thread, one result at a time, in the order the analyses finish,
+    // with the index of the image in the list. Returns once every image has been passed to the listener.
+    public <I, R> void analyseAll(List<? extends Callable<I>> loads, CpuTask<I, R> analyse, ResultListener<R> listener)
+            throws IOException, InterruptedException {
+        CompletionService<Indexed<R>> completionService = new ExecutorCompletionService<>(executor);
+        List<Future<Indexed<R>>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < loads.size(); i++) {
+                int index = i;
+                Callable<I> load = loads.get(i);
+                futures.add(completionService.submit(() -> {
+                    try {
+                        return new Indexed<>(index, loadAndAnalyse(load, analyse), null);
+                    } catch (Exception e) {
+                        return new Indexed<>(index, null, e);
+                    }
+                }));
+            }
+
+            // Pass on the results in the order they finish.
+            for (int i = 0; i < loads.size(); i++) {
+                Indexed<R> indexed;
+                try {
+                    indexed = completionService.take().get();
+                } catch (ExecutionException e) {
+                    // Every failure of an analysis is caught in its task, so only an Error gets here.
+                    throw new IllegalStateException("An analysis failed unexpectedly", e.getCause());
+                }
+                if (indexed.failure() == null) {
+                    listener.onResult(indexed.index(), indexed.result());
+                } else {
+                    listener.onFailure(indexed.index(), indexed.failure());
+                }
+            }
+        } finally {
+            // Stop the analyses that are left if the caller gave up.
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    // Method to load an image once a load permit is free and analyse it once a CPU permit is free, on the calling thread.
+    // The load permit is kept until the analysis is done, since that is when what was loaded can be collected.
+    private <I, R> R loadAndAnalyse(Callable<I> load, CpuTask<I, R> analyse) throws Exception {
+        loadPermits.acquire();
+        try {
+            I input = load.call();
+            return runWithPermit(() -> analyse.apply(input));
+        } finally {
+            loadPermits.release();
+        }
+    }
+
+    // Method to run a CPU heavy task once a permit is free, on the calling thread.
+    public <T> T runWithPermit(Callable<T> task) throws Exception {
+        cpuPermits.acquire();
+        try {
+            return task.call();
+        } finally {
+            cpuPermits.release();
+        }
+    }
+
+    // Getter for the number of CPU permits.
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    // Getter for the number of images that can be loaded at the same time.
+    public int getMaxLoaded() {
+        return maxLoaded;
+    }
+
+    // Getter for the number of CPU permits that are free.
+    public int getAvailablePermits() {
+        return cpuPermits.availablePermits();
+    }
+
+    // Method to stop the executor. Analyses that are still running are interrupted.
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    //------------------------
+    // Tasks
+    //------------------------
+
+    // Interface for the CPU heavy part of an analysis, run on what was loaded.
+    public interface CpuTask<I, R> {
+        R apply(I input) throws Exception;
+    }
+
+    // Interface for a listener of the results of analyseAll.
+    public interface ResultListener<R> {
+        void onResult(int index, R result) throws IOException;
+
+        void onFailure(int index, Exception failure) throws IOException;
+    }
+
+    // The result or the failure of the analysis of the image at an index.
+    private record Indexed<R>(int index, R result, Exception failure) {
+    }
+}
@@ -0,0 +1,179 @@
+package Application;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.image.WritablePixelFormat;
+import javafx.scene.paint.Color;
+
+import java.awt.image.BufferedImage;
+
+// The ImageBuffer class holds the pixels of an image as packed ARGB integers.
+// The pixels are read from an Image with one bulk getPixels call and written back with one bulk setPixels call,
+// so the managers never have to allocate a Color for every pixel they look at.
+public class ImageBuffer {
+    // Packed ARGB values of the two colors used by the black and white images.
+    public static final int WHITE = 0xFFFFFFFF;
+    public static final int BLACK = 0xFF000000;
+
+    // The dimensions of the image.
+    private final int width, height;
+
+    // The pixels of the image, row by row. The pixel at (x, y) is stored at y * width + x.
+    private final int[] pixels;
+
+    // Constructor that creates an empty (fully transparent) buffer with the given dimensions.
+    public ImageBuffer(int width, int height) {
+        this(width, height, new int[width * height]);
+    }
+
+    // Constructor that wraps an existing array of packed ARGB pixels.
+    public ImageBuffer(int width, int height, int[] pixels) {
+        if (width < 0 || height < 0) throw new IllegalArgumentException("Negative dimensions are not allowed");
+        if (pixels.length != width * height) throw new IllegalArgumentException("Pixel array does not match the dimensions");
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+    }
+
+    //------------------------
+    // Conversion
+    //------------------------
+
+    // Method to read all the pixels of an image into a new buffer.
+    public static ImageBuffer fromImage(Image image) {
+        int width = (int) image.getWidth();
+        int height = (int) image.getHeight();
+        int[] pixels = new int[width * height];
+        image.getPixelReader().getPixels(0, 0, width, height, WritablePixelFormat.getIntArgbInstance(), pixels, 0, width);
+        return new ImageBuffer(width, height, pixels);
+    }
+
+    // Method to read all the pixels of an image decoded by ImageIO into a new buffer.
+    // This does not need the JavaFX toolkit, so it can be used by the headless batch analyser.
+    public static ImageBuffer fromBufferedImage(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+        return new ImageBuffer(width, height, pixels);
+    }
+
+    // Method to write the buffer into a new WritableImage.
+    public WritableImage toImage() {
+        WritableImage image = new WritableImage(width, height);
+        writeTo(image);
+        return image;
+    }
+
+    // Method to write the buffer into an existing WritableImage of the same size.
+    public void writeTo(WritableImage image) {
+        image.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+    }
+
+    //------------------------
+    // Pixels
+    //------------------------
+
+    // Method to map the pixel at (x, y) to its index in the buffer.
+    public int index(int x, int y) {
+        return y * width + x;
+    }
+
+    // Method to get the packed ARGB value of the pixel at (x, y).
+    public int getArgb(int x, int y) {
+        return pixels[y * width + x];
+    }
+
+    // Method to set the packed ARGB value of the pixel at (x, y).
+    public void setArgb(int x, int y, int argb) {
+        pixels[y * width + x] = argb;
+    }
+
+    // Method to check if the pixel at (x, y) is white.
+    public boolean isWhite(int x, int y) {
+        return pixels[y * width + x] == WHITE;
+    }
+
+    // Method to check if the pixel at (x, y) is black.
+    public boolean isBlack(int x, int y) {
+        return pixels[y * width + x] == BLACK;
+    }
+
+    // Getter for the pixel array. Changes to the array are changes to the buffer.
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    // Getter for the width.
+    public int getWidth() {
+        return width;
+    }
+
+    // Getter for the height.
+    public int getHeight() {
+        return height;
+    }
+
+    //------------------------
+    // Color Helpers
+    //------------------------
+
+    // Method to create the same Color that PixelReader.getColor returns for a packed ARGB value.
+    public static Color toColor(int argb) {
+        return Color.rgb((argb >> 16) & 0xFF, (argb >> 8) & 0xFF, argb & 0xFF, (argb >>> 24) / 255.0);
+    }
+
+    // Method to pack a Color the same way PixelWriter.setColor does.
+    public static int toArgb(Color color) {
+        int a = (int) Math.round(color.getOpacity() * 255.0);
+        int r = (int) Math.round(color.getRed() * 255.0);
+        int g = (int) Math.round(color.getGreen() * 255.0);
+        int b = (int) Math.round(color.getBlue() * 255.0);
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    // Methods to get a color component of a packed ARGB value with the same precision as Color.getRed, getGreen and getBlue.
+    // Color stores its components as floats, so the value is rounded to float before it is widened again.
+    public static double getRed(int argb) {
+        return (float) (((argb >> 16) & 0xFF) / 255.0);
+    }
+
+    public static double getGreen(int argb) {
+        return (float) (((argb >> 8) & 0xFF) / 255.0);
+    }
+
+    public static double getBlue(int argb) {
+        return (float) ((argb & 0xFF) / 255.0);
+    }
+
+    // Methods to get the hue, saturation and brightness of a packed ARGB value, the same to the bit as Color.getHue,
+    // getSaturation and getBrightness, but without creating a Color.
+    public static double getHue(int argb) {
+        double red = getRed(argb), green = getGreen(argb), blue = getBlue(argb);
+        double cmax = Math.max(Math.max(red, green), blue);
+        double cmin = Math.min(Math.min(red, green), blue);
+        if (cmax == 0 || cmax == cmin) return 0;
+
+        double redc = (cmax - red) / (cmax - cmin);
+        double greenc = (cmax - green) / (cmax - cmin);
+        double bluec = (cmax - blue) / (cmax - cmin);
+        double hue;
+        if (red == cmax) hue = bluec - greenc;
+        else if (green == cmax) hue = 2.0 + redc - bluec;
+        else hue = 4.0 + greenc - redc;
+        hue = hue / 6.0;
+        if (hue < 0) hue = hue + 1.0;
+        return hue * 360;
+    }
+
+    public static double getSaturation(int argb) {
+        double red = getRed(argb), green = getGreen(argb), blue = getBlue(argb);
+        double cmax = Math.max(Math.max(red, green), blue);
+        double cmin = Math.min(Math.min(red, green), blue);
+        return cmax != 0 ? (cmax - cmin) / cmax : 0;
+    }
+
+    public static double getBrightness(int argb) {
+        return Math.max(Math.max(getRed(argb), getGreen(argb)), getBlue(argb));
+    }
+}
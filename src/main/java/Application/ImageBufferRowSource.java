@@ -0,0 +1,41 @@
+package Application;
+
+// The ImageBufferRowSource class reads the rows of an image that is already held in an ImageBuffer.
+public class ImageBufferRowSource implements ImageRowSource {
+    // The buffer the rows are read from.
+    private final ImageBuffer imageBuffer;
+    // The next row to be read.
+    private int nextRow;
+
+    // Constructor that sets the buffer to read from.
+    public ImageBufferRowSource(ImageBuffer imageBuffer) {
+        this.imageBuffer = imageBuffer;
+    }
+
+    // Method to copy the next rows out of the buffer.
+    @Override
+    public int readRows(int[] pixels, int maxRows) {
+        int rows = Math.min(maxRows, imageBuffer.getHeight() - nextRow);
+        if (rows <= 0) return 0;
+        System.arraycopy(imageBuffer.getPixels(), nextRow * imageBuffer.getWidth(), pixels, 0, rows * imageBuffer.getWidth());
+        nextRow += rows;
+        return rows;
+    }
+
+    // Getter for the width.
+    @Override
+    public int getWidth() {
+        return imageBuffer.getWidth();
+    }
+
+    // Getter for the height.
+    @Override
+    public int getHeight() {
+        return imageBuffer.getHeight();
+    }
+
+    // There is nothing to close.
+    @Override
+    public void close() {
+    }
+}
@@ -9,6 +9,10 @@ import javafx.scene.layout.StackPane;
 import javafx.scene.shape.Rectangle;
 import javafx.scene.text.Text;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -17,7 +21,7 @@ import java.util.Map;
 // The ImageProcessor class is responsible for various image processing tasks.
 public class ImageProcessor {
     // Instance variables for various managers used in image processing.
-    private final PillCapsuleManager pillCapsuleManager = new PillCapsuleManager();
+    private final PillCapsuleManager pillCapsuleManager;
     private final List<Text> numberTexts = new ArrayList<>();
     private final Map<Rectangle, Integer> rectangleSizes = new HashMap<>();
     private final PillSelectionManager pillSelectionManager = new PillSelectionManager(this);
@@ -27,8 +31,29 @@ public class ImageProcessor {
     private final BoundaryManager boundaryManager = new BoundaryManager(this);
     private final RectangleManager rectangleManager = new RectangleManager(this);
     private PixelReader pixelReader;
+    private ImageBuffer imageBuffer;
+    // The pyramid of the last image converted or previewed, and that image, so that slider moves can reuse it.
+    private ImagePyramid imagePyramid;
+    private Image imagePyramidImage;
+    // The labelings of the black and white images that have been analysed.
+    private final AnalysisCache analysisCache = new AnalysisCache(AnalysisCache.DEFAULT_MAX_BYTES);
+    // The counts and latencies of the analyses, reported through JMX once registered.
+    private final AnalysisMetrics analysisMetrics = new AnalysisMetrics(analysisCache);
+    // Whether an image has been converted and is waiting for its component table, which finishes its analysis.
+    private boolean analysisInFlight;
     private int width, height;
 
+    // Constructor that creates an ImageProcessor with its own list of pill selections.
+    public ImageProcessor() {
+        this(new PillCapsuleManager());
+    }
+
+    // Constructor that creates an ImageProcessor working with the given list of pill selections.
+    // Several processors can share one PillCapsuleManager, so the selections are only compiled once.
+    public ImageProcessor(PillCapsuleManager pillCapsuleManager) {
+        this.pillCapsuleManager = pillCapsuleManager;
+    }
+
     //------------------------
     // Pill Selections
     //------------------------
@@ -68,8 +93,43 @@ public class ImageProcessor {
     //------------------------
 
     // Method to convert an image to black and white.
+    // This starts the analysis of the image in the AnalysisMetrics, which is finished once its component table is built.
     public ImageView convertToBlackAndWhite(ImageView originalImageView, double hueAdjustment, double saturationFactor, double brightnessFactor) {
-        return conversionManager.convertToBlackAndWhite(originalImageView, hueAdjustment, saturationFactor, brightnessFactor);
+        startAnalysis();
+        try {
+            return conversionManager.convertToBlackAndWhite(originalImageView, hueAdjustment, saturationFactor, brightnessFactor);
+        } catch (RuntimeException e) {
+            abandonAnalysis();
+            throw e;
+        }
+    }
+
+    // Method to show a quick preview of the conversion to black and white, rendered from the level of the image pyramid
+    // that matches the fit size of the ImageView. The PillSelection array of the last full conversion is kept.
+    // The pixels are classified with the given selections, so a preview rendered on another thread can be given its own copy.
+    public ImageView previewBlackAndWhite(ImageView originalImageView, List<PillSelection> selections, double hueAdjustment, double saturationFactor, double brightnessFactor) {
+        return conversionManager.previewBlackAndWhite(originalImageView, selections, hueAdjustment, saturationFactor, brightnessFactor);
+    }
+
+    // Method to get the pyramid of an image.
+    // It is only built again when a different image is given, such as a newly opened or rescaled image.
+    public synchronized ImagePyramid getImagePyramid(Image image) {
+        if (image != imagePyramidImage) {
+            imagePyramid = ImagePyramid.fromImage(image);
+            imagePyramidImage = image;
+        }
+        return imagePyramid;
+    }
+
+    // Method to get the hue, saturation and brightness planes of an image at full resolution.
+    public HsbPlanes getHsbPlanes(Image image) {
+        return getImagePyramid(image).getHsbPlanes(0);
+    }
+
+    // Method to drop the cached pyramid and the planes worked out for it.
+    public synchronized void invalidateImagePyramid() {
+        imagePyramid = null;
+        imagePyramidImage = null;
     }
 
     // Method to refine a black and white image.
@@ -77,6 +137,16 @@ public class ImageProcessor {
         return conversionManager.refineBlackAndWhiteImage(originalImageView);
     }
 
+    // Method to convert an image held in a buffer to a black and white image.
+    public BinaryImage convertToBlackAndWhite(ImageBuffer originalBuffer, double hueAdjustment, double saturationFactor, double brightnessFactor) {
+        return conversionManager.convertToBlackAndWhite(originalBuffer, hueAdjustment, saturationFactor, brightnessFactor);
+    }
+
+    // Method to refine a black and white image held in a BinaryImage.
+    public BinaryImage refineBlackAndWhiteImage(BinaryImage bwImage) {
+        return conversionManager.refineBlackAndWhiteImage(bwImage);
+    }
+
     // Getter for the ConversionManager.
     public ConversionManager getConversionManager() {
         return conversionManager;
@@ -91,16 +161,102 @@ public class ImageProcessor {
         return disjointSetManager.initializeDisjointSets(image);
     }
 
+    // Method to initialize disjoint sets for an image held in a BinaryImage.
+    public UnionFind initializeDisjointSets(BinaryImage bwImage) {
+        return disjointSetManager.initializeDisjointSets(bwImage);
+    }
+
     // Method to get the bounds of disjoint sets in an image.
-    public Map<Integer, int[]> getDisjointSetBounds(Image bwImage, UnionFind unionFind, boolean[][] boundary) {
+    public Map<Integer, int[]> getDisjointSetBounds(Image bwImage, UnionFind unionFind, BinaryImage boundary) {
+        return disjointSetManager.getDisjointSetBounds(bwImage, unionFind, boundary);
+    }
+
+    // Method to get the bounds of disjoint sets in an image held in a BinaryImage.
+    public Map<Integer, int[]> getDisjointSetBounds(BinaryImage bwImage, UnionFind unionFind, BinaryImage boundary) {
         return disjointSetManager.getDisjointSetBounds(bwImage, unionFind, boundary);
     }
 
     // Method to get the sizes of disjoint sets in an image.
-    public Map<Integer, Integer> getDisjointSetSizes(Image bwImage, UnionFind unionFind, boolean[][] boundary) {
+    public Map<Integer, Integer> getDisjointSetSizes(Image bwImage, UnionFind unionFind, BinaryImage boundary) {
         return disjointSetManager.getDisjointSetSizes(bwImage, unionFind, boundary);
     }
 
+    // Method to get the sizes of disjoint sets in an image held in a BinaryImage.
+    public Map<Integer, Integer> getDisjointSetSizes(BinaryImage bwImage, UnionFind unionFind, BinaryImage boundary) {
+        return disjointSetManager.getDisjointSetSizes(bwImage, unionFind, boundary);
+    }
+
+    // Method to get the statistics of every disjoint set in an image in a single pass.
+    public ComponentTable getComponentTable(BinaryImage bwImage, UnionFind unionFind) {
+        return disjointSetManager.getComponentTable(bwImage, unionFind);
+    }
+
+    // Method to get the statistics of every disjoint set in a labeled image, kept until the selections change.
+    // This finishes the analysis started by the last conversion, with the pixels of the image and the sets in the table.
+    public ComponentTable getComponentTable(LabeledImage labeledImage) {
+        ComponentTable componentTable = disjointSetManager.getComponentTable(labeledImage);
+        BinaryImage bwImage = labeledImage.getBinaryImage();
+        finishAnalysis((long) bwImage.getWidth() * bwImage.getHeight(), componentTable.size());
+        return componentTable;
+    }
+
+    // Method to get the labeling of a black and white image.
+    // It is kept in the cache, so asking again for the same image does not label it again.
+    public LabeledImage getLabeledImage(Image bwImage) {
+        return analysisCache.get(bwImage, () -> labelImage(BinaryImage.fromImage(bwImage)));
+    }
+
+    // Method to label a black and white image: join its white pixels and work out its boundary.
+    // The labeling does not touch the state of the ImageProcessor, so it is safe to run on any thread.
+    // It is the same as AnalysisPipeline.label, done by the managers so that each stage is recorded.
+    public LabeledImage labelImage(BinaryImage bwImage) {
+        UnionFind unionFind = new UnionFind(bwImage.getWidth() * bwImage.getHeight());
+        unionFindManager.unionFind(unionFind, bwImage);
+        return new LabeledImage(bwImage, unionFind, boundaryManager.setBoundary(bwImage));
+    }
+
+    // Method to drop the labelings of every image, such as when a new image is opened.
+    // An analysis still waiting for its component table is given up.
+    public void invalidateAnalyses() {
+        analysisCache.clear();
+        abandonAnalysis();
+    }
+
+    // Getter for the AnalysisCache.
+    public AnalysisCache getAnalysisCache() {
+        return analysisCache;
+    }
+
+    // Getter for the AnalysisMetrics.
+    public AnalysisMetrics getAnalysisMetrics() {
+        return analysisMetrics;
+    }
+
+    // Method to record that the analysis of an image has started, unless an earlier conversion is still waiting for its table,
+    // so converting again with other slider values counts as the same analysis.
+    private synchronized void startAnalysis() {
+        if (!analysisInFlight) analysisMetrics.imageStarted();
+        analysisInFlight = true;
+    }
+
+    // Method to record that the analysis started by the last conversion has been finished, if there is one.
+    private synchronized void finishAnalysis(long pixels, int components) {
+        if (analysisInFlight) analysisMetrics.imageFinished(pixels, components);
+        analysisInFlight = false;
+    }
+
+    // Method to record that the analysis started by the last conversion will not be finished, if there is one.
+    private synchronized void abandonAnalysis() {
+        if (analysisInFlight) analysisMetrics.imageFailed();
+        analysisInFlight = false;
+    }
+
+    // Method to register the AnalysisMetrics with the platform MBean server, so they can be monitored through JMX.
+    // Only the ImageProcessor the application runs on should register, since the server keeps it for as long as the JVM runs.
+    public ObjectName registerAnalysisMetrics(String name) throws JMException {
+        return analysisMetrics.register(name);
+    }
+
     // Method to get the size of a disjoint set in a rectangle.
     public int getSizeOfDisjointSetInRectangle(Rectangle rect) {
         return disjointSetManager.getSizeOfDisjointSetInRectangle(rect);
@@ -125,22 +281,61 @@ public class ImageProcessor {
         unionFindManager.unionFind(unionFind, image);
     }
 
+    // Method to perform a union-find operation on an image held in a BinaryImage.
+    public void unionFind(UnionFind unionFind, BinaryImage bwImage) {
+        unionFindManager.unionFind(unionFind, bwImage);
+    }
+
+    // Method to label the connected white regions of an image.
+    public LabelImage labelComponents(Image image, Connectivity connectivity) {
+        return unionFindManager.label(image, connectivity);
+    }
+
+    // Getter for the UnionFindManager.
+    public UnionFindManager getUnionFindManager() {
+        return unionFindManager;
+    }
+
     //------------------------
     // Boundary Processes
     //------------------------
 
     // Method to set the boundary of an image.
-    public boolean[][] setBoundary(Image image) {
+    public BinaryImage setBoundary(Image image) {
         return boundaryManager.setBoundary(image);
     }
 
+    // Method to set the boundary of an image held in a BinaryImage.
+    public BinaryImage setBoundary(BinaryImage bwImage) {
+        return boundaryManager.setBoundary(bwImage);
+    }
+
     //------------------------
     // Rectangle
     //------------------------
 
-    // Method to create rectangles on a StackPane based on disjoint set bounds and sizes.
-    public void createRectangles(StackPane stackPane, ImageView newImageView, Image originalImage, Map<Integer, int[]> disjointSetBounds, Map<Integer, Integer> disjointSetSizes) {
-        rectangleManager.createRectangles(stackPane, newImageView, originalImage, disjointSetBounds, disjointSetSizes);
+    // Method to create rectangles on a StackPane based on the statistics of the disjoint sets.
+    public void createRectangles(StackPane stackPane, ImageView newImageView, Image originalImage, ComponentTable componentTable) {
+        rectangleManager.createRectangles(stackPane, newImageView, originalImage, componentTable);
+    }
+
+    // Method to read a result saved by the BatchAnalyser and create the rectangles of its sets on a StackPane over the original image,
+    // straight from its component table, so the image is not converted or labeled again. Returns the result, for its pill counts.
+    // The result must be of an image of the same size as the original image, since the bounds of the sets are in its pixels.
+    public AnalysisResult openResult(Path resultFile, StackPane stackPane, ImageView newImageView, Image originalImage) throws IOException {
+        AnalysisResult result = AnalysisResultFile.read(resultFile);
+        BinaryImage refinedMask = result.getRefinedMask();
+        if (refinedMask.getWidth() != (int) originalImage.getWidth() || refinedMask.getHeight() != (int) originalImage.getHeight()) {
+            throw new IOException("The result is of a " + refinedMask.getWidth() + "x" + refinedMask.getHeight() + " image, not of a "
+                    + (int) originalImage.getWidth() + "x" + (int) originalImage.getHeight() + " image");
+        }
+        createRectangles(stackPane, newImageView, originalImage, result.getComponentTable());
+        return result;
+    }
+
+    // Method to count the pills in an image by name, using the same size threshold and names as the rectangles.
+    public Map<String, Integer> countPills(ComponentTable componentTable) {
+        return rectangleManager.countPills(componentTable);
     }
 
     // Method to get the number texts associated with rectangles.
@@ -157,6 +352,9 @@ public class ImageProcessor {
         // Create a new Image with the specified width and height.
         Image rescaledImage = new Image(image.getUrl(), width, height, true, true);
 
+        // The pyramid of the old image is no longer needed.
+        invalidateImagePyramid();
+
         // Set the rescaled image to the imageView.
         imageView.setImage(rescaledImage);
 
@@ -170,10 +368,16 @@ public class ImageProcessor {
     //------------------------
 
     // Method to set up the ImageProcessor with the given image.
+    // The pixels are read once into an ImageBuffer, which the managers work on.
     public void setup(Image image) {
-        setWidth((int) image.getWidth());
-        setHeight((int) image.getHeight());
-        setPixelReader(image.getPixelReader());
+        setup(ImageBuffer.fromImage(image));
+    }
+
+    // Method to set up the ImageProcessor with an image that has already been read into a buffer.
+    public void setup(ImageBuffer imageBuffer) {
+        setWidth(imageBuffer.getWidth());
+        setHeight(imageBuffer.getHeight());
+        setImageBuffer(imageBuffer);
     }
 
     // Method to create a new ImageView with the given image and dimensions.
@@ -191,6 +395,16 @@ public class ImageProcessor {
         this.pixelReader = pixelReader;
     }
 
+    // Getter for the ImageBuffer.
+    public ImageBuffer getImageBuffer() {
+        return imageBuffer;
+    }
+
+    // Setter for the ImageBuffer.
+    public void setImageBuffer(ImageBuffer imageBuffer) {
+        this.imageBuffer = imageBuffer;
+    }
+
     // Setter for the width.
     public void setWidth(int width){
         this.width = width;
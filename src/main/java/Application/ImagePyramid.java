@@ -0,0 +1,108 @@
+package Application;
+
+import javafx.scene.image.Image;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// The ImagePyramid class holds an image at full resolution and at 1/2, 1/4 and 1/8 of its width and height,
+// so that previews can be rendered from the smallest level that still fills the space they are shown in.
+// Each level is made by averaging 2x2 blocks of the level above. The HsbPlanes of a level are only worked out
+// the first time they are needed, and are kept for as long as the pyramid is.
+public class ImagePyramid {
+    // The most levels below full resolution, each half the width and height of the one above.
+    public static final int MAX_REDUCTIONS = 3;
+
+    // The levels, from full resolution down.
+    private final List<ImageBuffer> levels = new ArrayList<>();
+    // The HsbPlanes of each level, or null if they have not been needed yet.
+    private final HsbPlanes[] hsbPlanes;
+
+    // Constructor that builds the levels below the full resolution image.
+    public ImagePyramid(ImageBuffer fullResolution) {
+        levels.add(fullResolution);
+        ImageBuffer level = fullResolution;
+        for (int i = 0; i < MAX_REDUCTIONS && (level.getWidth() > 1 || level.getHeight() > 1); i++) {
+            level = downsample(level);
+            levels.add(level);
+        }
+        hsbPlanes = new HsbPlanes[levels.size()];
+    }
+
+    // Method to build the pyramid of a JavaFX image.
+    public static ImagePyramid fromImage(Image image) {
+        return new ImagePyramid(ImageBuffer.fromImage(image));
+    }
+
+    // Method to halve the width and height of an image by averaging each 2x2 block of pixels.
+    // A block on the right or bottom edge of an image with an odd size averages the pixels it has.
+    static ImageBuffer downsample(ImageBuffer imageBuffer) {
+        int width = imageBuffer.getWidth(), height = imageBuffer.getHeight();
+        ImageBuffer downsampled = new ImageBuffer((width + 1) / 2, (height + 1) / 2);
+        int[] pixels = imageBuffer.getPixels();
+        int[] downsampledPixels = downsampled.getPixels();
+
+        for (int y = 0; y < downsampled.getHeight(); y++) {
+            int y0 = 2 * y, y1 = Math.min(2 * y + 1, height - 1);
+            for (int x = 0; x < downsampled.getWidth(); x++) {
+                int x0 = 2 * x, x1 = Math.min(2 * x + 1, width - 1);
+                int p00 = pixels[y0 * width + x0], p01 = pixels[y0 * width + x1];
+                int p10 = pixels[y1 * width + x0], p11 = pixels[y1 * width + x1];
+                downsampledPixels[y * downsampled.getWidth() + x] =
+                        average(p00, p01, p10, p11, 24) << 24
+                        | average(p00, p01, p10, p11, 16) << 16
+                        | average(p00, p01, p10, p11, 8) << 8
+                        | average(p00, p01, p10, p11, 0);
+            }
+        }
+        return downsampled;
+    }
+
+    // Method to get the rounded average of one component of four packed ARGB pixels. Repeated edge pixels count twice.
+    private static int average(int p00, int p01, int p10, int p11, int shift) {
+        int sum = ((p00 >>> shift) & 0xFF) + ((p01 >>> shift) & 0xFF) + ((p10 >>> shift) & 0xFF) + ((p11 >>> shift) & 0xFF);
+        return (sum + 2) >> 2;
+    }
+
+    //------------------------
+    // Levels
+    //------------------------
+
+    // Method to get the smallest level that is at least as large as an image shown to fit the given size, keeping its ratio.
+    // A fit size of 0 or less means the image is shown at full size, so the full resolution level is used.
+    public int getLevelFor(double fitWidth, double fitHeight) {
+        ImageBuffer fullResolution = levels.get(0);
+        if (fitWidth <= 0 && fitHeight <= 0) return 0;
+
+        // The image is scaled to fit inside both sizes, the same as an ImageView that preserves the ratio.
+        double scale = Double.POSITIVE_INFINITY;
+        if (fitWidth > 0) scale = Math.min(scale, fitWidth / fullResolution.getWidth());
+        if (fitHeight > 0) scale = Math.min(scale, fitHeight / fullResolution.getHeight());
+        double shownWidth = fullResolution.getWidth() * scale;
+        double shownHeight = fullResolution.getHeight() * scale;
+
+        int level = 0;
+        while (level + 1 < levels.size()
+                && levels.get(level + 1).getWidth() >= shownWidth
+                && levels.get(level + 1).getHeight() >= shownHeight) {
+            level++;
+        }
+        return level;
+    }
+
+    // Method to get the HsbPlanes of a level, working them out the first time.
+    public synchronized HsbPlanes getHsbPlanes(int level) {
+        if (hsbPlanes[level] == null) hsbPlanes[level] = HsbPlanes.fromImageBuffer(levels.get(level));
+        return hsbPlanes[level];
+    }
+
+    // Getter for a level. Level 0 is the full resolution image.
+    public ImageBuffer getLevel(int level) {
+        return levels.get(level);
+    }
+
+    // Getter for the number of levels, including the full resolution image.
+    public int getLevelCount() {
+        return levels.size();
+    }
+}
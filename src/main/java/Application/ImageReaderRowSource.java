@@ -0,0 +1,84 @@
+package Application;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+// The ImageReaderRowSource class reads the rows of an image file with ImageIO, one band of rows at a time.
+// Each band is decoded on its own with a source region, so only one band of the image is held in memory.
+// Formats stored in strips or tiles, such as TIFF, only decode the band that is asked for.
+// Formats that can only be decoded from the start, such as PNG and JPEG, decode the rows above the band again for each band,
+// which keeps the memory bounded but makes reading slower.
+public class ImageReaderRowSource implements ImageRowSource {
+    // The stream the image is read from.
+    private final ImageInputStream input;
+    // The reader that decodes the image.
+    private final ImageReader reader;
+    // The dimensions of the image.
+    private final int width, height;
+    // The next row to be read.
+    private int nextRow;
+
+    // Constructor that opens an image file.
+    public ImageReaderRowSource(Path path) throws IOException {
+        input = ImageIO.createImageInputStream(path.toFile());
+        if (input == null) throw new IOException("Could not open " + path);
+
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            input.close();
+            throw new IOException("Unsupported image format: " + path);
+        }
+        reader = readers.next();
+        reader.setInput(input, false, true);
+
+        try {
+            width = reader.getWidth(0);
+            height = reader.getHeight(0);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    // Method to read the next band of rows.
+    @Override
+    public int readRows(int[] pixels, int maxRows) throws IOException {
+        int rows = Math.min(maxRows, height - nextRow);
+        if (rows <= 0) return 0;
+
+        // Decode only the rows of the band.
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceRegion(new Rectangle(0, nextRow, width, rows));
+        BufferedImage band = reader.read(0, param);
+        band.getRGB(0, 0, width, rows, pixels, 0, width);
+
+        nextRow += rows;
+        return rows;
+    }
+
+    // Getter for the width.
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    // Getter for the height.
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    // Method to release the reader and close the file.
+    @Override
+    public void close() throws IOException {
+        reader.dispose();
+        input.close();
+    }
+}
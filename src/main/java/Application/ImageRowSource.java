@@ -0,0 +1,18 @@
+package Application;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+// The ImageRowSource interface reads an image a few rows at a time, so the whole image never has to be in memory.
+// The rows are read from the top down as packed ARGB pixels.
+public interface ImageRowSource extends Closeable {
+    // Method to get the width of the image.
+    int getWidth();
+
+    // Method to get the height of the image.
+    int getHeight();
+
+    // Method to read up to maxRows of the next rows into the array, row by row from the start of the array.
+    // Returns the number of rows read, which is 0 once every row has been read.
+    int readRows(int[] pixels, int maxRows) throws IOException;
+}
@@ -0,0 +1,61 @@
+package Application;
+
+// The LabelImage class holds the result of labeling the connected components of a black and white image.
+// Every white pixel gets the label of its component, from 1 to the number of components, and every other pixel gets 0.
+// Components are numbered in the order their first pixel appears when the image is scanned row by row.
+public class LabelImage {
+    // The label given to pixels that are not part of any component.
+    public static final int BACKGROUND = 0;
+
+    // The dimensions of the image.
+    private final int width, height;
+
+    // The label of each pixel, row by row. The pixel at (x, y) is stored at y * width + x.
+    private final int[] labels;
+
+    // The number of components, which is also the highest label.
+    private final int componentCount;
+
+    // Constructor that wraps an array of labels.
+    public LabelImage(int width, int height, int[] labels, int componentCount) {
+        if (labels.length != width * height) throw new IllegalArgumentException("Label array does not match the dimensions");
+        this.width = width;
+        this.height = height;
+        this.labels = labels;
+        this.componentCount = componentCount;
+    }
+
+    // Method to get the label of the pixel at (x, y).
+    public int getLabel(int x, int y) {
+        return labels[y * width + x];
+    }
+
+    // Method to count the pixels of each component. The count for label l is stored at index l, and index 0 counts the background.
+    public int[] getComponentSizes() {
+        int[] sizes = new int[componentCount + 1];
+        for (int label : labels) {
+            sizes[label]++;
+        }
+        return sizes;
+    }
+
+    // Getter for the label array.
+    public int[] getLabels() {
+        return labels;
+    }
+
+    // Getter for the number of components.
+    public int getComponentCount() {
+        return componentCount;
+    }
+
+    // Getter for the width.
+    public int getWidth() {
+        return width;
+    }
+
+    // Getter for the height.
+    public int getHeight() {
+        return height;
+    }
+}
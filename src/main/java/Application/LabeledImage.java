@@ -0,0 +1,63 @@
+package Application;
+
+import java.util.function.Supplier;
+
+// The LabeledImage class holds the labeling of a black and white image: the image itself, the UnionFind of its white pixels
+// joined with their neighbours and compacted, and its boundary.
+// The statistics of its disjoint sets are worked out the first time they are needed, and kept for as long as
+// the PillSelections and the PillSelection array they were counted with stay the same.
+public class LabeledImage {
+    // The black and white image.
+    private final BinaryImage bwImage;
+    // The UnionFind of the white pixels, compacted so that each set has a dense label.
+    private final UnionFind unionFind;
+    // The boundary of the image.
+    private final BinaryImage boundary;
+
+    // The statistics of the disjoint sets, and the version of the selections and the PillSelection array they were counted with.
+    private ComponentTable componentTable;
+    private int componentTableVersion;
+    private Object componentTableSelections;
+
+    // Constructor that sets the image, its UnionFind and its boundary.
+    public LabeledImage(BinaryImage bwImage, UnionFind unionFind, BinaryImage boundary) {
+        this.bwImage = bwImage;
+        this.unionFind = unionFind;
+        this.boundary = boundary;
+        unionFind.compact();
+    }
+
+    // Method to get the statistics of the disjoint sets for a version of the selections and a PillSelection array.
+    // They are only built again when the version or the array is different from the last time.
+    public synchronized ComponentTable getComponentTable(int selectionVersion, PillSelection[][] pillSelectionArray, Supplier<ComponentTable> builder) {
+        if (componentTable == null || componentTableVersion != selectionVersion || componentTableSelections != pillSelectionArray) {
+            componentTable = builder.get();
+            componentTableVersion = selectionVersion;
+            componentTableSelections = pillSelectionArray;
+        }
+        return componentTable;
+    }
+
+    // Method to estimate the memory used by the labeling, in bytes.
+    // The UnionFind keeps a parent, a size and a label for each pixel, and a root for each label.
+    public long getEstimatedBytes() {
+        long unionFindBytes = (long) unionFind.size() * 3 * Integer.BYTES + (long) unionFind.components() * Integer.BYTES;
+        long imageBytes = (long) (bwImage.getWords().length + boundary.getWords().length) * Long.BYTES;
+        return unionFindBytes + imageBytes;
+    }
+
+    // Getter for the black and white image.
+    public BinaryImage getBinaryImage() {
+        return bwImage;
+    }
+
+    // Getter for the UnionFind.
+    public UnionFind getUnionFind() {
+        return unionFind;
+    }
+
+    // Getter for the boundary.
+    public BinaryImage getBoundary() {
+        return boundary;
+    }
+}
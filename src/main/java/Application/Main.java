@@ -6,16 +6,29 @@ import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
+import javax.management.JMException;
+
 public class Main extends Application {
 
     @Override
     public void start(Stage primaryStage) throws Exception{
-        Parent root = FXMLLoader.load(getClass().getResource("hello-view.fxml"));
+        FXMLLoader loader = new FXMLLoader(getClass().getResource("hello-view.fxml"));
+        Parent root = loader.load();
+        registerAnalysisMetrics(loader.getController());
         primaryStage.setTitle("Pill and Capsule Analyser");
         primaryStage.setScene(new Scene(root, 1000, 800));
         primaryStage.show();
     }
 
+    // Method to register the metrics of the ImageProcessor of the window, so the analyses can be monitored through JMX.
+    private void registerAnalysisMetrics(Controller controller) {
+        try {
+            controller.getImageProcessor().registerAnalysisMetrics("gui");
+        } catch (JMException e) {
+            System.err.println("Could not register the analysis metrics: " + e);
+        }
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
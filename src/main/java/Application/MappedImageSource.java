@@ -0,0 +1,251 @@
+package Application;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+// The MappedImageSource class reads an uncompressed image file straight from a memory mapping of it, the way a scanner writes
+// its frames: binary PGM (P5) and PPM (P6) files, or raw 8-bit gray or RGB pixels whose dimensions are given.
+// Nothing is decoded up front and the pixels are never copied onto the heap as a whole. Each row is packed into ARGB as it is read,
+// so a conversion only holds the row it is working on, and the operating system pages the file in and out as it is read.
+// Rows can be read in any order from any number of threads. The mapping stays valid until it is collected, even once the source is closed.
+public class MappedImageSource implements ImageRowSource {
+    // The file extensions of the formats with a header.
+    public static final String[] EXTENSIONS = {"pgm", "ppm", "pnm"};
+
+    // The most bytes in one mapping.
+    private static final long MAX_MAPPING_BYTES = Integer.MAX_VALUE;
+
+    // The file the image is mapped from.
+    private final FileChannel channel;
+    // The dimensions of the image, its samples per pixel, and the largest value of a sample.
+    private final int width, height, channels, maxValue;
+    // The bytes in each sample and in each row.
+    private final int bytesPerSample;
+    private final long bytesPerRow;
+    // The mappings of the pixels, each holding whole rows, and the number of rows in each of them.
+    private final MappedByteBuffer[] mappings;
+    private final int rowsPerMapping;
+    // The next row read by readRows.
+    private int nextRow;
+
+    // Constructor that maps the pixels of an open file, starting at the given offset.
+    private MappedImageSource(FileChannel channel, long offset, int width, int height, int channels, int maxValue) throws IOException {
+        this.channel = channel;
+        this.width = width;
+        this.height = height;
+        this.channels = channels;
+        this.maxValue = maxValue;
+        this.bytesPerSample = maxValue < 256 ? 1 : 2;
+        this.bytesPerRow = (long) width * channels * bytesPerSample;
+        if (bytesPerRow > MAX_MAPPING_BYTES) throw new IOException("A row of " + width + " pixels is too long to map");
+        if (offset + bytesPerRow * height > channel.size()) throw new IOException("The file is shorter than a " + width + "x" + height + " image");
+
+        // A file larger than one mapping is split into mappings of whole rows, so a row never has to be joined back together.
+        this.rowsPerMapping = bytesPerRow == 0 ? Math.max(height, 1) : (int) Math.min(height, MAX_MAPPING_BYTES / bytesPerRow);
+        this.mappings = new MappedByteBuffer[height == 0 ? 0 : (height + rowsPerMapping - 1) / rowsPerMapping];
+        for (int i = 0; i < mappings.length; i++) {
+            int rows = Math.min(rowsPerMapping, height - i * rowsPerMapping);
+            mappings[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset + i * rowsPerMapping * bytesPerRow, rows * bytesPerRow);
+        }
+    }
+
+    // Method to map a binary PGM or PPM file. The format is read from the header, not the file name.
+    public static MappedImageSource open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            Header header = Header.read(channel, path);
+            return new MappedImageSource(channel, header.offset, header.width, header.height, header.channels, header.maxValue);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Method to map a file of raw 8-bit pixels without a header: one byte of gray or three bytes of red, green and blue for each pixel.
+    public static MappedImageSource openRaw(Path path, int width, int height, int channels) throws IOException {
+        if (width < 0 || height < 0) throw new IllegalArgumentException("Width and height must not be negative");
+        if (channels != 1 && channels != 3) throw new IllegalArgumentException("Channels must be 1 or 3");
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new MappedImageSource(channel, 0, width, height, channels, 255);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Method to check if a file has the extension of a format with a header.
+    public static boolean isMappable(Path path) {
+        String fileName = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        for (String extension : EXTENSIONS) {
+            if (fileName.endsWith("." + extension)) return true;
+        }
+        return false;
+    }
+
+    //------------------------
+    // Rows
+    //------------------------
+
+    // Method to read a row as packed, opaque ARGB pixels into the array from the offset.
+    public void readRow(int y, int[] pixels, int offset) {
+        if (y < 0 || y >= height) throw new IndexOutOfBoundsException("Row " + y + " is outside the image");
+        MappedByteBuffer mapping = mappings[y / rowsPerMapping];
+        int start = (int) ((y % rowsPerMapping) * bytesPerRow);
+
+        // The reads are absolute, so they never touch the position of the mapping and threads can share it.
+        if (bytesPerSample == 1 && maxValue == 255) {
+            if (channels == 3) {
+                for (int x = 0, i = start; x < width; x++, i += 3) {
+                    pixels[offset + x] = 0xFF000000 | (mapping.get(i) & 0xFF) << 16 | (mapping.get(i + 1) & 0xFF) << 8 | (mapping.get(i + 2) & 0xFF);
+                }
+            } else {
+                for (int x = 0, i = start; x < width; x++, i++) {
+                    int gray = mapping.get(i) & 0xFF;
+                    pixels[offset + x] = 0xFF000000 | gray << 16 | gray << 8 | gray;
+                }
+            }
+            return;
+        }
+
+        // Any other largest value is scaled to 8 bits.
+        for (int x = 0, i = start; x < width; x++) {
+            int r = sample(mapping, i);
+            i += bytesPerSample;
+            int g = r, b = r;
+            if (channels == 3) {
+                g = sample(mapping, i);
+                b = sample(mapping, i + bytesPerSample);
+                i += 2 * bytesPerSample;
+            }
+            pixels[offset + x] = 0xFF000000 | r << 16 | g << 8 | b;
+        }
+    }
+
+    // Method to read a sample of one or two big endian bytes and scale it to 8 bits.
+    private int sample(MappedByteBuffer mapping, int index) {
+        int value = bytesPerSample == 1 ? mapping.get(index) & 0xFF : mapping.getShort(index) & 0xFFFF;
+        return (Math.min(value, maxValue) * 255 + maxValue / 2) / maxValue;
+    }
+
+    // Method to read the next rows, for streaming the image a band at a time.
+    @Override
+    public int readRows(int[] pixels, int maxRows) {
+        int rows = Math.min(maxRows, height - nextRow);
+        if (rows <= 0) return 0;
+        for (int row = 0; row < rows; row++) {
+            readRow(nextRow + row, pixels, row * width);
+        }
+        nextRow += rows;
+        return rows;
+    }
+
+    // Method to copy the whole image into an ImageBuffer, for the places that need every pixel on the heap, such as showing it.
+    public ImageBuffer toImageBuffer() {
+        ImageBuffer imageBuffer = new ImageBuffer(width, height);
+        for (int y = 0; y < height; y++) {
+            readRow(y, imageBuffer.getPixels(), y * width);
+        }
+        return imageBuffer;
+    }
+
+    //------------------------
+    // Getters
+    //------------------------
+
+    // Getter for the width.
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    // Getter for the height.
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    // Getter for the number of samples in each pixel: 1 for gray, 3 for color.
+    public int getChannels() {
+        return channels;
+    }
+
+    // Method to close the file. The mapping is released once it is collected.
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // The Header class reads the header of a binary PGM or PPM file: the magic number, the width, the height and the largest value,
+    // separated by whitespace and comments, followed by a single whitespace character before the pixels.
+    private static final class Header {
+        // The longest header that is read, which leaves plenty of room for comments.
+        private static final int MAX_HEADER_BYTES = 4096;
+
+        private int width, height, channels, maxValue;
+        private long offset;
+
+        // The bytes of the header and the next one to be read.
+        private final byte[] bytes;
+        private final int length;
+        private int position;
+
+        private Header(byte[] bytes, int length) {
+            this.bytes = bytes;
+            this.length = length;
+        }
+
+        static Header read(FileChannel channel, Path path) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(MAX_HEADER_BYTES, channel.size()));
+            while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0) {
+                // Keep reading until the header is in the buffer or the file ends.
+            }
+            Header header = new Header(buffer.array(), buffer.position());
+
+            if (header.length < 2 || header.bytes[0] != 'P' || (header.bytes[1] != '5' && header.bytes[1] != '6')) {
+                throw new IOException("Not a binary PGM or PPM file: " + path);
+            }
+            header.channels = header.bytes[1] == '5' ? 1 : 3;
+            header.position = 2;
+            header.width = header.readNumber(path);
+            header.height = header.readNumber(path);
+            header.maxValue = header.readNumber(path);
+            if (header.maxValue < 1 || header.maxValue > 65535) throw new IOException("The largest value must be from 1 to 65535: " + path);
+
+            // A single whitespace character separates the header from the pixels.
+            if (header.position >= header.length || !isWhitespace(header.bytes[header.position])) {
+                throw new IOException("The header does not end with whitespace: " + path);
+            }
+            header.offset = header.position + 1;
+            return header;
+        }
+
+        // Method to read a number, skipping the whitespace and comments before it.
+        private int readNumber(Path path) throws IOException {
+            while (position < length && (isWhitespace(bytes[position]) || bytes[position] == '#')) {
+                if (bytes[position] == '#') {
+                    while (position < length && bytes[position] != '\n' && bytes[position] != '\r') position++;
+                } else {
+                    position++;
+                }
+            }
+            long value = 0;
+            int start = position;
+            while (position < length && bytes[position] >= '0' && bytes[position] <= '9') {
+                value = value * 10 + (bytes[position++] - '0');
+                if (value > Integer.MAX_VALUE) throw new IOException("A number in the header is too large: " + path);
+            }
+            if (position == start) throw new IOException("The header is not complete: " + path);
+            return (int) value;
+        }
+
+        private static boolean isWhitespace(byte b) {
+            return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == 0x0B || b == '\f';
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package Application;
+
+import javafx.scene.paint.Color;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// The PillSelectionFile class saves pill selections to a text file and reads them back.
+// Each selection is one line of comma separated values: name, red, green, blue, color threshold, min size, max size.
+// The red, green and blue values are 0 to 255. Blank lines and lines starting with # are ignored.
+// The name is everything before the last six values, so it may contain commas of its own.
+public class PillSelectionFile {
+    // The header written at the top of every file.
+    static final String HEADER = "# name,red,green,blue,colorThreshold,minSize,maxSize";
+    // The number of values that follow the name on each line.
+    private static final int VALUE_COUNT = 6;
+    // The largest value of a color channel.
+    private static final int MAX_CHANNEL = 255;
+
+    // This class only has static methods.
+    private PillSelectionFile() {
+    }
+
+    //------------------------
+    // Reading
+    //------------------------
+
+    // Method to read the pill selections from a file, in the order they appear.
+    public static List<PillSelection> read(Path path) throws IOException {
+        List<PillSelection> selections = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                selections.add(parseLine(line, lineNumber));
+            }
+        }
+        return selections;
+    }
+
+    // Method to turn one line of the file into a PillSelection.
+    private static PillSelection parseLine(String line, int lineNumber) {
+        String[] fields = line.split(",", -1);
+        if (fields.length < VALUE_COUNT + 1) {
+            throw new IllegalArgumentException("Line " + lineNumber + ": expected a name followed by " + VALUE_COUNT + " values");
+        }
+
+        // The values are the last fields on the line and the name is everything before them.
+        int first = fields.length - VALUE_COUNT;
+        String name = String.join(",", List.of(fields).subList(0, first)).strip();
+        try {
+            int red = parseChannel(fields[first], lineNumber);
+            int green = parseChannel(fields[first + 1], lineNumber);
+            int blue = parseChannel(fields[first + 2], lineNumber);
+            double colorThreshold = Double.parseDouble(fields[first + 3].strip());
+            int minSize = Integer.parseInt(fields[first + 4].strip());
+            int maxSize = Integer.parseInt(fields[first + 5].strip());
+            return new PillSelection(name, Color.rgb(red, green, blue), colorThreshold, minSize, maxSize);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Line " + lineNumber + ": " + e.getMessage(), e);
+        }
+    }
+
+    // Method to read one color channel and check that it is in range.
+    private static int parseChannel(String field, int lineNumber) {
+        int value = Integer.parseInt(field.strip());
+        if (value < 0 || value > MAX_CHANNEL) {
+            throw new IllegalArgumentException("Line " + lineNumber + ": color value " + value + " is not between 0 and " + MAX_CHANNEL);
+        }
+        return value;
+    }
+
+    //------------------------
+    // Writing
+    //------------------------
+
+    // Method to write the pill selections to a file, replacing anything already in it.
+    public static void write(Path path, List<PillSelection> selections) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            for (PillSelection selection : selections) {
+                writer.write(formatLine(selection));
+                writer.newLine();
+            }
+        }
+    }
+
+    // Method to turn a PillSelection into one line of the file.
+    private static String formatLine(PillSelection selection) {
+        Color color = selection.getColor();
+        return selection.getName() + ","
+                + toChannel(color.getRed()) + ","
+                + toChannel(color.getGreen()) + ","
+                + toChannel(color.getBlue()) + ","
+                + selection.getColorThreshold() + ","
+                + selection.getMinSize() + ","
+                + selection.getMaxSize();
+    }
+
+    // Method to turn a color component between 0 and 1 into a channel value between 0 and 255.
+    private static int toChannel(double component) {
+        return (int) Math.round(component * MAX_CHANNEL);
+    }
+}
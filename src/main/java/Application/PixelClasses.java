@@ -0,0 +1,56 @@
+package Application;
+
+// The PixelClasses class holds the index of the PillSelection each pixel of an image was classified as, for the votes of its set.
+// An index takes one byte for each pixel when there are at most 255 selections, and two bytes when there are more,
+// instead of the 4 to 8 bytes of a reference to the PillSelection itself, so a large image does not need a second full size copy.
+// Each entry holds the index plus one, so that a new array means every pixel is unclassified.
+public class PixelClasses {
+    // The most selections an index can be held for.
+    public static final int MAX_SELECTIONS = 0xFFFF;
+
+    // The dimensions of the image.
+    private final int width, height;
+    // The entries, one byte each when there are few selections, otherwise null.
+    private final byte[] byteClasses;
+    // The entries, two bytes each when there are many selections, otherwise null.
+    private final short[] shortClasses;
+
+    // Constructor that creates the entries of an image with every pixel unclassified, sized for the number of selections.
+    public PixelClasses(int width, int height, int selectionCount) {
+        if (selectionCount > MAX_SELECTIONS) throw new IllegalArgumentException("More than " + MAX_SELECTIONS + " selections is not allowed");
+        this.width = width;
+        this.height = height;
+        int pixelCount = Math.multiplyExact(width, height);
+        this.byteClasses = selectionCount <= 0xFF ? new byte[pixelCount] : null;
+        this.shortClasses = byteClasses == null ? new short[pixelCount] : null;
+    }
+
+    // Method to set the index of the selection of the pixel at (x, y).
+    public void set(int x, int y, int selection) {
+        int i = y * width + x;
+        if (byteClasses != null) byteClasses[i] = (byte) (selection + 1);
+        else shortClasses[i] = (short) (selection + 1);
+    }
+
+    // Method to get the index of the selection of the pixel at (x, y), or ColorClassifier.NO_SELECTION if it has none.
+    public int get(int x, int y) {
+        int i = y * width + x;
+        int entry = byteClasses != null ? byteClasses[i] & 0xFF : shortClasses[i] & 0xFFFF;
+        return entry - 1;
+    }
+
+    // Getter for the number of bytes the entries take.
+    public long getEstimatedBytes() {
+        return byteClasses != null ? byteClasses.length : 2L * shortClasses.length;
+    }
+
+    // Getter for the width.
+    public int getWidth() {
+        return width;
+    }
+
+    // Getter for the height.
+    public int getHeight() {
+        return height;
+    }
+}
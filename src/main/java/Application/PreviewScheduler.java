@@ -0,0 +1,93 @@
+package Application;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// The PreviewScheduler class renders previews on a background thread, so that the thread asking for them never waits.
+// Requests that arrive within the delay of each other are coalesced into a single render of the latest one,
+// a newer request interrupts the render in progress, and only the result of the latest request is published.
+// Results are passed to the listener through the publisher, such as Platform::runLater for the JavaFX Application Thread.
+public class PreviewScheduler<T> {
+    // The default time to wait for more requests before rendering, about one frame of a slider drag.
+    public static final long DEFAULT_DELAY_MILLIS = 40;
+
+    // The time to wait for more requests before rendering.
+    private final long delayMillis;
+    // The publisher that runs the listener of each result.
+    private final Consumer<Runnable> publisher;
+    // The single background thread the renders run on, so that only one render is ever in progress.
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "preview-renderer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // The number of the latest request. A render whose number is older is stale.
+    private long generation;
+    // The render of the latest request, waiting or in progress.
+    private Future<?> pending;
+
+    // Constructor that sets the delay and the publisher.
+    public PreviewScheduler(long delayMillis, Consumer<Runnable> publisher) {
+        if (delayMillis < 0) throw new IllegalArgumentException("Delay < 0 is not allowed");
+        this.delayMillis = delayMillis;
+        this.publisher = publisher;
+    }
+
+    //------------------------
+    // Requests
+    //------------------------
+
+    // Method to request a new preview. The render runs after the delay unless a newer request arrives first,
+    // and its result is passed to the listener unless a newer request has arrived by the time it is published.
+    public synchronized void request(Callable<T> render, Consumer<T> listener) {
+        long requestGeneration = ++generation;
+        if (pending != null) pending.cancel(true);
+        pending = executor.schedule(() -> render(requestGeneration, render, listener), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Method to drop the waiting request and interrupt the render in progress, so that nothing more is published.
+    public synchronized void cancel() {
+        generation++;
+        if (pending != null) pending.cancel(true);
+        pending = null;
+    }
+
+    // Method to stop the background thread. No more previews can be requested.
+    public void shutdown() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    // Method to run a render on the background thread and publish its result if it is still the latest.
+    private void render(long requestGeneration, Callable<T> render, Consumer<T> listener) {
+        if (!isLatest(requestGeneration)) return;
+
+        T result;
+        try {
+            result = render.call();
+        } catch (CancellationException | InterruptedException e) {
+            // The render was interrupted by a newer request.
+            return;
+        } catch (Exception e) {
+            if (isLatest(requestGeneration)) System.err.println("Could not render the preview: " + e);
+            return;
+        }
+
+        // Check again once the result is published, since a newer request may arrive in between.
+        if (!isLatest(requestGeneration)) return;
+        publisher.accept(() -> {
+            if (isLatest(requestGeneration)) listener.accept(result);
+        });
+    }
+
+    // Method to check if a request is still the latest.
+    private synchronized boolean isLatest(long requestGeneration) {
+        return requestGeneration == generation;
+    }
+}
@@ -39,11 +39,8 @@ public class PrintToConsole {
         // Get the image from the currentImageView
         Image image = controller.getCurrentImageView().getImage();
 
-        // Initialize the disjoint sets
-        UnionFind unionFind = controller.getImageProcessor().initializeDisjointSets(image);
-
-        // Perform the union-find operation
-        controller.getImageProcessor().unionFind(unionFind, image);  // Pass the image here
+        // Get the disjoint sets, which are only worked out again if the image has not been labeled before
+        UnionFind unionFind = controller.getImageProcessor().getLabeledImage(image).getUnionFind();
 
         // Print the number of disjoint sets left
         System.out.println("Number of disjoint sets: " + unionFind.components());
@@ -56,21 +53,15 @@ public class PrintToConsole {
         // Print the dimensions of the image to verify it's the correct one
         System.out.println("Image dimensions: " + image.getWidth() + "x" + image.getHeight());
 
-        // Initialize the disjoint sets
-        UnionFind unionFind = controller.getImageProcessor().initializeDisjointSets(image);
-
-        // Perform the union-find operation
-        controller.getImageProcessor().unionFind(unionFind, image);
-
-        // Get the boundary sets
-        boolean[][] boundary = controller.getImageProcessor().setBoundary(image);
+        // Get the boundary sets, kept with the labeling of the image
+        BinaryImage boundary = controller.getImageProcessor().getLabeledImage(image).getBoundary();
 
         // Print the boundary sets
         int width = (int) image.getWidth();
         int height = (int) image.getHeight();
         for (int r = 0; r < height; r++) {
             for (int c = 0; c < width; c++) {
-                if (boundary[r][c]) {
+                if (boundary.isWhite(c, r)) {
                     System.out.println("Boundary at (" + r + ", " + c + ")");
                 }
             }
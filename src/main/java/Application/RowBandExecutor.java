@@ -0,0 +1,71 @@
+package Application;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// The RowBandExecutor class runs a pass over the rows of an image, split into horizontal bands.
+// With a parallelism of one the whole image is a single band processed on the calling thread.
+// Otherwise the bands are processed on a ForkJoinPool and the call returns when every band is done.
+public class RowBandExecutor {
+    // Each worker gets a few bands so that a slow band does not leave the others idle.
+    private static final int BANDS_PER_WORKER = 4;
+    // Bands are never smaller than this, so small images are not split into tiny tasks.
+    private static final int MIN_BAND_HEIGHT = 16;
+
+    // The number of threads used to process the bands.
+    private final int parallelism;
+    // The pool the bands run on, or null when the bands run on the calling thread.
+    private final ForkJoinPool pool;
+
+    // Constructor that creates an executor with the given number of threads.
+    public RowBandExecutor(int parallelism) {
+        if (parallelism <= 0) throw new IllegalArgumentException("Parallelism <= 0 is not allowed");
+        this.parallelism = parallelism;
+        this.pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+    }
+
+    // Method to process the rows [0, height) in bands.
+    // The task must only write to the rows of the band it is given.
+    public void forEachBand(int height, RowBandTask task) {
+        int bandHeight = getBandHeight(height);
+
+        // A single band is processed on the calling thread.
+        if (pool == null || bandHeight >= height) {
+            task.process(0, height);
+            return;
+        }
+
+        // Submit one task for each band, then wait for all of them.
+        List<ForkJoinTask<?>> bands = new ArrayList<>();
+        for (int y = 0; y < height; y += bandHeight) {
+            int startY = y;
+            int endY = Math.min(height, y + bandHeight);
+            bands.add(pool.submit(() -> task.process(startY, endY)));
+        }
+        bands.forEach(ForkJoinTask::join);
+    }
+
+    // Method to get the height of the bands the rows are split into.
+    public int getBandHeight(int height) {
+        if (pool == null) return Math.max(height, 1);
+        int bands = parallelism * BANDS_PER_WORKER;
+        return Math.max(MIN_BAND_HEIGHT, (height + bands - 1) / bands);
+    }
+
+    // Getter for the parallelism.
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    // Method to stop the threads of the executor once it is no longer needed.
+    public void shutdown() {
+        if (pool != null) pool.shutdown();
+    }
+
+    // Interface for a pass over the rows [startY, endY) of an image.
+    public interface RowBandTask {
+        void process(int startY, int endY);
+    }
+}
@@ -0,0 +1,124 @@
+package Application;
+
+import Manager.RectangleManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// The StreamingAnalyser class counts the pills in an image that is read a band of rows at a time.
+// Each band is adjusted and classified the same way as in the ConversionManager, and its rows are fed to a StreamingComponentLabeler.
+// Only one band of pixels, the labels of one row and the components that are still open are in memory at once,
+// so very tall images can be analysed without holding a PillSelection, boundary or UnionFind entry for every pixel.
+//
+// The components are kept and counted the same way as in the refine and rectangle steps: a component is kept if its boundary size
+// is in the size range of a selection, and counted if its boundary size is more than a fifth of the largest kept one.
+// Each pill is named after the selection with the most pixels in the component, the same as the votes the rectangle step uses.
+public class StreamingAnalyser {
+    // The number of rows read at a time when no band height is given.
+    public static final int DEFAULT_BAND_HEIGHT = 256;
+
+    // The ImageProcessor whose selections and conversion are used.
+    private final ImageProcessor imageProcessor;
+    // The adjustments applied before the pixels are classified.
+    private final double hueAdjustment, saturationFactor, brightnessFactor;
+    // The number of rows read at a time.
+    private final int bandHeight;
+
+    // Constructor that sets the ImageProcessor, the adjustments and the number of rows read at a time.
+    public StreamingAnalyser(ImageProcessor imageProcessor, double hueAdjustment, double saturationFactor, double brightnessFactor, int bandHeight) {
+        if (bandHeight <= 0) throw new IllegalArgumentException("Band height <= 0 is not allowed");
+        this.imageProcessor = imageProcessor;
+        this.hueAdjustment = hueAdjustment;
+        this.saturationFactor = saturationFactor;
+        this.brightnessFactor = brightnessFactor;
+        this.bandHeight = bandHeight;
+    }
+
+    //------------------------
+    // Analysis
+    //------------------------
+
+    // Method to count the pills in an image by pill name, reading it one band at a time.
+    // The image and the components kept from it are added to the AnalysisMetrics of the ImageProcessor.
+    public Map<String, Integer> analyse(ImageRowSource source) throws IOException {
+        AnalysisMetrics analysisMetrics = imageProcessor.getAnalysisMetrics();
+        analysisMetrics.imageStarted();
+        try {
+            List<ComponentStats> keptComponents = new ArrayList<>();
+            Map<String, Integer> pillCounts = analyse(source, keptComponents);
+            analysisMetrics.imageFinished((long) source.getWidth() * source.getHeight(), keptComponents.size());
+            return pillCounts;
+        } catch (IOException | RuntimeException | Error e) {
+            analysisMetrics.imageFailed();
+            throw e;
+        }
+    }
+
+    // Method to count the pills in an image by pill name, adding each component in the size range of a selection to the kept components.
+    private Map<String, Integer> analyse(ImageRowSource source, List<ComponentStats> keptComponents) throws IOException {
+        ColorClassifier.Snapshot colorClassifier = imageProcessor.getPillCapsuleManager().getColorClassifier().getSnapshot();
+        int width = source.getWidth();
+        if (width == 0) return new TreeMap<>();
+
+        // Keep each component in the size range of a selection as soon as it is complete.
+        StreamingComponentLabeler labeler = new StreamingComponentLabeler(width, Connectivity.FOUR, colorClassifier.getSelectionCount(), stats -> {
+            if (testSize(stats)) keptComponents.add(stats);
+        });
+
+        // Read, adjust and classify one band at a time, then scan its rows.
+        int[] band = new int[width * bandHeight];
+        int[] classes = new int[width * bandHeight];
+        int rows;
+        while ((rows = source.readRows(band, bandHeight)) > 0) {
+            imageProcessor.getConversionManager()
+                    .classifyPixels(colorClassifier, band, classes, width * rows, hueAdjustment, saturationFactor, brightnessFactor);
+            for (int row = 0; row < rows; row++) {
+                labeler.pushRow(classes, row * width);
+            }
+        }
+        labeler.finish();
+
+        return countPills(keptComponents, colorClassifier);
+    }
+
+    // Method to count the pills in an image that is already held in a buffer.
+    public Map<String, Integer> analyse(ImageBuffer image) {
+        try (ImageRowSource source = new ImageBufferRowSource(image)) {
+            return analyse(source);
+        } catch (IOException e) {
+            // A buffer is never read from a file.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Method to test if a component is in the size range of any PillSelection, the same as the refine step.
+    // Only components with boundary pixels have a size in the refine step.
+    private boolean testSize(ComponentStats stats) {
+        int size = stats.getBoundarySize();
+        return size > 0 && imageProcessor.getPillSelections().stream()
+                .anyMatch(selection -> size >= selection.getMinSize() && size <= selection.getMaxSize());
+    }
+
+    // Method to count the kept components that are large enough to be pills, by the name of their most common selection.
+    private Map<String, Integer> countPills(List<ComponentStats> keptComponents, ColorClassifier.Snapshot colorClassifier) {
+        Map<String, Integer> pillCounts = new TreeMap<>();
+        int maxSize = keptComponents.stream().mapToInt(ComponentStats::getBoundarySize).max().orElse(0);
+        int threshold = maxSize / RectangleManager.THRESHOLD_FACTOR;
+        for (ComponentStats stats : keptComponents) {
+            if (stats.getBoundarySize() > threshold) {
+                int mostCommonClass = stats.getMostCommonClass();
+                String pillName = mostCommonClass >= 0 ? colorClassifier.getSelection(mostCommonClass).getName() : RectangleManager.UNKNOWN_PILL_NAME;
+                pillCounts.merge(pillName, 1, Integer::sum);
+            }
+        }
+        return pillCounts;
+    }
+
+    // Getter for the number of rows read at a time.
+    public int getBandHeight() {
+        return bandHeight;
+    }
+}
@@ -0,0 +1,247 @@
+package Application;
+
+import java.util.Arrays;
+
+// The StreamingComponentLabeler class finds the connected components of an image that is fed to it one row at a time.
+// Each pixel of a row is given as a class: a class of 0 or more is part of a component and a negative class is background.
+// Pixels join their scanned neighbours in the row above and to the left, the same as the first pass of the ConnectedComponentLabeler,
+// but the statistics of each component are added up as it is scanned instead of keeping a label for every pixel.
+//
+// Only the labels of the previous row are kept. Once a row is done, a component that has no pixels in it can not grow any more,
+// so its statistics are passed to the listener and its label is reused for new components.
+// The memory used is proportional to the width of the image and the number of components that are open at the same time,
+// and does not depend on the height of the image.
+public class StreamingComponentLabeler {
+    // The number of labels there is room for at the start.
+    private static final int INITIAL_CAPACITY = 16;
+
+    // The width of the rows.
+    private final int width;
+    // The neighbours that count as touching.
+    private final Connectivity connectivity;
+    // The number of classes counted for each component.
+    private final int classCount;
+    // The listener that receives each component once it is complete.
+    private final ComponentListener listener;
+
+    // The labels of the previous row and of the row being scanned. A label of 0 is background.
+    private int[] previousRow;
+    private int[] currentRow;
+    // The number of rows scanned so far.
+    private int y;
+
+    // The equivalence table. Every label points to itself or to a label it has been joined with.
+    private int[] parent = new int[INITIAL_CAPACITY];
+    // The statistics of each label. They are only up to date for labels that point to themselves.
+    private int[] area = new int[INITIAL_CAPACITY];
+    private int[] boundarySize = new int[INITIAL_CAPACITY];
+    private int[] minX = new int[INITIAL_CAPACITY], maxX = new int[INITIAL_CAPACITY];
+    private int[] minY = new int[INITIAL_CAPACITY], maxY = new int[INITIAL_CAPACITY];
+    private int[] classCounts;
+    // The row each label was last seen in.
+    private int[] lastSeen = new int[INITIAL_CAPACITY];
+
+    // The labels in use, and the labels that are free to be reused.
+    private int[] activeLabels = new int[INITIAL_CAPACITY];
+    private int activeCount;
+    private int[] freeLabels = new int[INITIAL_CAPACITY];
+    private int freeCount;
+    // The next label that has never been used. Labels start at 1, so 0 can stand for the background.
+    private int nextLabel = 1;
+
+    // Constructor that sets the width of the rows, the connectivity, the number of classes and the listener.
+    public StreamingComponentLabeler(int width, Connectivity connectivity, int classCount, ComponentListener listener) {
+        if (width <= 0) throw new IllegalArgumentException("Width <= 0 is not allowed");
+        if (classCount < 0) throw new IllegalArgumentException("Class count < 0 is not allowed");
+        this.width = width;
+        this.connectivity = connectivity;
+        this.classCount = classCount;
+        this.listener = listener;
+        this.previousRow = new int[width];
+        this.currentRow = new int[width];
+        this.classCounts = new int[INITIAL_CAPACITY * classCount];
+    }
+
+    //------------------------
+    // Scanning
+    //------------------------
+
+    // Method to scan the next row. The classes of the row start at the given offset.
+    public void pushRow(int[] classes, int offset) {
+        int[] above = previousRow;
+        int[] labels = currentRow;
+
+        for (int x = 0; x < width; x++) {
+            int pixelClass = classes[offset + x];
+            if (pixelClass < 0) {
+                labels[x] = 0;
+                continue;
+            }
+
+            // Join the pixel with the neighbours that have already been scanned.
+            int label = x > 0 ? labels[x - 1] : 0;
+            label = join(label, above[x]);
+            if (connectivity == Connectivity.EIGHT) {
+                if (x > 0) label = join(label, above[x - 1]);
+                if (x < width - 1) label = join(label, above[x + 1]);
+            }
+            if (label == 0) label = allocate();
+            labels[x] = label;
+
+            // Add the pixel to the statistics of its component.
+            int root = find(label);
+            area[root]++;
+            if ((x > 0 && classes[offset + x - 1] < 0) || (x < width - 1 && classes[offset + x + 1] < 0)) boundarySize[root]++;
+            minX[root] = Math.min(minX[root], x);
+            maxX[root] = Math.max(maxX[root], x);
+            maxY[root] = y;
+            if (pixelClass < classCount) classCounts[root * classCount + pixelClass]++;
+        }
+
+        closeRow();
+    }
+
+    // Method to pass every component that is still open to the listener, once the last row has been scanned.
+    public void finish() {
+        for (int i = 0; i < activeCount; i++) {
+            int label = activeLabels[i];
+            if (parent[label] == label) emit(label);
+            release(label);
+        }
+        activeCount = 0;
+        Arrays.fill(previousRow, 0);
+    }
+
+    // Method to join a label with the label of a neighbour. Returns the label the pixel should get.
+    private int join(int label, int neighbour) {
+        if (neighbour == 0) return label;
+        if (label == 0) return neighbour;
+        return merge(label, neighbour);
+    }
+
+    // Method to finish a row: point its labels at their roots and close the components that did not reach it.
+    private void closeRow() {
+        int[] labels = currentRow;
+        int row = ++y;
+        for (int x = 0; x < width; x++) {
+            if (labels[x] != 0) {
+                labels[x] = find(labels[x]);
+                lastSeen[labels[x]] = row;
+            }
+        }
+
+        // The previous row is no longer needed and the current row only holds roots,
+        // so a label that is not a root is no longer used, and a root that was not seen in this row is complete.
+        int kept = 0;
+        for (int i = 0; i < activeCount; i++) {
+            int label = activeLabels[i];
+            if (parent[label] == label && lastSeen[label] == row) {
+                activeLabels[kept++] = label;
+            } else {
+                if (parent[label] == label) emit(label);
+                release(label);
+            }
+        }
+        activeCount = kept;
+
+        // The current row becomes the previous row, and the old previous row is reused for the next row.
+        currentRow = previousRow;
+        previousRow = labels;
+    }
+
+    //------------------------
+    // Labels
+    //------------------------
+
+    // Method to get a label for a new component.
+    private int allocate() {
+        int label;
+        if (freeCount > 0) {
+            label = freeLabels[--freeCount];
+        } else {
+            label = nextLabel++;
+            if (label == parent.length) grow();
+        }
+        parent[label] = label;
+        area[label] = 0;
+        boundarySize[label] = 0;
+        minX[label] = Integer.MAX_VALUE;
+        maxX[label] = -1;
+        minY[label] = y;
+        maxY[label] = y;
+        Arrays.fill(classCounts, label * classCount, (label + 1) * classCount, 0);
+
+        if (activeCount == activeLabels.length) activeLabels = Arrays.copyOf(activeLabels, activeCount * 2);
+        activeLabels[activeCount++] = label;
+        return label;
+    }
+
+    // Method to make a label free to be reused.
+    private void release(int label) {
+        if (freeCount == freeLabels.length) freeLabels = Arrays.copyOf(freeLabels, freeCount * 2);
+        freeLabels[freeCount++] = label;
+    }
+
+    // Method to make room for more labels.
+    private void grow() {
+        int capacity = parent.length * 2;
+        parent = Arrays.copyOf(parent, capacity);
+        area = Arrays.copyOf(area, capacity);
+        boundarySize = Arrays.copyOf(boundarySize, capacity);
+        minX = Arrays.copyOf(minX, capacity);
+        maxX = Arrays.copyOf(maxX, capacity);
+        minY = Arrays.copyOf(minY, capacity);
+        maxY = Arrays.copyOf(maxY, capacity);
+        lastSeen = Arrays.copyOf(lastSeen, capacity);
+        classCounts = Arrays.copyOf(classCounts, capacity * classCount);
+    }
+
+    // Method to find the root of a label. Each label on the way is pointed at its grandparent.
+    private int find(int label) {
+        while (parent[label] != label) {
+            parent[label] = parent[parent[label]];
+            label = parent[label];
+        }
+        return label;
+    }
+
+    // Method to join the components of two labels. The statistics of one root are added to the other, which is returned.
+    private int merge(int label1, int label2) {
+        int root1 = find(label1);
+        int root2 = find(label2);
+        if (root1 == root2) return root1;
+
+        parent[root2] = root1;
+        area[root1] += area[root2];
+        boundarySize[root1] += boundarySize[root2];
+        minX[root1] = Math.min(minX[root1], minX[root2]);
+        maxX[root1] = Math.max(maxX[root1], maxX[root2]);
+        minY[root1] = Math.min(minY[root1], minY[root2]);
+        maxY[root1] = Math.max(maxY[root1], maxY[root2]);
+        for (int c = 0; c < classCount; c++) {
+            classCounts[root1 * classCount + c] += classCounts[root2 * classCount + c];
+        }
+        return root1;
+    }
+
+    // Method to pass the statistics of a complete component to the listener.
+    private void emit(int label) {
+        int[] counts = Arrays.copyOfRange(classCounts, label * classCount, (label + 1) * classCount);
+        listener.componentClosed(new ComponentStats(area[label], boundarySize[label], minX[label], maxX[label], minY[label], maxY[label], counts));
+    }
+
+    // Getter for the number of labels that have been created, which is the most labels that were in use at the same time.
+    int getLabelCapacity() {
+        return nextLabel - 1;
+    }
+
+    // Getter for the number of rows scanned so far.
+    public int getRowCount() {
+        return y;
+    }
+
+    // Interface for the listener that receives each component once it is complete.
+    public interface ComponentListener {
+        void componentClosed(ComponentStats stats);
+    }
+}
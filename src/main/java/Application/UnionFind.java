@@ -1,5 +1,7 @@
 package Application;
 
+import java.util.Arrays;
+
 public class UnionFind {
 
     // The number of elements in this union find
@@ -14,6 +16,12 @@ public class UnionFind {
     // Tracks the number of components/disjoint sets in the union find
     private int numComponents; //Num. Of Separate trees
 
+    // The dense label of the set of each element, set by compact() and cleared by the next union
+    private int[] labels;
+
+    // The root of the set with each label
+    private int[] labelRoots;
+
     // Constructor initializes an empty union find data structure with N isolated sets.
     public UnionFind(int size) {
         if (size <= 0) throw new IllegalArgumentException("Size <= 0 is not allowed");
@@ -26,6 +34,25 @@ public class UnionFind {
         }
     }
 
+    // This method creates a union find whose sets are already known from the root of every element, such as a saved labeling.
+    // Every root must be its own root. The sets are compacted straight away.
+    public static UnionFind fromRoots(int[] roots) {
+        UnionFind unionFind = new UnionFind(roots.length);
+        for (int p = 0; p < roots.length; p++) {
+            int root = roots[p];
+            if (root < 0 || root >= roots.length || roots[root] != root) {
+                throw new IllegalArgumentException("The root of element " + p + " is not a root");
+            }
+            if (root != p) {
+                unionFind.id[p] = root;
+                unionFind.sz[root]++;
+                unionFind.numComponents--;
+            }
+        }
+        unionFind.compact();
+        return unionFind;
+    }
+
     // While looking for the root, we make each node in the path point to its grandparent.
     public int find(int p) {
         while (id[p] != p) {
@@ -77,5 +104,56 @@ public class UnionFind {
 
         // Decrease the number of components
         numComponents--;
+
+        // The labels no longer match the sets
+        labels = null;
+        labelRoots = null;
+    }
+
+    // This method points every element straight at its root and numbers the sets from 0 to components() - 1,
+    // in the order of their first element. Until the next union, label(p) is a single array read
+    // and tables of the sets can be plain arrays indexed by label. Returns the number of labels.
+    public int compact() {
+        if (labels != null) return labelRoots.length;
+
+        int[] newLabels = new int[size];
+        int[] newLabelRoots = new int[numComponents];
+        Arrays.fill(newLabels, -1);
+        int nextLabel = 0;
+        for (int p = 0; p < size; p++) {
+            int root = find(p);
+            id[p] = root; // Flatten the path completely
+            // A root can come after its elements, so it is labelled the first time any of its elements is seen
+            if (newLabels[root] < 0) {
+                newLabels[root] = nextLabel;
+                newLabelRoots[nextLabel++] = root;
+            }
+            newLabels[p] = newLabels[root];
+        }
+        labels = newLabels;
+        labelRoots = newLabelRoots;
+        return nextLabel;
+    }
+
+    // This method checks if the sets have been numbered since the last union
+    public boolean isCompacted() {
+        return labels != null;
+    }
+
+    // This method returns the dense label of the set element belongs to. compact() must have been called since the last union
+    public int label(int p) {
+        return getLabels()[p];
+    }
+
+    // This method returns the root of the set with the given label
+    public int labelRoot(int label) {
+        if (labelRoots == null) throw new IllegalStateException("The sets have changed since compact() was called");
+        return labelRoots[label];
+    }
+
+    // This method returns the dense label of every element, for loops that read many of them. The array must not be changed
+    public int[] getLabels() {
+        if (labels == null) throw new IllegalStateException("The sets have changed since compact() was called");
+        return labels;
     }
 }
@@ -1,8 +1,10 @@
 package Manager;
 
+import Application.AnalysisStageEvent;
+import Application.BinaryImage;
+import Application.ImageBuffer;
 import Application.ImageProcessor;
 import javafx.scene.image.Image;
-import javafx.scene.paint.Color;
 
 // The BoundaryManager class is responsible for managing the boundaries of an image.
 public class BoundaryManager {
@@ -15,38 +17,34 @@ public class BoundaryManager {
     }
 
     // Method to set the boundary of the image.
-    // It initializes a boolean array representing the boundary of the image,
-    // and sets each element to true if the corresponding pixel is a boundary pixel.
-    public boolean[][] setBoundary(Image image) {
+    // It returns a BinaryImage in which the boundary pixels of the image are white.
+    public BinaryImage setBoundary(Image image) {
         // Set up the image processor with the image.
         imageProcessor.setup(image);
+        // Find the boundary pixels of the image, a word at a time.
+        return setBoundary(BinaryImage.fromImageBuffer(imageProcessor.getImageBuffer()));
+    }
 
-        // Initialize the boundary array with all false.
-        boolean[][] boundary = new boolean[imageProcessor.getHeight()][imageProcessor.getWidth()];
-
-        // Iterate over each pixel in the image.
-        for (int y = 0; y < imageProcessor.getHeight(); y++) {
-            for (int x = 0; x < imageProcessor.getWidth(); x++) {
-                // Set the boundary array element to true if the pixel is a boundary pixel.
-                boundary[y][x] = isBoundaryPixel(x, y);
-            }
-        }
-
-        // Return the boundary array.
+    // Method to set the boundary of a black and white image held in a BinaryImage.
+    // Whole rows are worked on a word at a time instead of checking each pixel with isBoundaryPixel.
+    public BinaryImage setBoundary(BinaryImage bwImage) {
+        AnalysisStageEvent event = AnalysisStageEvent.begin(AnalysisStageEvent.Stage.BOUNDARY);
+        BinaryImage boundary = bwImage.boundary();
+        event.finish(imageProcessor.getAnalysisMetrics(), bwImage.getWidth(), bwImage.getHeight(), imageProcessor.getPillSelections().size(), 0);
         return boundary;
     }
 
     // Method to check if a pixel is a boundary pixel.
     // A pixel is considered a boundary pixel if it is white and has a black pixel to its left or right.
     public boolean isBoundaryPixel(int x, int y) {
-        // Get the color of the pixel.
-        Color color = imageProcessor.getPixelReader().getColor(x, y);
+        // Get the buffer holding the pixels of the image.
+        ImageBuffer imageBuffer = imageProcessor.getImageBuffer();
 
         // If the pixel is white, check the pixels to its left and right.
-        if (color.equals(Color.WHITE)) {
+        if (imageBuffer.isWhite(x, y)) {
             // Return true if the pixel to the left or right is black.
-            return (x > 0 && imageProcessor.getPixelReader().getColor(x - 1, y).equals(Color.BLACK)) ||
-                    (x < imageProcessor.getWidth() - 1 && imageProcessor.getPixelReader().getColor(x + 1, y).equals(Color.BLACK));
+            return (x > 0 && imageBuffer.isBlack(x - 1, y)) ||
+                    (x < imageProcessor.getWidth() - 1 && imageBuffer.isBlack(x + 1, y));
         }
 
         // If the pixel is not white, it is not a boundary pixel.
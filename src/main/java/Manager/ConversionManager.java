@@ -1,28 +1,33 @@
 package Manager;
 
+import Application.AnalysisPipeline;
+import Application.AnalysisStageEvent;
+import Application.BinaryImage;
+import Application.ColorClassifier;
+import Application.ComponentTable;
+import Application.HsbPlanes;
+import Application.ImagePyramid;
+import Application.ImageBuffer;
 import Application.ImageProcessor;
+import Application.LabeledImage;
 import Application.PillSelection;
+import Application.RowBandExecutor;
 import Application.UnionFind;
 import javafx.scene.image.*;
-import javafx.scene.paint.Color;
 
-import java.util.Comparator;
-import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
 
 // The ConversionManager class is responsible for converting and refining images.
 public class ConversionManager {
     // An instance of ImageProcessor to process the image.
     private final ImageProcessor imageProcessor;
-    // A 2D array to store the PillSelection for each pixel.
-    PillSelection[][] pillSelectionArray;
-    // A writable image that can be modified.
-    private WritableImage writableImage;
-    // Constants for hue and value clamping.
-    private static final int MAX_HUE = 360;
-    private static final int MIN_VALUE = 0;
-    private static final int MAX_VALUE = 1;
+    // A 2D array to store the PillSelection for each pixel of the last image converted.
+    // It is only replaced once it has been filled in, so a conversion on a background thread never shows a half finished array.
+    volatile PillSelection[][] pillSelectionArray;
+    // The executor that runs the adjust and process passes over bands of rows.
+    private RowBandExecutor rowBandExecutor = new RowBandExecutor(Runtime.getRuntime().availableProcessors());
 
     // Constructor that initializes the ImageProcessor instance.
     public ConversionManager(ImageProcessor imageProcessor) {
@@ -31,79 +36,170 @@ public class ConversionManager {
 
     // Method to convert an image to black and white.
     public ImageView convertToBlackAndWhite(ImageView originalImageView, double hueAdjustment, double saturationFactor, double brightnessFactor) {
-        // Adjust the saturation and brightness of the image.
-        Image adjustedImage = adjustSaturationAndBrightness(originalImageView.getImage(), hueAdjustment, saturationFactor, brightnessFactor);
-        // Set the pixel reader for the image processor.
-        imageProcessor.setPixelReader(adjustedImage.getPixelReader());
-        // Initialize the writable image.
-        writableImage = new WritableImage((int) adjustedImage.getWidth(), (int) adjustedImage.getHeight());
+        // Get the hue, saturation and brightness of the original image, which are only worked out once for each image.
+        HsbPlanes hsbPlanes = imageProcessor.getHsbPlanes(originalImageView.getImage());
 
-        // Process the image.
-        processImage(adjustedImage);
+        // Adjust and process the image and write the result back in one go.
+        WritableImage writableImage = render(convertToBlackAndWhite(hsbPlanes, hueAdjustment, saturationFactor, brightnessFactor), getSelectionCount());
 
         // Create a new ImageView with the processed image.
         return imageProcessor.createNewImageView(writableImage, originalImageView.getFitWidth(), originalImageView.getFitHeight());
     }
 
-    // Method to initialize the PillSelection array.
-    private void initializePillSelectionArray(Image image) {
-        pillSelectionArray = new PillSelection[(int) image.getHeight()][(int) image.getWidth()];
+    // Method to preview the conversion of an image to black and white, from the level of its pyramid that matches the fit size
+    // of the ImageView. The preview is shown at the same fit size, and the PillSelection array of the last full conversion is kept.
+    // The pixels are classified with a classifier compiled for the given selections, which must not change while the preview renders.
+    public ImageView previewBlackAndWhite(ImageView originalImageView, List<PillSelection> pillSelections, double hueAdjustment, double saturationFactor, double brightnessFactor) {
+        // Get the planes of the smallest level that still fills the ImageView.
+        ImagePyramid imagePyramid = imageProcessor.getImagePyramid(originalImageView.getImage());
+        int level = imagePyramid.getLevelFor(originalImageView.getFitWidth(), originalImageView.getFitHeight());
+        HsbPlanes hsbPlanes = imagePyramid.getHsbPlanes(level);
+
+        // Adjust and process the level without keeping the selection of each pixel.
+        ColorClassifier.Snapshot colorClassifier = imageProcessor.getPillCapsuleManager().getColorClassifier(pillSelections);
+        BinaryImage bwImage = convert(hsbPlanes, colorClassifier, null, hueAdjustment, saturationFactor, brightnessFactor);
+        WritableImage writableImage = render(bwImage, colorClassifier.getSelectionCount());
+
+        // Create a new ImageView with the preview, scaled up to the same size as a full conversion.
+        return imageProcessor.createNewImageView(writableImage, originalImageView.getFitWidth(), originalImageView.getFitHeight());
+    }
+
+    // Method to convert an image held in a buffer to a black and white image.
+    // Conversions are run one at a time, so the PillSelection array always belongs to the last one to finish.
+    public synchronized BinaryImage convertToBlackAndWhite(ImageBuffer originalBuffer, double hueAdjustment, double saturationFactor, double brightnessFactor) {
+        return processImage(originalBuffer, hueAdjustment, saturationFactor, brightnessFactor);
+    }
+
+    // Method to convert an image whose hue, saturation and brightness have already been worked out to a black and white image.
+    // Each distinct color is adjusted and classified once, and each pixel then looks up the selection of its color.
+    // If the thread is interrupted, the conversion stops between passes with a CancellationException and the PillSelection array is kept.
+    public synchronized BinaryImage convertToBlackAndWhite(HsbPlanes hsbPlanes, double hueAdjustment, double saturationFactor, double brightnessFactor) {
+        PillSelection[][] selections = createPillSelectionArray(hsbPlanes.getWidth(), hsbPlanes.getHeight());
+        BinaryImage bwImage = convert(hsbPlanes, getColorClassifier().getSnapshot(), selections, hueAdjustment, saturationFactor, brightnessFactor);
+        // Replace the PillSelection array now that it is filled in.
+        pillSelectionArray = selections;
+        return bwImage;
+    }
+
+    // Method to convert an image from its planes, filling in the selection of each pixel if there is an array for them.
+    private BinaryImage convert(HsbPlanes hsbPlanes, ColorClassifier.Snapshot colorClassifier, PillSelection[][] selections,
+                                double hueAdjustment, double saturationFactor, double brightnessFactor) {
+        // Adjust each distinct color.
+        AnalysisStageEvent adjustEvent = AnalysisStageEvent.begin(AnalysisStageEvent.Stage.ADJUST);
+        int[] adjustedColors = adjustColors(hsbPlanes, hueAdjustment, saturationFactor, brightnessFactor);
+        adjustEvent.finish(imageProcessor.getAnalysisMetrics(), hsbPlanes.getWidth(), hsbPlanes.getHeight(), colorClassifier.getSelectionCount(), 0);
+        checkInterrupted();
+        // Classify each distinct color.
+        AnalysisStageEvent event = AnalysisStageEvent.begin(AnalysisStageEvent.Stage.CLASSIFY);
+        PillSelection[] colorSelections = classifyColors(adjustedColors, colorClassifier);
+        checkInterrupted();
+        // Process each pixel in the image.
+        BinaryImage bwImage = new BinaryImage(hsbPlanes.getWidth(), hsbPlanes.getHeight());
+        processPixels(hsbPlanes, colorSelections, bwImage, selections);
+        checkInterrupted();
+        event.finish(imageProcessor.getAnalysisMetrics(), bwImage.getWidth(), bwImage.getHeight(), colorClassifier.getSelectionCount(), 0);
+        return bwImage;
+    }
+
+    // Method to create an empty PillSelection array.
+    private PillSelection[][] createPillSelectionArray(int width, int height) {
+        return new PillSelection[height][width];
+    }
+
+    // Method to stop a conversion whose thread has been interrupted, such as a preview that a newer one has replaced.
+    private void checkInterrupted() {
+        if (Thread.interrupted()) throw new CancellationException("The conversion was interrupted");
     }
 
     //--------------------
     // Process
     //--------------------
 
-    // Method to process a pixel.
-    private void processPixel(int y, int x) {
-        // Get the color of the pixel.
-        Color color = imageProcessor.getPixelReader().getColor(x, y);
-        // Get the closest PillSelection for the color.
-        PillSelection closestSelection = getClosestSelection(color);
-        // Set the color of the pixel in the writable image.
-        writableImage.getPixelWriter().setColor(x, y, closestSelection != null ? Color.WHITE : Color.BLACK);
-        // If there is the closest selection, set the PillSelection for the pixel.
-        if (closestSelection != null) {
-            pillSelectionArray[y][x] = closestSelection;
-        }
+    // Method to adjust and process an image into a black and white image in a single pass.
+    private BinaryImage processImage(ImageBuffer originalBuffer, double hueAdjustment, double saturationFactor, double brightnessFactor) {
+        // Adjust and process each pixel in the image.
+        AnalysisStageEvent event = AnalysisStageEvent.begin(AnalysisStageEvent.Stage.CLASSIFY);
+        PillSelection[][] selections = createPillSelectionArray(originalBuffer.getWidth(), originalBuffer.getHeight());
+        BinaryImage bwImage = AnalysisPipeline.convert(originalBuffer, getColorClassifier(), selections,
+                hueAdjustment, saturationFactor, brightnessFactor, rowBandExecutor);
+        event.finish(imageProcessor.getAnalysisMetrics(), bwImage.getWidth(), bwImage.getHeight(), getSelectionCount(), 0);
+        // Replace the PillSelection array now that it is filled in.
+        pillSelectionArray = selections;
+        return bwImage;
     }
 
-    // Method to process each pixel in the image.
-    private void processPixels(Image image) {
-        for (int x = 0; x < image.getHeight(); x++) {
-            for (int y = 0; y < image.getWidth(); y++) {
-                processPixel(x, y);
+    // Method to adjust each distinct color of an image. Returns the adjusted color of each color as packed ARGB.
+    private int[] adjustColors(HsbPlanes hsbPlanes, double hueAdjustment, double saturationFactor, double brightnessFactor) {
+        int[] adjustedColors = new int[hsbPlanes.getColorCount()];
+        // Each band of colors only writes its own entries, so the bands can be processed in parallel.
+        rowBandExecutor.forEachBand(adjustedColors.length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                adjustedColors[i] = adjustHsb(hsbPlanes.getHue(i), hsbPlanes.getSaturation(i), hsbPlanes.getBrightness(i),
+                        hueAdjustment, saturationFactor, brightnessFactor);
             }
-        }
+        });
+        return adjustedColors;
     }
 
-    // Method to process an image.
-    private void processImage(Image image) {
-        // Initialize the PillSelection array.
-        initializePillSelectionArray(image);
-        // Process each pixel in the image.
-        processPixels(image);
+    // Method to classify each adjusted color of an image. Returns the closest PillSelection of each color, or null.
+    private PillSelection[] classifyColors(int[] adjustedColors, ColorClassifier.Snapshot colorClassifier) {
+        PillSelection[] colorSelections = new PillSelection[adjustedColors.length];
+        rowBandExecutor.forEachBand(colorSelections.length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                int index = colorClassifier.classify(adjustedColors[i]);
+                colorSelections[i] = index == ColorClassifier.NO_SELECTION ? null : colorClassifier.getSelection(index);
+            }
+        });
+        return colorSelections;
+    }
+
+    // Method to process each pixel in the image from the selection of its color. The selections are null for a preview.
+    private void processPixels(HsbPlanes hsbPlanes, PillSelection[] colorSelections, BinaryImage bwImage, PillSelection[][] selections) {
+        int[] colorIndices = hsbPlanes.getColorIndices();
+        int width = hsbPlanes.getWidth();
+        // Each band of rows only writes its own rows, and every row has its own words, so the bands can be processed in parallel.
+        rowBandExecutor.forEachBand(hsbPlanes.getHeight(), (startY, endY) -> {
+            for (int y = startY; y < endY; y++) {
+                for (int x = 0; x < width; x++) {
+                    // If the color of the pixel has a selection, make the pixel white and set the PillSelection for the pixel.
+                    PillSelection closestSelection = colorSelections[colorIndices[y * width + x]];
+                    if (closestSelection != null) {
+                        bwImage.setWhite(x, y);
+                        if (selections != null) selections[y][x] = closestSelection;
+                    }
+                }
+            }
+        });
+    }
+
+    // Method to adjust and classify packed ARGB pixels in a single pass, writing the index of the closest PillSelection
+    // of each pixel, or ColorClassifier.NO_SELECTION, into the classes. Runs on the calling thread.
+    public void classifyPixels(int[] pixels, int[] classes, int length, double hueAdjustment, double saturationFactor, double brightnessFactor) {
+        classifyPixels(getColorClassifier().getSnapshot(), pixels, classes, length, hueAdjustment, saturationFactor, brightnessFactor);
+    }
+
+    // Method to classify packed ARGB pixels with a given Snapshot of the classifier, so that the classes of every band of an image
+    // refer to the same selections.
+    public void classifyPixels(ColorClassifier.Snapshot colorClassifier, int[] pixels, int[] classes, int length,
+                               double hueAdjustment, double saturationFactor, double brightnessFactor) {
+        for (int i = 0; i < length; i++) {
+            classes[i] = colorClassifier.classify(adjustArgb(pixels[i], hueAdjustment, saturationFactor, brightnessFactor));
+        }
     }
 
     //--------------------
     // Getters
     //--------------------
 
-    // Method to get the closest PillSelection for a color.
-    private PillSelection getClosestSelection(Color color) {
-        // Find the PillSelection with the minimum color distance that is below the color threshold.
-        return imageProcessor.getPillSelectionManager().getPillSelections().stream() //Sequence of elements
-                .min(Comparator.comparingDouble(selection -> getColorDistance(color, selection.getColor()))) //Find the minimum element
-                .filter(selection -> getColorDistance(color, selection.getColor()) <= selection.getColorThreshold()) //Filter elements that meet condition
-                .orElse(null); //Return if found otherwise null
+    // Method to get the classifier that maps a color to the closest PillSelection within its threshold.
+    // It is compiled from the PillSelections, so each pixel only costs a table lookup.
+    private ColorClassifier getColorClassifier() {
+        return imageProcessor.getPillCapsuleManager().getColorClassifier();
     }
 
-    // Method to calculate the color distance between two colors.
-    private double getColorDistance(Color color1, Color color2) {
-        // The color distance is the sum of the absolute differences of the red, green, and blue components.
-        return Math.abs(color1.getRed() - color2.getRed()) +
-                Math.abs(color1.getGreen() - color2.getGreen()) +
-                Math.abs(color1.getBlue() - color2.getBlue());
+    // Method to get the number of PillSelections, for the events of the stages.
+    private int getSelectionCount() {
+        return imageProcessor.getPillSelections().size();
     }
 
     //--------------------
@@ -111,40 +207,50 @@ public class ConversionManager {
     //--------------------
 
     // Method to adjust a pixel.
-    private void adjustPixel(PixelReader pixelReader, PixelWriter pixelWriter, int x, int y, double hueAdjustment, double saturationFactor, double brightnessFactor) {
-        // Get the color of the pixel.
-        Color color = pixelReader.getColor(x, y);
-        // Calculate the new hue.
-        double newHue = (color.getHue() + hueAdjustment) % MAX_HUE;  // Ensure the hue stays within the range [0, 360)
-        // Create the adjusted color.
-        Color adjustedColor = Color.hsb(
-                newHue,
-                clamp(color.getSaturation() * saturationFactor),
-                clamp(color.getBrightness() * brightnessFactor)
-        );
-        // Set the color of the pixel in the writable image.
-        pixelWriter.setColor(x, y, adjustedColor);
+    private void adjustPixel(ImageBuffer originalBuffer, ImageBuffer adjustedBuffer, int x, int y, double hueAdjustment, double saturationFactor, double brightnessFactor) {
+        // Set the adjusted color of the pixel in the adjusted buffer.
+        adjustedBuffer.setArgb(x, y, adjustArgb(originalBuffer.getArgb(x, y), hueAdjustment, saturationFactor, brightnessFactor));
+    }
+
+    // Method to adjust the hue, saturation and brightness of a packed ARGB color without creating any Colors.
+    // The result is the same to the bit as adjusting it with Color.
+    static int adjustArgb(int argb, double hueAdjustment, double saturationFactor, double brightnessFactor) {
+        return AnalysisPipeline.adjustArgb(argb, hueAdjustment, saturationFactor, brightnessFactor);
+    }
+
+    // Method to adjust a color given as hue, saturation and brightness and pack it as an opaque ARGB color.
+    static int adjustHsb(double hue, double saturation, double brightness, double hueAdjustment, double saturationFactor, double brightnessFactor) {
+        return AnalysisPipeline.adjustHsb(hue, saturation, brightness, hueAdjustment, saturationFactor, brightnessFactor);
     }
 
     // Method to adjust the pixels in an image.
-    private void adjustPixels(double hueAdjustment, double saturationFactor, double brightnessFactor) {
-        for (int y = 0; y < writableImage.getHeight(); y++) {
-            for (int x = 0; x < writableImage.getWidth(); x++) {
-                adjustPixel(imageProcessor.getPixelReader(), writableImage.getPixelWriter(), x, y, hueAdjustment, saturationFactor, brightnessFactor);
+    private void adjustPixels(ImageBuffer originalBuffer, ImageBuffer adjustedBuffer, double hueAdjustment, double saturationFactor, double brightnessFactor) {
+        // Each band of rows only writes its own rows, so the bands can be processed in parallel.
+        rowBandExecutor.forEachBand(originalBuffer.getHeight(), (startY, endY) -> {
+            for (int y = startY; y < endY; y++) {
+                for (int x = 0; x < originalBuffer.getWidth(); x++) {
+                    adjustPixel(originalBuffer, adjustedBuffer, x, y, hueAdjustment, saturationFactor, brightnessFactor);
+                }
             }
-        }
+        });
     }
 
     // Method to adjust the saturation and brightness of an image.
     public Image adjustSaturationAndBrightness(Image image, double hueAdjustment, double saturationFactor, double brightnessFactor) {
-        // Set the pixel reader for the image processor.
-        imageProcessor.setPixelReader(image.getPixelReader());
-        // Initialize the writable image.
-        writableImage = new WritableImage((int) image.getWidth(), (int) image.getHeight());
+        // Adjust the pixels of the image and write them back into a new image.
+        return adjustSaturationAndBrightness(ImageBuffer.fromImage(image), hueAdjustment, saturationFactor, brightnessFactor).toImage();
+    }
+
+    // Method to adjust the saturation and brightness of an image held in a buffer.
+    public ImageBuffer adjustSaturationAndBrightness(ImageBuffer originalBuffer, double hueAdjustment, double saturationFactor, double brightnessFactor) {
+        AnalysisStageEvent event = AnalysisStageEvent.begin(AnalysisStageEvent.Stage.ADJUST);
+        // Initialize the adjusted buffer.
+        ImageBuffer adjustedBuffer = new ImageBuffer(originalBuffer.getWidth(), originalBuffer.getHeight());
         // Adjust the pixels in the image.
-        adjustPixels(hueAdjustment, saturationFactor, brightnessFactor);
-        // Return the adjusted image.
-        return writableImage;
+        adjustPixels(originalBuffer, adjustedBuffer, hueAdjustment, saturationFactor, brightnessFactor);
+        event.finish(imageProcessor.getAnalysisMetrics(), adjustedBuffer.getWidth(), adjustedBuffer.getHeight(), getSelectionCount(), 0);
+        // Return the adjusted buffer.
+        return adjustedBuffer;
     }
 
     //--------------------
@@ -153,72 +259,57 @@ public class ConversionManager {
 
     // Method to refine a black and white image.
     public ImageView refineBlackAndWhiteImage(ImageView originalImageView) {
-        // Get the image from the ImageView.
-        Image adjustedImage = originalImageView.getImage();
-        // Perform union-find on the image.
-        UnionFind unionFind = performUnionFind(adjustedImage);
-        // Set the boundary of the image.
-        boolean[][] boundary = imageProcessor.setBoundary(adjustedImage);
-        // Filter the disjoint sets in the image.
-        Set<Integer> keptRoots = filterDisjointSets(adjustedImage, unionFind, boundary);
-        // Update the image with the kept roots.
-        WritableImage writableImage = updateImage(adjustedImage, unionFind, keptRoots);
+        // Get the labeling of the black and white image, which is kept if the image has been labeled before.
+        LabeledImage labeledImage = imageProcessor.getLabeledImage(originalImageView.getImage());
+        // Get the statistics of its disjoint sets, which are also kept until the selections change.
+        ComponentTable componentTable = imageProcessor.getComponentTable(labeledImage);
+        // Refine the image and only turn it back into a JavaFX image to display it.
+        WritableImage writableImage = render(refine(labeledImage.getBinaryImage(), labeledImage.getUnionFind(), componentTable), getSelectionCount());
         // Create a new ImageView with the updated image.
         return createNewImageView(writableImage, originalImageView.getFitWidth(), originalImageView.getFitHeight());
     }
 
+    // Method to refine a black and white image held in a BinaryImage.
+    public BinaryImage refineBlackAndWhiteImage(BinaryImage bwImage) {
+        // Perform union-find on the image.
+        UnionFind unionFind = performUnionFind(bwImage);
+        // Get the statistics of the disjoint sets in the image in a single pass.
+        ComponentTable componentTable = imageProcessor.getComponentTable(bwImage, unionFind);
+        // Refine the image with the statistics.
+        return refine(bwImage, unionFind, componentTable);
+    }
+
+    // Method to refine a black and white image whose disjoint sets and their statistics have been worked out.
+    private BinaryImage refine(BinaryImage bwImage, UnionFind unionFind, ComponentTable componentTable) {
+        AnalysisStageEvent event = AnalysisStageEvent.begin(AnalysisStageEvent.Stage.FILTER);
+        List<PillSelection> selections = imageProcessor.getPillSelections();
+        BinaryImage refinedImage = AnalysisPipeline.refine(bwImage, unionFind, componentTable, selections);
+        event.finish(imageProcessor.getAnalysisMetrics(), bwImage.getWidth(), bwImage.getHeight(), selections.size(), componentTable.size());
+        return refinedImage;
+    }
+
     // Method to perform union-find on an image.
-    private UnionFind performUnionFind(Image image) {
+    private UnionFind performUnionFind(BinaryImage bwImage) {
         // Initialize the disjoint sets for the image.
-        UnionFind unionFind = imageProcessor.initializeDisjointSets(image);
+        UnionFind unionFind = imageProcessor.initializeDisjointSets(bwImage);
         // Perform union-find on the disjoint sets.
-        imageProcessor.unionFind(unionFind, image);
+        imageProcessor.unionFind(unionFind, bwImage);
         // Return the union-find data structure.
         return unionFind;
     }
 
-    // Method to update an image with the kept roots.
-    private WritableImage updateImage(Image image, UnionFind unionFind, Set<Integer> keptRoots) {
-        // Create a new writable image.
-        WritableImage writableImage = new WritableImage((int) image.getWidth(), (int) image.getHeight());
-        // Update each pixel in the image.
-        for (int x = 0; x < image.getHeight(); x++) {
-            for (int y = 0; y < image.getWidth(); y++) {
-                // Find the root of the disjoint set for the pixel.
-                int root = unionFind.find(x * (int) image.getWidth() + y);
-                // Set the color of the pixel in the writable image.
-                writableImage.getPixelWriter().setColor(y, x, keptRoots.contains(root) ? Color.WHITE : Color.BLACK);
-            }
-        }
-        // Return the updated image.
-        return writableImage;
-    }
-
     //--------------------
-    // Filter
+    // Other
     //--------------------
 
-    // Method to filter the disjoint sets in an image.
-    private Set<Integer> filterDisjointSets(Image image, UnionFind unionFind, boolean[][] boundary) {
-        // Get the sizes of the disjoint sets in the image.
-        Map<Integer, Integer> disjointSetSizes = imageProcessor.getDisjointSetSizes(image, unionFind, boundary);
-        // Filter the disjoint sets by size and return the roots of the kept sets.
-        return filterBySize(disjointSetSizes);
-    }
-
-    // Method to filter a map of disjoint set sizes by size.
-    private Set<Integer> filterBySize(Map<Integer, Integer> disjointSetSizes) {
-        // Filter the entries in the map by size and return the keys of the kept entries.
-        return disjointSetSizes.entrySet().stream()
-                .filter(this::testSize)
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toSet());
+    // Method to turn a black and white image into a JavaFX image to display it. The number of selections is only for the event.
+    private WritableImage render(BinaryImage bwImage, int selectionCount) {
+        AnalysisStageEvent event = AnalysisStageEvent.begin(AnalysisStageEvent.Stage.RENDER);
+        WritableImage writableImage = bwImage.toImage();
+        event.finish(imageProcessor.getAnalysisMetrics(), bwImage.getWidth(), bwImage.getHeight(), selectionCount, 0);
+        return writableImage;
     }
 
-    //--------------------
-    // Other
-    //--------------------
-
     // Method to create a new ImageView with a given image.
     public ImageView createNewImageView(Image image, double fitWidth, double fitHeight) {
         // Create a new ImageView with the image.
@@ -232,16 +323,22 @@ public class ConversionManager {
         return imageView;
     }
 
-    // Method to test if a disjoint set is within the size range of any PillSelection.
-    boolean testSize(Map.Entry<Integer, Integer> entry) {
-        // Get the size of the disjoint set.
-        int size = entry.getValue();
-        // Test if the size is within the size range of any PillSelection.
-        return imageProcessor.getPillSelectionManager().getPillSelections().stream().anyMatch(selection -> size >= selection.getMinSize() && size <= selection.getMaxSize());
+    // Method to test if a disjoint set of the given size is within the size range of any PillSelection.
+    boolean testSize(int size) {
+        return AnalysisPipeline.testSize(size, imageProcessor.getPillSelections());
     }
 
-    // Method to clamp a value between MIN_VALUE and MAX_VALUE.
-    private double clamp(double value) {
-        return Math.max(MIN_VALUE, Math.min(MAX_VALUE, value));
+    // Getter for the number of threads used by the adjust and process passes.
+    public int getParallelism() {
+        return rowBandExecutor.getParallelism();
     }
+
+    // Setter for the number of threads used by the adjust and process passes.
+    // A parallelism of one runs the passes on the calling thread. The output is the same for every parallelism.
+    public void setParallelism(int parallelism) {
+        RowBandExecutor previousExecutor = rowBandExecutor;
+        rowBandExecutor = new RowBandExecutor(parallelism);
+        previousExecutor.shutdown();
+    }
+
 }
\ No newline at end of file
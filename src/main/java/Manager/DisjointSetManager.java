@@ -1,16 +1,22 @@
 package Manager;
 
+import Application.AnalysisPipeline;
+import Application.AnalysisStageEvent;
+import Application.BinaryImage;
+import Application.ComponentTable;
+import Application.ImageBuffer;
 import Application.ImageProcessor;
+import Application.LabeledImage;
 import Application.PillSelection;
 import Application.UnionFind;
 import javafx.scene.image.Image;
-import javafx.scene.image.WritableImage;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
 
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
+import java.util.stream.IntStream;
 
 // The DisjointSetManager class is responsible for managing disjoint sets in an image.
 public class DisjointSetManager {
@@ -24,9 +30,19 @@ public class DisjointSetManager {
 
     // Method to initialize disjoint sets for an image.
     public UnionFind initializeDisjointSets(Image image) {
+        return initializeDisjointSets((int) image.getWidth(), (int) image.getHeight());
+    }
+
+    // Method to initialize disjoint sets for an image held in a BinaryImage.
+    public UnionFind initializeDisjointSets(BinaryImage bwImage) {
+        return initializeDisjointSets(bwImage.getWidth(), bwImage.getHeight());
+    }
+
+    // Method to initialize disjoint sets for an image of the given dimensions.
+    private UnionFind initializeDisjointSets(int width, int height) {
         // Set the width and height of the image processor.
-        imageProcessor.setWidth((int) image.getWidth());
-        imageProcessor.setHeight((int) image.getHeight());
+        imageProcessor.setWidth(width);
+        imageProcessor.setHeight(height);
         // Calculate the total number of pixels in the image.
         int size = imageProcessor.getWidth() * imageProcessor.getHeight();
         // Return a new UnionFind data structure with the calculated size.
@@ -37,34 +53,110 @@ public class DisjointSetManager {
     // Getters
     //--------------------
     // Method to get the bounds of each disjoint set in an image.
-    public Map<Integer, int[]> getDisjointSetBounds(Image bwImage, UnionFind unionFind, boolean[][] boundary) {
-        // Initialize a map to store the bounds for each root.
-        Map<Integer, int[]> disjointSetBounds = new HashMap<>();
-        // Iterate over the boundary and update the bounds for each root.
-        iterateOverBoundary(boundary, bwImage, unionFind, (setRoot, x, y) -> {
-            // Initialize the bounds for the root if they don't exist.
-            disjointSetBounds.putIfAbsent(setRoot, new int[]{x, x, y, y});  // minX, maxX, minY, maxY
-            // Update the bounds for the root.
-            int[] bounds = disjointSetBounds.get(setRoot);
-            bounds[0] = Math.min(bounds[0], x);
-            bounds[1] = Math.max(bounds[1], x);
-            bounds[2] = Math.min(bounds[2], y);
-            bounds[3] = Math.max(bounds[3], y);
+    public Map<Integer, int[]> getDisjointSetBounds(Image bwImage, UnionFind unionFind, BinaryImage boundary) {
+        return getDisjointSetBounds(unionFind, boundary);
+    }
+
+    // Method to get the bounds of each disjoint set in an image held in a BinaryImage.
+    public Map<Integer, int[]> getDisjointSetBounds(BinaryImage bwImage, UnionFind unionFind, BinaryImage boundary) {
+        return getDisjointSetBounds(unionFind, boundary);
+    }
+
+    // Method to get the bounds of each disjoint set from the boundary of an image.
+    // The bounds are kept in arrays indexed by the dense labels of the UnionFind and only boxed into the map at the end.
+    private Map<Integer, int[]> getDisjointSetBounds(UnionFind unionFind, BinaryImage boundary) {
+        int labelCount = unionFind.compact();
+        // Initialize the arrays to store the bounds for each label: minX, maxX, minY, maxY.
+        int[] minX = new int[labelCount], maxX = new int[labelCount], minY = new int[labelCount], maxY = new int[labelCount];
+        // Iterate over the boundary and update the bounds for each label.
+        int[] order = iterateOverBoundary(boundary, unionFind, (label, first, x, y) -> {
+            // Initialize the bounds for the label the first time it is seen.
+            if (first) {
+                minX[label] = maxX[label] = x;
+                minY[label] = y;
+            }
+            // Update the bounds for the label. Rows are visited in order, so y only grows.
+            minX[label] = Math.min(minX[label], x);
+            maxX[label] = Math.max(maxX[label], x);
+            maxY[label] = y;
         });
+        // Put the bounds into the map by root, in the order the sets were first seen.
+        Map<Integer, int[]> disjointSetBounds = new HashMap<>();
+        for (int label : order) {
+            disjointSetBounds.put(unionFind.labelRoot(label), new int[]{minX[label], maxX[label], minY[label], maxY[label]});
+        }
         // Return the map of bounds.
         return disjointSetBounds;
     }
 
     // Method to get the sizes of each disjoint set in an image.
-    public Map<Integer, Integer> getDisjointSetSizes(Image bwImage, UnionFind unionFind, boolean[][] boundary) {
-        // Initialize a map to store the size for each root.
+    public Map<Integer, Integer> getDisjointSetSizes(Image bwImage, UnionFind unionFind, BinaryImage boundary) {
+        return getDisjointSetSizes(unionFind, boundary);
+    }
+
+    // Method to get the sizes of each disjoint set in an image held in a BinaryImage.
+    public Map<Integer, Integer> getDisjointSetSizes(BinaryImage bwImage, UnionFind unionFind, BinaryImage boundary) {
+        return getDisjointSetSizes(unionFind, boundary);
+    }
+
+    // Method to get the sizes of each disjoint set from the boundary of an image, counted by dense label.
+    private Map<Integer, Integer> getDisjointSetSizes(UnionFind unionFind, BinaryImage boundary) {
+        // Initialize an array to store the size for each label.
+        int[] sizes = new int[unionFind.compact()];
+        // Iterate over the boundary and update the size for each label.
+        int[] order = iterateOverBoundary(boundary, unionFind, (label, first, x, y) -> sizes[label]++);
+        // Put the sizes into the map by root, in the order the sets were first seen.
         Map<Integer, Integer> disjointSetSizes = new HashMap<>();
-        // Iterate over the boundary and update the size for each root.
-        iterateOverBoundary(boundary, bwImage, unionFind, (setRoot, x, y) -> disjointSetSizes.put(setRoot, disjointSetSizes.getOrDefault(setRoot, 0) + 1));
+        for (int label : order) {
+            disjointSetSizes.put(unionFind.labelRoot(label), sizes[label]);
+        }
         // Return the map of sizes.
         return disjointSetSizes;
     }
 
+    // Method to get the statistics of every disjoint set in an image in a single pass.
+    // Each pixel votes for the PillSelection it was given by the last conversion to black and white.
+    public ComponentTable getComponentTable(BinaryImage bwImage, UnionFind unionFind) {
+        PillSelection[][] pillSelectionArray = getVotingSelections(bwImage);
+        AnalysisStageEvent event = AnalysisStageEvent.begin(AnalysisStageEvent.Stage.COMPONENT_STATS);
+        ComponentTable componentTable = ComponentTable.build(bwImage, unionFind, pillSelectionArray, imageProcessor.getPillSelections());
+        finish(event, bwImage, componentTable);
+        return componentTable;
+    }
+
+    // Method to get the statistics of every disjoint set in a labeled image.
+    // They are kept with the labeling, and only counted again once the selections or the last conversion have changed.
+    public ComponentTable getComponentTable(LabeledImage labeledImage) {
+        BinaryImage bwImage = labeledImage.getBinaryImage();
+        PillSelection[][] pillSelectionArray = getVotingSelections(bwImage);
+        int selectionVersion = imageProcessor.getPillCapsuleManager().getVersion();
+        return labeledImage.getComponentTable(selectionVersion, pillSelectionArray, () -> {
+            // Only a table that is built again is a stage of its own, a kept one costs nothing.
+            AnalysisStageEvent event = AnalysisStageEvent.begin(AnalysisStageEvent.Stage.COMPONENT_STATS);
+            ComponentTable componentTable = ComponentTable.build(
+                    bwImage, labeledImage.getUnionFind(), labeledImage.getBoundary(), pillSelectionArray, imageProcessor.getPillSelections());
+            finish(event, bwImage, componentTable);
+            return componentTable;
+        });
+    }
+
+    // Method to record the event of a component table once it is built.
+    private void finish(AnalysisStageEvent event, BinaryImage bwImage, ComponentTable componentTable) {
+        event.finish(imageProcessor.getAnalysisMetrics(), bwImage.getWidth(), bwImage.getHeight(),
+                componentTable.getSelections().size(), componentTable.size());
+    }
+
+    // Method to get the PillSelection array of the last conversion to black and white.
+    // Votes can only be counted if the last conversion was of an image of the same size, otherwise null is returned.
+    private PillSelection[][] getVotingSelections(BinaryImage bwImage) {
+        PillSelection[][] pillSelectionArray = imageProcessor.getConversionManager().pillSelectionArray;
+        if (pillSelectionArray != null && (pillSelectionArray.length != bwImage.getHeight()
+                || (pillSelectionArray.length > 0 && pillSelectionArray[0].length != bwImage.getWidth()))) {
+            return null;
+        }
+        return pillSelectionArray;
+    }
+
     // Method to get the size of a disjoint set in a rectangle.
     public int getSizeOfDisjointSetInRectangle(Rectangle rect) {
         // Return the size from the map.
@@ -83,42 +175,52 @@ public class DisjointSetManager {
 
    // Method to color the disjoint sets in an image.
     public Image colorDisjointSets(Image bwImage) {
+        AnalysisStageEvent event = AnalysisStageEvent.begin(AnalysisStageEvent.Stage.RENDER);
         // Create a copy of the black and white image.
-        WritableImage coloredImage = new WritableImage(bwImage.getPixelReader(), (int) bwImage.getWidth(), (int) bwImage.getHeight());
+        ImageBuffer coloredBuffer = ImageBuffer.fromImage(bwImage);
+
+        // Get the PillSelection array of the last conversion once, since a newer conversion may replace it.
+        PillSelection[][] pillSelectionArray = imageProcessor.getConversionManager().pillSelectionArray;
 
         // Iterate over the pixels in the image.
-        for (int y = 0; y < coloredImage.getHeight(); y++) {
-            for (int x = 0; x < coloredImage.getWidth(); x++) {
+        for (int y = 0; y < coloredBuffer.getHeight(); y++) {
+            for (int x = 0; x < coloredBuffer.getWidth(); x++) {
                 // If the pixel is part of a disjoint set, color it with the color of the closest selection.
-                PillSelection closestSelection = imageProcessor.getConversionManager().pillSelectionArray[y][x];
+                PillSelection closestSelection = pillSelectionArray[y][x];
                 if (closestSelection != null) {
-                    coloredImage.getPixelWriter().setColor(x, y, closestSelection.getColor());
+                    coloredBuffer.setArgb(x, y, ImageBuffer.toArgb(closestSelection.getColor()));
                 }
             }
         }
 
         // Return the colored image.
+        Image coloredImage = coloredBuffer.toImage();
+        event.finish(imageProcessor.getAnalysisMetrics(), coloredBuffer.getWidth(), coloredBuffer.getHeight(), imageProcessor.getPillSelections().size(), 0);
         return coloredImage;
     }
 
     public Image colorDisjointSetsRandomly(Image bwImage) {
-        // Create a copy of the black and white image
-        WritableImage coloredImage = new WritableImage(bwImage.getPixelReader(), (int) bwImage.getWidth(), (int) bwImage.getHeight());
+        AnalysisStageEvent event = AnalysisStageEvent.begin(AnalysisStageEvent.Stage.RENDER);
+        // Create a buffer for the colored image
+        ImageBuffer coloredBuffer = new ImageBuffer((int) bwImage.getWidth(), (int) bwImage.getHeight());
 
-        // Initialize the disjoint sets
-        UnionFind unionFind = initializeDisjointSets(bwImage);
-        imageProcessor.unionFind(unionFind, bwImage);
+        // Get the disjoint sets, labeled once per image
+        LabeledImage labeledImage = imageProcessor.getLabeledImage(bwImage);
+        UnionFind unionFind = labeledImage.getUnionFind();
 
-        // Create a map to store the color for each root
-        Map<Integer, Color> rootColors = new HashMap<>();
+        // Create an array to store the color for each label, where 0 means no color has been picked yet
+        int[] labelColors = new int[unionFind.compact()];
 
         // Iterate over the pixels in the image
-        for (int y = 0; y < coloredImage.getHeight(); y++) {
-            for (int x = 0; x < coloredImage.getWidth(); x++) {
-                handlePixel(x, y, unionFind, rootColors, coloredImage);
+        for (int y = 0; y < coloredBuffer.getHeight(); y++) {
+            for (int x = 0; x < coloredBuffer.getWidth(); x++) {
+                handlePixel(x, y, labeledImage, labelColors, coloredBuffer);
             }
         }
 
+        Image coloredImage = coloredBuffer.toImage();
+        event.finish(imageProcessor.getAnalysisMetrics(), coloredBuffer.getWidth(), coloredBuffer.getHeight(), imageProcessor.getPillSelections().size(),
+                event.isEnabled() ? AnalysisPipeline.countSets(unionFind, labeledImage.getBinaryImage()) : 0);
         return coloredImage;
     }
 
@@ -127,30 +229,39 @@ public class DisjointSetManager {
     //--------------------
 
     // Method to handle a pixel in the image.
-    private void handlePixel(int x, int y, UnionFind unionFind, Map<Integer, Color> rootColors, WritableImage coloredImage) {
-        // If the pixel is part of a disjoint set, color it with the color of its root.
-        int root = unionFind.find(y * (int) coloredImage.getWidth() + x);
-        rootColors.putIfAbsent(root, generateRandomColor());
-        Color pixelColor = imageProcessor.getPixelReader().getColor(x, y);
-        coloredImage.getPixelWriter().setColor(x, y, pixelColor.equals(Color.BLACK) ? Color.BLACK : rootColors.get(root));
-    }
-
-    // Method to iterate over the boundary of an image and apply an operation.
-    private void iterateOverBoundary(boolean[][] boundary, Image bwImage, UnionFind unionFind, DisjointSetOperation operation) {
-        // Iterate over each pixel in the boundary.
-        for (int y = 0; y < boundary.length; y++) {
-            for (int x = 0; x < boundary[y].length; x++) {
-                // If the pixel is part of the boundary, apply the operation.
-                if (boundary[y][x]) {
-                    int setRoot = unionFind.find((int) (y * bwImage.getWidth() + x));
-                    operation.apply(setRoot, x, y);
-                }
-            }
+    private void handlePixel(int x, int y, LabeledImage labeledImage, int[] labelColors, ImageBuffer coloredBuffer) {
+        // Black pixels stay black.
+        if (!labeledImage.getBinaryImage().isWhite(x, y)) {
+            coloredBuffer.setArgb(x, y, ImageBuffer.BLACK);
+            return;
         }
+        // If the pixel is part of a disjoint set, color it with the color of its set. Random colors are opaque, so they are never 0.
+        int label = labeledImage.getUnionFind().label(coloredBuffer.index(x, y));
+        if (labelColors[label] == 0) labelColors[label] = ImageBuffer.toArgb(generateRandomColor());
+        coloredBuffer.setArgb(x, y, labelColors[label]);
+    }
+
+    // Method to iterate over the boundary of an image and apply an operation to the dense label of each pixel.
+    // Returns the labels that were seen, in the order they were first seen.
+    private int[] iterateOverBoundary(BinaryImage boundary, UnionFind unionFind, DisjointSetOperation operation) {
+        int[] labels = unionFind.getLabels();
+        boolean[] seen = new boolean[unionFind.components()];
+        IntStream.Builder order = IntStream.builder();
+        // Apply the operation to each pixel in the boundary, row by row. Words without boundary pixels are skipped.
+        boundary.forEachWhite((x, y) -> {
+            int label = labels[y * boundary.getWidth() + x];
+            boolean first = !seen[label];
+            if (first) {
+                seen[label] = true;
+                order.add(label);
+            }
+            operation.apply(label, first, x, y);
+        });
+        return order.build().toArray();
     }
 
     // Interface for a disjoint set operation.
     private interface DisjointSetOperation {
-        void apply(int setRoot, int x, int y);
+        void apply(int label, boolean first, int x, int y);
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,6 @@
 package Manager;
 
+import Application.ColorClassifier;
 import Application.PillSelection;
 import java.util.ArrayList;
 import java.util.List;
@@ -7,16 +8,23 @@ import java.util.List;
 /**
  * The PillCapsuleManager class is responsible for managing a list of PillSelections.
  * It provides methods to add a PillSelection to the list and to get the list of PillSelections.
+ * It also keeps a ColorClassifier that is compiled from the list whenever the list changes.
  */
 public class PillCapsuleManager {
     // A list to store the PillSelection objects.
     private final List<PillSelection> pillSelections;
+    // The classifier compiled from the PillSelection list.
+    private final ColorClassifier colorClassifier;
+    // The number of times the list has changed, so that results worked out for an older list can be told apart.
+    // It is read by threads other than the one that changes the list.
+    private volatile int version;
 
     /**
      * Constructor that initializes the PillSelection list.
      */
     public PillCapsuleManager() {
         this.pillSelections = new ArrayList<>();
+        this.colorClassifier = new ColorClassifier();
     }
 
     /**
@@ -26,6 +34,25 @@ public class PillCapsuleManager {
      */
     public void addPillSelection(PillSelection pillSelection) {
         this.pillSelections.add(pillSelection);
+        this.version++;
+    }
+
+    /**
+     * Method to remove the last PillSelection from the list, if there is one.
+     */
+    public void removeLastPillSelection() {
+        if (!this.pillSelections.isEmpty()) {
+            this.pillSelections.remove(this.pillSelections.size() - 1);
+            this.version++;
+        }
+    }
+
+    /**
+     * Method to remove all PillSelections from the list.
+     */
+    public void clearPillSelections() {
+        this.pillSelections.clear();
+        this.version++;
     }
 
     /**
@@ -36,6 +63,36 @@ public class PillCapsuleManager {
     public List<PillSelection> getPillSelections() {
         return this.pillSelections;
     }
-}
 
+    /**
+     * Method to get the version of the list of PillSelections. It changes every time a PillSelection is added or removed.
+     *
+     * @return The version of the list of PillSelections.
+     */
+    public int getVersion() {
+        return this.version;
+    }
+
+    /**
+     * Method to get the ColorClassifier for the current list of PillSelections.
+     * The classifier is brought up to date with the list first. Only the selections that changed since the last call are recompiled.
+     *
+     * @return The ColorClassifier for the list of PillSelections.
+     */
+    public ColorClassifier getColorClassifier() {
+        this.colorClassifier.update(this.pillSelections);
+        return this.colorClassifier;
+    }
+
+    /**
+     * Method to get the ColorClassifier compiled for a copy of the list of PillSelections, such as one taken for a task on another thread.
+     * The copy is never changed, so the task does not read the list while it is being changed.
+     *
+     * @param pillSelections The copy of the list of PillSelections.
+     * @return The Snapshot of the ColorClassifier compiled for the copy.
+     */
+    public ColorClassifier.Snapshot getColorClassifier(List<PillSelection> pillSelections) {
+        return this.colorClassifier.update(pillSelections);
+    }
+}
 
@@ -44,20 +44,17 @@ public class PillSelectionManager {
 
         // Create a new PillSelection and add it to the list of pill selections.
         PillSelection pillSelection = new PillSelection(pillName, clickedColor, colorThreshold, minSize, maxSize);
-        getPillSelections().add(pillSelection);
         imageProcessor.getPillCapsuleManager().addPillSelection(pillSelection);
     }
 
     // Method to reset the list of pill selections.
     public void resetSelections() {
-        getPillSelections().clear();
+        imageProcessor.getPillCapsuleManager().clearPillSelections();
     }
 
     // Method to undo the last pill selection.
     public void undoLastSelection() {
-        if (!getPillSelections().isEmpty()) {
-            getPillSelections().remove(getPillSelections().size() - 1);
-        }
+        imageProcessor.getPillCapsuleManager().removeLastPillSelection();
     }
 
     // Method to get the list of pill selections.
@@ -1,7 +1,9 @@
 package Manager;
 
+import Application.AnalysisPipeline;
+import Application.AnalysisStageEvent;
+import Application.ComponentTable;
 import Application.ImageProcessor;
-import Application.PillSelection;
 import javafx.scene.control.Tooltip;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
@@ -11,6 +13,7 @@ import javafx.scene.shape.Rectangle;
 import javafx.scene.text.Text;
 
 import java.util.*;
+import java.util.stream.IntStream;
 
 public class RectangleManager {
     // ImageProcessor instance used for various image processing tasks
@@ -18,31 +21,44 @@ public class RectangleManager {
 
     // Constants used for calculations
     private static final double RECTANGLE_CENTER_FACTOR = 2.0;
-    private static final int THRESHOLD_FACTOR = 5;
+    public static final int THRESHOLD_FACTOR = AnalysisPipeline.THRESHOLD_FACTOR;
+    // Name given to a pill when no PillSelection matches its pixels
+    public static final String UNKNOWN_PILL_NAME = AnalysisPipeline.UNKNOWN_PILL_NAME;
 
     // Constructor that initializes the ImageProcessor instance
     public RectangleManager(ImageProcessor imageProcessor) {
         this.imageProcessor = imageProcessor;
     }
 
-    // Method to create rectangles on a StackPane based on disjoint set bounds and sizes
-    public void createRectangles(StackPane stackPane, ImageView newImageView, Image originalImage, Map<Integer, int[]> disjointSetBounds, Map<Integer, Integer> disjointSetSizes) {
+    // Method to create rectangles on a StackPane based on the statistics of the disjoint sets
+    public void createRectangles(StackPane stackPane, ImageView newImageView, Image originalImage, ComponentTable componentTable) {
+        AnalysisStageEvent event = AnalysisStageEvent.begin(AnalysisStageEvent.Stage.OVERLAY);
+
         // Calculate threshold based on disjoint set sizes
-        int threshold = calculateThreshold(disjointSetSizes);
+        int threshold = calculateThreshold(componentTable);
 
-        // Sort entries by Y coordinate
-        List<Map.Entry<Integer, int[]>> sortedEntries = sortEntriesByYCoordinate(disjointSetBounds);
+        // Sort rows by Y coordinate
+        List<Integer> sortedRows = sortRowsByYCoordinate(componentTable);
 
         // Counter for the rectangles
         int rectangleCounter = 0;
 
-        // Iterate over sorted entries and add rectangles and text nodes to StackPane
-        for (Map.Entry<Integer, int[]> entry : sortedEntries) {
-            if (disjointSetSizes.get(entry.getKey()) > threshold) {
+        // Iterate over sorted rows and add rectangles and text nodes to StackPane
+        for (int row : sortedRows) {
+            if (componentTable.getBoundarySize(row) > threshold) {
                 rectangleCounter++;
-                addRectangleAndTextNodeToStackPane(stackPane, newImageView, originalImage, entry, rectangleCounter, disjointSetSizes);
+                addRectangleAndTextNodeToStackPane(stackPane, newImageView, originalImage, componentTable, row, rectangleCounter);
             }
         }
+
+        // Record the overlay with the number of rectangles drawn
+        event.finish(imageProcessor.getAnalysisMetrics(), (int) originalImage.getWidth(), (int) originalImage.getHeight(),
+                componentTable.getSelections().size(), rectangleCounter);
+    }
+
+    // Method to count the pills by name, using the same threshold and names as the rectangles created for them
+    public Map<String, Integer> countPills(ComponentTable componentTable) {
+        return AnalysisPipeline.countPills(componentTable);
     }
 
     // Method to create a Rectangle with specified bounds, width, and height
@@ -73,15 +89,15 @@ public class RectangleManager {
     }
 
     // Method to calculate the threshold based on disjoint set sizes
-    private int calculateThreshold(Map<Integer, Integer> disjointSetSizes) {
-        int maxSize = Collections.max(disjointSetSizes.values());
-        return maxSize / THRESHOLD_FACTOR;
+    // Only sets with boundary pixels have a size, so a set without them is never above the threshold
+    private int calculateThreshold(ComponentTable componentTable) {
+        return AnalysisPipeline.getPillThreshold(componentTable);
     }
 
-    // Method to sort entries by Y coordinate
-    private List<Map.Entry<Integer, int[]>> sortEntriesByYCoordinate(Map<Integer, int[]> disjointSetBounds) {
-        return disjointSetBounds.entrySet().stream() //Sequence of elements
-                .sorted(Comparator.comparingInt(entry -> entry.getValue()[2])) //Sort the entries
+    // Method to sort rows by Y coordinate. Rows with the same Y coordinate stay in scan order
+    private List<Integer> sortRowsByYCoordinate(ComponentTable componentTable) {
+        return IntStream.range(0, componentTable.size()).boxed() //Sequence of rows
+                .sorted(Comparator.comparingInt(componentTable::getMinY)) //Sort the rows
                 .toList(); //call to list
     }
 
@@ -90,17 +106,16 @@ public class RectangleManager {
     //------------------------
 
     // Method to add a rectangle and a text node to a StackPane
-    private void addRectangleAndTextNodeToStackPane(StackPane stackPane, ImageView newImageView, Image originalImage, Map.Entry<Integer, int[]> entry, int rectangleCounter, Map<Integer, Integer> disjointSetSizes) {
+    private void addRectangleAndTextNodeToStackPane(StackPane stackPane, ImageView newImageView, Image originalImage, ComponentTable componentTable, int row, int rectangleCounter) {
         // Create a new Rectangle and add it to the StackPane
-        Rectangle rect = createRectangle(entry.getValue(), calculateRectangleWidth(newImageView, originalImage), calculateRectangleHeight(newImageView, originalImage), originalImage.getWidth(), originalImage.getHeight());
+        Rectangle rect = createRectangle(componentTable.getBounds(row), calculateRectangleWidth(newImageView, originalImage), calculateRectangleHeight(newImageView, originalImage), originalImage.getWidth(), originalImage.getHeight());
         stackPane.getChildren().add(rect);
 
         // Add the size of the rectangle to the ImageProcessor's rectangle sizes
-        imageProcessor.getRectangleSizes().put(rect, disjointSetSizes.get(entry.getKey()));
+        imageProcessor.getRectangleSizes().put(rect, componentTable.getBoundarySize(row));
 
-        // Get the most common PillSelection within the bounds
-        PillSelection mostCommonPillSelection = getMostCommonPillSelection(entry.getValue());
-        String pillName = mostCommonPillSelection != null ? mostCommonPillSelection.getName() : "Unknown";
+        // Get the name of the most common PillSelection in the disjoint set
+        String pillName = getPillName(componentTable, row);
 
         // Create a new Text node and add it to the StackPane
         Text text = createTextNode(rectangleCounter, rect, pillName);
@@ -122,23 +137,10 @@ public class RectangleManager {
         return imageProcessor.getNumberTexts();
     }
 
-    // Method to get the most common PillSelection within the bounds
-    private PillSelection getMostCommonPillSelection(int[] bounds) {
-        // Create a map to count the occurrences of each PillSelection
-        Map<PillSelection, Integer> pillSelectionCounts = new HashMap<>();
-
-        // Iterate over the bounds and count the occurrences of each PillSelection
-        for (int y = bounds[2]; y <= bounds[3]; y++) {
-            for (int x = bounds[0]; x <= bounds[1]; x++) {
-                PillSelection pillSelection = imageProcessor.getConversionManager().pillSelectionArray[y][x];
-                if (pillSelection != null) {
-                    pillSelectionCounts.put(pillSelection, pillSelectionCounts.getOrDefault(pillSelection, 0) + 1);
-                }
-            }
-        }
-
-        // Return the PillSelection with the maximum count
-        return pillSelectionCounts.entrySet().stream().max(Map.Entry.comparingByValue()).map(Map.Entry::getKey).orElse(null);
+    // Method to get the name of the most common PillSelection in a disjoint set, or UNKNOWN_PILL_NAME if there is none
+    // The votes were counted when the table was built, so the pixels of the set are not scanned again
+    private String getPillName(ComponentTable componentTable, int row) {
+        return AnalysisPipeline.getPillName(componentTable, row);
     }
 
     //--------------------
@@ -158,19 +160,23 @@ public class RectangleManager {
     }
 
     // Method to handle tooltip for a Rectangle
-    private void handleTooltip(Rectangle rect, String pillName, int rectangleCounter) {
-        // Create a new Tooltip
-        Tooltip tooltip = new Tooltip();
+    void handleTooltip(Rectangle rect, String pillName, int rectangleCounter) {
+        // The Tooltip is only created the first time the Rectangle is pressed, since it is a whole popup window
+        // and most rectangles are never pressed
+        Tooltip[] tooltip = new Tooltip[1];
 
         // Set the mouse press event for the Rectangle to show the Tooltip
         rect.setOnMousePressed(event -> {
-            tooltip.setText("Pill/Capsule Name: " + pillName + "\n" +
+            if (tooltip[0] == null) tooltip[0] = new Tooltip();
+            tooltip[0].setText("Pill/Capsule Name: " + pillName + "\n" +
                     "Pill/Capsule Number: " + rectangleCounter + "\n" +
                     "Estimated Size (pixel units): " + imageProcessor.getRectangleSizes().get(rect));
-            tooltip.show(rect, event.getScreenX(), event.getScreenY());
+            tooltip[0].show(rect, event.getScreenX(), event.getScreenY());
         });
 
         // Set the mouse release event for the Rectangle to hide the Tooltip
-        rect.setOnMouseReleased(event -> tooltip.hide());
+        rect.setOnMouseReleased(event -> {
+            if (tooltip[0] != null) tooltip[0].hide();
+        });
     }
 }
\ No newline at end of file
@@ -1,14 +1,24 @@
 package Manager;
 
+import Application.AnalysisPipeline;
+import Application.AnalysisStageEvent;
+import Application.BinaryImage;
+import Application.ConcurrentUnionFind;
+import Application.ConnectedComponentLabeler;
+import Application.Connectivity;
+import Application.ImageBuffer;
 import Application.ImageProcessor;
+import Application.LabelImage;
+import Application.RowBandExecutor;
 import Application.UnionFind;
 import javafx.scene.image.Image;
-import javafx.scene.paint.Color;
 
 // The UnionFindManager class is responsible for performing a union-find operation on an image.
 public class UnionFindManager {
     // The ImageProcessor instance used for various image processing tasks.
     private final ImageProcessor imageProcessor;
+    // The executor that labels strips of the image in parallel.
+    private RowBandExecutor rowBandExecutor = new RowBandExecutor(Runtime.getRuntime().availableProcessors());
 
     // Constructor that initializes the ImageProcessor instance.
     public UnionFindManager(ImageProcessor imageProcessor) {
@@ -20,6 +30,31 @@ public class UnionFindManager {
         // Set up the image processor with the given image.
         imageProcessor.setup(image);
 
+        // Process every pixel of the image.
+        processPixels(unionFind);
+    }
+
+    // This method performs a union-find operation on an image that has already been read into a buffer.
+    public void unionFind(UnionFind unionFind, ImageBuffer imageBuffer) {
+        // Set up the image processor with the given buffer.
+        imageProcessor.setup(imageBuffer);
+
+        // Process every pixel of the image.
+        processPixels(unionFind);
+    }
+
+    // This method performs a union-find operation on a black and white image held in a BinaryImage.
+    // Each white pixel is joined with the white pixels to its right and below, in the same order as processPixels.
+    // The pixels to the left and above were already joined with it when they were visited, so the sets and their roots are the same.
+    public void unionFind(UnionFind unionFind, BinaryImage bwImage) {
+        AnalysisStageEvent event = AnalysisStageEvent.begin(AnalysisStageEvent.Stage.LABEL);
+        AnalysisPipeline.join(unionFind, bwImage);
+        event.finish(imageProcessor.getAnalysisMetrics(), bwImage.getWidth(), bwImage.getHeight(), getSelectionCount(),
+                event.isEnabled() ? AnalysisPipeline.countSets(unionFind, bwImage) : 0);
+    }
+
+    // This method processes the union-find operation for every pixel of the current image.
+    private void processPixels(UnionFind unionFind) {
         // Iterate over each pixel in the image.
         for (int y = 0; y < imageProcessor.getHeight(); y++) {
             for (int x = 0; x < imageProcessor.getWidth(); x++) {
@@ -31,11 +66,8 @@ public class UnionFindManager {
 
     // This method processes the union-find operation for a single pixel at the given coordinates.
     public void processUnionFind(UnionFind unionFind, int x, int y) {
-        // Get the color of the current pixel.
-        Color color = imageProcessor.getPixelReader().getColor(x, y);
-
         // If the color of the pixel is white, perform the union-find operation.
-        if (color.equals(Color.WHITE)) {
+        if (imageProcessor.getImageBuffer().isWhite(x, y)) {
             // Map the pixel at (y, x) to an integer.
             int p = y * imageProcessor.getWidth() + x;
 
@@ -54,7 +86,7 @@ public class UnionFindManager {
         int ny = y + dy;
 
         // If the new coordinates are within the image bounds and the pixel at the new coordinates is white, perform the union operation.
-        if (nx >= 0 && nx < imageProcessor.getWidth() && ny >= 0 && ny < imageProcessor.getHeight() && imageProcessor.getPixelReader().getColor(nx, ny).equals(Color.WHITE)) {
+        if (nx >= 0 && nx < imageProcessor.getWidth() && ny >= 0 && ny < imageProcessor.getHeight() && imageProcessor.getImageBuffer().isWhite(nx, ny)) {
             // Map the pixel at (ny, nx) to an integer.
             int q = ny * imageProcessor.getWidth() + nx; //Look at the y as rows and width/x as words in a row
 
@@ -62,4 +94,55 @@ public class UnionFindManager {
             unionFind.unionBySize(p, q); //People beside us are the same - join
         }
     }
+
+    // This method performs a union-find operation on an image with several threads sharing one ConcurrentUnionFind.
+    // Each thread joins the white pixels of a band of rows with the white pixels to their right and below,
+    // which covers every pair of neighbours once, so the bands need no merge phase afterwards.
+    public void unionFind(ConcurrentUnionFind unionFind, ImageBuffer imageBuffer) {
+        int width = imageBuffer.getWidth();
+        int height = imageBuffer.getHeight();
+        AnalysisStageEvent event = AnalysisStageEvent.begin(AnalysisStageEvent.Stage.LABEL);
+        rowBandExecutor.forEachBand(height, (startY, endY) -> {
+            for (int y = startY; y < endY; y++) {
+                for (int x = 0; x < width; x++) {
+                    if (!imageBuffer.isWhite(x, y)) continue;
+                    int p = imageBuffer.index(x, y);
+                    if (x < width - 1 && imageBuffer.isWhite(x + 1, y)) unionFind.unionByIndex(p, p + 1);  // right
+                    if (y < height - 1 && imageBuffer.isWhite(x, y + 1)) unionFind.unionByIndex(p, p + width);  // below
+                }
+            }
+        });
+        event.finish(imageProcessor.getAnalysisMetrics(), width, height, getSelectionCount(), 0);
+    }
+
+    // This method labels the white regions of the given image with a two-pass raster scan.
+    // With four-connectivity the components are the same as the ones found by unionFind.
+    // Strips of the image are labeled in parallel and stitched together, which gives the same labels as a single strip.
+    public LabelImage label(Image image, Connectivity connectivity) {
+        // Set up the image processor with the given image.
+        imageProcessor.setup(image);
+
+        // Label the pixels of the image.
+        AnalysisStageEvent event = AnalysisStageEvent.begin(AnalysisStageEvent.Stage.LABEL);
+        LabelImage labelImage = new ConnectedComponentLabeler(connectivity, rowBandExecutor).label(imageProcessor.getImageBuffer());
+        event.finish(imageProcessor.getAnalysisMetrics(), labelImage.getWidth(), labelImage.getHeight(), getSelectionCount(), labelImage.getComponentCount());
+        return labelImage;
+    }
+
+    // This method gets the number of PillSelections, for the events of the stages.
+    private int getSelectionCount() {
+        return imageProcessor.getPillSelections().size();
+    }
+
+    // Getter for the number of threads used for labeling.
+    public int getParallelism() {
+        return rowBandExecutor.getParallelism();
+    }
+
+    // Setter for the number of threads used for labeling. A parallelism of one labels the image on the calling thread.
+    public void setParallelism(int parallelism) {
+        RowBandExecutor previousExecutor = rowBandExecutor;
+        rowBandExecutor = new RowBandExecutor(parallelism);
+        previousExecutor.shutdown();
+    }
 }
@@ -0,0 +1,279 @@
+package benchmark;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+// The BenchmarkBaseline class compares the JSON results of a JMH run with the results of an earlier run.
+// Each benchmark is matched by its name and parameters, and the change in its score and in the bytes it allocates
+// for each operation is printed. A score that got worse by more than the threshold is a regression,
+// and so is a score of 0 or NaN on either side, which is reported as invalid since no change can be worked out from it.
+//
+// Usage: BenchmarkBaseline <baseline file> <result file> [threshold percent]
+public class BenchmarkBaseline {
+    // The default change in score, in percent, above which a benchmark counts as a regression.
+    public static final double DEFAULT_THRESHOLD_PERCENT = 10;
+    // The secondary metric the GC profiler gives for the bytes allocated by each operation.
+    // Some versions of JMH put a dot in front of the names of the profiler metrics, so only the end of the name is matched.
+    private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+
+    // The results of the baseline, by benchmark name and parameters.
+    private final Map<String, Result> baseline;
+
+    // Constructor that reads the baseline from a JMH JSON file.
+    public BenchmarkBaseline(Path baselineFile) throws IOException {
+        this.baseline = read(baselineFile);
+    }
+
+    // Method to compare the results of a JMH JSON file with the baseline and print a line for each benchmark.
+    // Returns the number of regressions, including the benchmarks whose scores are invalid.
+    public int compare(Path resultFile, double thresholdPercent, PrintStream output) throws IOException {
+        int regressions = 0;
+        output.printf(Locale.ROOT, "%-70s %14s %14s %9s %10s%n", "Benchmark", "Baseline", "Result", "Change", "Alloc");
+        for (Map.Entry<String, Result> entry : read(resultFile).entrySet()) {
+            Result result = entry.getValue();
+            Result base = baseline.get(entry.getKey());
+            if (base == null) {
+                output.printf(Locale.ROOT, "%-70s %14s %14.3f %9s %10s%n", entry.getKey(), "-", result.score(), "new", "");
+                continue;
+            }
+            String invalid = !isValidScore(base.score()) ? "INVALID BASELINE" : !isValidScore(result.score()) ? "INVALID RESULT" : null;
+            if (invalid != null) {
+                regressions++;
+                output.printf(Locale.ROOT, "%-70s %14.3f %14.3f %9s %10s  %s%n", entry.getKey(), base.score(), result.score(), "-", "",
+                        invalid);
+                continue;
+            }
+
+            // A higher score is better for throughput and worse for time.
+            double change = 100 * (result.score() - base.score()) / base.score();
+            double worse = result.higherIsBetter() ? -change : change;
+            boolean regression = worse > thresholdPercent;
+            if (regression) regressions++;
+            String allocation = Double.isNaN(result.allocation()) || Double.isNaN(base.allocation()) || base.allocation() == 0
+                    ? "" : String.format(Locale.ROOT, "%+.1f%%", 100 * (result.allocation() - base.allocation()) / base.allocation());
+            output.printf(Locale.ROOT, "%-70s %14.3f %14.3f %+8.1f%% %10s%s%n", entry.getKey(), base.score(), result.score(), change,
+                    allocation, regression ? "  REGRESSION" : "");
+        }
+        return regressions;
+    }
+
+    // Method to check that a score can be compared: a change is only defined from a baseline that is finite and above 0.
+    private static boolean isValidScore(double score) {
+        return Double.isFinite(score) && score > 0;
+    }
+
+    // Method to read the results of a JMH JSON file, by benchmark name and parameters.
+    static Map<String, Result> read(Path file) throws IOException {
+        Object json = new JsonReader(Files.readString(file, StandardCharsets.UTF_8)).readDocument();
+        if (!(json instanceof List<?> runs)) throw new IOException("Not a JMH result file: " + file);
+
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (Object run : runs) {
+            Map<?, ?> benchmark = (Map<?, ?>) run;
+            Map<?, ?> primaryMetric = (Map<?, ?>) benchmark.get("primaryMetric");
+            Map<?, ?> secondaryMetrics = (Map<?, ?>) benchmark.get("secondaryMetrics");
+            Map<?, ?> allocation = null;
+            if (secondaryMetrics != null) {
+                for (Map.Entry<?, ?> metric : secondaryMetrics.entrySet()) {
+                    if (String.valueOf(metric.getKey()).endsWith(ALLOCATION_METRIC)) allocation = (Map<?, ?>) metric.getValue();
+                }
+            }
+            results.put(key(benchmark), new Result(
+                    toDouble(primaryMetric.get("score")),
+                    allocation == null ? Double.NaN : toDouble(allocation.get("score")),
+                    "thrpt".equals(benchmark.get("mode"))));
+        }
+        return results;
+    }
+
+    // Method to get the key of a benchmark: its name and its parameters in name order.
+    private static String key(Map<?, ?> benchmark) {
+        StringBuilder key = new StringBuilder(String.valueOf(benchmark.get("benchmark")));
+        Map<?, ?> params = (Map<?, ?>) benchmark.get("params");
+        if (params != null) {
+            Map<String, String> sortedParams = new TreeMap<>();
+            params.forEach((name, value) -> sortedParams.put(String.valueOf(name), String.valueOf(value)));
+            sortedParams.forEach((name, value) -> key.append(' ').append(name).append('=').append(value));
+        }
+        return key.toString();
+    }
+
+    // Method to read a number that JMH may have written as a string, such as "NaN".
+    private static double toDouble(Object value) {
+        if (value instanceof Double number) return number;
+        return value == null ? Double.NaN : Double.parseDouble(String.valueOf(value));
+    }
+
+    // The score of a benchmark, the bytes it allocates for each operation, and whether a higher score is better.
+    record Result(double score, double allocation, boolean higherIsBetter) {
+    }
+
+    //------------------------
+    // JSON
+    //------------------------
+
+    // The JsonReader class reads the JSON that JMH writes into maps, lists, strings, doubles, booleans and nulls.
+    static final class JsonReader {
+        private final String text;
+        private int position;
+
+        JsonReader(String text) {
+            this.text = text;
+        }
+
+        // Method to read the whole document.
+        Object readDocument() throws IOException {
+            Object value = readValue();
+            skipWhitespace();
+            if (position != text.length()) throw error("Unexpected text after the document");
+            return value;
+        }
+
+        private Object readValue() throws IOException {
+            skipWhitespace();
+            if (position >= text.length()) throw error("Unexpected end of the document");
+            char c = text.charAt(position);
+            return switch (c) {
+                case '{' -> readObject();
+                case '[' -> readArray();
+                case '"' -> readString();
+                case 't' -> readLiteral("true", Boolean.TRUE);
+                case 'f' -> readLiteral("false", Boolean.FALSE);
+                case 'n' -> readLiteral("null", null);
+                default -> readNumber();
+            };
+        }
+
+        private Map<String, Object> readObject() throws IOException {
+            Map<String, Object> object = new LinkedHashMap<>();
+            position++;
+            skipWhitespace();
+            if (peek() == '}') {
+                position++;
+                return object;
+            }
+            while (true) {
+                skipWhitespace();
+                String name = readString();
+                skipWhitespace();
+                expect(':');
+                object.put(name, readValue());
+                skipWhitespace();
+                if (peek() == ',') {
+                    position++;
+                } else {
+                    expect('}');
+                    return object;
+                }
+            }
+        }
+
+        private List<Object> readArray() throws IOException {
+            List<Object> array = new ArrayList<>();
+            position++;
+            skipWhitespace();
+            if (peek() == ']') {
+                position++;
+                return array;
+            }
+            while (true) {
+                array.add(readValue());
+                skipWhitespace();
+                if (peek() == ',') {
+                    position++;
+                } else {
+                    expect(']');
+                    return array;
+                }
+            }
+        }
+
+        private String readString() throws IOException {
+            expect('"');
+            StringBuilder string = new StringBuilder();
+            while (true) {
+                if (position >= text.length()) throw error("Unterminated string");
+                char c = text.charAt(position++);
+                if (c == '"') return string.toString();
+                if (c != '\\') {
+                    string.append(c);
+                    continue;
+                }
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case 'b' -> string.append('\b');
+                    case 'f' -> string.append('\f');
+                    case 'n' -> string.append('\n');
+                    case 'r' -> string.append('\r');
+                    case 't' -> string.append('\t');
+                    case 'u' -> {
+                        string.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        position += 4;
+                    }
+                    default -> string.append(escaped);
+                }
+            }
+        }
+
+        private Double readNumber() throws IOException {
+            int start = position;
+            while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+                position++;
+            }
+            try {
+                return Double.parseDouble(text.substring(start, position));
+            } catch (NumberFormatException e) {
+                throw error("Invalid number");
+            }
+        }
+
+        private Object readLiteral(String literal, Object value) throws IOException {
+            if (!text.startsWith(literal, position)) throw error("Invalid literal");
+            position += literal.length();
+            return value;
+        }
+
+        private void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        private char peek() throws IOException {
+            if (position >= text.length()) throw error("Unexpected end of the document");
+            return text.charAt(position);
+        }
+
+        private void expect(char c) throws IOException {
+            if (peek() != c) throw error("Expected '" + c + "'");
+            position++;
+        }
+
+        private IOException error(String message) {
+            return new IOException(message + " at character " + position);
+        }
+    }
+
+    //------------------------
+    // Command Line
+    //------------------------
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Usage: BenchmarkBaseline <baseline file> <result file> [threshold percent]");
+            System.exit(2);
+        }
+        double thresholdPercent = args.length == 3 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD_PERCENT;
+        int regressions = new BenchmarkBaseline(Path.of(args[0])).compare(Path.of(args[1]), thresholdPercent, System.out);
+        System.exit(regressions == 0 ? 0 : 1);
+    }
+}
@@ -1,27 +1,38 @@
 package benchmark;
 
+import Application.BinaryImage;
 import Application.ImageProcessor;
 import Manager.BoundaryManager;
 import javafx.scene.image.WritableImage;
 import org.openjdk.jmh.annotations.*;
 
-@State(Scope.Thread)
-public class BoundaryManagerBenchmark {
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BoundaryManagerBenchmark extends TrayBenchmark {
 
     private BoundaryManager boundaryManager;
+    private BinaryImage bwImage;
     private WritableImage image;
 
     @Setup(Level.Trial)
     public void setup() {
-        ImageProcessor imageProcessor = new ImageProcessor();
-        image = new WritableImage(400, 400);
-        imageProcessor.setup(image);
+        renderTray();
+        ImageProcessor imageProcessor = createImageProcessor();
+        // The boundary is found on the black and white tray
+        bwImage = convertTray(imageProcessor);
+        image = bwImage.toImage();
         boundaryManager = new BoundaryManager(imageProcessor);
     }
 
     @Benchmark
-    public void benchmarkSetBoundary() {
-        boundaryManager.setBoundary(image);
+    public BinaryImage benchmarkSetBoundary() {
+        return boundaryManager.setBoundary(image);
     }
-}
 
+    @Benchmark
+    public BinaryImage benchmarkSetBoundaryBinaryImage() {
+        return boundaryManager.setBoundary(bwImage);
+    }
+}
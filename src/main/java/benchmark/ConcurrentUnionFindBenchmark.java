@@ -0,0 +1,64 @@
+package benchmark;
+
+import Application.ConcurrentUnionFind;
+import Application.ImageBuffer;
+import Application.ImageProcessor;
+import Application.UnionFind;
+import Manager.UnionFindManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ConcurrentUnionFindBenchmark {
+
+    // The number of threads sharing the ConcurrentUnionFind
+    @Param({"1", "2", "4", "8", "16"})
+    private int parallelism;
+
+    private ImageBuffer imageBuffer;
+    private UnionFindManager unionFindManager;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // A 2000x2000 image with white discs on a black background
+        imageBuffer = new ImageBuffer(2000, 2000);
+        Arrays.fill(imageBuffer.getPixels(), ImageBuffer.BLACK);
+        Random random = new Random(42);
+        for (int i = 0; i < 1600; i++) {
+            int cx = random.nextInt(2000), cy = random.nextInt(2000), radius = 5 + random.nextInt(25);
+            for (int y = Math.max(0, cy - radius); y < Math.min(2000, cy + radius); y++) {
+                for (int x = Math.max(0, cx - radius); x < Math.min(2000, cx + radius); x++) {
+                    if ((x - cx) * (x - cx) + (y - cy) * (y - cy) < radius * radius) {
+                        imageBuffer.setArgb(x, y, ImageBuffer.WHITE);
+                    }
+                }
+            }
+        }
+        unionFindManager = new UnionFindManager(new ImageProcessor());
+        unionFindManager.setParallelism(parallelism);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        unionFindManager.setParallelism(1);
+    }
+
+    @Benchmark
+    public UnionFind benchmarkUnionFind() {
+        UnionFind unionFind = new UnionFind(imageBuffer.getWidth() * imageBuffer.getHeight());
+        unionFindManager.unionFind(unionFind, imageBuffer);
+        return unionFind;
+    }
+
+    @Benchmark
+    public ConcurrentUnionFind benchmarkConcurrentUnionFind() {
+        ConcurrentUnionFind unionFind = new ConcurrentUnionFind(imageBuffer.getWidth() * imageBuffer.getHeight());
+        unionFindManager.unionFind(unionFind, imageBuffer);
+        return unionFind;
+    }
+}
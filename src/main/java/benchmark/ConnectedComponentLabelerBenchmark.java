@@ -0,0 +1,63 @@
+package benchmark;
+
+import Application.ConnectedComponentLabeler;
+import Application.Connectivity;
+import Application.ImageBuffer;
+import Application.ImageProcessor;
+import Application.LabelImage;
+import Application.UnionFind;
+import Manager.UnionFindManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ConnectedComponentLabelerBenchmark {
+
+    private ImageBuffer imageBuffer;
+    private UnionFindManager unionFindManager;
+    private ConnectedComponentLabeler fourConnectedLabeler;
+    private ConnectedComponentLabeler eightConnectedLabeler;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // A 1000x1000 image with white discs on a black background
+        imageBuffer = new ImageBuffer(1000, 1000);
+        Arrays.fill(imageBuffer.getPixels(), ImageBuffer.BLACK);
+        Random random = new Random(42);
+        for (int i = 0; i < 400; i++) {
+            int cx = random.nextInt(1000), cy = random.nextInt(1000), radius = 5 + random.nextInt(25);
+            for (int y = Math.max(0, cy - radius); y < Math.min(1000, cy + radius); y++) {
+                for (int x = Math.max(0, cx - radius); x < Math.min(1000, cx + radius); x++) {
+                    if ((x - cx) * (x - cx) + (y - cy) * (y - cy) < radius * radius) {
+                        imageBuffer.setArgb(x, y, ImageBuffer.WHITE);
+                    }
+                }
+            }
+        }
+        unionFindManager = new UnionFindManager(new ImageProcessor());
+        fourConnectedLabeler = new ConnectedComponentLabeler(Connectivity.FOUR);
+        eightConnectedLabeler = new ConnectedComponentLabeler(Connectivity.EIGHT);
+    }
+
+    @Benchmark
+    public UnionFind benchmarkUnionFind() {
+        UnionFind unionFind = new UnionFind(imageBuffer.getWidth() * imageBuffer.getHeight());
+        unionFindManager.unionFind(unionFind, imageBuffer);
+        return unionFind;
+    }
+
+    @Benchmark
+    public LabelImage benchmarkLabelFourConnected() {
+        return fourConnectedLabeler.label(imageBuffer);
+    }
+
+    @Benchmark
+    public LabelImage benchmarkLabelEightConnected() {
+        return eightConnectedLabeler.label(imageBuffer);
+    }
+}
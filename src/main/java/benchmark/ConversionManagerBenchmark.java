@@ -1,28 +1,47 @@
 package benchmark;
 
+import Application.BinaryImage;
 import Application.ImageProcessor;
 import Manager.ConversionManager;
-import javafx.scene.image.WritableImage;
 import javafx.scene.image.ImageView;
 import org.openjdk.jmh.annotations.*;
 
-@State(Scope.Thread)
-public class ConversionManagerBenchmark {
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ConversionManagerBenchmark extends TrayBenchmark {
 
     private ConversionManager conversionManager;
     private ImageView originalImageView;
+    // The converted tray the refine benchmark starts from
+    private BinaryImage bwImage;
 
     @Setup(Level.Trial)
     public void setup() {
-        ImageProcessor imageProcessor = new ImageProcessor();
-        WritableImage image = new WritableImage(400, 400);
-        originalImageView = new ImageView(image);
-        imageProcessor.setup(image);
-        conversionManager = new ConversionManager(imageProcessor);
+        renderTray();
+        ImageProcessor imageProcessor = createImageProcessor();
+        conversionManager = imageProcessor.getConversionManager();
+        originalImageView = new ImageView(trayFixture.getImage().toImage());
+        // Work out the planes of the tray once, the same as the first slider move does
+        imageProcessor.getHsbPlanes(originalImageView.getImage());
+        bwImage = convertTray(imageProcessor);
+    }
+
+    // A slider move: the planes of the tray are kept, so only the adjusting and classifying are measured
+    @Benchmark
+    public ImageView benchmarkConvertToBlackAndWhite() {
+        return conversionManager.convertToBlackAndWhite(originalImageView, HUE_ADJUSTMENT, SATURATION_FACTOR, BRIGHTNESS_FACTOR);
+    }
+
+    // A conversion straight from the pixels, as the batch analysis does
+    @Benchmark
+    public BinaryImage benchmarkConvertImageBuffer() {
+        return conversionManager.convertToBlackAndWhite(trayFixture.getImage(), HUE_ADJUSTMENT, SATURATION_FACTOR, BRIGHTNESS_FACTOR);
     }
 
     @Benchmark
-    public void benchmarkConvertToBlackAndWhite() {
-        conversionManager.convertToBlackAndWhite(originalImageView, 0.5, 1.2, 0.8);
+    public BinaryImage benchmarkRefineBlackAndWhiteImage() {
+        return conversionManager.refineBlackAndWhiteImage(bwImage);
     }
-}
\ No newline at end of file
+}
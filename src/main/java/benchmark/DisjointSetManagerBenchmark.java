@@ -1,27 +1,49 @@
 package benchmark;
 
+import Application.BinaryImage;
+import Application.ComponentTable;
 import Application.ImageProcessor;
+import Application.UnionFind;
 import Manager.DisjointSetManager;
-import javafx.scene.image.WritableImage;
 import org.openjdk.jmh.annotations.*;
 
-@State(Scope.Thread)
-public class DisjointSetManagerBenchmark {
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DisjointSetManagerBenchmark extends TrayBenchmark {
 
     private DisjointSetManager disjointSetManager;
-    private WritableImage image;
+    private BinaryImage bwImage;
+    private BinaryImage boundary;
+    private UnionFind unionFind;
 
     @Setup(Level.Trial)
     public void setup() {
-        ImageProcessor imageProcessor = new ImageProcessor();
-        image = new WritableImage(400, 400);
-        imageProcessor.setup(image);
+        renderTray();
+        ImageProcessor imageProcessor = createImageProcessor();
+        // The sets of the black and white tray, joined once
+        bwImage = convertTray(imageProcessor);
+        boundary = bwImage.boundary();
+        unionFind = imageProcessor.initializeDisjointSets(bwImage);
+        imageProcessor.unionFind(unionFind, bwImage);
+        unionFind.compact();
         disjointSetManager = new DisjointSetManager(imageProcessor);
     }
 
     @Benchmark
-    public void benchmarkInitializeDisjointSets() {
-        disjointSetManager.initializeDisjointSets(image);
+    public UnionFind benchmarkInitializeDisjointSets() {
+        return disjointSetManager.initializeDisjointSets(bwImage);
+    }
+
+    @Benchmark
+    public Map<Integer, Integer> benchmarkGetDisjointSetSizes() {
+        return disjointSetManager.getDisjointSetSizes(bwImage, unionFind, boundary);
     }
-}
 
+    @Benchmark
+    public ComponentTable benchmarkGetComponentTable() {
+        return disjointSetManager.getComponentTable(bwImage, unionFind);
+    }
+}
@@ -0,0 +1,60 @@
+package benchmark;
+
+import Application.ConnectedComponentLabeler;
+import Application.Connectivity;
+import Application.ImageBuffer;
+import Application.LabelImage;
+import Application.RowBandExecutor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParallelLabelingBenchmark {
+
+    // The width and height of the square image, 2000 is 4 megapixels and 7200 is about 52 megapixels
+    @Param({"2000", "7200"})
+    private int size;
+
+    // The number of threads that label strips of the image
+    @Param({"1", "2", "4", "8", "16"})
+    private int parallelism;
+
+    private ImageBuffer imageBuffer;
+    private RowBandExecutor rowBandExecutor;
+    private ConnectedComponentLabeler labeler;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // White discs on a black background, about one disc per 2500 pixels
+        imageBuffer = new ImageBuffer(size, size);
+        Arrays.fill(imageBuffer.getPixels(), ImageBuffer.BLACK);
+        Random random = new Random(42);
+        for (int i = 0; i < size / 50 * size / 50; i++) {
+            int cx = random.nextInt(size), cy = random.nextInt(size), radius = 5 + random.nextInt(25);
+            for (int y = Math.max(0, cy - radius); y < Math.min(size, cy + radius); y++) {
+                for (int x = Math.max(0, cx - radius); x < Math.min(size, cx + radius); x++) {
+                    if ((x - cx) * (x - cx) + (y - cy) * (y - cy) < radius * radius) {
+                        imageBuffer.setArgb(x, y, ImageBuffer.WHITE);
+                    }
+                }
+            }
+        }
+        rowBandExecutor = new RowBandExecutor(parallelism);
+        labeler = new ConnectedComponentLabeler(Connectivity.FOUR, rowBandExecutor);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        rowBandExecutor.shutdown();
+    }
+
+    @Benchmark
+    public LabelImage benchmarkLabel() {
+        return labeler.label(imageBuffer);
+    }
+}
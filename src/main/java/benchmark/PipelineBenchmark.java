@@ -0,0 +1,182 @@
+package benchmark;
+
+import Application.AnalysisPipeline;
+import Application.AnalysisResult;
+import Application.BinaryImage;
+import Application.ComponentTable;
+import Application.HsbPlanes;
+import Application.ImageAnalysisExecutor;
+import Application.ImageBuffer;
+import Application.ImageProcessor;
+import Application.LabeledImage;
+import Application.RowBandExecutor;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.StackPane;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+// The PipelineBenchmark class measures the flow a user runs in the GUI, open, convert, refine and superimpose, from end to end,
+// and each of its stages on its own. The threads set the parallelism of the conversion and labeling,
+// and the number of CPU permits of the batch, so running over them gives the scaling curve.
+// Run it with PipelineBenchmarkRunner to get the allocation profile and compare the results with a baseline.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PipelineBenchmark extends TrayBenchmark {
+    // The number of trays analysed by the batch benchmark.
+    private static final int BATCH_SIZE = 8;
+
+    // The number of threads each stage may use.
+    @Param({"1", "2", "4", "8"})
+    private int threads;
+
+    private ImageProcessor imageProcessor;
+    private Image trayImage;
+    private ImageView trayImageView;
+
+    // The input of each stage, worked out once by the stages before it.
+    private ImageView bwImageView;
+    private ImageView refinedImageView;
+    private LabeledImage labeledImage;
+    private ComponentTable componentTable;
+
+    // The pipeline and the executor of the batch benchmarks.
+    private RowBandExecutor rowBandExecutor;
+    private AnalysisPipeline analysisPipeline;
+    private AnalysisPipeline sequentialPipeline;
+    private ImageAnalysisExecutor analysisExecutor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        renderTray();
+        imageProcessor = createImageProcessor();
+        imageProcessor.getConversionManager().setParallelism(threads);
+        imageProcessor.getUnionFindManager().setParallelism(threads);
+        trayImage = trayFixture.getImage().toImage();
+        trayImageView = imageProcessor.createNewImageView(trayImage, trayImage.getWidth(), trayImage.getHeight());
+
+        bwImageView = imageProcessor.convertToBlackAndWhite(trayImageView, HUE_ADJUSTMENT, SATURATION_FACTOR, BRIGHTNESS_FACTOR);
+        refinedImageView = imageProcessor.refineBlackAndWhiteImage(bwImageView);
+        labeledImage = imageProcessor.getLabeledImage(refinedImageView.getImage());
+        componentTable = imageProcessor.getComponentTable(labeledImage);
+
+        rowBandExecutor = new RowBandExecutor(threads);
+        analysisPipeline = new AnalysisPipeline(selections, HUE_ADJUSTMENT, SATURATION_FACTOR, BRIGHTNESS_FACTOR, rowBandExecutor);
+        sequentialPipeline = new AnalysisPipeline(selections, HUE_ADJUSTMENT, SATURATION_FACTOR, BRIGHTNESS_FACTOR);
+        analysisExecutor = new ImageAnalysisExecutor(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        imageProcessor.getConversionManager().setParallelism(1);
+        imageProcessor.getUnionFindManager().setParallelism(1);
+        rowBandExecutor.shutdown();
+        analysisExecutor.close();
+    }
+
+    //------------------------
+    // End to end
+    //------------------------
+
+    // Open, convert, refine and superimpose, with nothing kept from the last call.
+    @Benchmark
+    public StackPane benchmarkEndToEnd() {
+        // Opening an image drops everything worked out for the last one.
+        imageProcessor.invalidateImagePyramid();
+        imageProcessor.invalidateAnalyses();
+        ImageView convertedImageView = imageProcessor.convertToBlackAndWhite(trayImageView, HUE_ADJUSTMENT, SATURATION_FACTOR, BRIGHTNESS_FACTOR);
+        ImageView refined = imageProcessor.refineBlackAndWhiteImage(convertedImageView);
+        return superimpose(imageProcessor.getComponentTable(imageProcessor.getLabeledImage(refined.getImage())));
+    }
+
+    // The whole analysis of one tray through the AnalysisPipeline, with the conversion split over the threads.
+    @Benchmark
+    public AnalysisResult benchmarkAnalysisPipeline() {
+        return analysisPipeline.analyse(trayFixture.getImage());
+    }
+
+    // A batch of trays, one per virtual thread, with as many analysed at the same time as there are threads.
+    @Benchmark
+    public int benchmarkBatch() throws Exception {
+        List<Callable<ImageBuffer>> loads = Collections.nCopies(BATCH_SIZE, trayFixture::getImage);
+        int[] pills = {0};
+        analysisExecutor.analyseAll(loads, sequentialPipeline::analyse,
+                new ImageAnalysisExecutor.ResultListener<>() {
+                    @Override
+                    public void onResult(int index, AnalysisResult result) {
+                        pills[0] += result.getPillCount();
+                    }
+
+                    @Override
+                    public void onFailure(int index, Exception failure) {
+                        throw new IllegalStateException(failure);
+                    }
+                });
+        return pills[0];
+    }
+
+    //------------------------
+    // Stages
+    //------------------------
+
+    // Opening: the hue, saturation and brightness planes of the tray.
+    @Benchmark
+    public HsbPlanes benchmarkOpen() {
+        imageProcessor.invalidateImagePyramid();
+        return imageProcessor.getHsbPlanes(trayImage);
+    }
+
+    // Converting with the planes kept, as when a slider is moved.
+    @Benchmark
+    public ImageView benchmarkConvert() {
+        return imageProcessor.convertToBlackAndWhite(trayImageView, HUE_ADJUSTMENT, SATURATION_FACTOR, BRIGHTNESS_FACTOR);
+    }
+
+    // Refining, labeling the black and white tray again each time.
+    @Benchmark
+    public ImageView benchmarkRefine() {
+        imageProcessor.invalidateAnalyses();
+        return imageProcessor.refineBlackAndWhiteImage(bwImageView);
+    }
+
+    // Labeling the refined tray: joining its sets and finding its boundary.
+    @Benchmark
+    public LabeledImage benchmarkLabel() {
+        return imageProcessor.labelImage(labeledImage.getBinaryImage());
+    }
+
+    // The statistics of the sets, including the votes that pick the most common PillSelection of each set.
+    @Benchmark
+    public ComponentTable benchmarkComponentTable() {
+        BinaryImage refined = labeledImage.getBinaryImage();
+        return imageProcessor.getComponentTable(refined, labeledImage.getUnionFind());
+    }
+
+    // Drawing the rectangles, their numbers and their tooltips.
+    @Benchmark
+    public StackPane benchmarkSuperimpose() {
+        return superimpose(componentTable);
+    }
+
+    // Counting the pills by name.
+    @Benchmark
+    public Map<String, Integer> benchmarkCountPills() {
+        return imageProcessor.countPills(componentTable);
+    }
+
+    // Method to superimpose the rectangles of the sets on the tray, the same as the Controller does.
+    private StackPane superimpose(ComponentTable componentTable) {
+        // Every rectangle drawn is kept in these, so they are cleared to stop them growing from call to call.
+        imageProcessor.getRectangleSizes().clear();
+        imageProcessor.getNumberTexts().clear();
+        ImageView newImageView = imageProcessor.createNewImageView(trayImage, trayImage.getWidth(), trayImage.getHeight());
+        StackPane stackPane = new StackPane(newImageView);
+        imageProcessor.createRectangles(stackPane, newImageView, trayImage, componentTable);
+        return stackPane;
+    }
+}
@@ -0,0 +1,73 @@
+package benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// The PipelineBenchmarkRunner class runs the PipelineBenchmark with the GC profiler, over every thread count,
+// on a 12 megapixel tray with 200 pills in four colors, noise and touching pills.
+// The results are written as JSON, and compared with the results of an earlier run if a baseline is given.
+//
+// Usage: PipelineBenchmarkRunner [--result FILE] [--baseline FILE] [--threshold PERCENT] [--megapixels MP] [--include REGEX]
+public class PipelineBenchmarkRunner {
+    // The default file the results are written to.
+    public static final String DEFAULT_RESULT_FILE = "pipeline-benchmark.json";
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        Path resultFile = Path.of(DEFAULT_RESULT_FILE);
+        Path baselineFile = null;
+        double thresholdPercent = BenchmarkBaseline.DEFAULT_THRESHOLD_PERCENT;
+        String megapixels = "12";
+        String include = PipelineBenchmark.class.getSimpleName();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--result" -> resultFile = Path.of(args[++i]);
+                    case "--baseline" -> baselineFile = Path.of(args[++i]);
+                    case "--threshold" -> thresholdPercent = Double.parseDouble(args[++i]);
+                    case "--megapixels" -> megapixels = args[++i];
+                    case "--include" -> include = args[++i];
+                    default -> throw new IllegalArgumentException(args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println("Usage: PipelineBenchmarkRunner [--result FILE] [--baseline FILE] [--threshold PERCENT] "
+                    + "[--megapixels MP] [--include REGEX]");
+            System.exit(2);
+        }
+
+        // Read the baseline before the run, in case it is the same file the results are written to.
+        BenchmarkBaseline baseline = baselineFile != null ? new BenchmarkBaseline(baselineFile) : null;
+        Path resultDirectory = resultFile.toAbsolutePath().getParent();
+        if (resultDirectory != null) Files.createDirectories(resultDirectory);
+
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .param("megapixels", megapixels)
+                .param("pillCount", "200")
+                .param("pillColors", "4")
+                .param("noise", "16")
+                .param("touchingPercent", "30")
+                .param("selectionCount", "4")
+                .param("threads", "1", "2", "4", "8")
+                .forks(1)
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultFile.toString());
+        new Runner(options.build()).run();
+
+        if (baseline != null) {
+            int regressions = baseline.compare(resultFile, thresholdPercent, System.out);
+            System.exit(regressions == 0 ? 0 : 1);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package benchmark;
+
+import Application.BinaryImage;
+
+import java.util.Random;
+
+// The PixelTopology enum renders black and white images whose white regions are shaped to stress a union-find
+// in different ways when their pixels are joined row by row.
+public enum PixelTopology {
+    // A square spiral one pixel wide with one pixel gaps: a single set whose path winds through the whole image,
+    // so the rows keep joining the ends of very long chains.
+    SPIRAL {
+        @Override
+        void draw(BinaryImage image, Random random) {
+            int left = 0, top = 0, right = image.getWidth() - 1, bottom = image.getHeight() - 1;
+            while (left <= right && top <= bottom) {
+                for (int x = left; x <= right; x++) image.setWhite(x, top);
+                for (int y = top; y <= bottom; y++) image.setWhite(right, y);
+                if (top + 2 <= bottom) for (int x = left; x <= right; x++) image.setWhite(x, bottom);
+                // The left side stops below the top, leaving the gap the next turn of the spiral runs through.
+                if (left + 2 <= right) for (int y = top + 2; y <= bottom; y++) image.setWhite(left, y);
+                left += 2;
+                top += 2;
+                right -= 2;
+                bottom -= 2;
+                // Join this turn to the next one.
+                if (left <= right && top <= bottom) image.setWhite(left - 1, top);
+            }
+        }
+    },
+    // Teeth one pixel wide with one pixel gaps, joined by a spine along the bottom row:
+    // every tooth is its own set until the last row merges all of them at once.
+    COMB {
+        @Override
+        void draw(BinaryImage image, Random random) {
+            for (int x = 0; x < image.getWidth(); x += 2) {
+                for (int y = 0; y < image.getHeight(); y++) image.setWhite(x, y);
+            }
+            for (int x = 0; x < image.getWidth(); x++) image.setWhite(x, image.getHeight() - 1);
+        }
+    },
+    // Every other pixel white: with 4-connectivity no two white pixels touch, so there are as many sets as white pixels
+    // and no union ever succeeds.
+    CHECKERBOARD {
+        @Override
+        void draw(BinaryImage image, Random random) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                for (int x = y & 1; x < image.getWidth(); x += 2) image.setWhite(x, y);
+            }
+        }
+    },
+    // The whole image white: one giant set that every union lands in.
+    BLOB {
+        @Override
+        void draw(BinaryImage image, Random random) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                for (int x = 0; x < image.getWidth(); x++) image.setWhite(x, y);
+            }
+        }
+    },
+    // Many specks of one to three pixels across, covering about a tenth of the image, like noise left by the conversion.
+    SPECKS {
+        @Override
+        void draw(BinaryImage image, Random random) {
+            int specks = image.getWidth() * image.getHeight() / 40;
+            for (int i = 0; i < specks; i++) {
+                int size = 1 + random.nextInt(3);
+                int left = random.nextInt(image.getWidth() - size + 1), top = random.nextInt(image.getHeight() - size + 1);
+                for (int y = top; y < top + size; y++) {
+                    for (int x = left; x < left + size; x++) image.setWhite(x, y);
+                }
+            }
+        }
+    };
+
+    // Method to render the topology into a square image. The same size and seed always render the same image.
+    public BinaryImage render(int size, long seed) {
+        BinaryImage image = new BinaryImage(size, size);
+        draw(image, new Random(seed));
+        return image;
+    }
+
+    // Method to draw the white pixels of the topology into an all black image.
+    abstract void draw(BinaryImage image, Random random);
+}
@@ -0,0 +1,70 @@
+package benchmark;
+
+import Application.BatchAnalyser;
+import Application.BinaryImage;
+import Application.ImageProcessor;
+import Application.PillSelection;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+
+// The TrayBenchmark class is the base of the benchmarks that run on a synthetic pill tray.
+// The tray and the selections are parametrized, so each benchmark can be run over the resolutions and trays it is sensitive to,
+// for example: -p megapixels=12 -p selectionCount=1,8. The 50 megapixel trays need a heap of about 4 GB,
+// so every fork is given one, whatever the default heap of the machine is.
+@State(Scope.Thread)
+@Fork(jvmArgsAppend = "-Xmx4g")
+public abstract class TrayBenchmark {
+    // The adjustments the pills are converted with, the same as the starting values of the sliders.
+    protected static final double HUE_ADJUSTMENT = BatchAnalyser.DEFAULT_HUE_ADJUSTMENT;
+    protected static final double SATURATION_FACTOR = BatchAnalyser.DEFAULT_SATURATION_FACTOR;
+    protected static final double BRIGHTNESS_FACTOR = BatchAnalyser.DEFAULT_BRIGHTNESS_FACTOR;
+
+    // The resolution of the tray in megapixels.
+    @Param({"1", "12", "50"})
+    protected double megapixels;
+
+    // The number of pills on the tray.
+    @Param({"20", "200"})
+    protected int pillCount;
+
+    // The number of colors the pills are drawn in.
+    @Param({"1", "4"})
+    protected int pillColors;
+
+    // The most each channel of a pixel is moved up or down by the noise.
+    @Param({"0", "16"})
+    protected int noise;
+
+    // The share of the pills that touch a neighbour, in percent.
+    @Param({"0", "30"})
+    protected int touchingPercent;
+
+    // The number of PillSelections the pixels are classified against.
+    @Param({"1", "4", "8"})
+    protected int selectionCount;
+
+    // The rendered tray and the selections for it.
+    protected TrayFixture trayFixture;
+    protected List<PillSelection> selections;
+
+    // Method to render the tray and make the selections. Always the same tray for the same parameters.
+    protected void renderTray() {
+        trayFixture = TrayFixture.render(megapixels, pillCount, pillColors, noise, touchingPercent, 42);
+        selections = trayFixture.createSelections(selectionCount, HUE_ADJUSTMENT, SATURATION_FACTOR, BRIGHTNESS_FACTOR);
+    }
+
+    // Method to create an ImageProcessor with the selections, running on one thread so that the results do not depend on the machine.
+    protected ImageProcessor createImageProcessor() {
+        ImageProcessor imageProcessor = new ImageProcessor();
+        selections.forEach(imageProcessor.getPillCapsuleManager()::addPillSelection);
+        imageProcessor.getConversionManager().setParallelism(1);
+        imageProcessor.getUnionFindManager().setParallelism(1);
+        return imageProcessor;
+    }
+
+    // Method to convert the tray to black and white with the selections, as the benchmarks of the later steps start from.
+    protected BinaryImage convertTray(ImageProcessor imageProcessor) {
+        return imageProcessor.convertToBlackAndWhite(trayFixture.getImage(), HUE_ADJUSTMENT, SATURATION_FACTOR, BRIGHTNESS_FACTOR);
+    }
+}
@@ -0,0 +1,215 @@
+package benchmark;
+
+import Application.AnalysisPipeline;
+import Application.ImageBuffer;
+import Application.PillSelection;
+import javafx.scene.paint.Color;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// The TrayFixture class renders a synthetic photo of a pill tray for the benchmarks:
+// capsule shaped pills on a dark tray, laid out on a grid, in up to eight colors, with per-pixel noise,
+// and with some of the pills pushed against their right neighbour so that they touch.
+// It also makes the PillSelections that pick out the pills, so that the benchmarks run the real hot paths with white pixels.
+// The same arguments always render the same tray.
+public class TrayFixture {
+    // The colors the pills are drawn in, far enough apart that each selection only picks out its own pills.
+    public static final int[] PILL_COLORS = {
+            0xFFC81E28,  // red
+            0xFF1EB43C,  // green
+            0xFF2850C8,  // blue
+            0xFFF0DC3C,  // yellow
+            0xFFF0F0F0,  // white
+            0xFFE6821E,  // orange
+            0xFFA03CC8,  // purple
+            0xFF3CC8D2   // cyan
+    };
+    // The color of the tray.
+    public static final int TRAY_COLOR = 0xFF1E1E23;
+    // The ratio of the width to the height of the tray, the same as most camera sensors.
+    private static final double ASPECT_RATIO = 4.0 / 3.0;
+    // The overlap in pixels of two pills that touch.
+    private static final int TOUCHING_OVERLAP = 2;
+
+    // The rendered tray.
+    private final ImageBuffer image;
+    // The number of pills, the number of colors they are drawn in and the noise.
+    private final int pillCount, colorCount, noise;
+    // Half the short and the long side of each pill.
+    private final int radius, length;
+    // The number of pills of each color.
+    private final int[] pillsPerColor;
+
+    // Constructor that sets the rendered tray and what it was rendered with.
+    private TrayFixture(ImageBuffer image, int pillCount, int colorCount, int noise, int radius, int length, int[] pillsPerColor) {
+        this.image = image;
+        this.pillCount = pillCount;
+        this.colorCount = colorCount;
+        this.noise = noise;
+        this.radius = radius;
+        this.length = length;
+        this.pillsPerColor = pillsPerColor;
+    }
+
+    //------------------------
+    // Rendering
+    //------------------------
+
+    // Method to render a tray.
+    // The megapixels set the resolution, the noise is the most each channel of a pixel is moved up or down,
+    // and the touching percent is the share of the pills that are pushed against their right neighbour.
+    public static TrayFixture render(double megapixels, int pillCount, int colorCount, int noise, int touchingPercent, long seed) {
+        if (megapixels <= 0) throw new IllegalArgumentException("Megapixels <= 0 is not allowed");
+        if (pillCount <= 0) throw new IllegalArgumentException("Pill count <= 0 is not allowed");
+        if (colorCount <= 0 || colorCount > PILL_COLORS.length) throw new IllegalArgumentException("Color count must be between 1 and " + PILL_COLORS.length);
+        if (noise < 0 || noise > 255) throw new IllegalArgumentException("Noise must be between 0 and 255");
+        if (touchingPercent < 0 || touchingPercent > 100) throw new IllegalArgumentException("Touching percent must be between 0 and 100");
+
+        int width = (int) Math.round(Math.sqrt(megapixels * 1_000_000 * ASPECT_RATIO));
+        int height = (int) Math.round(width / ASPECT_RATIO);
+        ImageBuffer image = new ImageBuffer(width, height);
+        Arrays.fill(image.getPixels(), TRAY_COLOR);
+
+        // Lay the pills out on a grid with about the same ratio as the tray, one pill in each cell.
+        int columns = Math.max(1, (int) Math.ceil(Math.sqrt(pillCount * ASPECT_RATIO)));
+        int rows = (pillCount + columns - 1) / columns;
+        int cell = Math.min(width / columns, height / rows);
+        if (cell < 8) throw new IllegalArgumentException("Too many pills for the resolution");
+        // The short side of a pill fills 0.3 of its cell and the long side 0.48, so pills never touch unless they are pushed.
+        int radius = Math.max(2, (int) (cell * 0.15));
+        int length = (int) (cell * 0.24);
+
+        // Pick the color, the direction and whether each pill is pushed first, since a pushed pill needs the size of its neighbour.
+        Random random = new Random(seed);
+        int[] colors = new int[pillCount];
+        boolean[] horizontal = new boolean[pillCount];
+        boolean[] pushed = new boolean[pillCount];
+        int[] pillsPerColor = new int[colorCount];
+        for (int i = 0; i < pillCount; i++) {
+            colors[i] = i % colorCount;
+            pillsPerColor[colors[i]]++;
+            horizontal[i] = random.nextBoolean();
+            pushed[i] = random.nextInt(100) < touchingPercent;
+            // A pill that is pushed into must stay where it is, or it would move away from the pill pushed into it.
+            if (i > 0 && pushed[i - 1]) pushed[i] = false;
+        }
+
+        for (int i = 0; i < pillCount; i++) {
+            int column = i % columns, row = i / columns;
+            int centerX = column * cell + cell / 2;
+            int centerY = row * cell + cell / 2;
+            int halfWidth = horizontal[i] ? length : radius;
+            int halfHeight = horizontal[i] ? radius : length;
+
+            // Push the pill right until it overlaps the pill in the next cell of the same row, if there is one.
+            if (pushed[i] && column + 1 < columns && i + 1 < pillCount) {
+                int neighbourHalfWidth = horizontal[i + 1] ? length : radius;
+                centerX += cell - halfWidth - neighbourHalfWidth + TOUCHING_OVERLAP;
+            }
+            drawCapsule(image, centerX, centerY, halfWidth, halfHeight, radius, PILL_COLORS[colors[i]]);
+        }
+
+        addNoise(image, noise, random.nextLong());
+        return new TrayFixture(image, pillCount, colorCount, noise, radius, length, pillsPerColor);
+    }
+
+    // Method to draw a capsule: a rectangle with round ends, given its center, its half width and height and the radius of the ends.
+    private static void drawCapsule(ImageBuffer image, int centerX, int centerY, int halfWidth, int halfHeight, int radius, int argb) {
+        // The straight part of the capsule runs between the centers of its two ends.
+        int innerX = halfWidth - radius, innerY = halfHeight - radius;
+        int[] pixels = image.getPixels();
+        int width = image.getWidth();
+        for (int y = Math.max(0, centerY - halfHeight); y <= Math.min(image.getHeight() - 1, centerY + halfHeight); y++) {
+            for (int x = Math.max(0, centerX - halfWidth); x <= Math.min(width - 1, centerX + halfWidth); x++) {
+                int dx = Math.max(0, Math.abs(x - centerX) - innerX);
+                int dy = Math.max(0, Math.abs(y - centerY) - innerY);
+                if (dx * dx + dy * dy <= radius * radius) pixels[y * width + x] = argb;
+            }
+        }
+    }
+
+    // Method to move each channel of every pixel up or down by at most the noise, as a camera sensor would.
+    private static void addNoise(ImageBuffer image, int noise, long seed) {
+        if (noise == 0) return;
+        int[] pixels = image.getPixels();
+        int span = 2 * noise + 1;
+        // A xorshift generator, since the 50 megapixel trays need 150 million random numbers.
+        long state = seed | 1;
+        for (int i = 0; i < pixels.length; i++) {
+            state ^= state << 13;
+            state ^= state >>> 7;
+            state ^= state << 17;
+            int argb = pixels[i];
+            int r = clamp(((argb >> 16) & 0xFF) + (int) Long.remainderUnsigned(state, span) - noise);
+            int g = clamp(((argb >> 8) & 0xFF) + (int) Long.remainderUnsigned(state >>> 21, span) - noise);
+            int b = clamp((argb & 0xFF) + (int) Long.remainderUnsigned(state >>> 42, span) - noise);
+            pixels[i] = 0xFF000000 | r << 16 | g << 8 | b;
+        }
+    }
+
+    // Method to clamp a channel between 0 and 255.
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+
+    //------------------------
+    // Selections
+    //------------------------
+
+    // Method to make a PillSelection for each of the first selection count pill colors, as seen after the given adjustments.
+    // There may be more selections than colors on the tray, which only makes each pixel dearer to classify,
+    // or fewer, which leaves the pills of the other colors black.
+    // The threshold covers the noise, and the size range covers a single pill up to a few pills touching.
+    public List<PillSelection> createSelections(int selectionCount, double hueAdjustment, double saturationFactor, double brightnessFactor) {
+        if (selectionCount <= 0 || selectionCount > PILL_COLORS.length) throw new IllegalArgumentException("Selection count must be between 1 and " + PILL_COLORS.length);
+        double colorThreshold = 0.1 + 3.0 * noise / 255 * Math.max(1, Math.max(saturationFactor, brightnessFactor));
+        // A pill has two boundary pixels on each of its rows, and two pills that touch side by side have at most four.
+        int minSize = radius;
+        int maxSize = 4 * (2 * length + 1);
+
+        List<PillSelection> selections = new ArrayList<>();
+        for (int i = 0; i < selectionCount; i++) {
+            int adjusted = AnalysisPipeline.adjustArgb(PILL_COLORS[i], hueAdjustment, saturationFactor, brightnessFactor);
+            Color color = Color.rgb((adjusted >> 16) & 0xFF, (adjusted >> 8) & 0xFF, adjusted & 0xFF);
+            selections.add(new PillSelection("Pill " + (i + 1), color, colorThreshold, minSize, maxSize));
+        }
+        return selections;
+    }
+
+    //------------------------
+    // Getters
+    //------------------------
+
+    // Getter for the rendered tray.
+    public ImageBuffer getImage() {
+        return image;
+    }
+
+    // Getter for the number of pills.
+    public int getPillCount() {
+        return pillCount;
+    }
+
+    // Getter for the number of colors the pills are drawn in.
+    public int getColorCount() {
+        return colorCount;
+    }
+
+    // Getter for the number of pills drawn in a color.
+    public int getPillCount(int color) {
+        return pillsPerColor[color];
+    }
+
+    // Getter for half the short side of each pill.
+    public int getRadius() {
+        return radius;
+    }
+
+    // Getter for half the long side of each pill.
+    public int getLength() {
+        return length;
+    }
+}
@@ -1,32 +1,44 @@
 package benchmark;
 
+import Application.BinaryImage;
 import Application.ImageProcessor;
 import Application.UnionFind;
 import Manager.UnionFindManager;
 import javafx.scene.image.WritableImage;
 import org.openjdk.jmh.annotations.*;
 
-@State(Scope.Thread)
-public class UnionFindManagerBenchmark {
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class UnionFindManagerBenchmark extends TrayBenchmark {
 
     private UnionFindManager unionFindManager;
-    private UnionFind unionFind;
+    private BinaryImage bwImage;
     private WritableImage image;
 
     @Setup(Level.Trial)
     public void setup() {
-        ImageProcessor imageProcessor = new ImageProcessor();
-        image = new WritableImage(400, 400);
-        imageProcessor.setup(image);
-        int size = imageProcessor.getWidth() * imageProcessor.getHeight();
-        unionFind = new UnionFind(size);
-        unionFindManager = new UnionFindManager(imageProcessor);
+        renderTray();
+        ImageProcessor imageProcessor = createImageProcessor();
+        // The sets are joined on the black and white tray
+        bwImage = convertTray(imageProcessor);
+        image = bwImage.toImage();
+        unionFindManager = imageProcessor.getUnionFindManager();
     }
 
+    // A new UnionFind for each call, since joining the sets of one that is already joined does almost nothing
     @Benchmark
-    public void benchmarkUnionFind() {
+    public UnionFind benchmarkUnionFind() {
+        UnionFind unionFind = new UnionFind(bwImage.getWidth() * bwImage.getHeight());
         unionFindManager.unionFind(unionFind, image);
+        return unionFind;
     }
-}
-
 
+    @Benchmark
+    public UnionFind benchmarkUnionFindBinaryImage() {
+        UnionFind unionFind = new UnionFind(bwImage.getWidth() * bwImage.getHeight());
+        unionFindManager.unionFind(unionFind, bwImage);
+        return unionFind;
+    }
+}
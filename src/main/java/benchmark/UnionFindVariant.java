@@ -0,0 +1,228 @@
+package benchmark;
+
+import Application.BinaryImage;
+import Application.UnionFind;
+
+import java.util.Arrays;
+
+// The UnionFindVariant enum holds the union-find structures the benchmarks compare. Each one labels the white pixels of
+// a black and white image with 4-connectivity, joining each pixel with the pixels to its right and below the same way the
+// AnalysisPipeline does, then finds the root of every white pixel the way compact() does. Every variant gives the same sets.
+public enum UnionFindVariant {
+    // The Application.UnionFind itself: path halving, with the root of the larger set linked under the root of the smaller one.
+    CURRENT {
+        @Override
+        public int label(BinaryImage image) {
+            UnionFind unionFind = new UnionFind(image.getWidth() * image.getHeight());
+            join(image, unionFind::unionBySize);
+            return countRoots(image, unionFind::find);
+        }
+    },
+    // Path halving with the smaller set linked under the larger one.
+    HALVING_BY_SIZE {
+        @Override
+        public int label(BinaryImage image) {
+            int[] parent = identity(image);
+            int[] size = ones(parent.length);
+            join(image, (p, q) -> {
+                int rootP = findHalving(parent, p), rootQ = findHalving(parent, q);
+                if (rootP == rootQ) return;
+                if (size[rootP] < size[rootQ]) {
+                    int swap = rootP;
+                    rootP = rootQ;
+                    rootQ = swap;
+                }
+                parent[rootQ] = rootP;
+                size[rootP] += size[rootQ];
+            });
+            return countRoots(image, p -> findHalving(parent, p));
+        }
+    },
+    // Path splitting, where every element on the path points at its grandparent, with the smaller set linked under the larger one.
+    SPLITTING_BY_SIZE {
+        @Override
+        public int label(BinaryImage image) {
+            int[] parent = identity(image);
+            int[] size = ones(parent.length);
+            join(image, (p, q) -> {
+                int rootP = findSplitting(parent, p), rootQ = findSplitting(parent, q);
+                if (rootP == rootQ) return;
+                if (size[rootP] < size[rootQ]) {
+                    int swap = rootP;
+                    rootP = rootQ;
+                    rootQ = swap;
+                }
+                parent[rootQ] = rootP;
+                size[rootP] += size[rootQ];
+            });
+            return countRoots(image, p -> findSplitting(parent, p));
+        }
+    },
+    // Path halving with the set of lower rank linked under the other, and a byte of rank for each element instead of an int of size.
+    HALVING_BY_RANK {
+        @Override
+        public int label(BinaryImage image) {
+            int[] parent = identity(image);
+            byte[] rank = new byte[parent.length];
+            join(image, (p, q) -> {
+                int rootP = findHalving(parent, p), rootQ = findHalving(parent, q);
+                if (rootP == rootQ) return;
+                if (rank[rootP] < rank[rootQ]) {
+                    parent[rootP] = rootQ;
+                } else if (rank[rootP] > rank[rootQ]) {
+                    parent[rootQ] = rootP;
+                } else {
+                    parent[rootQ] = rootP;
+                    rank[rootP]++;
+                }
+            });
+            return countRoots(image, p -> findHalving(parent, p));
+        }
+    },
+    // A single array: a root holds minus the size of its set, every other element holds its parent. Path halving.
+    SIGNED_SIZE {
+        @Override
+        public int label(BinaryImage image) {
+            int[] parent = new int[image.getWidth() * image.getHeight()];
+            Arrays.fill(parent, -1);
+            join(image, (p, q) -> {
+                int rootP = findSigned(parent, p), rootQ = findSigned(parent, q);
+                if (rootP == rootQ) return;
+                // The sizes are negative, so the larger set has the smaller value.
+                if (parent[rootP] > parent[rootQ]) {
+                    int swap = rootP;
+                    rootP = rootQ;
+                    rootQ = swap;
+                }
+                parent[rootP] += parent[rootQ];
+                parent[rootQ] = rootP;
+            });
+            return countRoots(image, p -> findSigned(parent, p));
+        }
+    },
+    // Two passes over the image. The first gives each pixel a provisional label from the pixels to its left and above,
+    // and records the labels found to be equal in a small equivalence array, with one entry per provisional label
+    // instead of one per pixel. The second pass resolves the label of every pixel.
+    LABEL_EQUIVALENCE {
+        @Override
+        public int label(BinaryImage image) {
+            int width = image.getWidth(), height = image.getHeight();
+            int[] labels = new int[width * height];
+            // The provisional labels start at 1, so 0 means black. The array grows as labels are added.
+            int[] equivalence = new int[64];
+            int nextLabel = 1;
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    if (!image.isWhite(x, y)) continue;
+                    int p = y * width + x;
+                    int left = x > 0 ? labels[p - 1] : 0;
+                    int above = y > 0 ? labels[p - width] : 0;
+                    if (left == 0 && above == 0) {
+                        if (nextLabel == equivalence.length) equivalence = Arrays.copyOf(equivalence, nextLabel * 2);
+                        equivalence[nextLabel] = nextLabel;
+                        labels[p] = nextLabel++;
+                    } else if (left == 0 || above == 0) {
+                        labels[p] = left + above;
+                    } else {
+                        // Both neighbours are white, so their labels are equal. The smaller root is kept.
+                        int rootLeft = findHalving(equivalence, left), rootAbove = findHalving(equivalence, above);
+                        int root = Math.min(rootLeft, rootAbove);
+                        equivalence[Math.max(rootLeft, rootAbove)] = root;
+                        labels[p] = root;
+                    }
+                }
+            }
+
+            // Point every provisional label at its final root. A root is always smaller than the labels under it.
+            int components = 0;
+            for (int label = 1; label < nextLabel; label++) {
+                equivalence[label] = equivalence[label] == label ? label : equivalence[equivalence[label]];
+                if (equivalence[label] == label) components++;
+            }
+            for (int p = 0; p < labels.length; p++) {
+                labels[p] = equivalence[labels[p]];
+            }
+            return components;
+        }
+    };
+
+    // Method to label the white pixels of an image. Returns the number of sets of white pixels.
+    public abstract int label(BinaryImage image);
+
+    //------------------------
+    // Helpers
+    //------------------------
+
+    // Method to join each white pixel with the white pixels to its right and below, in the order the AnalysisPipeline does.
+    private static void join(BinaryImage image, Union union) {
+        int width = image.getWidth(), height = image.getHeight();
+        image.forEachWhite((x, y) -> {
+            int p = y * width + x;
+            if (x < width - 1 && image.isWhite(x + 1, y)) union.union(p, p + 1);
+            if (y < height - 1 && image.isWhite(x, y + 1)) union.union(p, p + width);
+        });
+    }
+
+    // Method to find the root of every white pixel, as compact() does, and count the white pixels that are roots.
+    private static int countRoots(BinaryImage image, Find find) {
+        int width = image.getWidth();
+        int[] roots = {0};
+        image.forEachWhite((x, y) -> {
+            int p = y * width + x;
+            if (find.find(p) == p) roots[0]++;
+        });
+        return roots[0];
+    }
+
+    // Method to find a root with path halving: every other element on the path points at its grandparent.
+    private static int findHalving(int[] parent, int p) {
+        while (parent[p] != p) {
+            parent[p] = parent[parent[p]];
+            p = parent[p];
+        }
+        return p;
+    }
+
+    // Method to find a root with path splitting: every element on the path points at its grandparent.
+    private static int findSplitting(int[] parent, int p) {
+        while (parent[p] != p) {
+            int next = parent[p];
+            parent[p] = parent[next];
+            p = next;
+        }
+        return p;
+    }
+
+    // Method to find a root in a signed size array, with path halving.
+    private static int findSigned(int[] parent, int p) {
+        while (parent[p] >= 0) {
+            int next = parent[p];
+            if (parent[next] >= 0) parent[p] = parent[next];
+            p = next;
+        }
+        return p;
+    }
+
+    // Method to make an array where every element is its own parent.
+    private static int[] identity(BinaryImage image) {
+        int[] parent = new int[image.getWidth() * image.getHeight()];
+        for (int i = 0; i < parent.length; i++) parent[i] = i;
+        return parent;
+    }
+
+    // Method to make an array of ones.
+    private static int[] ones(int length) {
+        int[] array = new int[length];
+        Arrays.fill(array, 1);
+        return array;
+    }
+
+    // Interfaces for the union and find of a variant.
+    private interface Union {
+        void union(int p, int q);
+    }
+
+    private interface Find {
+        int find(int p);
+    }
+}
@@ -0,0 +1,36 @@
+package benchmark;
+
+import Application.BinaryImage;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Compares the union-find structures of UnionFindVariant on images whose white regions are shaped to be hard for them.
+// Each operation labels every white pixel of the image, the same work as joining and compacting the sets of an image.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class UnionFindVariantsBenchmark {
+
+    @Param({"SPIRAL", "COMB", "CHECKERBOARD", "BLOB", "SPECKS"})
+    public PixelTopology topology;
+
+    @Param({"CURRENT", "HALVING_BY_SIZE", "SPLITTING_BY_SIZE", "HALVING_BY_RANK", "SIGNED_SIZE", "LABEL_EQUIVALENCE"})
+    public UnionFindVariant variant;
+
+    // The width and height of the image in pixels.
+    @Param({"2000"})
+    public int side;
+
+    private BinaryImage image;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        image = topology.render(side, 42);
+    }
+
+    @Benchmark
+    public int benchmarkLabel() {
+        return variant.label(image);
+    }
+}
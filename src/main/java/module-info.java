@@ -1,7 +1,10 @@
 module pharmacy.pillcapsuleanalyser {
     requires javafx.controls;
     requires javafx.fxml;
+    requires java.desktop;
     requires jmh.core;
+    requires jdk.jfr;
+    requires java.management;
 
 
     opens Application to javafx.fxml;
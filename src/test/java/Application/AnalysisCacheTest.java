@@ -0,0 +1,140 @@
+package Application;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalysisCacheTest {
+    private final ImageProcessor imageProcessor = new ImageProcessor();
+
+    // A labeling of an all white image of the given size
+    private LabeledImage label(int width, int height) {
+        BinaryImage bwImage = new BinaryImage(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                bwImage.setWhite(x, y);
+            }
+        }
+        return imageProcessor.labelImage(bwImage);
+    }
+
+    @Test
+    void secondLookupIsHit() {
+        AnalysisCache analysisCache = new AnalysisCache(AnalysisCache.DEFAULT_MAX_BYTES);
+        Object image = new Object();
+        AtomicInteger labelings = new AtomicInteger();
+
+        LabeledImage first = analysisCache.get(image, () -> {
+            labelings.incrementAndGet();
+            return label(8, 8);
+        });
+        LabeledImage second = analysisCache.get(image, () -> {
+            labelings.incrementAndGet();
+            return label(8, 8);
+        });
+
+        assertSame(first, second);
+        assertEquals(1, labelings.get());
+        assertEquals(1, analysisCache.getHits());
+        assertEquals(1, analysisCache.getMisses());
+        assertEquals(first.getEstimatedBytes(), analysisCache.getBytes());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        long entryBytes = label(8, 8).getEstimatedBytes();
+        AnalysisCache analysisCache = new AnalysisCache(2 * entryBytes);
+        Object a = new Object(), b = new Object(), c = new Object();
+
+        analysisCache.get(a, () -> label(8, 8));
+        analysisCache.get(b, () -> label(8, 8));
+        // Use a again, so b is the least recently used
+        analysisCache.get(a, () -> label(8, 8));
+        analysisCache.get(c, () -> label(8, 8));
+
+        assertEquals(2, analysisCache.size());
+        assertEquals(2 * entryBytes, analysisCache.getBytes());
+        long misses = analysisCache.getMisses();
+        analysisCache.get(a, () -> label(8, 8));
+        analysisCache.get(c, () -> label(8, 8));
+        assertEquals(misses, analysisCache.getMisses());
+        analysisCache.get(b, () -> label(8, 8));
+        assertEquals(misses + 1, analysisCache.getMisses());
+    }
+
+    @Test
+    void tooLargeEntryIsNotKept() {
+        AnalysisCache analysisCache = new AnalysisCache(1);
+        Object image = new Object();
+        assertNotNull(analysisCache.get(image, () -> label(4, 4)));
+        assertEquals(0, analysisCache.size());
+        assertEquals(0, analysisCache.getBytes());
+    }
+
+    @Test
+    void invalidateDropsEntry() {
+        AnalysisCache analysisCache = new AnalysisCache(AnalysisCache.DEFAULT_MAX_BYTES);
+        Object image = new Object(), other = new Object();
+        LabeledImage first = analysisCache.get(image, () -> label(4, 4));
+        analysisCache.get(other, () -> label(4, 4));
+
+        analysisCache.invalidate(image);
+        assertEquals(1, analysisCache.size());
+        assertNotSame(first, analysisCache.get(image, () -> label(4, 4)));
+
+        analysisCache.clear();
+        assertEquals(0, analysisCache.size());
+        assertEquals(0, analysisCache.getBytes());
+    }
+
+    @Test
+    void componentTableIsKeptUntilVersionChanges() {
+        LabeledImage labeledImage = label(4, 4);
+        AtomicInteger builds = new AtomicInteger();
+        PillSelection[][] pillSelectionArray = new PillSelection[4][4];
+
+        ComponentTable first = labeledImage.getComponentTable(0, pillSelectionArray, () -> {
+            builds.incrementAndGet();
+            return ComponentTable.build(labeledImage.getBinaryImage(), labeledImage.getUnionFind(), null, List.of());
+        });
+        assertSame(first, labeledImage.getComponentTable(0, pillSelectionArray, () -> {
+            builds.incrementAndGet();
+            return null;
+        }));
+        assertEquals(1, builds.get());
+        labeledImage.getComponentTable(1, pillSelectionArray, () -> {
+            builds.incrementAndGet();
+            return first;
+        });
+        labeledImage.getComponentTable(1, new PillSelection[4][4], () -> {
+            builds.incrementAndGet();
+            return first;
+        });
+        assertEquals(3, builds.get());
+        assertEquals(1, first.size());
+    }
+
+    @Test
+    void labelsWithoutHoldingTheLock() {
+        AnalysisCache analysisCache = new AnalysisCache(AnalysisCache.DEFAULT_MAX_BYTES);
+        Object image = new Object();
+        LabeledImage[] keptFirst = new LabeledImage[1];
+
+        // The labeler runs outside the lock, so the counts can be read and the same image looked up while it does
+        LabeledImage labeledImage = analysisCache.get(image, () -> {
+            assertFalse(Thread.holdsLock(analysisCache));
+            assertEquals(1, analysisCache.getMisses());
+            keptFirst[0] = analysisCache.get(image, () -> label(4, 4));
+            return label(4, 4);
+        });
+
+        // The labeling that was kept first is the one returned to both lookups
+        assertSame(keptFirst[0], labeledImage);
+        assertSame(labeledImage, analysisCache.get(image, () -> label(4, 4)));
+        assertEquals(1, analysisCache.size());
+        assertEquals(labeledImage.getEstimatedBytes(), analysisCache.getBytes());
+    }
+}
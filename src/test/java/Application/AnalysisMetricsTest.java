@@ -0,0 +1,170 @@
+package Application;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Test;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalysisMetricsTest {
+
+    @Test
+    void percentilesAreWithinABucket() {
+        AnalysisMetrics analysisMetrics = new AnalysisMetrics(null);
+        // Latencies of 1 to 1000 microseconds
+        for (int i = 1; i <= 1000; i++) {
+            analysisMetrics.recordStage(AnalysisStageEvent.Stage.LABEL, i * 1000L);
+        }
+
+        assertEquals(1000, analysisMetrics.getStageCount("label"));
+        assertEquals(0, analysisMetrics.getStageCount("BOUNDARY"));
+        for (double percentile : new double[]{50, 95, 99}) {
+            double expected = percentile / 100;
+            assertEquals(expected, analysisMetrics.getLatencyPercentileMillis("LABEL", percentile), expected / 8);
+        }
+        assertEquals(0, analysisMetrics.getLatencyPercentileMillis("BOUNDARY", 50));
+    }
+
+    @Test
+    void bucketsCoverEveryLatency() {
+        int previous = -1;
+        for (long nanos : new long[]{0, 1, 7, 8, 9, 15, 16, 1000, 123_456_789, Long.MAX_VALUE}) {
+            int bucket = AnalysisMetrics.LatencyHistogram.bucketOf(nanos);
+            assertTrue(bucket > previous);
+            assertTrue(AnalysisMetrics.LatencyHistogram.lowerBound(bucket) <= nanos);
+            assertTrue(AnalysisMetrics.LatencyHistogram.upperBound(bucket) >= nanos);
+            previous = bucket;
+        }
+    }
+
+    @Test
+    void countsFromManyThreads() throws InterruptedException {
+        AnalysisMetrics analysisMetrics = new AnalysisMetrics(null);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int task = 0; task < 4; task++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    analysisMetrics.imageStarted();
+                    analysisMetrics.recordStage(AnalysisStageEvent.Stage.CLASSIFY, i);
+                    analysisMetrics.imageFinished(100, 2);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(40_000, analysisMetrics.getImagesAnalysed());
+        assertEquals(80_000, analysisMetrics.getComponentsFound());
+        assertEquals(40_000, analysisMetrics.getStageCount("CLASSIFY"));
+        assertEquals(0, analysisMetrics.getInFlightAnalyses());
+        assertTrue(analysisMetrics.getMegapixelsPerSecond() > 0);
+
+        analysisMetrics.reset();
+        assertEquals(0, analysisMetrics.getImagesAnalysed());
+        assertEquals(0, analysisMetrics.getStageCount("CLASSIFY"));
+    }
+
+    @Test
+    void pipelineAndCacheAreRecorded() {
+        ImageProcessor imageProcessor = new ImageProcessor();
+        AnalysisMetrics analysisMetrics = imageProcessor.getAnalysisMetrics();
+        PillSelection red = new PillSelection("Red", Color.rgb(200, 30, 40), 0.2, 1, 100);
+        AnalysisPipeline analysisPipeline = new AnalysisPipeline(List.of(red), 0, 1, 1, new RowBandExecutor(1), analysisMetrics);
+
+        // Two red squares on black
+        ImageBuffer image = new ImageBuffer(40, 20);
+        for (int y = 5; y < 15; y++) {
+            for (int x = 5; x < 15; x++) {
+                image.setArgb(x, y, 0xFFC81E28);
+                image.setArgb(x + 20, y, 0xFFC81E28);
+            }
+        }
+        analysisPipeline.analyse(image);
+
+        assertEquals(1, analysisMetrics.getImagesAnalysed());
+        assertEquals(2, analysisMetrics.getComponentsFound());
+        assertEquals(0, analysisMetrics.getInFlightAnalyses());
+        assertEquals(1, analysisMetrics.getStageCount("CLASSIFY"));
+        assertEquals(2, analysisMetrics.getStageCount("LABEL"));
+        assertEquals(2, analysisMetrics.getStageCount("COMPONENT_STATS"));
+        assertEquals(1, analysisMetrics.getStageCount("FILTER"));
+
+        // The second lookup of the same image is a hit
+        Image bwImage = new BinaryImage(4, 4).toImage();
+        imageProcessor.getLabeledImage(bwImage);
+        imageProcessor.getLabeledImage(bwImage);
+        assertEquals(0.5, analysisMetrics.getCacheHitRate());
+
+        analysisMetrics.reset();
+        assertEquals(0, analysisMetrics.getCacheHits());
+        assertEquals(0, analysisMetrics.getCacheMisses());
+    }
+
+    @Test
+    void guiFlowIsRecorded() {
+        ImageProcessor imageProcessor = new ImageProcessor();
+        AnalysisMetrics analysisMetrics = imageProcessor.getAnalysisMetrics();
+        imageProcessor.getPillCapsuleManager().addPillSelection(new PillSelection("Red", Color.rgb(200, 30, 40), 0.2, 1, 100));
+
+        // Two red squares on black, converted, refined and counted the way the Controller does
+        ImageBuffer image = new ImageBuffer(40, 20);
+        for (int y = 5; y < 15; y++) {
+            for (int x = 5; x < 15; x++) {
+                image.setArgb(x, y, 0xFFC81E28);
+                image.setArgb(x + 20, y, 0xFFC81E28);
+            }
+        }
+        ImageView imageView = new ImageView(image.toImage());
+        imageView.setFitWidth(40);
+        imageView.setFitHeight(20);
+
+        // Converting twice, as after moving a slider, is still one analysis
+        imageProcessor.convertToBlackAndWhite(imageView, 0, 1, 1);
+        ImageView bwImageView = imageProcessor.convertToBlackAndWhite(imageView, 0, 1, 1);
+        assertEquals(1, analysisMetrics.getInFlightAnalyses());
+        assertEquals(0, analysisMetrics.getImagesAnalysed());
+
+        Image refined = imageProcessor.refineBlackAndWhiteImage(bwImageView).getImage();
+        imageProcessor.getComponentTable(imageProcessor.getLabeledImage(refined));
+        assertEquals(0, analysisMetrics.getInFlightAnalyses());
+        assertEquals(1, analysisMetrics.getImagesAnalysed());
+        assertEquals(2, analysisMetrics.getComponentsFound());
+        assertTrue(analysisMetrics.getImagesPerSecond() > 0);
+        assertTrue(analysisMetrics.getMegapixelsPerSecond() > 0);
+
+        // Asking for the table again does not count the image again
+        imageProcessor.getComponentTable(imageProcessor.getLabeledImage(refined));
+        assertEquals(1, analysisMetrics.getImagesAnalysed());
+
+        // A conversion given up for a new image is no longer in flight, and was not analysed
+        imageProcessor.convertToBlackAndWhite(imageView, 0, 1, 1);
+        assertEquals(1, analysisMetrics.getInFlightAnalyses());
+        imageProcessor.invalidateAnalyses();
+        assertEquals(0, analysisMetrics.getInFlightAnalyses());
+        assertEquals(1, analysisMetrics.getImagesAnalysed());
+    }
+
+    @Test
+    void registersWithThePlatformServer() throws JMException {
+        ImageProcessor imageProcessor = new ImageProcessor();
+        ObjectName objectName = imageProcessor.registerAnalysisMetrics("test");
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            assertEquals(0L, mBeanServer.getAttribute(objectName, "ImagesAnalysed"));
+            assertEquals(AnalysisStageEvent.Stage.values().length, ((String[]) mBeanServer.getAttribute(objectName, "StageLatencies")).length);
+        } finally {
+            AnalysisMetrics.unregister(objectName);
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(objectName));
+    }
+}
@@ -0,0 +1,98 @@
+package Application;
+
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalysisPipelineTest {
+    private static final int RED = 0xFFC81E28;
+    private static final int GREEN = 0xFF1EB43C;
+
+    private final List<PillSelection> selections = List.of(
+            new PillSelection("Red", Color.rgb(200, 30, 40), 0.3, 20, 500),
+            new PillSelection("Green", Color.rgb(30, 180, 60), 0.3, 20, 500));
+
+    // A black tray with pills of both colors and specks too small to be pills, placed at random
+    private ImageBuffer randomTray(long seed) {
+        Random random = new Random(seed);
+        ImageBuffer tray = new ImageBuffer(160, 120);
+        Arrays.fill(tray.getPixels(), ImageBuffer.BLACK);
+        for (int i = 0; i < 6; i++) {
+            int radius = random.nextBoolean() ? 12 : 2;
+            int centerX = radius + random.nextInt(160 - 2 * radius);
+            int centerY = radius + random.nextInt(120 - 2 * radius);
+            int argb = random.nextBoolean() ? RED : GREEN;
+            for (int y = centerY - radius; y <= centerY + radius; y++) {
+                for (int x = centerX - radius; x <= centerX + radius; x++) {
+                    int dx = x - centerX, dy = y - centerY;
+                    if (dx * dx + dy * dy <= radius * radius) tray.setArgb(x, y, argb);
+                }
+            }
+        }
+        return tray;
+    }
+
+    @Test
+    void matchesImageProcessor() {
+        AnalysisPipeline analysisPipeline = new AnalysisPipeline(selections, 0, 0.9, 1.2);
+        ImageProcessor imageProcessor = new ImageProcessor();
+        selections.forEach(imageProcessor.getPillCapsuleManager()::addPillSelection);
+
+        for (long seed = 0; seed < 10; seed++) {
+            ImageBuffer tray = randomTray(seed);
+            AnalysisResult result = analysisPipeline.analyse(tray);
+
+            // The same steps through the managers of an ImageProcessor
+            BinaryImage bwImage = imageProcessor.convertToBlackAndWhite(tray, 0, 0.9, 1.2);
+            BinaryImage refinedImage = imageProcessor.refineBlackAndWhiteImage(bwImage);
+            UnionFind unionFind = imageProcessor.initializeDisjointSets(refinedImage);
+            imageProcessor.unionFind(unionFind, refinedImage);
+
+            assertEquals(bwImage, result.getMask());
+            assertEquals(refinedImage, result.getRefinedMask());
+            assertEquals(imageProcessor.countPills(imageProcessor.getComponentTable(refinedImage, unionFind)), result.getPillCounts());
+        }
+    }
+
+    @Test
+    void concurrentRunsMatchSequentialRuns() throws Exception {
+        AnalysisPipeline analysisPipeline = new AnalysisPipeline(selections, 0, 1, 1);
+        List<Map<String, Integer>> expected = new ArrayList<>();
+        for (long seed = 0; seed < 16; seed++) {
+            expected.add(analysisPipeline.analyse(randomTray(seed)).getPillCounts());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<AnalysisResult>> results = new ArrayList<>();
+            for (long seed = 0; seed < 16; seed++) {
+                ImageBuffer tray = randomTray(seed);
+                results.add(executor.submit(() -> analysisPipeline.analyse(tray)));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(expected.get(i), results.get(i).get().getPillCounts());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void resultIsReadOnly() {
+        AnalysisPipeline analysisPipeline = new AnalysisPipeline(selections, 0, 1, 1);
+        AnalysisResult result = analysisPipeline.analyse(randomTray(3));
+        assertThrows(UnsupportedOperationException.class, () -> result.getPillCounts().put("Red", 0));
+        assertThrows(UnsupportedOperationException.class, () -> analysisPipeline.getSelections().clear());
+        assertEquals(result.getPillCounts().values().stream().mapToInt(Integer::intValue).sum(), result.getPillCount());
+    }
+}
@@ -0,0 +1,227 @@
+package Application;
+
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalysisResultFileTest {
+    private static final int RED = 0xFFC81E28;
+    private static final int GREEN = 0xFF1EB43C;
+
+    @TempDir
+    Path tempDir;
+
+    private final List<PillSelection> selections = List.of(
+            new PillSelection("Red", Color.rgb(200, 30, 40), 0.3, 20, 500),
+            new PillSelection("Grün, 5 mg", Color.rgb(30, 180, 60), 0.3, -1, 500));
+
+    // A black tray with pills of both colors and specks too small to be pills, placed at random
+    private ImageBuffer randomTray(long seed) {
+        Random random = new Random(seed);
+        ImageBuffer tray = new ImageBuffer(150, 110);
+        Arrays.fill(tray.getPixels(), ImageBuffer.BLACK);
+        for (int i = 0; i < 8; i++) {
+            int radius = random.nextBoolean() ? 12 : 2;
+            int centerX = radius + random.nextInt(150 - 2 * radius);
+            int centerY = radius + random.nextInt(110 - 2 * radius);
+            int argb = random.nextBoolean() ? RED : GREEN;
+            for (int y = centerY - radius; y <= centerY + radius; y++) {
+                for (int x = centerX - radius; x <= centerX + radius; x++) {
+                    int dx = x - centerX, dy = y - centerY;
+                    if (dx * dx + dy * dy <= radius * radius) tray.setArgb(x, y, argb);
+                }
+            }
+        }
+        return tray;
+    }
+
+    @Test
+    void writeThenRead() throws IOException {
+        AnalysisPipeline analysisPipeline = new AnalysisPipeline(selections, 0, 1, 1);
+        for (long seed = 0; seed < 5; seed++) {
+            AnalysisResult result = analysisPipeline.analyse(randomTray(seed));
+            Path file = tempDir.resolve("tray" + seed + ".pcar");
+            AnalysisResultFile.write(file, result);
+            AnalysisResult read = AnalysisResultFile.read(file);
+
+            assertEquals(result.getMask(), read.getMask());
+            assertEquals(result.getRefinedMask(), read.getRefinedMask());
+            assertEquals(result.getLabels().getBoundary(), read.getLabels().getBoundary());
+            assertEquals(result.getPillCounts(), read.getPillCounts());
+
+            // The selections come back exactly, including a name that is not ASCII and a negative size
+            List<PillSelection> readSelections = read.getComponentTable().getSelections();
+            assertEquals(selections.size(), readSelections.size());
+            for (int s = 0; s < selections.size(); s++) {
+                assertEquals(selections.get(s).getName(), readSelections.get(s).getName());
+                assertEquals(selections.get(s).getColor(), readSelections.get(s).getColor());
+                assertEquals(selections.get(s).getColorThreshold(), readSelections.get(s).getColorThreshold());
+                assertEquals(selections.get(s).getMinSize(), readSelections.get(s).getMinSize());
+                assertEquals(selections.get(s).getMaxSize(), readSelections.get(s).getMaxSize());
+            }
+
+            // The rows of the table, and the pixels of each set, are the same
+            ComponentTable expected = result.getComponentTable(), actual = read.getComponentTable();
+            assertEquals(expected.size(), actual.size());
+            for (int row = 0; row < expected.size(); row++) {
+                assertArrayEquals(expected.getBounds(row), actual.getBounds(row));
+                assertEquals(expected.getRoot(row), actual.getRoot(row));
+                assertEquals(expected.getArea(row), actual.getArea(row));
+                assertEquals(expected.getBoundarySize(row), actual.getBoundarySize(row));
+                assertEquals(AnalysisPipeline.getPillName(expected, row), AnalysisPipeline.getPillName(actual, row));
+                for (int s = 0; s < selections.size(); s++) {
+                    assertEquals(expected.getVotes(row, s), actual.getVotes(row, s));
+                }
+            }
+            assertEquals(AnalysisPipeline.countPills(expected), AnalysisPipeline.countPills(actual));
+
+            UnionFind expectedSets = result.getLabels().getUnionFind(), actualSets = read.getLabels().getUnionFind();
+            BinaryImage refinedMask = result.getRefinedMask();
+            refinedMask.forEachWhite((x, y) -> {
+                int p = y * refinedMask.getWidth() + x;
+                assertEquals(expectedSets.find(p), actualSets.find(p));
+                assertEquals(expected.getRowOfLabel(expectedSets.getLabels()[p]), actual.getRowOfLabel(actualSets.getLabels()[p]));
+            });
+        }
+    }
+
+    @Test
+    void imageStartingWithWhiteRoundTrips() throws IOException {
+        // A pill in the top left corner, so the first run of the mask is empty
+        ImageBuffer tray = new ImageBuffer(40, 30);
+        Arrays.fill(tray.getPixels(), ImageBuffer.BLACK);
+        for (int y = 0; y < 12; y++) {
+            for (int x = 0; x < 12; x++) tray.setArgb(x, y, RED);
+        }
+        AnalysisResult result = new AnalysisPipeline(selections, 0, 1, 1).analyse(tray);
+        assertTrue(result.getMask().isWhite(0, 0));
+
+        Path file = tempDir.resolve("corner.pcar");
+        AnalysisResultFile.write(file, result);
+        AnalysisResult read = AnalysisResultFile.read(file);
+        assertEquals(result.getMask(), read.getMask());
+        assertEquals(result.getRefinedMask(), read.getRefinedMask());
+        assertEquals(result.getPillCounts(), read.getPillCounts());
+    }
+
+    @Test
+    void fileIsSmallerThanTheMask() throws IOException {
+        AnalysisResult result = new AnalysisPipeline(selections, 0, 1, 1).analyse(randomTray(1));
+        Path file = tempDir.resolve("tray.pcar");
+        AnalysisResultFile.write(file, result);
+
+        // The runs take far less than a bit for each pixel
+        assertTrue(Files.size(file) < 150 * 110 / 8);
+    }
+
+    @Test
+    void readRejectsOtherFiles() throws IOException {
+        AnalysisResult result = new AnalysisPipeline(selections, 0, 1, 1).analyse(randomTray(2));
+        Path file = tempDir.resolve("tray.pcar");
+        AnalysisResultFile.write(file, result);
+        byte[] bytes = Files.readAllBytes(file);
+
+        // Not a result at all
+        Path other = tempDir.resolve("other.pcar");
+        Files.write(other, "P5\n1 1\n255\n".getBytes());
+        assertThrows(IOException.class, () -> AnalysisResultFile.read(other));
+
+        // A newer version
+        byte[] newer = bytes.clone();
+        newer[Integer.BYTES] = (byte) (AnalysisResultFile.VERSION + 1);
+        Files.write(other, newer);
+        IOException versionError = assertThrows(IOException.class, () -> AnalysisResultFile.read(other));
+        assertTrue(versionError.getMessage().contains("version"));
+
+        // A damaged byte in the middle
+        byte[] damaged = bytes.clone();
+        damaged[damaged.length / 2] ^= 0x01;
+        Files.write(other, damaged);
+        assertThrows(IOException.class, () -> AnalysisResultFile.read(other));
+
+        // A file that ends too soon
+        Files.write(other, Arrays.copyOf(bytes, bytes.length - 1));
+        assertThrows(IOException.class, () -> AnalysisResultFile.read(other));
+        assertEquals(AnalysisResultFile.MAGIC, ByteBuffer.wrap(bytes).getInt());
+    }
+
+    // A file made by hand, for values the writer never writes
+    private static final class HandMadeFile {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        HandMadeFile header(int width, int height) {
+            bytes.writeBytes(ByteBuffer.allocate(Integer.BYTES).putInt(AnalysisResultFile.MAGIC).array());
+            return varint(AnalysisResultFile.VERSION).varint(width).varint(height);
+        }
+
+        HandMadeFile varint(int value) {
+            while ((value & ~0x7F) != 0) {
+                bytes.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes.write(value);
+            return this;
+        }
+
+        HandMadeFile doubles(double... values) {
+            ByteBuffer buffer = ByteBuffer.allocate(values.length * Double.BYTES);
+            for (double value : values) buffer.putDouble(value);
+            bytes.writeBytes(buffer.array());
+            return this;
+        }
+
+        // Ends the file with a CRC32 that matches, so only the values can be wrong
+        Path writeTo(Path file) throws IOException {
+            CRC32 crc = new CRC32();
+            crc.update(bytes.toByteArray());
+            bytes.writeBytes(ByteBuffer.allocate(Integer.BYTES).putInt((int) crc.getValue()).array());
+            return Files.write(file, bytes.toByteArray());
+        }
+    }
+
+    @Test
+    void readRejectsInvalidValues() throws IOException {
+        // A color component outside 0 to 1
+        Path badColor = new HandMadeFile().header(1, 1).varint(1).varint(1).varint('A')
+                .doubles(2, 0, 0, 1, 0.1).varint(0).varint(0)
+                .varint(1).varint(0).varint(1).varint(0).varint(0)
+                .writeTo(tempDir.resolve("color.pcar"));
+        IOException colorError = assertThrows(IOException.class, () -> AnalysisResultFile.read(badColor));
+        assertTrue(colorError.getMessage().contains("color"));
+
+        // More rows than the image has pixels
+        Path manyRows = new HandMadeFile().header(1, 1).varint(0).varint(1).varint(0).varint(1).varint(Integer.MAX_VALUE)
+                .writeTo(tempDir.resolve("rows.pcar"));
+        assertThrows(IOException.class, () -> AnalysisResultFile.read(manyRows));
+
+        // A label map that refers to a row the table does not have
+        Path missingRow = new HandMadeFile().header(1, 1).varint(0).varint(0).varint(1).varint(1).varint(1).varint(0).varint(0)
+                .writeTo(tempDir.resolve("missing.pcar"));
+        assertThrows(IOException.class, () -> AnalysisResultFile.read(missingRow));
+    }
+
+    @Test
+    void readDoesNotTrustLengths() throws IOException {
+        // A name, and a table of a million rows for an image of two billion pixels, that are far longer than the file.
+        // Only as much as the file holds is allocated before it ends.
+        Path longName = new HandMadeFile().header(1, 1).varint(1).varint(Integer.MAX_VALUE).writeTo(tempDir.resolve("name.pcar"));
+        assertThrows(IOException.class, () -> AnalysisResultFile.read(longName));
+
+        Path manyRowsForLargeImage = new HandMadeFile().header(40_000, 50_000).varint(0).varint(0).varint(2_000_000_000)
+                .varint(0).varint(2_000_000_000).varint(1_000_000)
+                .writeTo(tempDir.resolve("large.pcar"));
+        assertThrows(IOException.class, () -> AnalysisResultFile.read(manyRowsForLargeImage));
+    }
+}
@@ -0,0 +1,131 @@
+package Application;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.StackPane;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Text;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalysisStageEventTest {
+
+    @TempDir
+    Path tempDir;
+
+    // An image with two red squares and a green one on black
+    private ImageBuffer createImage() {
+        ImageBuffer imageBuffer = new ImageBuffer(60, 40);
+        fill(imageBuffer, 5, 5, 0xFFC81E28);
+        fill(imageBuffer, 25, 5, 0xFFC81E28);
+        fill(imageBuffer, 5, 25, 0xFF1EB43C);
+        return imageBuffer;
+    }
+
+    private void fill(ImageBuffer imageBuffer, int left, int top, int argb) {
+        for (int y = top; y < top + 10; y++) {
+            for (int x = left; x < left + 10; x++) imageBuffer.setArgb(x, y, argb);
+        }
+    }
+
+    // Method to check whether Text nodes can be created, which needs a JavaFX graphics pipeline with its native libraries
+    static boolean canCreateText() {
+        try {
+            new Text("1");
+            return true;
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    // Method to record the AnalysisStageEvents of an action and read them back
+    private List<RecordedEvent> record(Runnable action) throws IOException {
+        try (Recording recording = new Recording()) {
+            recording.enable(AnalysisStageEvent.NAME).withThreshold(Duration.ZERO);
+            recording.start();
+            action.run();
+            recording.stop();
+            Path file = tempDir.resolve("analysis.jfr");
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file);
+        }
+    }
+
+    private ImageProcessor createImageProcessor() {
+        ImageProcessor imageProcessor = new ImageProcessor();
+        imageProcessor.getPillCapsuleManager().addPillSelection(new PillSelection("Red", Color.rgb(200, 30, 40), 0.2, 1, 100));
+        imageProcessor.getPillCapsuleManager().addPillSelection(new PillSelection("Green", Color.rgb(30, 180, 60), 0.2, 1, 100));
+        return imageProcessor;
+    }
+
+    @Test
+    void recordsEveryStage() throws IOException {
+        ImageProcessor imageProcessor = createImageProcessor();
+        ImageBuffer imageBuffer = createImage();
+
+        // The overlay is drawn for an image of the same size without pills, so no Rectangle or Text is created
+        Image emptyImage = new BinaryImage(60, 40).toImage();
+        ComponentTable emptyTable = imageProcessor.getComponentTable(imageProcessor.getLabeledImage(emptyImage));
+
+        List<RecordedEvent> events = record(() -> {
+            imageProcessor.getConversionManager().convertToBlackAndWhite(HsbPlanes.fromImageBuffer(imageBuffer), 0, 1, 1);
+            BinaryImage bwImage = imageProcessor.convertToBlackAndWhite(imageBuffer, 0, 1, 1);
+            BinaryImage refinedImage = imageProcessor.refineBlackAndWhiteImage(bwImage);
+            Image refined = refinedImage.toImage();
+            imageProcessor.getComponentTable(imageProcessor.getLabeledImage(refined));
+            imageProcessor.createRectangles(new StackPane(), new ImageView(emptyImage), emptyImage, emptyTable);
+            imageProcessor.colorDisjointSetsRandomly(refined);
+        });
+
+        Set<AnalysisStageEvent.Stage> stages = EnumSet.noneOf(AnalysisStageEvent.Stage.class);
+        for (RecordedEvent event : events) {
+            stages.add(AnalysisStageEvent.Stage.valueOf(event.getString("stage")));
+            assertEquals(60, event.getInt("width"));
+            assertEquals(40, event.getInt("height"));
+            assertEquals(2, event.getInt("selectionCount"));
+        }
+        assertEquals(EnumSet.allOf(AnalysisStageEvent.Stage.class), stages);
+
+        // The three squares are the only sets, and the overlay without pills has no rectangles
+        for (RecordedEvent event : events) {
+            String stage = event.getString("stage");
+            if (stage.equals("LABEL") || stage.equals("COMPONENT_STATS")) {
+                assertEquals(3, event.getInt("componentCount"), stage);
+            } else if (stage.equals("OVERLAY")) {
+                assertEquals(0, event.getInt("componentCount"), stage);
+            }
+        }
+    }
+
+    @Test
+    void overlayCountsItsRectangles() throws IOException {
+        // Each rectangle gets a Text node with its number, so this is only checked where they can be created
+        Assumptions.assumeTrue(canCreateText(), "No JavaFX graphics pipeline to create Text nodes with");
+        ImageProcessor imageProcessor = createImageProcessor();
+        Image refined = imageProcessor.refineBlackAndWhiteImage(imageProcessor.convertToBlackAndWhite(createImage(), 0, 1, 1)).toImage();
+        ComponentTable componentTable = imageProcessor.getComponentTable(imageProcessor.getLabeledImage(refined));
+        ImageView imageView = new ImageView(refined);
+        imageView.setFitWidth(60);
+        imageView.setFitHeight(40);
+
+        List<RecordedEvent> events = record(() -> imageProcessor.createRectangles(new StackPane(), imageView, refined, componentTable));
+
+        // Each of the three squares gets a rectangle
+        assertEquals(1, events.size());
+        assertEquals("OVERLAY", events.get(0).getString("stage"));
+        assertEquals(3, events.get(0).getInt("componentCount"));
+    }
+}
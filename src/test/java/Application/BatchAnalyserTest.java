@@ -0,0 +1,170 @@
+package Application;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.StackPane;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchAnalyserTest {
+    private static final int RED = 0xFFC81E28;
+    private static final int GREEN = 0xFF1EB43C;
+
+    @TempDir
+    Path tempDir;
+
+    private BatchAnalyser batchAnalyser;
+    private ImageBuffer tray;
+
+    @BeforeEach
+    void setUp() {
+        List<PillSelection> selections = List.of(
+                new PillSelection("Red", Color.rgb(200, 30, 40), 0.3, 20, 500),
+                new PillSelection("Green", Color.rgb(30, 180, 60), 0.3, 20, 500));
+        batchAnalyser = new BatchAnalyser(selections, 0, 1, 1, 2);
+
+        // A black tray with two red pills, one green pill and a red speck that is too small to be a pill
+        tray = new ImageBuffer(200, 120);
+        Arrays.fill(tray.getPixels(), ImageBuffer.BLACK);
+        drawDisc(tray, 40, 40, 20, RED);
+        drawDisc(tray, 110, 40, 20, RED);
+        drawDisc(tray, 70, 90, 20, GREEN);
+        drawDisc(tray, 170, 100, 3, RED);
+    }
+
+    @Test
+    void analyse() {
+        assertEquals(Map.of("Red", 2, "Green", 1), batchAnalyser.analyse(tray));
+    }
+
+    @Test
+    void analyseEmptyTray() {
+        Arrays.fill(tray.getPixels(), ImageBuffer.BLACK);
+        assertTrue(batchAnalyser.analyse(tray).isEmpty());
+    }
+
+    @Test
+    void analyseDirectory() throws IOException, InterruptedException {
+        BufferedImage image = new BufferedImage(tray.getWidth(), tray.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, tray.getWidth(), tray.getHeight(), tray.getPixels(), 0, tray.getWidth());
+        ImageIO.write(image, "png", tempDir.resolve("b.png").toFile());
+        ImageIO.write(image, "png", tempDir.resolve("a.PNG").toFile());
+        Files.writeString(tempDir.resolve("broken.png"), "not an image");
+        Files.writeString(tempDir.resolve("notes.txt"), "ignored");
+
+        StringWriter output = new StringWriter();
+        int failures = batchAnalyser.analyseDirectory(tempDir, output);
+
+        // The broken image is reported and left out, and the other rows are in file name order
+        assertEquals(1, failures);
+        String lineSeparator = System.lineSeparator();
+        assertEquals("image,total,Red,Green,Unknown" + lineSeparator
+                + "a.PNG,3,2,1,0" + lineSeparator
+                + "b.png,3,2,1,0" + lineSeparator, output.toString());
+    }
+
+    @Test
+    void analyseStreaming() {
+        ImageProcessor imageProcessor = new ImageProcessor();
+        imageProcessor.getPillCapsuleManager().addPillSelection(new PillSelection("Red", Color.rgb(200, 30, 40), 0.3, 20, 500));
+        imageProcessor.getPillCapsuleManager().addPillSelection(new PillSelection("Green", Color.rgb(30, 180, 60), 0.3, 20, 500));
+
+        // Bands of 7 rows cut through every pill, and the counts are the same as with the whole image in memory
+        StreamingAnalyser streamingAnalyser = new StreamingAnalyser(imageProcessor, 0, 1, 1, 7);
+        assertEquals(batchAnalyser.analyse(tray), streamingAnalyser.analyse(tray));
+    }
+
+    @Test
+    void analyseDirectoryStreaming() throws IOException, InterruptedException {
+        BufferedImage image = new BufferedImage(tray.getWidth(), tray.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, tray.getWidth(), tray.getHeight(), tray.getPixels(), 0, tray.getWidth());
+        ImageIO.write(image, "png", tempDir.resolve("tray.png").toFile());
+
+        StringWriter output = new StringWriter();
+        batchAnalyser.setBandHeight(16);
+        assertEquals(0, batchAnalyser.analyseDirectory(tempDir, output));
+
+        String lineSeparator = System.lineSeparator();
+        assertEquals("image,total,Red,Green,Unknown" + lineSeparator + "tray.png,3,2,1,0" + lineSeparator, output.toString());
+    }
+
+    @Test
+    void analyseDirectoryOfMappedImages() throws IOException, InterruptedException {
+        MappedImageSourceTest.writePpm(tempDir.resolve("tray.ppm"), tray);
+
+        String lineSeparator = System.lineSeparator();
+        String expected = "image,total,Red,Green,Unknown" + lineSeparator + "tray.ppm,3,2,1,0" + lineSeparator;
+        StringWriter output = new StringWriter();
+        assertEquals(0, batchAnalyser.analyseDirectory(tempDir, output));
+        assertEquals(expected, output.toString());
+
+        // Streamed a band at a time from the mapping
+        output = new StringWriter();
+        batchAnalyser.setBandHeight(16);
+        assertEquals(0, batchAnalyser.analyseDirectory(tempDir, output));
+        assertEquals(expected, output.toString());
+    }
+
+    @Test
+    void analyseDirectorySavesResults() throws IOException, InterruptedException {
+        BufferedImage image = new BufferedImage(tray.getWidth(), tray.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, tray.getWidth(), tray.getHeight(), tray.getPixels(), 0, tray.getWidth());
+        ImageIO.write(image, "png", tempDir.resolve("tray.png").toFile());
+        MappedImageSourceTest.writePpm(tempDir.resolve("tray.ppm"), tray);
+
+        // One result for each image, in a directory that does not exist yet
+        Path resultDirectory = tempDir.resolve("results");
+        batchAnalyser.setResultDirectory(resultDirectory);
+        assertEquals(0, batchAnalyser.analyseDirectory(tempDir, new StringWriter()));
+        Path resultFile = BatchAnalyser.getResultFile(resultDirectory, tempDir.resolve("tray.png"));
+        assertEquals(resultDirectory.resolve("tray.png.pcar"), resultFile);
+        assertEquals(Map.of("Red", 2, "Green", 1), AnalysisResultFile.read(resultFile).getPillCounts());
+        assertEquals(Map.of("Red", 2, "Green", 1),
+                AnalysisResultFile.read(BatchAnalyser.getResultFile(resultDirectory, tempDir.resolve("tray.ppm"))).getPillCounts());
+
+        // Streamed images are never held whole, so they have no result to save
+        assertThrows(IllegalStateException.class, () -> batchAnalyser.setBandHeight(16));
+
+        // The tray is reopened in the GUI with a rectangle for each pill, without converting it again
+        Assumptions.assumeTrue(AnalysisStageEventTest.canCreateText(), "No JavaFX graphics pipeline to create Text nodes with");
+        ImageProcessor imageProcessor = new ImageProcessor();
+        Image trayImage = tray.toImage();
+        ImageView imageView = imageProcessor.createNewImageView(trayImage, trayImage.getWidth(), trayImage.getHeight());
+        StackPane stackPane = new StackPane(imageView);
+        AnalysisResult result = imageProcessor.openResult(resultFile, stackPane, imageView, trayImage);
+        assertEquals(Map.of("Red", 2, "Green", 1), result.getPillCounts());
+        assertEquals(3, stackPane.getChildren().stream().filter(node -> node instanceof Rectangle).count());
+        assertEquals(3, imageProcessor.getNumberTexts().size());
+        assertEquals(0, imageProcessor.getAnalysisMetrics().getStageCount("CLASSIFY"));
+
+        // A result is only opened over an image of the same size
+        Image otherImage = new ImageBuffer(100, 60).toImage();
+        assertThrows(IOException.class, () -> imageProcessor.openResult(resultFile, new StackPane(), new ImageView(otherImage), otherImage));
+    }
+
+    // Method to draw a filled disc into a buffer.
+    private static void drawDisc(ImageBuffer buffer, int centerX, int centerY, int radius, int argb) {
+        for (int y = centerY - radius; y <= centerY + radius; y++) {
+            for (int x = centerX - radius; x <= centerX + radius; x++) {
+                int dx = x - centerX, dy = y - centerY;
+                if (dx * dx + dy * dy <= radius * radius) buffer.setArgb(x, y, argb);
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package Application;
+
+import Manager.BoundaryManager;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryImageTest {
+
+    // A random black and white buffer with about half of the pixels white
+    private ImageBuffer randomBuffer(int width, int height, long seed) {
+        Random random = new Random(seed);
+        ImageBuffer imageBuffer = new ImageBuffer(width, height);
+        for (int i = 0; i < imageBuffer.getPixels().length; i++) {
+            imageBuffer.getPixels()[i] = random.nextBoolean() ? ImageBuffer.WHITE : ImageBuffer.BLACK;
+        }
+        return imageBuffer;
+    }
+
+    @Test
+    void setWhiteAndSetBlack() {
+        BinaryImage binaryImage = new BinaryImage(70, 2);
+        assertEquals(2, binaryImage.getWordsPerRow());
+        binaryImage.setWhite(69, 1);
+        binaryImage.setWhite(0, 0);
+        assertTrue(binaryImage.isWhite(69, 1));
+        assertTrue(binaryImage.isWhite(0, 0));
+        assertFalse(binaryImage.isWhite(5, 1));
+        assertEquals(1L << 5, binaryImage.getWord(1, 1));
+        assertEquals(2, binaryImage.countWhite());
+
+        binaryImage.setBlack(69, 1);
+        assertFalse(binaryImage.isWhite(69, 1));
+        assertEquals(1, binaryImage.countWhite());
+    }
+
+    @Test
+    void setWordClearsBitsPastTheRow() {
+        BinaryImage binaryImage = new BinaryImage(70, 1);
+        binaryImage.setWord(0, 1, -1L);
+        assertEquals(6, binaryImage.countWhite());
+    }
+
+    @Test
+    void imageBufferRoundTrip() {
+        for (int width : new int[]{1, 63, 64, 65, 130}) {
+            ImageBuffer imageBuffer = randomBuffer(width, 7, width);
+            assertArrayEquals(imageBuffer.getPixels(), BinaryImage.fromImageBuffer(imageBuffer).toImageBuffer().getPixels());
+        }
+    }
+
+    @Test
+    void forEachWhiteVisitsInRasterOrder() {
+        ImageBuffer imageBuffer = randomBuffer(130, 5, 9);
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < imageBuffer.getPixels().length; i++) {
+            if (imageBuffer.getPixels()[i] == ImageBuffer.WHITE) expected.add(i);
+        }
+
+        List<Integer> visited = new ArrayList<>();
+        BinaryImage.fromImageBuffer(imageBuffer).forEachWhite((x, y) -> visited.add(y * 130 + x));
+        assertEquals(expected, visited);
+    }
+
+    @Test
+    void boundaryMatchesBoundaryManager() {
+        for (int width : new int[]{1, 2, 63, 64, 65, 128, 130}) {
+            ImageBuffer imageBuffer = randomBuffer(width, 6, width + 100);
+            ImageProcessor imageProcessor = new ImageProcessor();
+            imageProcessor.setup(imageBuffer);
+            BoundaryManager boundaryManager = new BoundaryManager(imageProcessor);
+
+            BinaryImage boundary = BinaryImage.fromImageBuffer(imageBuffer).boundary();
+            for (int y = 0; y < imageBuffer.getHeight(); y++) {
+                for (int x = 0; x < width; x++) {
+                    assertEquals(boundaryManager.isBoundaryPixel(x, y), boundary.isWhite(x, y), "width " + width + " at (" + x + ", " + y + ")");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package Application;
+
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColorClassifierTest {
+    private ColorClassifier colorClassifier;
+    private List<PillSelection> selections;
+
+    @BeforeEach
+    void setUp() {
+        colorClassifier = new ColorClassifier();
+        selections = new ArrayList<>();
+        selections.add(new PillSelection("Red", Color.rgb(200, 30, 40), 0.2, 10, 20));
+        selections.add(new PillSelection("Green", Color.rgb(30, 180, 60), 0.3, 10, 20));
+        selections.add(new PillSelection("White", Color.rgb(240, 240, 230), 0.1, 10, 20));
+    }
+
+    // The stream based search the classifier replaces
+    private PillSelection expected(int argb) {
+        Color color = ImageBuffer.toColor(argb);
+        return selections.stream()
+                .min(Comparator.comparingDouble(selection -> distance(color, selection.getColor())))
+                .filter(selection -> distance(color, selection.getColor()) <= selection.getColorThreshold())
+                .orElse(null);
+    }
+
+    private double distance(Color color1, Color color2) {
+        return Math.abs(color1.getRed() - color2.getRed()) +
+                Math.abs(color1.getGreen() - color2.getGreen()) +
+                Math.abs(color1.getBlue() - color2.getBlue());
+    }
+
+    private void assertMatchesStream() {
+        colorClassifier.update(selections);
+        Random random = new Random(7);
+        for (int i = 0; i < 20000; i++) {
+            int argb = 0xFF000000 | random.nextInt(1 << 24);
+            assertSame(expected(argb), colorClassifier.getClosestSelection(argb));
+        }
+        for (PillSelection selection : selections) {
+            int argb = ImageBuffer.toArgb(selection.getColor());
+            assertSame(expected(argb), colorClassifier.getClosestSelection(argb));
+        }
+    }
+
+    @Test
+    void noSelections() {
+        colorClassifier.update(selections.subList(0, 0));
+        assertEquals(ColorClassifier.NO_SELECTION, colorClassifier.classify(ImageBuffer.WHITE));
+        assertNull(colorClassifier.getClosestSelection(ImageBuffer.BLACK));
+    }
+
+    @Test
+    void classify() {
+        assertMatchesStream();
+        assertEquals(3, colorClassifier.getSelectionCount());
+        assertEquals(0, colorClassifier.classify(0xFFC81E28));
+        assertEquals(ColorClassifier.NO_SELECTION, colorClassifier.classify(ImageBuffer.BLACK));
+    }
+
+    @Test
+    void addAndRemoveSelections() {
+        assertMatchesStream();
+        selections.add(new PillSelection("Blue", Color.rgb(40, 40, 220), 0.5, 10, 20));
+        assertMatchesStream();
+        selections.remove(1);
+        assertMatchesStream();
+        selections.clear();
+        assertMatchesStream();
+    }
+
+    @Test
+    void editedSelection() {
+        assertMatchesStream();
+        selections.get(0).setColorThreshold(0.6);
+        assertMatchesStream();
+        selections.get(2).setColor(Color.rgb(10, 10, 10));
+        assertMatchesStream();
+    }
+
+    @Test
+    void tiesGoToTheEarlierSelection() {
+        selections.add(0, new PillSelection("Copy", selections.get(0).getColor(), 0.2, 10, 20));
+        colorClassifier.update(selections);
+        assertSame(selections.get(0), colorClassifier.getClosestSelection(ImageBuffer.toArgb(selections.get(1).getColor())));
+    }
+
+    @Test
+    void snapshotIsNotChangedByLaterUpdates() {
+        ColorClassifier.Snapshot snapshot = colorClassifier.update(selections);
+        assertSame(snapshot, colorClassifier.getSnapshot());
+        int red = 0xFFC81E28;
+        assertEquals(0, snapshot.classify(red));
+
+        // Replacing the first selection compiles a new snapshot and leaves the old one as it was
+        selections.set(0, new PillSelection("Blue", Color.rgb(40, 40, 220), 0.2, 10, 20));
+        ColorClassifier.Snapshot updated = colorClassifier.update(selections);
+        assertNotSame(snapshot, updated);
+        assertEquals(ColorClassifier.NO_SELECTION, updated.classify(red));
+        assertEquals(0, snapshot.classify(red));
+        assertEquals("Red", snapshot.getSelection(0).getName());
+        assertEquals(3, snapshot.getSelectionCount());
+    }
+}
@@ -0,0 +1,109 @@
+package Application;
+
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ComponentTableTest {
+
+    // A random black and white image with about half of the pixels white
+    private BinaryImage randomImage(int width, int height, long seed) {
+        Random random = new Random(seed);
+        BinaryImage binaryImage = new BinaryImage(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (random.nextBoolean()) binaryImage.setWhite(x, y);
+            }
+        }
+        return binaryImage;
+    }
+
+    @Test
+    void matchesDisjointSetManager() {
+        ImageProcessor imageProcessor = new ImageProcessor();
+        for (int width : new int[]{1, 17, 64, 90}) {
+            BinaryImage bwImage = randomImage(width, 23, width);
+            UnionFind unionFind = imageProcessor.initializeDisjointSets(bwImage);
+            imageProcessor.unionFind(unionFind, bwImage);
+            BinaryImage boundary = imageProcessor.setBoundary(bwImage);
+            Map<Integer, Integer> disjointSetSizes = imageProcessor.getDisjointSetSizes(bwImage, unionFind, boundary);
+
+            // The bounds of each set over all of its pixels.
+            Map<Integer, int[]> expectedBounds = new HashMap<>();
+            bwImage.forEachWhite((x, y) -> {
+                int[] bounds = expectedBounds.computeIfAbsent(unionFind.find(y * width + x), root -> new int[]{x, x, y, y});
+                bounds[0] = Math.min(bounds[0], x);
+                bounds[1] = Math.max(bounds[1], x);
+                bounds[3] = y;
+            });
+
+            ComponentTable componentTable = ComponentTable.build(bwImage, unionFind, null, List.of());
+
+            // Every set with a boundary has the same size as in the map, every set has the right bounds,
+            // and the areas add up to the white pixels.
+            Map<Integer, Integer> sizes = new HashMap<>();
+            int totalArea = 0;
+            for (int row = 0; row < componentTable.size(); row++) {
+                totalArea += componentTable.getArea(row);
+                if (componentTable.getBoundarySize(row) > 0) sizes.put(componentTable.getRoot(row), componentTable.getBoundarySize(row));
+                assertArrayEquals(expectedBounds.get(componentTable.getRoot(row)), componentTable.getBounds(row));
+            }
+            assertEquals(disjointSetSizes, sizes);
+            assertEquals(expectedBounds.size(), componentTable.size());
+            assertEquals(bwImage.countWhite(), totalArea);
+        }
+    }
+
+    @Test
+    void countsVotesPerSet() {
+        PillSelection red = new PillSelection("Red", Color.RED, 0.1, 1, 100);
+        PillSelection blue = new PillSelection("Blue", Color.BLUE, 0.1, 1, 100);
+
+        // Two sets: three pixels on the left and two on the right.
+        BinaryImage bwImage = new BinaryImage(5, 1);
+        bwImage.setWhite(0, 0);
+        bwImage.setWhite(1, 0);
+        bwImage.setWhite(2, 0);
+        bwImage.setWhite(4, 0);
+        UnionFind unionFind = new UnionFind(5);
+        unionFind.unionBySize(0, 1);
+        unionFind.unionBySize(1, 2);
+        PillSelection[][] pillSelectionArray = {{red, blue, blue, null, red}};
+
+        ComponentTable componentTable = ComponentTable.build(bwImage, unionFind, pillSelectionArray, List.of(red, blue));
+        assertEquals(2, componentTable.size());
+        assertEquals(1, componentTable.getVotes(0, 0));
+        assertEquals(2, componentTable.getVotes(0, 1));
+        assertSame(blue, componentTable.getMostCommonSelection(0));
+        assertSame(red, componentTable.getMostCommonSelection(1));
+        assertArrayEquals(new int[]{0, 2, 0, 0}, componentTable.getBounds(0));
+        assertEquals(1, componentTable.getBoundarySize(0));
+        assertEquals(1, componentTable.getMaxBoundarySize());
+
+        // The same votes from the index of each selection
+        PixelClasses pixelClasses = new PixelClasses(5, 1, 2);
+        int[] classes = {0, 1, 1, ColorClassifier.NO_SELECTION, 0};
+        for (int x = 0; x < 5; x++) {
+            if (classes[x] != ColorClassifier.NO_SELECTION) pixelClasses.set(x, 0, classes[x]);
+        }
+        ComponentTable fromClasses = ComponentTable.build(bwImage, unionFind, bwImage.boundary(), pixelClasses, List.of(red, blue));
+        for (int row = 0; row < 2; row++) {
+            for (int s = 0; s < 2; s++) {
+                assertEquals(componentTable.getVotes(row, s), fromClasses.getVotes(row, s));
+            }
+        }
+    }
+
+    @Test
+    void emptyImageHasNoRows() {
+        ComponentTable componentTable = ComponentTable.build(new BinaryImage(4, 4), new UnionFind(16), null, List.of());
+        assertEquals(0, componentTable.size());
+        assertEquals(0, componentTable.getMaxBoundarySize());
+    }
+}
@@ -0,0 +1,112 @@
+package Application;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentUnionFindTest {
+
+    private ConcurrentUnionFind uf;
+
+    @BeforeEach
+    void setUp() {
+        uf = new ConcurrentUnionFind(5);
+        uf.unionByIndex(0, 1);
+        uf.unionByIndex(2, 3);
+    }
+
+    @Test
+    void find() {
+        assertEquals(uf.find(0), uf.find(1));
+        assertEquals(uf.find(2), uf.find(3));
+        assertNotEquals(uf.find(0), uf.find(2));
+        // The root with the smaller index is kept
+        assertEquals(0, uf.find(1));
+    }
+
+    @Test
+    void connected() {
+        assertTrue(uf.connected(0, 1));
+        assertTrue(uf.connected(2, 3));
+        assertFalse(uf.connected(0, 2));
+        assertFalse(uf.connected(1, 3));
+    }
+
+    @Test
+    void componentSize() {
+        assertEquals(2, uf.componentSize(0));
+        assertEquals(2, uf.componentSize(3));
+        assertEquals(1, uf.componentSize(4));
+    }
+
+    @Test
+    void sizeAndComponents() {
+        assertEquals(5, uf.size());
+        assertEquals(3, uf.components());
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentUnionFind(0));
+    }
+
+    @Test
+    void unionByIndex() {
+        assertTrue(uf.unionByIndex(1, 2));
+        assertFalse(uf.unionByIndex(3, 0));
+        assertTrue(uf.connected(1, 2));
+        assertEquals(4, uf.componentSize(3));
+        assertEquals(2, uf.components());
+    }
+
+    @Test
+    void concurrentUnionsMatchUnionFind() throws InterruptedException {
+        int size = 20000;
+        int threads = 8;
+        Random random = new Random(11);
+        int[][] pairs = new int[60000][];
+        for (int i = 0; i < pairs.length; i++) {
+            pairs[i] = new int[]{random.nextInt(size), random.nextInt(size)};
+        }
+
+        for (int round = 0; round < 5; round++) {
+            ConcurrentUnionFind concurrentUnionFind = new ConcurrentUnionFind(size);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int first = t;
+                Thread worker = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    // Every thread works through all pairs from a different starting point, so the same sets are joined at the same time
+                    for (int i = 0; i < pairs.length; i++) {
+                        int[] pair = pairs[(i + first * pairs.length / threads) % pairs.length];
+                        concurrentUnionFind.unionByIndex(pair[0], pair[1]);
+                        concurrentUnionFind.find(pair[1]);
+                    }
+                });
+                worker.start();
+                workers.add(worker);
+            }
+            start.countDown();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+
+            UnionFind unionFind = new UnionFind(size);
+            for (int[] pair : pairs) {
+                unionFind.unionBySize(pair[0], pair[1]);
+            }
+            assertEquals(unionFind.components(), concurrentUnionFind.components());
+            for (int i = 0; i < size; i++) {
+                assertEquals(unionFind.componentSize(i), concurrentUnionFind.componentSize(i));
+                assertEquals(unionFind.connected(i, pairs[i][0]), concurrentUnionFind.connected(i, pairs[i][0]));
+            }
+        }
+    }
+}
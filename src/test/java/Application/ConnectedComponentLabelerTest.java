@@ -0,0 +1,170 @@
+package Application;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectedComponentLabelerTest {
+
+    // Build a buffer from rows of '#' (white) and '.' (black)
+    private ImageBuffer image(String... rows) {
+        ImageBuffer imageBuffer = new ImageBuffer(rows[0].length(), rows.length);
+        for (int y = 0; y < rows.length; y++) {
+            for (int x = 0; x < rows[y].length(); x++) {
+                imageBuffer.setArgb(x, y, rows[y].charAt(x) == '#' ? ImageBuffer.WHITE : ImageBuffer.BLACK);
+            }
+        }
+        return imageBuffer;
+    }
+
+    // A random image with blobs, so that there are large and small components
+    private ImageBuffer randomImage(int width, int height, long seed) {
+        Random random = new Random(seed);
+        ImageBuffer imageBuffer = new ImageBuffer(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                imageBuffer.setArgb(x, y, random.nextInt(100) < 45 ? ImageBuffer.WHITE : ImageBuffer.BLACK);
+            }
+        }
+        return imageBuffer;
+    }
+
+    // Join every white pixel with its white neighbours, the same way UnionFindManager does
+    private UnionFind unionFind(ImageBuffer imageBuffer, Connectivity connectivity) {
+        int width = imageBuffer.getWidth(), height = imageBuffer.getHeight();
+        UnionFind unionFind = new UnionFind(width * height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (!imageBuffer.isWhite(x, y)) continue;
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        if (connectivity == Connectivity.FOUR && dx != 0 && dy != 0) continue;
+                        int nx = x + dx, ny = y + dy;
+                        if (nx >= 0 && nx < width && ny >= 0 && ny < height && imageBuffer.isWhite(nx, ny)) {
+                            unionFind.unionBySize(imageBuffer.index(x, y), imageBuffer.index(nx, ny));
+                        }
+                    }
+                }
+            }
+        }
+        return unionFind;
+    }
+
+    // Check that the labels split the white pixels into the same components as the UnionFind
+    private void assertSameComponents(ImageBuffer imageBuffer, LabelImage labelImage, UnionFind unionFind) {
+        Map<Integer, Integer> rootToLabel = new HashMap<>();
+        Map<Integer, Integer> labelToRoot = new HashMap<>();
+        int whitePixels = 0;
+        for (int p = 0; p < imageBuffer.getPixels().length; p++) {
+            int label = labelImage.getLabels()[p];
+            if (imageBuffer.getPixels()[p] != ImageBuffer.WHITE) {
+                assertEquals(LabelImage.BACKGROUND, label);
+                continue;
+            }
+            whitePixels++;
+            int root = unionFind.find(p);
+            assertEquals(label, rootToLabel.computeIfAbsent(root, key -> label));
+            assertEquals(root, labelToRoot.computeIfAbsent(label, key -> root));
+        }
+        assertEquals(labelImage.getComponentCount(), rootToLabel.size());
+        // The UnionFind also counts every non-white pixel as a component of its own
+        assertEquals(unionFind.components(), labelImage.getComponentCount() + imageBuffer.getPixels().length - whitePixels);
+    }
+
+    @Test
+    void fourConnectivity() {
+        ImageBuffer imageBuffer = image(
+                "#.#.#",
+                "#.#.#",
+                "###.#",
+                "...#.");
+        LabelImage labelImage = new ConnectedComponentLabeler(Connectivity.FOUR).label(imageBuffer);
+        assertEquals(3, labelImage.getComponentCount());
+        // The U shape is joined into one component, numbered by its first pixel
+        assertEquals(1, labelImage.getLabel(0, 0));
+        assertEquals(1, labelImage.getLabel(2, 0));
+        assertEquals(2, labelImage.getLabel(4, 0));
+        assertEquals(3, labelImage.getLabel(3, 3));
+        assertEquals(LabelImage.BACKGROUND, labelImage.getLabel(1, 0));
+        assertArrayEquals(new int[]{9, 7, 3, 1}, labelImage.getComponentSizes());
+    }
+
+    @Test
+    void eightConnectivity() {
+        ImageBuffer imageBuffer = image(
+                "#.#.#",
+                "#.#.#",
+                "###.#",
+                "...#.");
+        LabelImage labelImage = new ConnectedComponentLabeler(Connectivity.EIGHT).label(imageBuffer);
+        // The diagonal pixel joins the two right hand components to the U shape
+        assertEquals(1, labelImage.getComponentCount());
+        assertEquals(1, labelImage.getLabel(4, 0));
+        assertEquals(1, labelImage.getLabel(3, 3));
+    }
+
+    @Test
+    void upRightMerges() {
+        // The pixel above and to the right has to be joined with the ones to the left
+        ImageBuffer imageBuffer = image(
+                "#.#",
+                ".#.",
+                "#.#");
+        assertEquals(1, new ConnectedComponentLabeler(Connectivity.EIGHT).label(imageBuffer).getComponentCount());
+        assertEquals(5, new ConnectedComponentLabeler(Connectivity.FOUR).label(imageBuffer).getComponentCount());
+    }
+
+    @Test
+    void emptyAndFullImages() {
+        assertEquals(0, new ConnectedComponentLabeler(Connectivity.FOUR).label(image("...", "...")).getComponentCount());
+        assertEquals(1, new ConnectedComponentLabeler(Connectivity.FOUR).label(image("###", "###")).getComponentCount());
+        assertEquals(0, new ConnectedComponentLabeler(Connectivity.EIGHT).label(new ImageBuffer(0, 0)).getComponentCount());
+    }
+
+    @Test
+    void sameComponentsAsUnionFind() {
+        for (Connectivity connectivity : Connectivity.values()) {
+            for (long seed = 0; seed < 5; seed++) {
+                ImageBuffer imageBuffer = randomImage(63, 41, seed);
+                LabelImage labelImage = new ConnectedComponentLabeler(connectivity).label(imageBuffer);
+                assertSameComponents(imageBuffer, labelImage, unionFind(imageBuffer, connectivity));
+            }
+        }
+    }
+
+    @Test
+    void parallelStripsMatchSingleStrip() {
+        RowBandExecutor rowBandExecutor = new RowBandExecutor(4);
+        for (Connectivity connectivity : Connectivity.values()) {
+            for (long seed = 0; seed < 5; seed++) {
+                ImageBuffer imageBuffer = randomImage(57, 230, seed);
+                LabelImage serial = new ConnectedComponentLabeler(connectivity).label(imageBuffer);
+                LabelImage parallel = new ConnectedComponentLabeler(connectivity, rowBandExecutor).label(imageBuffer);
+                assertEquals(serial.getComponentCount(), parallel.getComponentCount());
+                assertArrayEquals(serial.getLabels(), parallel.getLabels());
+                assertSameComponents(imageBuffer, parallel, unionFind(imageBuffer, connectivity));
+            }
+        }
+        rowBandExecutor.shutdown();
+    }
+
+    @Test
+    void componentsCrossingManyStrips() {
+        // A snake that goes back and forth across every strip border
+        ImageBuffer imageBuffer = new ImageBuffer(20, 200);
+        for (int y = 0; y < 200; y++) {
+            for (int x = 0; x < 20; x++) {
+                boolean white = y % 4 == 0 || x == ((y / 4) % 2 == 0 ? 19 : 0);
+                imageBuffer.setArgb(x, y, white ? ImageBuffer.WHITE : ImageBuffer.BLACK);
+            }
+        }
+        RowBandExecutor rowBandExecutor = new RowBandExecutor(8);
+        LabelImage labelImage = new ConnectedComponentLabeler(Connectivity.FOUR, rowBandExecutor).label(imageBuffer);
+        assertEquals(1, labelImage.getComponentCount());
+        rowBandExecutor.shutdown();
+    }
+}
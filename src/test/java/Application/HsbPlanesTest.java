@@ -0,0 +1,45 @@
+package Application;
+
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HsbPlanesTest {
+
+    @Test
+    void keepsEachDistinctColorOnce() {
+        // Two colors, one of them with two different alphas
+        ImageBuffer imageBuffer = new ImageBuffer(3, 2, new int[]{
+                0xFF102030, 0x80102030, 0xFFFFFFFF,
+                0xFFFFFFFF, 0xFF102030, 0xFFFFFFFF});
+        HsbPlanes hsbPlanes = HsbPlanes.fromImageBuffer(imageBuffer);
+
+        assertEquals(2, hsbPlanes.getColorCount());
+        assertArrayEquals(new int[]{0, 0, 1, 1, 0, 1}, hsbPlanes.getColorIndices());
+        assertEquals(0x102030, hsbPlanes.getColor(0));
+        assertEquals(0xFFFFFF, hsbPlanes.getColor(1));
+    }
+
+    @Test
+    void valuesMatchColor() {
+        // Enough colors to grow the color table several times
+        Random random = new Random(11);
+        ImageBuffer imageBuffer = new ImageBuffer(200, 100);
+        for (int i = 0; i < imageBuffer.getPixels().length; i++) {
+            imageBuffer.getPixels()[i] = 0xFF000000 | random.nextInt(1 << 24);
+        }
+        HsbPlanes hsbPlanes = HsbPlanes.fromImageBuffer(imageBuffer);
+
+        for (int i = 0; i < imageBuffer.getPixels().length; i++) {
+            int index = hsbPlanes.getColorIndices()[i];
+            Color color = ImageBuffer.toColor(imageBuffer.getPixels()[i]);
+            assertEquals(imageBuffer.getPixels()[i] & 0xFFFFFF, hsbPlanes.getColor(index));
+            assertEquals(color.getHue(), hsbPlanes.getHue(index));
+            assertEquals(color.getSaturation(), hsbPlanes.getSaturation(index));
+            assertEquals(color.getBrightness(), hsbPlanes.getBrightness(index));
+        }
+    }
+}
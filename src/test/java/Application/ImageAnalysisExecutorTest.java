@@ -0,0 +1,150 @@
+package Application;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageAnalysisExecutorTest {
+
+    @Test
+    void cpuTasksNeverExceedPermits() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Callable<Integer>> loads = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            int value = i;
+            loads.add(() -> value);
+        }
+
+        Map<Integer, Integer> results = new ConcurrentHashMap<>();
+        try (ImageAnalysisExecutor analysisExecutor = new ImageAnalysisExecutor(3)) {
+            analysisExecutor.analyseAll(loads, input -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(5);
+                running.decrementAndGet();
+                return input * 2;
+            }, new ImageAnalysisExecutor.ResultListener<>() {
+                @Override
+                public void onResult(int index, Integer result) {
+                    results.put(index, result);
+                }
+
+                @Override
+                public void onFailure(int index, Exception failure) {
+                    fail(failure);
+                }
+            });
+            assertEquals(3, analysisExecutor.getAvailablePermits());
+        }
+
+        assertTrue(maxRunning.get() <= 3);
+        assertEquals(32, results.size());
+        results.forEach((index, result) -> assertEquals(index * 2, result));
+    }
+
+    @Test
+    void slowLoadsDoNotHoldPermits() throws Exception {
+        // The first image waits on its load until the second one has been analysed with the only permit
+        CountDownLatch secondAnalysed = new CountDownLatch(1);
+        List<Integer> order = new ArrayList<>();
+        List<Callable<Integer>> loads = List.of(() -> {
+            assertTrue(secondAnalysed.await(5, TimeUnit.SECONDS));
+            return 0;
+        }, () -> 1);
+
+        try (ImageAnalysisExecutor analysisExecutor = new ImageAnalysisExecutor(1)) {
+            analysisExecutor.analyseAll(loads, input -> {
+                if (input == 1) secondAnalysed.countDown();
+                return input;
+            }, new ImageAnalysisExecutor.ResultListener<>() {
+                @Override
+                public void onResult(int index, Integer result) {
+                    order.add(index);
+                }
+
+                @Override
+                public void onFailure(int index, Exception failure) {
+                    fail(failure);
+                }
+            });
+        }
+
+        // The results are passed on in the order they finish
+        assertEquals(List.of(1, 0), order);
+    }
+
+    @Test
+    void failuresArePassedOn() throws Exception {
+        List<Callable<Integer>> loads = List.of(() -> 1, () -> {
+            throw new IOException("unreadable");
+        });
+        Map<Integer, Object> outcomes = new ConcurrentHashMap<>();
+
+        try (ImageAnalysisExecutor analysisExecutor = new ImageAnalysisExecutor(2)) {
+            analysisExecutor.analyseAll(loads, input -> input, new ImageAnalysisExecutor.ResultListener<>() {
+                @Override
+                public void onResult(int index, Integer result) {
+                    outcomes.put(index, result);
+                }
+
+                @Override
+                public void onFailure(int index, Exception failure) {
+                    outcomes.put(index, failure);
+                }
+            });
+            assertEquals(2, analysisExecutor.submit(() -> 1, input -> input + 1).get());
+        }
+
+        assertEquals(1, outcomes.get(0));
+        assertInstanceOf(IOException.class, outcomes.get(1));
+    }
+
+    @Test
+    void loadedImagesNeverExceedLoadPermits() throws Exception {
+        // Each image counts as loaded from the start of its load until its analysis is done
+        AtomicInteger loaded = new AtomicInteger();
+        AtomicInteger maxLoaded = new AtomicInteger();
+        List<Callable<Integer>> loads = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            int value = i;
+            loads.add(() -> {
+                maxLoaded.accumulateAndGet(loaded.incrementAndGet(), Math::max);
+                return value;
+            });
+        }
+
+        AtomicInteger analysed = new AtomicInteger();
+        try (ImageAnalysisExecutor analysisExecutor = new ImageAnalysisExecutor(2)) {
+            assertEquals(4, analysisExecutor.getMaxLoaded());
+            analysisExecutor.analyseAll(loads, input -> {
+                Thread.sleep(2);
+                loaded.decrementAndGet();
+                return input;
+            }, new ImageAnalysisExecutor.ResultListener<>() {
+                @Override
+                public void onResult(int index, Integer result) {
+                    analysed.incrementAndGet();
+                }
+
+                @Override
+                public void onFailure(int index, Exception failure) {
+                    fail(failure);
+                }
+            });
+        }
+
+        assertEquals(64, analysed.get());
+        assertTrue(maxLoaded.get() <= 4);
+        assertThrows(IllegalArgumentException.class, () -> new ImageAnalysisExecutor(4, 3));
+    }
+}
@@ -0,0 +1,59 @@
+package Application;
+
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageBufferTest {
+    private ImageBuffer imageBuffer;
+
+    @BeforeEach
+    void setUp() {
+        imageBuffer = new ImageBuffer(3, 2);
+        imageBuffer.setArgb(0, 0, ImageBuffer.WHITE);
+        imageBuffer.setArgb(2, 1, ImageBuffer.BLACK);
+    }
+
+    @Test
+    void index() {
+        assertEquals(0, imageBuffer.index(0, 0));
+        assertEquals(5, imageBuffer.index(2, 1));
+    }
+
+    @Test
+    void getArgb() {
+        assertEquals(ImageBuffer.WHITE, imageBuffer.getArgb(0, 0));
+        assertEquals(ImageBuffer.BLACK, imageBuffer.getPixels()[5]);
+        assertEquals(0, imageBuffer.getArgb(1, 0));
+    }
+
+    @Test
+    void isWhiteAndIsBlack() {
+        assertTrue(imageBuffer.isWhite(0, 0));
+        assertFalse(imageBuffer.isBlack(0, 0));
+        assertTrue(imageBuffer.isBlack(2, 1));
+        // A transparent pixel is neither white nor black, the same as with Color.equals
+        assertFalse(imageBuffer.isWhite(1, 0));
+        assertFalse(imageBuffer.isBlack(1, 0));
+    }
+
+    @Test
+    void invalidDimensions() {
+        assertThrows(IllegalArgumentException.class, () -> new ImageBuffer(2, 2, new int[3]));
+    }
+
+    @Test
+    void colorConversion() {
+        int argb = 0xFF123456;
+        Color color = ImageBuffer.toColor(argb);
+        assertEquals(Color.rgb(0x12, 0x34, 0x56), color);
+        assertEquals(argb, ImageBuffer.toArgb(color));
+        assertEquals(color.getRed(), ImageBuffer.getRed(argb));
+        assertEquals(color.getGreen(), ImageBuffer.getGreen(argb));
+        assertEquals(color.getBlue(), ImageBuffer.getBlue(argb));
+        assertEquals(Color.WHITE, ImageBuffer.toColor(ImageBuffer.WHITE));
+        assertEquals(ImageBuffer.BLACK, ImageBuffer.toArgb(Color.BLACK));
+    }
+}
@@ -0,0 +1,51 @@
+package Application;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImagePyramidTest {
+
+    @Test
+    void downsampleAveragesBlocks() {
+        ImageBuffer imageBuffer = new ImageBuffer(3, 2, new int[]{
+                0xFF000000, 0xFF040404, 0xFF102030,
+                0xFF080808, 0xFF0C0C0C, 0xFF102030});
+        ImageBuffer downsampled = ImagePyramid.downsample(imageBuffer);
+
+        assertEquals(2, downsampled.getWidth());
+        assertEquals(1, downsampled.getHeight());
+        assertArrayEquals(new int[]{0xFF060606, 0xFF102030}, downsampled.getPixels());
+    }
+
+    @Test
+    void buildsLevelsDownToOneEighth() {
+        ImagePyramid imagePyramid = new ImagePyramid(new ImageBuffer(801, 400));
+        assertEquals(4, imagePyramid.getLevelCount());
+        assertEquals(401, imagePyramid.getLevel(1).getWidth());
+        assertEquals(101, imagePyramid.getLevel(3).getWidth());
+        assertEquals(50, imagePyramid.getLevel(3).getHeight());
+
+        // A tiny image stops once it is a single pixel
+        assertEquals(2, new ImagePyramid(new ImageBuffer(2, 1)).getLevelCount());
+    }
+
+    @Test
+    void levelMatchesFitSize() {
+        ImagePyramid imagePyramid = new ImagePyramid(new ImageBuffer(4000, 3000));
+        // Shown at 800x600, so 1/4 (1000x750) is the smallest level that still fills it
+        assertEquals(2, imagePyramid.getLevelFor(800, 500 * 2));
+        // Shown at 667x500, so 1/4 still fills it but 1/8 (500x375) does not
+        assertEquals(2, imagePyramid.getLevelFor(800, 500));
+        assertEquals(3, imagePyramid.getLevelFor(300, 300));
+        assertEquals(0, imagePyramid.getLevelFor(4000, 3000));
+        assertEquals(0, imagePyramid.getLevelFor(0, 0));
+    }
+
+    @Test
+    void hsbPlanesAreKept() {
+        ImagePyramid imagePyramid = new ImagePyramid(new ImageBuffer(8, 8));
+        assertSame(imagePyramid.getHsbPlanes(1), imagePyramid.getHsbPlanes(1));
+        assertEquals(4, imagePyramid.getHsbPlanes(1).getWidth());
+    }
+}
@@ -0,0 +1,141 @@
+package Application;
+
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedImageSourceTest {
+
+    @TempDir
+    Path tempDir;
+
+    // Method to write a buffer as a binary PPM file with a comment in its header
+    static void writePpm(Path path, ImageBuffer imageBuffer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.writeBytes(("P6\n# written by a test\n" + imageBuffer.getWidth() + " " + imageBuffer.getHeight() + "\n255\n")
+                .getBytes(StandardCharsets.US_ASCII));
+        for (int argb : imageBuffer.getPixels()) {
+            bytes.write(argb >> 16);
+            bytes.write(argb >> 8);
+            bytes.write(argb);
+        }
+        Files.write(path, bytes.toByteArray());
+    }
+
+    // A random opaque image
+    private ImageBuffer randomImage(int width, int height) {
+        Random random = new Random(width * 31L + height);
+        ImageBuffer imageBuffer = new ImageBuffer(width, height);
+        int[] pixels = imageBuffer.getPixels();
+        for (int i = 0; i < pixels.length; i++) pixels[i] = 0xFF000000 | random.nextInt(1 << 24);
+        return imageBuffer;
+    }
+
+    @Test
+    void readsPpm() throws IOException {
+        ImageBuffer imageBuffer = randomImage(37, 23);
+        Path path = tempDir.resolve("image.ppm");
+        writePpm(path, imageBuffer);
+
+        try (MappedImageSource source = MappedImageSource.open(path)) {
+            assertEquals(37, source.getWidth());
+            assertEquals(23, source.getHeight());
+            assertEquals(3, source.getChannels());
+            assertArrayEquals(imageBuffer.getPixels(), source.toImageBuffer().getPixels());
+
+            // Read in bands of 10 rows, the last band is short
+            int[] band = new int[37 * 10];
+            assertEquals(10, source.readRows(band, 10));
+            assertEquals(10, source.readRows(band, 10));
+            assertEquals(3, source.readRows(band, 10));
+            assertEquals(imageBuffer.getArgb(36, 22), band[2 * 37 + 36]);
+            assertEquals(0, source.readRows(band, 10));
+        }
+    }
+
+    @Test
+    void readsSixteenBitPgm() throws IOException {
+        // Two gray pixels with a largest value of 1000, big endian
+        Path path = tempDir.resolve("image.pgm");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.writeBytes("P5 2 1 1000\n".getBytes(StandardCharsets.US_ASCII));
+        bytes.writeBytes(new byte[]{0x03, (byte) 0xE8, 0x01, (byte) 0xF4});
+        Files.write(path, bytes.toByteArray());
+
+        try (MappedImageSource source = MappedImageSource.open(path)) {
+            assertEquals(1, source.getChannels());
+            int[] row = new int[2];
+            source.readRow(0, row, 0);
+            assertEquals(0xFFFFFFFF, row[0]);
+            assertEquals(0xFF808080, row[1]);
+        }
+    }
+
+    @Test
+    void readsRawRgb() throws IOException {
+        Path path = tempDir.resolve("image.raw");
+        Files.write(path, new byte[]{(byte) 200, 30, 40, 0, 0, (byte) 255});
+        try (MappedImageSource source = MappedImageSource.openRaw(path, 2, 1, 3)) {
+            assertArrayEquals(new int[]{0xFFC81E28, 0xFF0000FF}, source.toImageBuffer().getPixels());
+        }
+        // The file is too short for two rows
+        assertThrows(IOException.class, () -> MappedImageSource.openRaw(path, 2, 2, 3));
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        Path ascii = tempDir.resolve("ascii.ppm");
+        Files.writeString(ascii, "P3 1 1 255\n255 0 0\n");
+        assertThrows(IOException.class, () -> MappedImageSource.open(ascii));
+
+        Path truncated = tempDir.resolve("truncated.ppm");
+        Files.writeString(truncated, "P6 4 4");
+        assertThrows(IOException.class, () -> MappedImageSource.open(truncated));
+
+        assertTrue(MappedImageSource.isMappable(Path.of("scan.PPM")));
+        assertFalse(MappedImageSource.isMappable(Path.of("scan.png")));
+    }
+
+    @Test
+    void analysesFromTheMapping() throws IOException {
+        TrayImage tray = new TrayImage();
+        Path path = tempDir.resolve("tray.ppm");
+        writePpm(path, tray.imageBuffer);
+
+        AnalysisPipeline analysisPipeline = new AnalysisPipeline(tray.selections, 0, 1, 1, new RowBandExecutor(3));
+        AnalysisResult expected = analysisPipeline.analyse(tray.imageBuffer);
+        try (MappedImageSource source = MappedImageSource.open(path)) {
+            AnalysisResult result = analysisPipeline.analyse(source);
+            assertEquals(expected.getMask(), result.getMask());
+            assertEquals(expected.getPillCounts(), result.getPillCounts());
+        }
+    }
+
+    // A black tray with red and green squares, and selections for both colors
+    private static final class TrayImage {
+        final List<PillSelection> selections = List.of(
+                new PillSelection("Red", Color.rgb(200, 30, 40), 0.3, 4, 200),
+                new PillSelection("Green", Color.rgb(30, 180, 60), 0.3, 4, 200));
+        final ImageBuffer imageBuffer = new ImageBuffer(120, 90);
+
+        TrayImage() {
+            for (int i = 0; i < 6; i++) {
+                int argb = i % 2 == 0 ? 0xFFC81E28 : 0xFF1EB43C;
+                int left = 5 + (i % 3) * 40, top = 10 + (i / 3) * 40;
+                for (int y = top; y < top + 20; y++) {
+                    for (int x = left; x < left + 20; x++) imageBuffer.setArgb(x, y, argb);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package Application;
+
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PillSelectionFileTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void writeThenRead() throws IOException {
+        Path file = tempDir.resolve("selections.csv");
+        List<PillSelection> selections = List.of(
+                new PillSelection("Oxycodone", Color.rgb(212, 180, 40), 0.25, 100, 400),
+                new PillSelection("Vitamin D, 1000 IU", Color.rgb(0, 255, 7), 0.1, 5, 50));
+
+        PillSelectionFile.write(file, selections);
+        List<PillSelection> read = PillSelectionFile.read(file);
+
+        assertEquals(selections.size(), read.size());
+        for (int i = 0; i < selections.size(); i++) {
+            // The colors are read back exactly, so the pixels are classified the same as in the GUI
+            assertEquals(selections.get(i).getName(), read.get(i).getName());
+            assertEquals(selections.get(i).getColor(), read.get(i).getColor());
+            assertEquals(selections.get(i).getColorThreshold(), read.get(i).getColorThreshold());
+            assertEquals(selections.get(i).getMinSize(), read.get(i).getMinSize());
+            assertEquals(selections.get(i).getMaxSize(), read.get(i).getMaxSize());
+        }
+    }
+
+    @Test
+    void readSkipsCommentsAndBlankLines() throws IOException {
+        Path file = tempDir.resolve("selections.csv");
+        Files.writeString(file, "# name,red,green,blue,colorThreshold,minSize,maxSize\n\n  Aspirin , 255, 255, 255, 0.1, 10, 20 \n# Ibuprofen,1,2,3,0.1,1,2\n");
+
+        List<PillSelection> read = PillSelectionFile.read(file);
+
+        assertEquals(1, read.size());
+        assertEquals("Aspirin", read.get(0).getName());
+        assertEquals(Color.WHITE, read.get(0).getColor());
+    }
+
+    @Test
+    void readRejectsBadLines() throws IOException {
+        Path file = tempDir.resolve("selections.csv");
+
+        Files.writeString(file, "Aspirin,255,255,0.1,10,20\n");
+        assertThrows(IllegalArgumentException.class, () -> PillSelectionFile.read(file));
+
+        Files.writeString(file, "Aspirin,256,255,255,0.1,10,20\n");
+        assertThrows(IllegalArgumentException.class, () -> PillSelectionFile.read(file));
+
+        Files.writeString(file, "Aspirin,255,255,255,low,10,20\n");
+        assertThrows(IllegalArgumentException.class, () -> PillSelectionFile.read(file));
+    }
+}
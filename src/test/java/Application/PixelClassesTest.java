@@ -0,0 +1,40 @@
+package Application;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PixelClassesTest {
+
+    @Test
+    void newPixelsHaveNoSelection() {
+        PixelClasses pixelClasses = new PixelClasses(3, 2, 4);
+        for (int y = 0; y < 2; y++) {
+            for (int x = 0; x < 3; x++) {
+                assertEquals(ColorClassifier.NO_SELECTION, pixelClasses.get(x, y));
+            }
+        }
+    }
+
+    @Test
+    void oneByteForFewSelections() {
+        PixelClasses pixelClasses = new PixelClasses(10, 10, 255);
+        assertEquals(100, pixelClasses.getEstimatedBytes());
+        pixelClasses.set(9, 9, 254);
+        pixelClasses.set(0, 0, 0);
+        assertEquals(254, pixelClasses.get(9, 9));
+        assertEquals(0, pixelClasses.get(0, 0));
+        assertEquals(ColorClassifier.NO_SELECTION, pixelClasses.get(1, 0));
+    }
+
+    @Test
+    void twoBytesForManySelections() {
+        PixelClasses pixelClasses = new PixelClasses(10, 10, 256);
+        assertEquals(200, pixelClasses.getEstimatedBytes());
+        pixelClasses.set(3, 4, 255);
+        pixelClasses.set(4, 4, PixelClasses.MAX_SELECTIONS - 1);
+        assertEquals(255, pixelClasses.get(3, 4));
+        assertEquals(PixelClasses.MAX_SELECTIONS - 1, pixelClasses.get(4, 4));
+        assertThrows(IllegalArgumentException.class, () -> new PixelClasses(1, 1, PixelClasses.MAX_SELECTIONS + 1));
+    }
+}
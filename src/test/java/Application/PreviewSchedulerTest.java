@@ -0,0 +1,85 @@
+package Application;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PreviewSchedulerTest {
+    // Results are published straight from the background thread
+    private final PreviewScheduler<Integer> previewScheduler = new PreviewScheduler<>(50, Runnable::run);
+
+    @AfterEach
+    void tearDown() {
+        previewScheduler.shutdown();
+    }
+
+    @Test
+    void coalescesRequests() throws InterruptedException {
+        AtomicInteger renders = new AtomicInteger();
+        List<Integer> published = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        for (int i = 1; i <= 10; i++) {
+            int value = i;
+            previewScheduler.request(() -> {
+                renders.incrementAndGet();
+                return value;
+            }, result -> {
+                published.add(result);
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(1, renders.get());
+        assertEquals(List.of(10), published);
+    }
+
+    @Test
+    void newerRequestInterruptsRender() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        List<Integer> published = new CopyOnWriteArrayList<>();
+
+        // A render that only ends when it is interrupted
+        previewScheduler.request(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return 1;
+        }, published::add);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        previewScheduler.request(() -> 2, result -> {
+            published.add(result);
+            done.countDown();
+        });
+
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(2), published);
+    }
+
+    @Test
+    void cancelDropsPendingRequest() throws InterruptedException {
+        List<Integer> published = new CopyOnWriteArrayList<>();
+        previewScheduler.request(() -> 1, published::add);
+        previewScheduler.cancel();
+
+        Thread.sleep(150);
+        assertTrue(published.isEmpty());
+    }
+}
@@ -0,0 +1,56 @@
+package Application;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RowBandExecutorTest {
+
+    // Count how many times each row is processed
+    private AtomicIntegerArray countRows(RowBandExecutor executor, int height) {
+        AtomicIntegerArray counts = new AtomicIntegerArray(height);
+        executor.forEachBand(height, (startY, endY) -> {
+            for (int y = startY; y < endY; y++) {
+                counts.incrementAndGet(y);
+            }
+        });
+        return counts;
+    }
+
+    @Test
+    void everyRowIsProcessedOnce() {
+        for (int parallelism : new int[]{1, 2, 3, 8}) {
+            RowBandExecutor executor = new RowBandExecutor(parallelism);
+            for (int height : new int[]{0, 1, 15, 16, 17, 100, 1001}) {
+                AtomicIntegerArray counts = countRows(executor, height);
+                for (int y = 0; y < height; y++) {
+                    assertEquals(1, counts.get(y), "row " + y + " of " + height + " with parallelism " + parallelism);
+                }
+            }
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void bandHeight() {
+        assertEquals(100, new RowBandExecutor(1).getBandHeight(100));
+        assertEquals(16, new RowBandExecutor(4).getBandHeight(100));
+        assertEquals(63, new RowBandExecutor(4).getBandHeight(1000));
+    }
+
+    @Test
+    void invalidParallelism() {
+        assertThrows(IllegalArgumentException.class, () -> new RowBandExecutor(0));
+    }
+
+    @Test
+    void exceptionsArePassedOn() {
+        RowBandExecutor executor = new RowBandExecutor(2);
+        assertThrows(IllegalStateException.class, () -> executor.forEachBand(100, (startY, endY) -> {
+            throw new IllegalStateException();
+        }));
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,138 @@
+package Application;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingComponentLabelerTest {
+    private static final int CLASS_COUNT = 3;
+
+    // A random image of classes, where -1 is background and about half of the pixels are in one of the classes
+    private int[] randomClasses(int width, int height, long seed) {
+        Random random = new Random(seed);
+        int[] classes = new int[width * height];
+        for (int i = 0; i < classes.length; i++) {
+            classes[i] = random.nextInt(100) < 50 ? random.nextInt(CLASS_COUNT) : -1;
+        }
+        return classes;
+    }
+
+    // Stream the rows of the image through the labeler and describe each component it reports
+    private List<String> streamComponents(int[] classes, int width, Connectivity connectivity) {
+        List<String> components = new ArrayList<>();
+        StreamingComponentLabeler labeler = new StreamingComponentLabeler(width, connectivity, CLASS_COUNT, stats -> {
+            int[] counts = new int[CLASS_COUNT];
+            for (int c = 0; c < CLASS_COUNT; c++) counts[c] = stats.getClassCount(c);
+            components.add(describe(stats.getArea(), stats.getBoundarySize(), stats.getBounds(), counts));
+        });
+        for (int offset = 0; offset < classes.length; offset += width) {
+            labeler.pushRow(classes, offset);
+        }
+        labeler.finish();
+        components.sort(null);
+        return components;
+    }
+
+    // Label the whole image with the ConnectedComponentLabeler and describe each component
+    private List<String> labeledComponents(int[] classes, int width, Connectivity connectivity) {
+        int height = classes.length / width;
+        ImageBuffer imageBuffer = new ImageBuffer(width, height);
+        for (int i = 0; i < classes.length; i++) {
+            imageBuffer.getPixels()[i] = classes[i] >= 0 ? ImageBuffer.WHITE : ImageBuffer.BLACK;
+        }
+        LabelImage labelImage = new ConnectedComponentLabeler(connectivity).label(imageBuffer);
+
+        int count = labelImage.getComponentCount();
+        int[] area = new int[count + 1], boundary = new int[count + 1];
+        int[][] bounds = new int[count + 1][];
+        int[][] counts = new int[count + 1][CLASS_COUNT];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int label = labelImage.getLabel(x, y);
+                if (label == LabelImage.BACKGROUND) continue;
+                area[label]++;
+                if ((x > 0 && imageBuffer.isBlack(x - 1, y)) || (x < width - 1 && imageBuffer.isBlack(x + 1, y))) boundary[label]++;
+                if (bounds[label] == null) bounds[label] = new int[]{x, x, y, y};
+                bounds[label][0] = Math.min(bounds[label][0], x);
+                bounds[label][1] = Math.max(bounds[label][1], x);
+                bounds[label][3] = y;
+                counts[label][classes[y * width + x]]++;
+            }
+        }
+
+        List<String> components = new ArrayList<>();
+        for (int label = 1; label <= count; label++) {
+            components.add(describe(area[label], boundary[label], bounds[label], counts[label]));
+        }
+        components.sort(null);
+        return components;
+    }
+
+    private String describe(int area, int boundary, int[] bounds, int[] counts) {
+        return area + " " + boundary + " " + Arrays.toString(bounds) + " " + Arrays.toString(counts);
+    }
+
+    @Test
+    void matchesConnectedComponentLabeler() {
+        for (Connectivity connectivity : Connectivity.values()) {
+            for (long seed = 0; seed < 5; seed++) {
+                int[] classes = randomClasses(53, 71, seed);
+                assertEquals(labeledComponents(classes, 53, connectivity), streamComponents(classes, 53, connectivity));
+            }
+        }
+    }
+
+    @Test
+    void componentThatJoinsLate() {
+        // A U shape whose two arms only join in the last row, with a dot inside it
+        int[] classes = {
+                0, -1, -1, -1, 1,
+                0, -1, 2, -1, 1,
+                0, -1, -1, -1, 1,
+                0, 0, 0, 0, 0
+        };
+        List<ComponentStats> components = new ArrayList<>();
+        StreamingComponentLabeler labeler = new StreamingComponentLabeler(5, Connectivity.FOUR, CLASS_COUNT, components::add);
+        for (int offset = 0; offset < classes.length; offset += 5) {
+            labeler.pushRow(classes, offset);
+        }
+
+        // The dot closes once the row below it is scanned, the U only once the image is finished
+        assertEquals(1, components.size());
+        assertEquals(1, components.get(0).getArea());
+        labeler.finish();
+        assertEquals(2, components.size());
+        ComponentStats shape = components.get(1);
+        assertEquals(11, shape.getArea());
+        assertArrayEquals(new int[]{0, 4, 0, 3}, shape.getBounds());
+        assertEquals(0, shape.getMostCommonClass());
+    }
+
+    @Test
+    void labelsAreReusedForTallImages() {
+        // A tall image of many small dots only needs labels for the dots that are open at the same time
+        int width = 40, height = 20000;
+        int[] classes = new int[width * height];
+        Arrays.fill(classes, -1);
+        for (int y = 0; y < height; y += 3) {
+            for (int x = y % 2; x < width; x += 4) {
+                classes[y * width + x] = 0;
+            }
+        }
+
+        int[] closed = new int[1];
+        StreamingComponentLabeler labeler = new StreamingComponentLabeler(width, Connectivity.EIGHT, 1, stats -> closed[0]++);
+        for (int offset = 0; offset < classes.length; offset += width) {
+            labeler.pushRow(classes, offset);
+        }
+        labeler.finish();
+
+        assertEquals(height / 3 * 10 + 10, closed[0]);
+        assertTrue(labeler.getLabelCapacity() <= width, "labels used: " + labeler.getLabelCapacity());
+    }
+}
@@ -58,4 +58,27 @@ class UnionFindTest {
         assertEquals(4, uf.componentSize(1));
         assertEquals(2, uf.components());
     }
+
+    @Test
+    void compact() {
+        // Make a root come after one of its elements.
+        uf.unionBySize(4, 0);
+        assertEquals(2, uf.compact());
+        assertTrue(uf.isCompacted());
+        assertArrayEquals(new int[]{0, 0, 1, 1, 0}, uf.getLabels());
+        assertEquals(uf.find(0), uf.labelRoot(0));
+        assertEquals(uf.find(2), uf.labelRoot(1));
+    }
+
+    @Test
+    void unionClearsLabels() {
+        uf.compact();
+        uf.unionBySize(0, 1);
+        assertTrue(uf.isCompacted());
+        uf.unionBySize(1, 2);
+        assertFalse(uf.isCompacted());
+        assertThrows(IllegalStateException.class, () -> uf.label(0));
+        assertEquals(2, uf.compact());
+        assertEquals(uf.label(0), uf.label(3));
+    }
 }
@@ -1,12 +1,12 @@
 package Manager;
 
+import Application.ImageBuffer;
 import Application.ImageProcessor;
 import javafx.scene.image.Image;
-import javafx.scene.image.PixelReader;
-import javafx.scene.paint.Color;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
@@ -14,18 +14,22 @@ public class BoundaryManagerTest {
     private ImageProcessor imageProcessor;
     private Image image;
     private BoundaryManager boundaryManager;
-    private PixelReader pixelReader;
+    private ImageBuffer imageBuffer;
 
     @BeforeEach
     void setup() {
         // Create mock objects for your tests
         imageProcessor = mock(ImageProcessor.class);
         image = mock(Image.class);
-        pixelReader = mock(PixelReader.class);
+
+        // A 2x2 buffer with a white top row and a white pixel next to a black pixel in the bottom row
+        imageBuffer = new ImageBuffer(2, 2, new int[]{
+                ImageBuffer.WHITE, ImageBuffer.WHITE,
+                ImageBuffer.WHITE, ImageBuffer.BLACK
+        });
 
         // Define the behavior
-        when(imageProcessor.getPixelReader()).thenReturn(pixelReader);  // When getPixelReader() is called, return the mock PixelReader
-        when(pixelReader.getColor(anyInt(), anyInt())).thenReturn(Color.WHITE);  // When getColor() is called with any integers, return WHITE
+        when(imageProcessor.getImageBuffer()).thenReturn(imageBuffer);  // When getImageBuffer() is called, return the buffer
 
         // Initialize the object with the mock objects
         boundaryManager = new BoundaryManager(imageProcessor);
@@ -44,17 +48,13 @@ public class BoundaryManagerTest {
         // Define additional behavior for your mocks
         when(imageProcessor.getWidth()).thenReturn(2);  // When getWidth() is called, return 2
         when(imageProcessor.getHeight()).thenReturn(2);  // When getHeight() is called, return 2
-        when(pixelReader.getColor(0, 1)).thenReturn(Color.WHITE);  // When getColor(0, 1) is called, return WHITE
-        when(pixelReader.getColor(1, 1)).thenReturn(Color.BLACK);  // When getColor(1, 1) is called, return BLACK
-
-        // Call the method
-        boolean isBoundary = boundaryManager.isBoundaryPixel(0, 1);
 
-        // Verify that getColor(0, 1) and getColor(1, 1) were each called exactly once on pixelReader
-        verify(pixelReader, times(1)).getColor(0, 1);
-        verify(pixelReader, times(1)).getColor(1, 1);
+        // The white pixel at (0, 1) has a black pixel to its right
+        assertTrue(boundaryManager.isBoundaryPixel(0, 1));
 
-        // Assert that isBoundary is true
-        assertTrue(isBoundary);
+        // The white pixels in the top row have no black neighbours and the black pixel is never a boundary
+        assertFalse(boundaryManager.isBoundaryPixel(0, 0));
+        assertFalse(boundaryManager.isBoundaryPixel(1, 0));
+        assertFalse(boundaryManager.isBoundaryPixel(1, 1));
     }
 }
@@ -0,0 +1,106 @@
+package Manager;
+
+import Application.BinaryImage;
+import Application.HsbPlanes;
+import Application.ImageBuffer;
+import Application.ImageProcessor;
+import Application.PillSelection;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConversionManagerTest {
+    private ImageProcessor imageProcessor;
+    private ConversionManager conversionManager;
+    private ImageBuffer originalBuffer;
+
+    @BeforeEach
+    void setUp() {
+        imageProcessor = new ImageProcessor();
+        conversionManager = imageProcessor.getConversionManager();
+        imageProcessor.getPillCapsuleManager().addPillSelection(new PillSelection("Red", Color.rgb(200, 30, 40), 0.4, 10, 20));
+        imageProcessor.getPillCapsuleManager().addPillSelection(new PillSelection("Green", Color.rgb(30, 180, 60), 0.5, 10, 20));
+
+        // A random image with some red and green pixels
+        Random random = new Random(3);
+        originalBuffer = new ImageBuffer(97, 211);
+        int[] pixels = originalBuffer.getPixels();
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(1 << 24);
+        }
+    }
+
+    @Test
+    void convertToBlackAndWhite() {
+        conversionManager.setParallelism(1);
+        BinaryImage bwImage = conversionManager.convertToBlackAndWhite(originalBuffer, 0, 1, 1);
+
+        // Every pixel is white exactly when it was given a PillSelection
+        for (int y = 0; y < bwImage.getHeight(); y++) {
+            for (int x = 0; x < bwImage.getWidth(); x++) {
+                assertEquals(conversionManager.pillSelectionArray[y][x] != null, bwImage.isWhite(x, y));
+            }
+        }
+    }
+
+    @Test
+    void parallelConversionMatchesSerial() {
+        conversionManager.setParallelism(1);
+        BinaryImage serialImage = conversionManager.convertToBlackAndWhite(originalBuffer, 40, 1.3, 0.9);
+        PillSelection[][] serialSelections = conversionManager.pillSelectionArray;
+
+        conversionManager.setParallelism(4);
+        assertEquals(4, conversionManager.getParallelism());
+        BinaryImage parallelImage = conversionManager.convertToBlackAndWhite(originalBuffer, 40, 1.3, 0.9);
+
+        assertEquals(serialImage, parallelImage);
+        for (int y = 0; y < serialSelections.length; y++) {
+            assertArrayEquals(serialSelections[y], conversionManager.pillSelectionArray[y]);
+        }
+    }
+
+    @Test
+    void adjustArgbMatchesColor() {
+        // The adjustment without Colors gives the same pixels as going through Color.hsb
+        Random random = new Random(5);
+        double[][] adjustments = {{0, 0.9, 1.2}, {-37.3, 1.7, 0.33}, {359.9, 0, 2}};
+        for (double[] adjustment : adjustments) {
+            for (int i = 0; i < 20000; i++) {
+                int argb = random.nextInt();
+                Color color = ImageBuffer.toColor(argb);
+                Color expected = Color.hsb((color.getHue() + adjustment[0]) % 360,
+                        Math.max(0, Math.min(1, color.getSaturation() * adjustment[1])),
+                        Math.max(0, Math.min(1, color.getBrightness() * adjustment[2])));
+                assertEquals(ImageBuffer.toArgb(expected), ConversionManager.adjustArgb(argb, adjustment[0], adjustment[1], adjustment[2]));
+            }
+        }
+    }
+
+    @Test
+    void classifyPixelsMatchesConversion() {
+        conversionManager.setParallelism(1);
+        BinaryImage bwImage = conversionManager.convertToBlackAndWhite(originalBuffer, 10, 1.1, 0.9);
+
+        int[] classes = new int[originalBuffer.getPixels().length];
+        conversionManager.classifyPixels(originalBuffer.getPixels(), classes, classes.length, 10, 1.1, 0.9);
+        for (int i = 0; i < classes.length; i++) {
+            assertEquals(bwImage.isWhite(i % originalBuffer.getWidth(), i / originalBuffer.getWidth()), classes[i] >= 0);
+        }
+    }
+
+    @Test
+    void hsbPlanesConversionMatchesBufferConversion() {
+        BinaryImage bufferImage = conversionManager.convertToBlackAndWhite(originalBuffer, 25, 0.9, 1.2);
+        PillSelection[][] bufferSelections = conversionManager.pillSelectionArray;
+
+        BinaryImage planesImage = conversionManager.convertToBlackAndWhite(HsbPlanes.fromImageBuffer(originalBuffer), 25, 0.9, 1.2);
+        assertEquals(bufferImage, planesImage);
+        for (int y = 0; y < bufferSelections.length; y++) {
+            assertArrayEquals(bufferSelections[y], conversionManager.pillSelectionArray[y]);
+        }
+    }
+}
@@ -1,11 +1,15 @@
 package Manager;
 
+import Application.ColorClassifier;
 import Application.PillSelection;
 import javafx.scene.paint.Color;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class PillCapsuleManagerTest {
@@ -33,4 +37,43 @@ class PillCapsuleManagerTest {
         assertEquals(1, pillCapsuleManager.getPillSelections().size());
         assertEquals(pillSelection, pillCapsuleManager.getPillSelections().get(0));
     }
+
+    @Test
+    void removeLastPillSelection() {
+        // Test the removeLastPillSelection method here
+        pillCapsuleManager.addPillSelection(pillSelection);
+        pillCapsuleManager.removeLastPillSelection();
+        assertTrue(pillCapsuleManager.getPillSelections().isEmpty());
+        pillCapsuleManager.removeLastPillSelection();
+        assertTrue(pillCapsuleManager.getPillSelections().isEmpty());
+    }
+
+    @Test
+    void clearPillSelections() {
+        // Test the clearPillSelections method here
+        pillCapsuleManager.addPillSelection(pillSelection);
+        pillCapsuleManager.addPillSelection(pillSelection);
+        pillCapsuleManager.clearPillSelections();
+        assertTrue(pillCapsuleManager.getPillSelections().isEmpty());
+    }
+
+    @Test
+    void getColorClassifier() {
+        // Test that the classifier follows the list of PillSelections
+        pillCapsuleManager.addPillSelection(pillSelection);
+        assertSame(pillSelection, pillCapsuleManager.getColorClassifier().getClosestSelection(0xFFFF0000));
+        pillCapsuleManager.clearPillSelections();
+        assertEquals(0, pillCapsuleManager.getColorClassifier().getSelectionCount());
+    }
+
+    @Test
+    void getColorClassifierForCopy() {
+        // Test that a classifier compiled for a copy of the list is not changed when the list changes
+        pillCapsuleManager.addPillSelection(pillSelection);
+        ColorClassifier.Snapshot snapshot = pillCapsuleManager.getColorClassifier(List.copyOf(pillCapsuleManager.getPillSelections()));
+        pillCapsuleManager.clearPillSelections();
+        assertEquals(0, pillCapsuleManager.getColorClassifier().getSelectionCount());
+        assertEquals(1, snapshot.getSelectionCount());
+        assertSame(pillSelection, snapshot.getClosestSelection(0xFFFF0000));
+    }
 }
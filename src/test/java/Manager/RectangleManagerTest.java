@@ -0,0 +1,33 @@
+package Manager;
+
+import Application.ImageProcessor;
+import javafx.event.EventType;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.shape.Rectangle;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RectangleManagerTest {
+
+    // A mouse event of the given type on the primary button, at the top left of the screen
+    private static MouseEvent mouseEvent(EventType<MouseEvent> eventType) {
+        return new MouseEvent(eventType, 0, 0, 0, 0, MouseButton.PRIMARY, 1,
+                false, false, false, false, true, false, false, false, false, false, null);
+    }
+
+    @Test
+    void tooltipIsNotCreatedUntilPressed() {
+        RectangleManager rectangleManager = new RectangleManager(new ImageProcessor());
+        Rectangle rect = new Rectangle(10, 10);
+
+        // Creating a Tooltip needs the JavaFX toolkit, which is not running here, so handling it only sets the events
+        rectangleManager.handleTooltip(rect, "Red", 1);
+        assertNotNull(rect.getOnMousePressed());
+        assertNotNull(rect.getOnMouseReleased());
+
+        // Releasing a rectangle that was never pressed has no Tooltip to hide
+        assertDoesNotThrow(() -> rect.fireEvent(mouseEvent(MouseEvent.MOUSE_RELEASED)));
+    }
+}
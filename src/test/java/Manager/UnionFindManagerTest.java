@@ -1,13 +1,14 @@
 package Manager;
 
+import Application.ConcurrentUnionFind;
+import Application.ImageBuffer;
 import Application.ImageProcessor;
 import Application.UnionFind;
 import javafx.scene.image.Image;
-import javafx.scene.image.PixelReader;
-import javafx.scene.paint.Color;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 
 public class UnionFindManagerTest {
@@ -15,7 +16,6 @@ public class UnionFindManagerTest {
     private UnionFind unionFind;
     private Image image;
     private UnionFindManager unionFindManager;
-    private PixelReader pixelReader;
 
     @BeforeEach
     void setup() {
@@ -23,11 +23,17 @@ public class UnionFindManagerTest {
         imageProcessor = mock(ImageProcessor.class);
         unionFind = mock(UnionFind.class);
         image = mock(Image.class);
-        pixelReader = mock(PixelReader.class);
+
+        // A 2x2 buffer where every pixel is white
+        ImageBuffer imageBuffer = new ImageBuffer(2, 2, new int[]{
+                ImageBuffer.WHITE, ImageBuffer.WHITE,
+                ImageBuffer.WHITE, ImageBuffer.WHITE
+        });
 
         // Define the behavior
-        when(imageProcessor.getPixelReader()).thenReturn(pixelReader);  // When getPixelReader() is called, return the mock PixelReader
-        when(pixelReader.getColor(anyInt(), anyInt())).thenReturn(Color.WHITE);  // When getColor() is called with any integers, return WHITE
+        when(imageProcessor.getImageBuffer()).thenReturn(imageBuffer);  // When getImageBuffer() is called, return the buffer
+        when(imageProcessor.getWidth()).thenReturn(2);  // When getWidth() is called, return 2
+        when(imageProcessor.getHeight()).thenReturn(2);  // When getHeight() is called, return 2
 
         // Initialize the object with the mock objects
         unionFindManager = new UnionFindManager(imageProcessor);
@@ -45,23 +51,35 @@ public class UnionFindManagerTest {
     void testProcessUnionFind() {
         unionFindManager.processUnionFind(unionFind, 0, 0);
 
-        // Verify that getColor(0, 0) was called exactly once on pixelReader
-        verify(pixelReader, times(1)).getColor(0, 0);
+        // Verify that the pixel was joined with the white pixels to its right and below
+        verify(unionFind, times(1)).unionBySize(0, 1);
+        verify(unionFind, times(1)).unionBySize(0, 2);
+        verifyNoMoreInteractions(unionFind);
     }
 
     @Test
     void testUnifyIfWhite() {
-        // Define additional behavior for your mocks
-        when(imageProcessor.getWidth()).thenReturn(2);  // When getWidth() is called, return 2
-        when(imageProcessor.getHeight()).thenReturn(2);  // When getHeight() is called, return 2
-        when(pixelReader.getColor(1, 0)).thenReturn(Color.WHITE);  // When getColor(1, 0) is called, return WHITE
-
         // Call the method
         unionFindManager.unifyIfWhite(unionFind, 0, 0, 0, 1, 0);
 
-        // Verify that getColor(1, 0) was called exactly once on pixelReader
-        verify(pixelReader, times(1)).getColor(1, 0);
+        // Verify that the pixel was joined with the white pixel at (1, 0)
+        verify(unionFind, times(1)).unionBySize(0, 1);
     }
-}
 
+    @Test
+    void testConcurrentUnionFind() {
+        // A 3x2 buffer with a white column on each side
+        ImageBuffer imageBuffer = new ImageBuffer(3, 2, new int[]{
+                ImageBuffer.WHITE, ImageBuffer.BLACK, ImageBuffer.WHITE,
+                ImageBuffer.WHITE, ImageBuffer.BLACK, ImageBuffer.WHITE
+        });
+        ConcurrentUnionFind concurrentUnionFind = new ConcurrentUnionFind(6);
+        unionFindManager.setParallelism(2);
+        unionFindManager.unionFind(concurrentUnionFind, imageBuffer);
 
+        // Two white columns plus two black pixels
+        assertEquals(4, concurrentUnionFind.components());
+        assertEquals(2, concurrentUnionFind.componentSize(3));
+        assertEquals(2, concurrentUnionFind.componentSize(5));
+    }
+}
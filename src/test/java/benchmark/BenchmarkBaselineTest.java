@@ -0,0 +1,100 @@
+package benchmark;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BenchmarkBaselineTest {
+    @TempDir
+    Path tempDir;
+
+    // Method to write a JMH result file with one benchmark, in the format JMH writes
+    private Path writeResult(String name, String mode, double score, double allocation) throws IOException {
+        String json = """
+                [
+                    {
+                        "jmhVersion" : "1.36",
+                        "benchmark" : "benchmark.PipelineBenchmark.%s",
+                        "mode" : "%s",
+                        "params" : {
+                            "threads" : "4",
+                            "megapixels" : "12"
+                        },
+                        "primaryMetric" : {
+                            "score" : %s,
+                            "scoreError" : "NaN",
+                            "scoreUnit" : "ms/op",
+                            "rawData" : [[1.0, 2.5e0]]
+                        },
+                        "secondaryMetrics" : {
+                            "\\u00b7gc.alloc.rate.norm" : {
+                                "score" : %s,
+                                "scoreUnit" : "B/op"
+                            }
+                        }
+                    }
+                ]
+                """.formatted(name, mode, score, allocation);
+        Path file = tempDir.resolve(name + mode + score + ".json");
+        Files.writeString(file, json, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    @Test
+    void readsScoreAndAllocation() throws IOException {
+        Map<String, BenchmarkBaseline.Result> results = BenchmarkBaseline.read(writeResult("benchmarkEndToEnd", "avgt", 150.5, 1000));
+        BenchmarkBaseline.Result result = results.get("benchmark.PipelineBenchmark.benchmarkEndToEnd megapixels=12 threads=4");
+        assertEquals(150.5, result.score());
+        assertEquals(1000, result.allocation());
+        assertFalse(result.higherIsBetter());
+    }
+
+    @Test
+    void slowerTimeIsRegression() throws IOException {
+        BenchmarkBaseline baseline = new BenchmarkBaseline(writeResult("benchmarkConvert", "avgt", 100, 1000));
+        PrintStream output = new PrintStream(new ByteArrayOutputStream());
+        assertEquals(0, baseline.compare(writeResult("benchmarkConvert", "avgt", 105, 1000), 10, output));
+        assertEquals(1, baseline.compare(writeResult("benchmarkConvert", "avgt", 120, 1000), 10, output));
+        assertEquals(0, baseline.compare(writeResult("benchmarkConvert", "avgt", 50, 1000), 10, output));
+    }
+
+    @Test
+    void lowerThroughputIsRegression() throws IOException {
+        BenchmarkBaseline baseline = new BenchmarkBaseline(writeResult("benchmarkBatch", "thrpt", 100, 1000));
+        PrintStream output = new PrintStream(new ByteArrayOutputStream());
+        assertEquals(1, baseline.compare(writeResult("benchmarkBatch", "thrpt", 80, 1000), 10, output));
+        assertEquals(0, baseline.compare(writeResult("benchmarkBatch", "thrpt", 150, 1000), 10, output));
+    }
+
+    @Test
+    void scoresThatCanNotBeComparedAreCounted() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream output = new PrintStream(bytes, true, StandardCharsets.UTF_8);
+
+        // A baseline of 0 would give an infinite change
+        BenchmarkBaseline zeroBaseline = new BenchmarkBaseline(writeResult("benchmarkLabel", "avgt", 0, 1000));
+        assertEquals(1, zeroBaseline.compare(writeResult("benchmarkLabel", "avgt", 100, 1000), 10, output));
+        assertTrue(bytes.toString(StandardCharsets.UTF_8).contains("INVALID BASELINE"));
+
+        // JMH writes a score it could not measure as the string "NaN", which is never above the threshold
+        Path nanFile = writeResult("benchmarkRefine", "avgt", 0, 1000);
+        Files.writeString(nanFile, Files.readString(nanFile).replace("\"score\" : 0.0,", "\"score\" : \"NaN\","));
+        BenchmarkBaseline nanBaseline = new BenchmarkBaseline(nanFile);
+        assertTrue(Double.isNaN(BenchmarkBaseline.read(nanFile).values().iterator().next().score()));
+        assertEquals(1, nanBaseline.compare(writeResult("benchmarkRefine", "avgt", 100, 1000), 10, output));
+
+        // The same for a result that could not be measured
+        BenchmarkBaseline baseline = new BenchmarkBaseline(writeResult("benchmarkRefine", "avgt", 100, 1000));
+        assertEquals(1, baseline.compare(nanFile, 10, output));
+        assertTrue(bytes.toString(StandardCharsets.UTF_8).contains("INVALID RESULT"));
+    }
+}
@@ -0,0 +1,54 @@
+package benchmark;
+
+import Application.AnalysisPipeline;
+import Application.AnalysisResult;
+import Application.PillSelection;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrayFixtureTest {
+
+    // Method to count the pills on a tray with a selection for each of its colors
+    private Map<String, Integer> countPills(TrayFixture trayFixture, int selectionCount) {
+        List<PillSelection> selections = trayFixture.createSelections(selectionCount, 0, 0.9, 1.2);
+        AnalysisResult result = new AnalysisPipeline(selections, 0, 0.9, 1.2).analyse(trayFixture.getImage());
+        return result.getPillCounts();
+    }
+
+    @Test
+    void everyPillIsCounted() {
+        for (int noise : new int[]{0, 16}) {
+            TrayFixture trayFixture = TrayFixture.render(0.3, 24, 4, noise, 0, 7);
+            Map<String, Integer> pillCounts = countPills(trayFixture, 4);
+            for (int color = 0; color < 4; color++) {
+                assertEquals(trayFixture.getPillCount(color), pillCounts.get("Pill " + (color + 1)), "noise " + noise);
+            }
+        }
+    }
+
+    @Test
+    void touchingPillsAreCountedTogether() {
+        TrayFixture trayFixture = TrayFixture.render(0.3, 24, 1, 0, 50, 7);
+        int counted = countPills(trayFixture, 1).get("Pill 1");
+        assertTrue(counted < trayFixture.getPillCount());
+        assertTrue(counted >= trayFixture.getPillCount() / 2);
+    }
+
+    @Test
+    void missingSelectionsLeavePillsOut() {
+        TrayFixture trayFixture = TrayFixture.render(0.3, 24, 4, 0, 0, 7);
+        assertEquals(Map.of("Pill 1", trayFixture.getPillCount(0)), countPills(trayFixture, 1));
+    }
+
+    @Test
+    void sameArgumentsRenderSameTray() {
+        TrayFixture first = TrayFixture.render(0.2, 10, 3, 8, 30, 1);
+        TrayFixture second = TrayFixture.render(0.2, 10, 3, 8, 30, 1);
+        assertArrayEquals(first.getImage().getPixels(), second.getImage().getPixels());
+        assertEquals(200_000, first.getImage().getWidth() * first.getImage().getHeight(), 2_000);
+    }
+}
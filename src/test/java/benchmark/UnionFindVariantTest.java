@@ -0,0 +1,33 @@
+package benchmark;
+
+import Application.BinaryImage;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UnionFindVariantTest {
+
+    @Test
+    void variantsAgreeOnEveryTopology() {
+        for (PixelTopology topology : PixelTopology.values()) {
+            for (int side : new int[]{1, 2, 7, 64, 101}) {
+                BinaryImage image = topology.render(side, side);
+                int expected = UnionFindVariant.CURRENT.label(image);
+                for (UnionFindVariant variant : UnionFindVariant.values()) {
+                    assertEquals(expected, variant.label(image), topology + " " + variant + " " + side);
+                }
+            }
+        }
+    }
+
+    @Test
+    void topologiesHaveExpectedSets() {
+        int side = 64;
+        assertEquals(1, UnionFindVariant.CURRENT.label(PixelTopology.SPIRAL.render(side, 0)));
+        assertEquals(1, UnionFindVariant.CURRENT.label(PixelTopology.COMB.render(side, 0)));
+        assertEquals(1, UnionFindVariant.CURRENT.label(PixelTopology.BLOB.render(side, 0)));
+        BinaryImage checkerboard = PixelTopology.CHECKERBOARD.render(side, 0);
+        assertEquals(checkerboard.countWhite(), UnionFindVariant.CURRENT.label(checkerboard));
+        assertTrue(UnionFindVariant.CURRENT.label(PixelTopology.SPECKS.render(side, 0)) > side);
+    }
+}